@@ -84,7 +84,7 @@ public class RecommendApplication {
         private int defaultRecommendCount = 10;
         private int maxRecommendCount = 100;
         private long cacheExpireTime = 300; // 5分钟
-        private String defaultAlgorithm = "hybrid";
+        private String defaultAlgorithm = "pipeline";
 
         // Getters and Setters
         public String getVersion() { return version; }
@@ -80,7 +80,7 @@ public interface RecommendAlgorithm {
     
     /**
      * 评估推荐模型
-     * @return 评估指标
+     * @return 评估指标（在只用测试窗口之前的数据构建的评估用模型上计算）
      */
     RecommendMetrics evaluateModel();
 } 
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.recommend.algorithm.ann;
+
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.common.utils.TopKSelector;
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 近似检索与精确检索的召回/延迟对比
+ * 用模型中前queries个用户向量作查询，精确结果为全量内积（只统计索引中在线的物品）的Top-K。
+ */
+public final class AnnBenchmark {
+
+    private AnnBenchmark() {
+    }
+
+    @Data
+    public static class Result {
+        private final int queries;
+        private final int k;
+        private final int ef;
+        // 近似结果在精确Top-K中的平均比例
+        private final double recall;
+        private final double annMicros;
+        private final double exactMicros;
+    }
+
+    public static Result run(MaxInnerProductIndex index, int queries, int k, int ef) {
+        FactorModel model = index.getModel();
+        int users = Math.min(queries, model.userCount());
+        float[] scores = new float[model.itemCount()];
+        // 索引成员在计时之外一次算好，精确检索的计时只包含内积和Top-K选择
+        boolean[] indexed = new boolean[model.itemCount()];
+        for (int i = 0; i < indexed.length; i++) {
+            indexed[i] = index.contains(model.itemIdAt(i));
+        }
+        double recall = 0.0;
+        long annNanos = 0;
+        long exactNanos = 0;
+
+        for (int u = 0; u < users; u++) {
+            float[] user = model.userVector(model.getUserIds()[u]);
+
+            long start = System.nanoTime();
+            long[] approximate = index.search(user, k, ef);
+            annNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            model.scoreAll(user, scores);
+            TopKSelector selector = new TopKSelector(k);
+            for (int i = 0; i < scores.length; i++) {
+                if (indexed[i]) {
+                    selector.offer(model.itemIdAt(i), scores[i]);
+                }
+            }
+            long[] exact = selector.toSortedIds();
+            exactNanos += System.nanoTime() - start;
+
+            if (exact.length > 0) {
+                Set<Long> truth = new HashSet<>();
+                for (long id : exact) {
+                    truth.add(id);
+                }
+                int hits = 0;
+                for (long id : approximate) {
+                    if (truth.contains(id)) {
+                        hits++;
+                    }
+                }
+                recall += (double) hits / exact.length;
+            }
+        }
+
+        return new Result(users, k, ef,
+                users > 0 ? recall / users : 0.0,
+                users > 0 ? annNanos / 1000.0 / users : 0.0,
+                users > 0 ? exactNanos / 1000.0 / users : 0.0);
+    }
+}
@@ -0,0 +1,530 @@
+package com.recommend.algorithm.ann;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * HNSW近似最近邻索引（Malkov &amp; Yashunin 2016），距离为平方欧氏距离
+ * 节点按插入顺序编号，向量按行主序存放在连续float数组中；每层邻居用启发式选择，上层稀疏、第0层稠密。
+ * 删除只打墓碑：被删除的节点仍参与图遍历以保持连通，但不出现在结果中；同一ID重新插入时直接恢复。
+ * 查询持读锁可并发，插入/删除持写锁串行。
+ */
+public final class HnswIndex {
+
+    private final int dimension;
+    private final int maxNeighbors;
+    private final int maxNeighborsLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+
+    private float[] vectors;
+    private long[] ids;
+    private boolean[] deleted;
+    private int[] levels;
+    // neighbors[node][level] 为邻居数组，neighborCounts[node][level] 为有效个数
+    private int[][][] neighbors;
+    private int[][] neighborCounts;
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // 每个线程复用的访问标记，避免每次查询分配
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    /**
+     * @param dimension 向量维度
+     * @param maxNeighbors 每层最大邻居数M（第0层为2M）
+     * @param efConstruction 构建时的候选集大小
+     * @param seed 层数随机种子
+     */
+    public HnswIndex(int dimension, int maxNeighbors, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.maxNeighbors = maxNeighbors;
+        this.maxNeighborsLevel0 = maxNeighbors * 2;
+        this.efConstruction = Math.max(efConstruction, maxNeighbors);
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, maxNeighbors));
+        this.random = new Random(seed);
+        allocate(16);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * 有效（未删除）节点数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeById.get(id);
+            return node != null && !deleted[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 插入向量；ID已存在时恢复被删除的节点（向量不变），需要更换向量请重建索引
+     */
+    public void insert(long id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodeById.get(id);
+            if (existing != null) {
+                if (deleted[existing]) {
+                    deleted[existing] = false;
+                    deletedCount--;
+                }
+                return;
+            }
+            if (size == ids.length) {
+                allocate(ids.length * 2);
+            }
+
+            int node = size++;
+            int level = randomLevel();
+            System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+            ids[node] = id;
+            levels[node] = level;
+            neighbors[node] = new int[level + 1][];
+            neighborCounts[node] = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                neighbors[node][l] = new int[capacity(l)];
+            }
+            nodeById.put(id, node);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            // 1. 在新节点层级之上贪心下降
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+
+            // 2. 在各层搜索候选并连边
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                NodeHeap candidates = searchLayer(vector, current, efConstruction, l);
+                int[] selected = selectNeighbors(candidates.sortedAscending(), maxNeighbors);
+                for (int neighbor : selected) {
+                    addLink(node, neighbor, l);
+                    addLink(neighbor, node, l);
+                }
+                current = candidates.peekClosest();
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除（打墓碑），返回是否存在
+     */
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.get(id);
+            if (node == null || deleted[node]) {
+                return false;
+            }
+            deleted[node] = true;
+            deletedCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询与query最近的k个未删除节点，按距离升序返回其ID
+     *
+     * @param ef 搜索候选集大小，越大召回越高、越慢（不小于k）
+     */
+    public long[] search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            int live = size - deletedCount;
+            if (entryPoint < 0 || k <= 0 || live == 0) {
+                return new long[0];
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            // 候选里可能有被删除的节点，按删除比例放大候选集
+            int width = Math.max(ef, k);
+            if (deletedCount > 0) {
+                width = (int) Math.min(size, (long) width * size / live);
+            }
+            return searchLayer(query, current, width, 0).sortedIdsAscending(this, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long memoryFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long links = 0;
+            for (int node = 0; node < size; node++) {
+                for (int[] level : neighbors[node]) {
+                    links += 16 + 4L * level.length;
+                }
+            }
+            return 4L * vectors.length + 8L * ids.length + 5L * ids.length + links + 64L * nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int capacity(int level) {
+        return level == 0 ? maxNeighborsLevel0 : maxNeighbors;
+    }
+
+    private int randomLevel() {
+        double u = 1.0 - random.nextDouble();
+        return (int) (-Math.log(u) * levelMultiplier);
+    }
+
+    private void allocate(int capacity) {
+        vectors = vectors == null ? new float[capacity * dimension] : Arrays.copyOf(vectors, capacity * dimension);
+        ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+        deleted = deleted == null ? new boolean[capacity] : Arrays.copyOf(deleted, capacity);
+        levels = levels == null ? new int[capacity] : Arrays.copyOf(levels, capacity);
+        neighbors = neighbors == null ? new int[capacity][][] : Arrays.copyOf(neighbors, capacity);
+        neighborCounts = neighborCounts == null ? new int[capacity][] : Arrays.copyOf(neighborCounts, capacity);
+    }
+
+    float distance(float[] query, int node) {
+        int base = node * dimension;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - vectors[base + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private float distance(int a, int b) {
+        int baseA = a * dimension;
+        int baseB = b * dimension;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float diff = vectors[baseA + i] - vectors[baseB + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = neighbors[current][level];
+            int count = neighborCounts[current][level];
+            for (int i = 0; i < count; i++) {
+                float d = distance(query, links[i]);
+                if (d < best) {
+                    best = d;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层beam搜索，返回最多ef个最近节点（含被删除节点）
+     */
+    private NodeHeap searchLayer(float[] query, int start, int ef, int level) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(size);
+
+        NodeHeap candidates = new NodeHeap(ef + 1, false);
+        NodeHeap results = new NodeHeap(ef + 1, true);
+        float startDistance = distance(query, start);
+        candidates.push(start, startDistance);
+        results.push(start, startDistance);
+        visited.mark(start);
+
+        while (candidates.size() > 0) {
+            float closest = candidates.topDistance();
+            if (results.size() >= ef && closest > results.topDistance()) {
+                break;
+            }
+            int current = candidates.pop();
+            if (level > levels[current]) {
+                continue;
+            }
+            int[] links = neighbors[current][level];
+            int count = neighborCounts[current][level];
+            for (int i = 0; i < count; i++) {
+                int next = links[i];
+                if (!visited.mark(next)) {
+                    continue;
+                }
+                float d = distance(query, next);
+                if (results.size() < ef || d < results.topDistance()) {
+                    candidates.push(next, d);
+                    results.push(next, d);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选邻居：候选按距离升序，只保留比已选邻居更靠近查询点的候选，保证邻居分散在不同方向
+     *
+     * @param sorted 候选节点及距离，按距离升序，[节点...]与distances对应
+     */
+    private int[] selectNeighbors(NodeHeap.Sorted sorted, int limit) {
+        int[] selected = new int[Math.min(limit, sorted.nodes.length)];
+        int count = 0;
+        for (int i = 0; i < sorted.nodes.length && count < selected.length; i++) {
+            int candidate = sorted.nodes[i];
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidate, selected[j]) < sorted.distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void addLink(int from, int to, int level) {
+        int[] links = neighbors[from][level];
+        int count = neighborCounts[from][level];
+        for (int i = 0; i < count; i++) {
+            if (links[i] == to) {
+                return;
+            }
+        }
+        if (count < links.length) {
+            links[count] = to;
+            neighborCounts[from][level] = count + 1;
+            return;
+        }
+
+        // 邻居已满：连同新节点一起重新启发式选择
+        NodeHeap all = new NodeHeap(count + 1, true);
+        for (int i = 0; i < count; i++) {
+            all.push(links[i], distance(from, links[i]));
+        }
+        all.push(to, distance(from, to));
+        int[] selected = selectNeighbors(all.sortedAscending(), links.length);
+        System.arraycopy(selected, 0, links, 0, selected.length);
+        neighborCounts[from][level] = selected.length;
+    }
+
+    long idAt(int node) {
+        return ids[node];
+    }
+
+    boolean isDeleted(int node) {
+        return deleted[node];
+    }
+
+    /**
+     * 访问标记：用递增的代数代替每次清零
+     */
+    private static final class VisitedMarks {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * 标记节点，已标记过返回false
+         */
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * (节点, 距离)二叉堆；maxTop为true时堆顶距离最大
+     */
+    static final class NodeHeap {
+        private int[] nodes;
+        private float[] distances;
+        private int size;
+        private final boolean maxTop;
+
+        NodeHeap(int capacity, boolean maxTop) {
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.distances = new float[nodes.length];
+            this.maxTop = maxTop;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topDistance() {
+            return distances[0];
+        }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(distance, distances[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float distance = distances[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && before(distances[child + 1], distances[child])) {
+                        child++;
+                    }
+                    if (!before(distances[child], distance)) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return maxTop ? a > b : a < b;
+        }
+
+        /**
+         * 堆中距离最小的节点
+         */
+        int peekClosest() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (distances[i] < distances[best]) {
+                    best = i;
+                }
+            }
+            return nodes[best];
+        }
+
+        /**
+         * 按距离升序导出（在副本上逐个弹出，不修改原堆）
+         */
+        Sorted sortedAscending() {
+            NodeHeap copy = new NodeHeap(size, maxTop);
+            System.arraycopy(nodes, 0, copy.nodes, 0, size);
+            System.arraycopy(distances, 0, copy.distances, 0, size);
+            copy.size = size;
+            Sorted sorted = new Sorted(size);
+            for (int i = 0; i < sorted.nodes.length; i++) {
+                // 最大堆从尾部往前填，最小堆从头往后填
+                int slot = maxTop ? sorted.nodes.length - 1 - i : i;
+                sorted.distances[slot] = copy.topDistance();
+                sorted.nodes[slot] = copy.pop();
+            }
+            return sorted;
+        }
+
+        long[] sortedIdsAscending(HnswIndex index, int k) {
+            Sorted sorted = sortedAscending();
+            long[] result = new long[Math.min(k, sorted.nodes.length)];
+            int count = 0;
+            for (int i = 0; i < sorted.nodes.length && count < result.length; i++) {
+                if (!index.isDeleted(sorted.nodes[i])) {
+                    result[count++] = index.idAt(sorted.nodes[i]);
+                }
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }
+
+        static final class Sorted {
+            final int[] nodes;
+            final float[] distances;
+
+            Sorted(int size) {
+                nodes = new int[size];
+                distances = new float[size];
+            }
+        }
+    }
+}
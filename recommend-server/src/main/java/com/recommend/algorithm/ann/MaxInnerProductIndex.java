@@ -0,0 +1,106 @@
+package com.recommend.algorithm.ann;
+
+import com.recommend.algorithm.model.FactorModel;
+
+/**
+ * 最大内积检索索引
+ * 把物品因子y扩展一维 sqrt(Φ² - |y|²)（Φ为最大物品范数），查询向量扩展一维0，
+ * 扩展后的欧氏最近邻与原空间的最大内积等价，从而可以直接用{@link HnswIndex}检索
+ * （Bachrach et al. 2014）。索引绑定构建时的因子模型，模型重新训练后需要重建。
+ */
+public final class MaxInnerProductIndex {
+
+    private final FactorModel model;
+    private final HnswIndex index;
+    private final float maxNorm;
+
+    private MaxInnerProductIndex(FactorModel model, HnswIndex index, float maxNorm) {
+        this.model = model;
+        this.index = index;
+        this.maxNorm = maxNorm;
+    }
+
+    /**
+     * 为因子模型的全部物品构建索引
+     */
+    public static MaxInnerProductIndex build(FactorModel model, int maxNeighbors, int efConstruction) {
+        int k = model.getFactors();
+        float[] factors = model.getItemFactors();
+        float maxNorm = 0f;
+        for (int i = 0; i < model.itemCount(); i++) {
+            maxNorm = Math.max(maxNorm, squaredNorm(factors, i * k, k));
+        }
+        maxNorm = (float) Math.sqrt(maxNorm);
+
+        MaxInnerProductIndex result = new MaxInnerProductIndex(model,
+                new HnswIndex(k + 1, maxNeighbors, efConstruction, 42L), maxNorm);
+        for (int i = 0; i < model.itemCount(); i++) {
+            result.index.insert(model.itemIdAt(i), result.augment(i));
+        }
+        return result;
+    }
+
+    /**
+     * 构建索引时使用的因子模型
+     */
+    public FactorModel getModel() {
+        return model;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public boolean contains(long itemId) {
+        return index.contains(itemId);
+    }
+
+    /**
+     * 重新上线物品（必须是构建时模型中的物品）
+     */
+    public boolean insert(long itemId) {
+        int itemIdx = model.itemIndex(itemId);
+        if (itemIdx < 0) {
+            return false;
+        }
+        index.insert(itemId, augment(itemIdx));
+        return true;
+    }
+
+    /**
+     * 下线物品
+     */
+    public boolean delete(long itemId) {
+        return index.delete(itemId);
+    }
+
+    /**
+     * 与用户向量内积最大的k个在线物品ID，按内积降序
+     */
+    public long[] search(float[] user, int k, int ef) {
+        float[] query = new float[user.length + 1];
+        System.arraycopy(user, 0, query, 0, user.length);
+        return index.search(query, k, ef);
+    }
+
+    public long memoryFootprintBytes() {
+        return index.memoryFootprintBytes();
+    }
+
+    private float[] augment(int itemIdx) {
+        int k = model.getFactors();
+        float[] vector = new float[k + 1];
+        System.arraycopy(model.getItemFactors(), itemIdx * k, vector, 0, k);
+        float squared = squaredNorm(vector, 0, k);
+        vector[k] = (float) Math.sqrt(Math.max(0f, maxNorm * maxNorm - squared));
+        return vector;
+    }
+
+    private static float squaredNorm(float[] values, int offset, int length) {
+        float sum = 0f;
+        for (int i = offset; i < offset + length; i++) {
+            sum += values[i] * values[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,434 @@
+package com.recommend.algorithm.evaluation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.recommend.algorithm.RecommendAlgorithm;
+import com.recommend.algorithm.RecommendMetrics;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.train.ParallelTrainer;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.entity.Order;
+import com.recommend.common.entity.User;
+import com.recommend.service.OrderService;
+import com.recommend.service.feature.ItemFeatureStore;
+import com.recommend.service.hydration.EntityHydrationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线评估引擎
+ * 按时间留出集取真实反馈（测试窗口内评分不低于阈值的订单），按固定种子随机抽取测试用户，每个用户并行只推荐一次，
+ * 所有指标在同一份推荐列表上一次遍历算出；结果写成JSON报告并保留最近一份，供权重调整异步读取。
+ * 支持{@link HoldoutTrainable}的算法只用测试窗口起点之前的数据单独构建一份评估用模型再评估，没有数据泄漏；
+ * 其余算法评估线上模型，此时测试窗口内的交互已进入模型，指标会虚高：默认拒绝执行并告警，allow-leakage打开时照常评估但在报告中标记。
+ */
+@Component
+@Slf4j
+public class EvaluationEngine {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    // 注册60天内的陪玩师视为新颖
+    private static final long NOVEL_MASTER_DAYS = 60;
+
+    // 7天内有更新的陪玩师视为最近活跃
+    private static final long ACTIVE_MASTER_DAYS = 7;
+
+    // 注册30天内的用户视为冷启动用户
+    private static final long NEW_USER_DAYS = 30;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityHydrationService entityHydrationService;
+
+    @Autowired
+    private ItemFeatureStore itemFeatureStore;
+
+    @Autowired
+    private ParallelTrainer parallelTrainer;
+
+    // 每个用户的推荐列表长度
+    @Value("${recommend.evaluation.cutoff:10}")
+    private int cutoff;
+
+    // 参与评估的最大用户数
+    @Value("${recommend.evaluation.max-users:500}")
+    private int maxUsers;
+
+    // 留出测试窗口（天）
+    @Value("${recommend.evaluation.holdout-days:7}")
+    private int holdoutDays;
+
+    // 评分不低于该值的订单视为喜欢
+    @Value("${recommend.evaluation.like-rating:4.0}")
+    private double likeRating;
+
+    // 抽样测试用户的随机种子，固定后多次评估抽到同一批用户
+    @Value("${recommend.evaluation.sample-seed:20240601}")
+    private long sampleSeed;
+
+    // 模型数据覆盖测试窗口时是否仍然评估（指标偏高，仅用于同口径比较）
+    @Value("${recommend.evaluation.allow-leakage:false}")
+    private boolean allowLeakage;
+
+    // 报告输出目录，为空时不落盘
+    @Value("${recommend.evaluation.report-dir:data/evaluation-reports}")
+    private String reportDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, EvaluationReport> latestReports = new ConcurrentHashMap<>();
+
+    /**
+     * 用默认留出窗口评估算法：支持留出训练的，用测试窗口起点之前的数据构建评估用模型后评估；
+     * 否则评估线上模型（用截至当前的数据训练并实时增量更新，数据截止时间取当前时间）
+     */
+    public EvaluationReport evaluate(String name, RecommendAlgorithm algorithm) {
+        HoldoutSplit split = HoldoutSplit.lastDays(holdoutDays);
+        if (algorithm instanceof HoldoutTrainable) {
+            long start = System.currentTimeMillis();
+            HoldoutRecommender holdout = ((HoldoutTrainable) algorithm).trainHoldout(split.getTestStart());
+            log.info("离线评估[{}]的评估用模型构建完成，数据截止于{}，耗时: {}ms",
+                    name, split.getTestStart(), System.currentTimeMillis() - start);
+            return evaluateRecommender(name, holdout, split, split.getTestStart());
+        }
+        return evaluate(name, algorithm, split, new Date());
+    }
+
+    /**
+     * 在线程池中异步评估，不阻塞调用方（如训练流程）
+     */
+    @Async
+    public CompletableFuture<EvaluationReport> evaluateAsync(String name, RecommendAlgorithm algorithm) {
+        return CompletableFuture.completedFuture(evaluate(name, algorithm));
+    }
+
+    /**
+     * 评估算法并写出报告
+     *
+     * @param trainedUntil 被评估模型所用数据（含在线增量更新）的截止时间，不晚于测试窗口起点时才没有泄漏
+     */
+    public EvaluationReport evaluate(String name, RecommendAlgorithm algorithm, HoldoutSplit split, Date trainedUntil) {
+        return evaluateRecommender(name, (userId, limit) -> algorithm.recommendGameMasters(userId, null, limit),
+                split, trainedUntil);
+    }
+
+    private EvaluationReport evaluateRecommender(String name, HoldoutRecommender recommender, HoldoutSplit split,
+                                                 Date trainedUntil) {
+        long start = System.currentTimeMillis();
+
+        // 1. 模型数据覆盖测试窗口时指标会虚高，默认拒绝执行
+        boolean leakage = trainedUntil == null || trainedUntil.after(split.getTestStart());
+        if (leakage && !allowLeakage) {
+            log.warn("离线评估[{}]已跳过：模型数据截止于{}，晚于测试窗口起点{}，测试窗口内的交互已进入模型；"
+                    + "请用测试窗口之前的数据训练模型后评估，或打开recommend.evaluation.allow-leakage",
+                    name, trainedUntil, split.getTestStart());
+            EvaluationReport report = EvaluationReport.builder()
+                    .algorithm(name)
+                    .testStart(split.getTestStart())
+                    .testEnd(split.getTestEnd())
+                    .trainedUntil(trainedUntil)
+                    .leakage(true)
+                    .skipped(true)
+                    .createTime(new Date())
+                    .build();
+            latestReports.put(name, report);
+            return report;
+        }
+        if (leakage) {
+            log.warn("离线评估[{}]存在数据泄漏（模型数据截止于{}，测试窗口起点{}），指标偏高，仅用于同口径比较",
+                    name, trainedUntil, split.getTestStart());
+        }
+
+        // 2. 一次查询测试窗口内的订单，得到每个用户的真实反馈；按固定种子随机抽取测试用户
+        Map<Long, Map<Long, Double>> truth = loadGroundTruth(split);
+        List<Long> candidates = new ArrayList<>(truth.keySet());
+        List<Long> testUsers = sampleUsers(candidates);
+        Set<Long> newUsers = findNewUsers(testUsers, split.getTestStart().getTime());
+
+        // 3. 每个用户并行推荐一次，并在同一份列表上算出全部单用户指标
+        UserResult[] results = new UserResult[testUsers.size()];
+        long[] indices = new long[testUsers.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        parallelTrainer.forEach("离线评估-" + name, indices, idx -> {
+            int i = (int) idx;
+            Long userId = testUsers.get(i);
+            List<GameMaster> recommendations = recommender.recommendGameMasters(userId, cutoff);
+            results[i] = evaluateUser(recommendations, truth.get(userId), newUsers.contains(userId),
+                    split.getTestEnd().getTime());
+        });
+
+        // 4. 汇总
+        RecommendMetrics metrics = aggregate(results);
+        int evaluated = 0;
+        for (UserResult result : results) {
+            if (result != null) {
+                evaluated++;
+            }
+        }
+
+        EvaluationReport report = EvaluationReport.builder()
+                .algorithm(name)
+                .testStart(split.getTestStart())
+                .testEnd(split.getTestEnd())
+                .trainedUntil(trainedUntil)
+                .leakage(leakage)
+                .skipped(false)
+                .cutoff(cutoff)
+                .candidateUsers(candidates.size())
+                .evaluatedUsers(evaluated)
+                .failedUsers(results.length - evaluated)
+                .elapsedMillis(System.currentTimeMillis() - start)
+                .createTime(new Date())
+                .metrics(metrics)
+                .build();
+        latestReports.put(name, report);
+        writeReport(report);
+
+        log.info("离线评估[{}]完成，用户: {}/{}，准确率: {}，召回率: {}，NDCG: {}，覆盖率: {}，耗时: {}ms",
+                name, evaluated, candidates.size(), metrics.getPrecision(), metrics.getRecall(),
+                metrics.getNdcg(), metrics.getCoverage(), report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 获取算法最近一次的评估报告，没有返回null
+     */
+    public EvaluationReport getLatestReport(String name) {
+        return latestReports.get(name);
+    }
+
+    /**
+     * 测试窗口内每个用户喜欢的陪玩师及评分（同一陪玩师取最高评分），用户ID升序
+     */
+    private Map<Long, Map<Long, Double>> loadGroundTruth(HoldoutSplit split) {
+        Map<Long, Map<Long, Double>> truth = new TreeMap<>();
+        for (Order order : orderService.getOrdersByTimeRange(split.getTestStart(), split.getTestEnd())) {
+            if (order.getUserId() == null || order.getMasterId() == null
+                    || order.getRating() == null || order.getRating() < likeRating) {
+                continue;
+            }
+            truth.computeIfAbsent(order.getUserId(), k -> new HashMap<>())
+                    .merge(order.getMasterId(), order.getRating(), Math::max);
+        }
+        return truth;
+    }
+
+    /**
+     * 超过上限时按固定种子随机抽取，避免总是取到ID最小（最早注册）的用户
+     */
+    private List<Long> sampleUsers(List<Long> candidates) {
+        if (candidates.size() <= maxUsers) {
+            return candidates;
+        }
+        List<Long> shuffled = new ArrayList<>(candidates);
+        Collections.shuffle(shuffled, new Random(sampleSeed));
+        return new ArrayList<>(shuffled.subList(0, maxUsers));
+    }
+
+    private Set<Long> findNewUsers(List<Long> userIds, long reference) {
+        Set<Long> newUsers = new HashSet<>();
+        for (User user : entityHydrationService.getUsers(userIds)) {
+            if (user.getCreateTime() != null
+                    && (reference - user.getCreateTime().getTime()) / MILLIS_PER_DAY <= NEW_USER_DAYS) {
+                newUsers.add(user.getId());
+            }
+        }
+        return newUsers;
+    }
+
+    private UserResult evaluateUser(List<GameMaster> recommendations, Map<Long, Double> ratings,
+                                    boolean newUser, long now) {
+        UserResult result = new UserResult();
+        int size = recommendations.size();
+        result.recommended = new long[size];
+        result.newUser = newUser;
+        if (size == 0) {
+            return result;
+        }
+
+        int hits = 0;
+        int firstHit = 0;
+        double dcg = 0.0;
+        int novel = 0;
+        int active = 0;
+        for (int i = 0; i < size; i++) {
+            GameMaster master = recommendations.get(i);
+            result.recommended[i] = master.getId();
+            Double rating = ratings.get(master.getId());
+            if (rating != null) {
+                hits++;
+                if (firstHit == 0) {
+                    firstHit = i + 1;
+                }
+                dcg += gain(rating, i);
+            }
+            if (master.getCreateTime() != null
+                    && (now - master.getCreateTime().getTime()) / MILLIS_PER_DAY <= NOVEL_MASTER_DAYS) {
+                novel++;
+            }
+            if (master.getUpdateTime() != null
+                    && (now - master.getUpdateTime().getTime()) / MILLIS_PER_DAY <= ACTIVE_MASTER_DAYS) {
+                active++;
+            }
+        }
+
+        // 理想排序：真实评分从高到低
+        double[] ideal = ratings.values().stream()
+                .mapToDouble(Double::doubleValue)
+                .sorted()
+                .toArray();
+        double idcg = 0.0;
+        for (int i = 0; i < Math.min(size, ideal.length); i++) {
+            idcg += gain(ideal[ideal.length - 1 - i], i);
+        }
+
+        result.precision = (double) hits / size;
+        result.recall = (double) hits / ratings.size();
+        result.reciprocalRank = firstHit > 0 ? 1.0 / firstHit : 0.0;
+        result.ndcg = idcg > 0 ? dcg / idcg : 0.0;
+        result.novelty = (double) novel / size;
+        result.timeliness = (double) active / size;
+        result.diversity = intraListDiversity(result.recommended);
+        return result;
+    }
+
+    /**
+     * 列表内多样性：1 - 两两特征相似度的均值（统一使用陪玩师特征表，便于算法间比较）
+     */
+    private double intraListDiversity(long[] masterIds) {
+        if (masterIds.length < 2) {
+            return Double.NaN;
+        }
+        FeatureTable table = itemFeatureStore.masterTable();
+        double total = 0.0;
+        int pairs = 0;
+        for (int i = 0; i < masterIds.length; i++) {
+            int row1 = table.indexOf(masterIds[i]);
+            for (int j = i + 1; j < masterIds.length; j++) {
+                int row2 = table.indexOf(masterIds[j]);
+                total += row1 >= 0 && row2 >= 0 ? table.cosine(row1, row2)
+                        : itemFeatureStore.masterSimilarity(masterIds[i], masterIds[j]);
+                pairs++;
+            }
+        }
+        return 1.0 - total / pairs;
+    }
+
+    private RecommendMetrics aggregate(UserResult[] results) {
+        double precision = 0.0;
+        double recall = 0.0;
+        double mrr = 0.0;
+        double ndcg = 0.0;
+        double novelty = 0.0;
+        double timeliness = 0.0;
+        double diversity = 0.0;
+        double coldStart = 0.0;
+        int users = 0;
+        int diversityUsers = 0;
+        int coldStartUsers = 0;
+        Set<Long> recommended = new HashSet<>();
+
+        for (UserResult result : results) {
+            if (result == null) {
+                continue;
+            }
+            users++;
+            precision += result.precision;
+            recall += result.recall;
+            mrr += result.reciprocalRank;
+            ndcg += result.ndcg;
+            novelty += result.novelty;
+            timeliness += result.timeliness;
+            if (!Double.isNaN(result.diversity)) {
+                diversity += result.diversity;
+                diversityUsers++;
+            }
+            if (result.newUser) {
+                coldStart += result.precision;
+                coldStartUsers++;
+            }
+            for (long masterId : result.recommended) {
+                recommended.add(masterId);
+            }
+        }
+
+        int totalMasters = itemFeatureStore.masterTable().rowCount();
+        RecommendMetrics metrics = RecommendMetrics.builder()
+                .precision(average(precision, users))
+                .recall(average(recall, users))
+                .mrr(average(mrr, users))
+                .ndcg(average(ndcg, users))
+                .coverage(totalMasters > 0 ? Math.min(1.0, (double) recommended.size() / totalMasters) : 0.0)
+                .diversity(average(diversity, diversityUsers))
+                .novelty(average(novelty, users))
+                .timeliness(average(timeliness, users))
+                .coldStartPerformance(average(coldStart, coldStartUsers))
+                .build();
+        metrics.calculateF1Score();
+        return metrics;
+    }
+
+    private void writeReport(EvaluationReport report) {
+        if (reportDir == null || reportDir.isEmpty()) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(reportDir);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(report.getAlgorithm() + "-" + report.getCreateTime().getTime() + ".json");
+            objectMapper.writeValue(file.toFile(), report);
+        } catch (IOException e) {
+            log.error("写入评估报告失败，算法: {}", report.getAlgorithm(), e);
+        }
+    }
+
+    private static double gain(double rating, int position) {
+        return (Math.pow(2, rating) - 1) / (Math.log(position + 2) / Math.log(2));
+    }
+
+    private static double average(double total, int count) {
+        return count > 0 ? total / count : 0.0;
+    }
+
+    /**
+     * 单个用户的评估结果
+     */
+    private static final class UserResult {
+        long[] recommended;
+        boolean newUser;
+        double precision;
+        double recall;
+        double reciprocalRank;
+        double ndcg;
+        double novelty;
+        double timeliness;
+        double diversity = Double.NaN;
+    }
+}
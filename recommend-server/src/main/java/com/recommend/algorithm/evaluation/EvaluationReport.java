@@ -0,0 +1,80 @@
+package com.recommend.algorithm.evaluation;
+
+import com.recommend.algorithm.RecommendMetrics;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 离线评估报告
+ */
+@Data
+@Builder
+public class EvaluationReport {
+
+    /**
+     * 算法名称
+     */
+    private String algorithm;
+
+    /**
+     * 测试窗口起点
+     */
+    private Date testStart;
+
+    /**
+     * 测试窗口终点
+     */
+    private Date testEnd;
+
+    /**
+     * 被评估模型所用数据的截止时间（含在线增量更新）
+     */
+    private Date trainedUntil;
+
+    /**
+     * 模型数据是否覆盖了测试窗口；为true时指标偏高，只能在同口径的算法之间比较
+     */
+    private Boolean leakage;
+
+    /**
+     * 是否因数据泄漏被拒绝执行（此时没有指标）
+     */
+    private Boolean skipped;
+
+    /**
+     * 每个用户的推荐列表长度（K）
+     */
+    private Integer cutoff;
+
+    /**
+     * 测试窗口内有正反馈的用户数
+     */
+    private Integer candidateUsers;
+
+    /**
+     * 实际参与评估的用户数
+     */
+    private Integer evaluatedUsers;
+
+    /**
+     * 推荐失败的用户数
+     */
+    private Integer failedUsers;
+
+    /**
+     * 评估耗时（毫秒）
+     */
+    private Long elapsedMillis;
+
+    /**
+     * 报告生成时间
+     */
+    private Date createTime;
+
+    /**
+     * 评估指标
+     */
+    private RecommendMetrics metrics;
+}
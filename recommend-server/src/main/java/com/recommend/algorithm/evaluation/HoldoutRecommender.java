@@ -0,0 +1,19 @@
+package com.recommend.algorithm.evaluation;
+
+import com.recommend.common.entity.GameMaster;
+
+import java.util.List;
+
+/**
+ * 评估用模型上的陪玩师推荐，需支持多线程并发调用
+ */
+@FunctionalInterface
+public interface HoldoutRecommender {
+
+    /**
+     * @param userId 用户ID
+     * @param limit 推荐数量
+     * @return 推荐的陪玩师，按得分降序
+     */
+    List<GameMaster> recommendGameMasters(Long userId, int limit);
+}
@@ -0,0 +1,27 @@
+package com.recommend.algorithm.evaluation;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按时间切分的留出集
+ * 测试窗口[testStart, testEnd)内的订单作为真实反馈。被评估模型的数据（训练数据及在线增量更新）
+ * 截止时间晚于testStart时存在数据泄漏，评估引擎默认拒绝执行；支持留出训练的算法用testStart之前的数据单独建模，没有泄漏。
+ */
+@Data
+public class HoldoutSplit {
+
+    private final Date testStart;
+
+    private final Date testEnd;
+
+    /**
+     * 以当前时间为终点，最近days天作为测试窗口
+     */
+    public static HoldoutSplit lastDays(int days) {
+        Date end = new Date();
+        return new HoldoutSplit(new Date(end.getTime() - TimeUnit.DAYS.toMillis(days)), end);
+    }
+}
@@ -0,0 +1,18 @@
+package com.recommend.algorithm.evaluation;
+
+import java.util.Date;
+
+/**
+ * 可以只用测试窗口之前的数据单独构建一份评估用模型的算法
+ * 评估用模型不发布、不接收在线增量更新，评估结束即丢弃，测试窗口内的交互不会进入模型。
+ */
+public interface HoldoutTrainable {
+
+    /**
+     * 只用until之前的交互构建评估用模型
+     *
+     * @param until 数据截止时间（不含），即测试窗口起点
+     * @return 基于该模型的陪玩师推荐
+     */
+    HoldoutRecommender trainHoldout(Date until);
+}
@@ -2,298 +2,523 @@ package com.recommend.algorithm.impl;
 
 import com.recommend.algorithm.RecommendAlgorithm;
 import com.recommend.algorithm.RecommendMetrics;
+import com.recommend.algorithm.evaluation.EvaluationEngine;
+import com.recommend.algorithm.evaluation.HoldoutRecommender;
+import com.recommend.algorithm.evaluation.HoldoutTrainable;
+import com.recommend.algorithm.model.CollaborativeFilteringModel;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.ModelSnapshot;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.algorithm.model.ScoringContext;
+import com.recommend.algorithm.model.SparseMatrix;
+import com.recommend.algorithm.model.SparseRow;
+import com.recommend.algorithm.model.UpdateJournal;
+import com.recommend.algorithm.train.ParallelTrainer;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.Game;
+import com.recommend.common.entity.UserBehavior;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.event.ModelTrainedEvent;
+import com.recommend.common.utils.LongHashSet;
+import com.recommend.common.utils.TopKSelector;
 import com.recommend.service.*;
+import com.recommend.service.feature.ItemFeatureStore;
+import com.recommend.service.feature.PopularityCounters;
+import com.recommend.service.feature.PopularityStore;
+import com.recommend.service.hydration.EntityHydrationService;
+import com.recommend.service.recall.PopularityBoard;
+import com.recommend.service.recall.PopularityLeaderboard;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
-public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
+public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm, HoldoutTrainable {
     
     @Autowired
     private UserService userService;
     
     @Autowired
-    private GameMasterService gameMasterService;
+    private UserBehaviorService userBehaviorService;
     
     @Autowired
-    private GameService gameService;
+    private UserProfileService userProfileService;
     
     @Autowired
-    private UserBehaviorService userBehaviorService;
+    private EntityHydrationService entityHydrationService;
     
     @Autowired
-    private OrderService orderService;
+    private ParallelTrainer parallelTrainer;
     
     @Autowired
-    private UserProfileService userProfileService;
+    private ItemFeatureStore itemFeatureStore;
+    
+    @Autowired
+    private PopularityLeaderboard popularityLeaderboard;
+    
+    @Autowired
+    private PopularityStore popularityStore;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private EvaluationEngine evaluationEngine;
     
-    // 用户-游戏陪玩评分矩阵
-    private Map<Long, Map<Long, Double>> userMasterRatings;
+    // 每个陪玩师/游戏保留的相似邻居数
+    @Value("${recommend.algorithm.collaborative-filtering.neighbor-count:50}")
+    private int neighborCount;
     
-    // 用户-游戏评分矩阵
-    private Map<Long, Map<Long, Double>> userGameRatings;
+    // 相似度低于该阈值的邻居不保留
+    @Value("${recommend.algorithm.collaborative-filtering.similarity-threshold:0.1}")
+    private double similarityThreshold;
     
-    // 游戏陪玩相似度矩阵
-    private Map<Long, Map<Long, Double>> masterSimilarity;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 当前发布的模型快照，训练完成后整体替换
+    private final ModelSnapshotHolder<CollaborativeFilteringModel> modelHolder =
+            new ModelSnapshotHolder<>("collaborative-filtering", CollaborativeFilteringModel.empty());
+    
+    // 训练期间增量更新过的用户评分行、陪玩师/游戏邻居行，新快照发布后重放
+    private final UpdateJournal userJournal = new UpdateJournal();
+    private final UpdateJournal masterJournal = new UpdateJournal();
+    private final UpdateJournal gameJournal = new UpdateJournal();
     
-    // 游戏相似度矩阵
-    private Map<Long, Map<Long, Double>> gameSimilarity;
+    @PostConstruct
+    public void registerMetrics() {
+        modelHolder.bindTo(meterRegistry);
+    }
     
     @Override
     public List<GameMaster> recommendGameMasters(Long userId, Long gameId, Integer limit) {
-        // 1. 获取用户的历史行为数据
-        List<Long> userHistory = getUserHistory(userId);
+        // 1. 获取用户的历史行为数据（整个请求只查询一次）
+        ScoringContext context = createScoringContext(userId);
+        
+        // 2. 只对评分行、历史目标及其邻居打分，取得分最高的limit个
+        CollaborativeFilteringModel model = modelHolder.model();
+        long[] masterIds = topMasters(context, model.getUserMasterRow(userId), model, gameId, limit);
         
-        // 2. 计算用户与游戏陪玩的相似度
-        Map<Long, Double> masterScores = new HashMap<>();
-        for (Long masterId : getAllMasters()) {
+        // 3. 没有历史（冷启动用户）时候选集为空，退回热度榜
+        if (masterIds.length == 0 && context.getHistory().length == 0) {
+            masterIds = popularMasters(gameId, limit);
+        }
+        return entityHydrationService.getGameMasters(masterIds);
+    }
+    
+    /**
+     * 热度榜上的前limit个在线陪玩师，指定游戏时只取支持该游戏类型的
+     */
+    private long[] popularMasters(Long gameId, int limit) {
+        if (gameId == null) {
+            return popularityLeaderboard.top(limit);
+        }
+        PopularityBoard board = popularityLeaderboard.board(PopularityLeaderboard.GLOBAL);
+        long[] masterIds = new long[Math.min(limit, board.size())];
+        int count = 0;
+        for (int rank = 0; rank < board.size() && count < masterIds.length; rank++) {
+            if (isMasterGameMatch(board.idAt(rank), gameId)) {
+                masterIds[count++] = board.idAt(rank);
+            }
+        }
+        return Arrays.copyOf(masterIds, count);
+    }
+    
+    /**
+     * 评估用模型：邻居表由陪玩师特征计算，与交互无关，沿用当前快照；
+     * 用户侧不用评分行，只用until之前的行为作为历史
+     */
+    @Override
+    public HoldoutRecommender trainHoldout(Date until) {
+        CollaborativeFilteringModel model = modelHolder.model();
+        return (userId, limit) -> {
+            List<UserBehavior> history = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
+                    .filter(behavior -> behavior.getCreateTime() != null && behavior.getCreateTime().before(until))
+                    .collect(Collectors.toList());
+            ScoringContext context = ScoringContext.of(userId, history, userProfileService::getUserProfile);
+            return entityHydrationService.getGameMasters(topMasters(context, null, model, null, limit));
+        };
+    }
+    
+    /**
+     * 只对评分行、历史目标及其邻居打分，其余陪玩师与历史都不相似
+     */
+    private long[] topMasters(ScoringContext context, SparseRow ratingRow, CollaborativeFilteringModel model,
+                              Long gameId, int limit) {
+        TopKSelector selector = new TopKSelector(limit);
+        for (long masterId : collectCandidates(context, ratingRow, model::getMasterNeighbors)) {
             if (gameId != null && !isMasterGameMatch(masterId, gameId)) {
                 continue;
             }
-            double score = calculateUserMasterSimilarity(userId, masterId);
-            masterScores.put(masterId, score);
+            selector.offer(masterId, calculateUserMasterSimilarity(context, masterId));
         }
-        
-        // 3. 排序并返回推荐结果
-        return masterScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameMasterService.getGameMasterById(entry.getKey()))
-                .collect(Collectors.toList());
+        return selector.toSortedIds();
     }
     
     @Override
     public List<Game> recommendGames(Long userId, Integer limit) {
-        // 1. 获取用户的历史行为数据
-        List<Long> userHistory = getUserHistory(userId);
+        // 1. 获取用户的历史行为数据（整个请求只查询一次）
+        ScoringContext context = createScoringContext(userId);
         
-        // 2. 计算用户与游戏的相似度
-        Map<Long, Double> gameScores = new HashMap<>();
-        for (Long gameId : getAllGames()) {
-            double score = calculateUserGameSimilarity(userId, gameId);
-            gameScores.put(gameId, score);
+        // 2. 只对评分行、历史目标及其邻居打分，其余游戏与历史都不相似；没有历史时候选集为空，按热度排序特征表中的游戏
+        CollaborativeFilteringModel model = modelHolder.model();
+        TopKSelector selector = new TopKSelector(limit);
+        long[] candidates = collectCandidates(context, model.getUserGameRow(userId), model::getGameNeighbors);
+        if (candidates.length == 0 && context.getHistory().length == 0) {
+            PopularityCounters games = popularityStore.games();
+            for (long gameId : itemFeatureStore.gameTable().getIds()) {
+                selector.offer(gameId, games.score(gameId));
+            }
+        } else {
+            for (long gameId : candidates) {
+                selector.offer(gameId, calculateUserGameSimilarity(context, gameId));
+            }
         }
         
-        // 3. 排序并返回推荐结果
-        return gameScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameService.getGameById(entry.getKey()))
-                .collect(Collectors.toList());
+        // 3. 取得分最高的limit个并返回推荐结果
+        return entityHydrationService.getGames(selector.toSortedIds());
+    }
+    
+    /**
+     * 对给定候选陪玩师批量打分（masterIds须按ID升序），结果与masterIds下标一一对应，得分同
+     * {@link #calculateUserMasterSimilarity(Long, Long)}。用户历史只查询一次，候选循环只读内存：
+     * 训练过的历史目标只遍历其邻居行，未训练的按特征表计算，不在特征表中的视为不相似
+     */
+    public double[] scoreGameMasters(Long userId, long[] masterIds) {
+        CollaborativeFilteringModel model = modelHolder.model();
+        return scoreCandidates(createScoringContext(userId), masterIds, model::getMasterNeighbors,
+                itemFeatureStore.masterTable());
+    }
+
+    /**
+     * 对给定候选游戏批量打分（gameIds须按ID升序），结果与gameIds下标一一对应；规则同{@link #scoreGameMasters}
+     */
+    public double[] scoreGames(Long userId, long[] gameIds) {
+        CollaborativeFilteringModel model = modelHolder.model();
+        return scoreCandidates(createScoringContext(userId), gameIds, model::getGameNeighbors,
+                itemFeatureStore.gameTable());
+    }
+
+    /**
+     * 历史目标与每个候选相似度的均值，累加到与ids对齐的数组中
+     */
+    private double[] scoreCandidates(ScoringContext context, long[] ids, Function<Long, SparseRow> neighbors,
+                                     FeatureTable table) {
+        double[] scores = new double[ids.length];
+        long[] userHistory = context.getHistory();
+        if (userHistory.length == 0) {
+            return scores;
+        }
+
+        int[] rows = null;
+        for (long historyId : userHistory) {
+            // 1. 与自身相似度为1
+            int self = Arrays.binarySearch(ids, historyId);
+            if (self >= 0) {
+                scores[self] += 1.0;
+            }
+
+            // 2. 训练过的历史目标：邻居行与ids都按ID升序，每次二分从上一次的位置继续，不在Top-K内视为不相似
+            SparseRow row = neighbors.apply(historyId);
+            if (row != null) {
+                int from = 0;
+                for (int k = 0; k < row.size() && from < ids.length; k++) {
+                    long col = row.colAt(k);
+                    if (col == historyId) {
+                        continue;
+                    }
+                    int pos = Arrays.binarySearch(ids, from, ids.length, col);
+                    if (pos >= 0) {
+                        scores[pos] += row.valueAt(k);
+                        from = pos + 1;
+                    } else {
+                        from = -pos - 1;
+                    }
+                }
+                continue;
+            }
+
+            // 3. 未训练的历史目标：按特征表逐个候选计算余弦相似度
+            int historyRow = table.indexOf(historyId);
+            if (historyRow < 0) {
+                continue;
+            }
+            if (rows == null) {
+                rows = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    rows[i] = table.indexOf(ids[i]);
+                }
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (rows[i] >= 0 && ids[i] != historyId) {
+                    scores[i] += table.cosine(historyRow, rows[i]);
+                }
+            }
+        }
+
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] /= userHistory.length;
+        }
+        return scores;
     }
     
     @Override
     public double calculateUserMasterSimilarity(Long userId, Long masterId) {
-        // 1. 获取用户的历史行为数据
-        List<Long> userHistory = getUserHistory(userId);
-        
-        // 2. 计算用户与游戏陪玩的相似度
-        double similarity = 0.0;
-        for (Long historyMasterId : userHistory) {
-            similarity += calculateMasterSimilarity(historyMasterId, masterId);
-        }
-        
-        return similarity / userHistory.size();
+        return calculateUserMasterSimilarity(createScoringContext(userId), masterId);
     }
     
     @Override
     public double calculateUserGameSimilarity(Long userId, Long gameId) {
-        // 1. 获取用户的历史行为数据
-        List<Long> userHistory = getUserHistory(userId);
+        return calculateUserGameSimilarity(createScoringContext(userId), gameId);
+    }
+    
+    /**
+     * 用户与游戏陪玩的相似度：历史目标与该陪玩师相似度的均值
+     */
+    private double calculateUserMasterSimilarity(ScoringContext context, long masterId) {
+        long[] userHistory = context.getHistory();
+        double similarity = 0.0;
+        for (long historyMasterId : userHistory) {
+            similarity += masterSimilarity(historyMasterId, masterId);
+        }
         
-        // 2. 计算用户与游戏的相似度
+        return userHistory.length > 0 ? similarity / userHistory.length : 0.0;
+    }
+    
+    /**
+     * 用户与游戏的相似度：历史目标与该游戏相似度的均值
+     */
+    private double calculateUserGameSimilarity(ScoringContext context, long gameId) {
+        long[] userHistory = context.getHistory();
         double similarity = 0.0;
-        for (Long historyGameId : userHistory) {
-            similarity += calculateGameSimilarity(historyGameId, gameId);
+        for (long historyGameId : userHistory) {
+            similarity += gameSimilarity(historyGameId, gameId);
         }
         
-        return similarity / userHistory.size();
+        return userHistory.length > 0 ? similarity / userHistory.length : 0.0;
     }
     
     @Override
     public double calculateMasterSimilarity(Long masterId1, Long masterId2) {
-        if (masterSimilarity.containsKey(masterId1) && 
-            masterSimilarity.get(masterId1).containsKey(masterId2)) {
-            return masterSimilarity.get(masterId1).get(masterId2);
-        }
-        
-        // 1. 获取两个游戏陪玩的特征向量
-        List<Double> features1 = getMasterFeatures(masterId1);
-        List<Double> features2 = getMasterFeatures(masterId2);
-        
-        // 2. 计算余弦相似度
-        double similarity = calculateCosineSimilarity(features1, features2);
-        
-        // 3. 缓存相似度结果
-        masterSimilarity.computeIfAbsent(masterId1, k -> new HashMap<>())
-                .put(masterId2, similarity);
-        masterSimilarity.computeIfAbsent(masterId2, k -> new HashMap<>())
-                .put(masterId1, similarity);
-        
-        return similarity;
+        return masterSimilarity(masterId1, masterId2);
     }
     
     @Override
     public double calculateGameSimilarity(Long gameId1, Long gameId2) {
-        if (gameSimilarity.containsKey(gameId1) && 
-            gameSimilarity.get(gameId1).containsKey(gameId2)) {
-            return gameSimilarity.get(gameId1).get(gameId2);
+        return gameSimilarity(gameId1, gameId2);
+    }
+    
+    private double masterSimilarity(long masterId1, long masterId2) {
+        if (masterId1 == masterId2) {
+            return 1.0;
         }
         
-        // 1. 获取两个游戏的特征向量
-        List<Double> features1 = getGameFeatures(gameId1);
-        List<Double> features2 = getGameFeatures(gameId2);
+        // 训练过的陪玩师直接查邻居表，不在Top-K内视为不相似
+        float similarity = modelHolder.model().getMasterSimilarity(masterId1, masterId2);
+        if (!Float.isNaN(similarity)) {
+            return similarity;
+        }
         
-        // 2. 计算余弦相似度
-        double similarity = calculateCosineSimilarity(features1, features2);
+        // 未训练的陪玩师按特征表计算，不写回模型
+        return itemFeatureStore.masterSimilarity(masterId1, masterId2);
+    }
+    
+    private double gameSimilarity(long gameId1, long gameId2) {
+        if (gameId1 == gameId2) {
+            return 1.0;
+        }
         
-        // 3. 缓存相似度结果
-        gameSimilarity.computeIfAbsent(gameId1, k -> new HashMap<>())
-                .put(gameId2, similarity);
-        gameSimilarity.computeIfAbsent(gameId2, k -> new HashMap<>())
-                .put(gameId1, similarity);
+        // 训练过的游戏直接查邻居表，不在Top-K内视为不相似
+        float similarity = modelHolder.model().getGameSimilarity(gameId1, gameId2);
+        if (!Float.isNaN(similarity)) {
+            return similarity;
+        }
         
-        return similarity;
+        // 未训练的游戏按特征表计算，不写回模型
+        return itemFeatureStore.gameSimilarity(gameId1, gameId2);
     }
     
     @Override
     public void updateUserFeatures(Long userId) {
         // 1. 获取用户的行为数据
-        List<Long> userHistory = getUserHistory(userId);
+        ScoringContext context = createScoringContext(userId);
+        int historySize = context.getHistory().length;
         
-        // 2. 更新用户-游戏陪玩评分矩阵
-        Map<Long, Double> masterRatings = new HashMap<>();
-        for (Long masterId : userHistory) {
-            double rating = calculateUserMasterRating(userId, masterId);
-            masterRatings.put(masterId, rating);
-        }
-        userMasterRatings.put(userId, masterRatings);
+        // 2. 计算评分行
+        long[] masterIds = new long[historySize];
+        float[] masterRatings = new float[historySize];
+        long[] gameIds = new long[historySize];
+        float[] gameRatings = new float[historySize];
+        int masterCount = fillUserRatings(context, masterIds, masterRatings, true);
+        int gameCount = fillUserRatings(context, gameIds, gameRatings, false);
         
-        // 3. 更新用户-游戏评分矩阵
-        Map<Long, Double> gameRatings = new HashMap<>();
-        for (Long gameId : userHistory) {
-            double rating = calculateUserGameRating(userId, gameId);
-            gameRatings.put(gameId, rating);
-        }
-        userGameRatings.put(userId, gameRatings);
+        // 3. 整行替换该用户的评分
+        userJournal.record(userId);
+        modelHolder.model().putUserRatings(userId,
+                SparseRow.of(masterIds, masterRatings, masterCount),
+                SparseRow.of(gameIds, gameRatings, gameCount));
     }
     
     @Override
     public void updateMasterFeatures(Long masterId) {
-        // 1. 获取游戏陪玩的行为数据
-        List<Long> masterHistory = getMasterHistory(masterId);
+        // 1. 重新提取该陪玩师的特征行（跳过本地缓存）
+        FeatureTable table = itemFeatureStore.refreshMaster(masterId);
+        SparseMatrix.Builder row = new SparseMatrix.Builder(neighborCount).touchRow(masterId);
         
-        // 2. 更新游戏陪玩相似度矩阵
-        for (Long otherMasterId : getAllMasters()) {
-            if (!otherMasterId.equals(masterId)) {
-                double similarity = calculateMasterSimilarity(masterId, otherMasterId);
-                masterSimilarity.computeIfAbsent(masterId, k -> new HashMap<>())
-                        .put(otherMasterId, similarity);
-            }
-        }
+        // 2. 在特征表上重新计算该陪玩师的Top-K邻居
+        offerNeighbors(row, table, masterId);
+        
+        // 3. 替换该陪玩师的邻居行，并修正新旧邻居的反向行
+        masterJournal.record(masterId);
+        modelHolder.model().replaceMasterNeighbors(masterId, SparseRow.fromMatrix(row.build(), 0), neighborCount);
     }
     
     @Override
     public void updateGameFeatures(Long gameId) {
-        // 1. 获取游戏的行为数据
-        List<Long> gameHistory = getGameHistory(gameId);
+        // 1. 重新提取该游戏的特征行（跳过本地缓存）
+        FeatureTable table = itemFeatureStore.refreshGame(gameId);
+        SparseMatrix.Builder row = new SparseMatrix.Builder(neighborCount).touchRow(gameId);
         
-        // 2. 更新游戏相似度矩阵
-        for (Long otherGameId : getAllGames()) {
-            if (!otherGameId.equals(gameId)) {
-                double similarity = calculateGameSimilarity(gameId, otherGameId);
-                gameSimilarity.computeIfAbsent(gameId, k -> new HashMap<>())
-                        .put(otherGameId, similarity);
-            }
+        // 2. 在特征表上重新计算该游戏的Top-K邻居
+        offerNeighbors(row, table, gameId);
+        
+        // 3. 替换该游戏的邻居行，并修正新旧邻居的反向行
+        gameJournal.record(gameId);
+        modelHolder.model().replaceGameNeighbors(gameId, SparseRow.fromMatrix(row.build(), 0), neighborCount);
+    }
+    
+    /**
+     * 在线增量更新：用户对某个目标产生一次新交互
+     * 只写入该用户评分行中的一项，与全量训练口径一致（历史目标同时计入陪玩师评分和游戏评分），
+     * 有显式评分时以显式评分作为陪玩师评分。
+     *
+     * @param userId 用户ID
+     * @param targetId 交互目标ID
+     * @param explicitRating 显式评分（1-5），没有传null
+     */
+    public void applyInteraction(Long userId, Long targetId, Double explicitRating) {
+        if (userId == null || targetId == null) {
+            return;
         }
+        UserProfile userProfile = userProfileService.getUserProfile(userId);
+        float masterRating = (float) (explicitRating != null
+                ? Math.min(5.0, explicitRating)
+                : calculateUserMasterRating(userId, userProfile, targetId));
+        float gameRating = (float) calculateUserGameRating(userId, userProfile, targetId);
+        userJournal.record(userId);
+        modelHolder.model().putUserRating(userId, targetId, masterRating, gameRating);
     }
     
     @Override
     public void trainModel() {
-        // 1. 初始化数据结构
-        userMasterRatings = new HashMap<>();
-        userGameRatings = new HashMap<>();
-        masterSimilarity = new HashMap<>();
-        gameSimilarity = new HashMap<>();
-        
-        // 2. 更新所有用户的特征向量
-        for (Long userId : getAllUsers()) {
-            updateUserFeatures(userId);
+        // 训练读取数据之后到发布之前的增量更新只写进旧快照，先记入日志，发布后重放
+        userJournal.open();
+        masterJournal.open();
+        gameJournal.open();
+        CollaborativeFilteringModel model;
+        SparseMatrix masterNeighbors;
+        SparseMatrix gameNeighbors;
+        ModelSnapshot<CollaborativeFilteringModel> snapshot;
+        try {
+            // 1. 并行构建用户评分矩阵
+            SparseMatrix[] ratings = parallelTrainer.buildRows("协同过滤-用户评分", toIdArray(getAllUsers()),
+                    new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE},
+                    (userId, out) -> writeUserRatings(userId, out[0], out[1]));
+            
+            // 2. 重建特征表后并行构建陪玩师相似度矩阵（直接读列式特征）
+            itemFeatureStore.rebuild();
+            FeatureTable masterTable = itemFeatureStore.masterTable();
+            masterNeighbors = parallelTrainer.buildPairwise("协同过滤-陪玩师相似度",
+                    masterTable.getIds(), neighborCount, similarityThreshold, masterTable::cosine);
+            
+            // 3. 并行构建游戏相似度矩阵
+            FeatureTable gameTable = itemFeatureStore.gameTable();
+            gameNeighbors = parallelTrainer.buildPairwise("协同过滤-游戏相似度",
+                    gameTable.getIds(), neighborCount, similarityThreshold, gameTable::cosine);
+            
+            // 4. 整体发布，服务线程要么看到旧模型，要么看到完整的新模型
+            model = new CollaborativeFilteringModel(ratings[0], ratings[1], masterNeighbors, gameNeighbors);
+            snapshot = modelHolder.publish(model);
+        } catch (RuntimeException e) {
+            // 训练失败时旧快照继续使用，日志直接丢弃
+            userJournal.close();
+            masterJournal.close();
+            gameJournal.close();
+            throw e;
         }
         
-        // 3. 更新所有游戏陪玩的特征向量
-        for (Long masterId : getAllMasters()) {
-            updateMasterFeatures(masterId);
-        }
+        // 5. 在新快照上重放训练期间的增量更新：用户按当前行为整行重算，陪玩师/游戏重算邻居行
+        int replayed = replay(userJournal.close(), this::updateUserFeatures)
+                + replay(masterJournal.close(), this::updateMasterFeatures)
+                + replay(gameJournal.close(), this::updateGameFeatures);
         
-        // 4. 更新所有游戏的特征向量
-        for (Long gameId : getAllGames()) {
-            updateGameFeatures(gameId);
+        log.info("协同过滤模型训练完成，版本: {}，用户评分: {}行/{}项，陪玩师邻居: {}行/{}项，游戏邻居: {}行/{}项，重放增量: {}，内存占用约{}KB",
+                snapshot.getVersion(),
+                model.getUserMasterRatings().rowCount(),
+                model.getUserMasterRatings().nonZeroCount() + model.getUserGameRatings().nonZeroCount(),
+                masterNeighbors.rowCount(), masterNeighbors.nonZeroCount(),
+                gameNeighbors.rowCount(), gameNeighbors.nonZeroCount(), replayed,
+                model.memoryFootprintBytes() / 1024);
+        eventPublisher.publishEvent(new ModelTrainedEvent("collaborative-filtering"));
+    }
+    
+    /**
+     * 按ID重新计算并写入当前快照，单个失败不影响其余
+     */
+    private int replay(Set<Long> ids, Consumer<Long> update) {
+        for (Long id : ids) {
+            try {
+                update.accept(id);
+            } catch (Exception e) {
+                log.error("重放训练期间的增量更新失败，ID: {}", id, e);
+            }
         }
+        return ids.size();
     }
     
-    @Override
-    public RecommendMetrics evaluateModel() {
-        // 1. 准备评估数据
-        List<Long> testUsers = getTestUsers();
-        List<Long> testMasters = getTestMasters();
-        List<Long> testGames = getTestGames();
-        
-        // 2. 计算评估指标
-        double precision = calculatePrecision(testUsers, testMasters);
-        double recall = calculateRecall(testUsers, testMasters);
-        double mrr = calculateMRR(testUsers, testMasters);
-        double ndcg = calculateNDCG(testUsers, testMasters);
-        double coverage = calculateCoverage(testUsers, testMasters);
-        double diversity = calculateDiversity(testUsers, testMasters);
-        double novelty = calculateNovelty(testUsers, testMasters);
-        double timeliness = calculateTimeliness(testUsers, testMasters);
-        double coldStartPerformance = calculateColdStartPerformance(testUsers, testMasters);
-        
-        // 3. 构建评估结果
-        RecommendMetrics metrics = RecommendMetrics.builder()
-                .precision(precision)
-                .recall(recall)
-                .mrr(mrr)
-                .ndcg(ndcg)
-                .coverage(coverage)
-                .diversity(diversity)
-                .novelty(novelty)
-                .timeliness(timeliness)
-                .coldStartPerformance(coldStartPerformance)
-                .build();
-        
-        // 4. 计算F1分数
-        metrics.calculateF1Score();
-        
-        return metrics;
+    /**
+     * 获取模型占用的堆内存估算值（字节）
+     */
+    public long getModelMemoryFootprint() {
+        return modelHolder.model().memoryFootprintBytes();
     }
     
-    // 辅助方法
+    /**
+     * 获取当前发布的模型快照
+     */
+    public ModelSnapshot<CollaborativeFilteringModel> getModelSnapshot() {
+        return modelHolder.current();
+    }
     
-    private List<Long> getUserHistory(Long userId) {
-        return userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                .map(behavior -> behavior.getTargetId())
-                .collect(Collectors.toList());
+    /**
+     * 启动时用持久化快照恢复模型，已训练出新模型时不覆盖
+     */
+    public boolean restoreModel(CollaborativeFilteringModel model) {
+        return modelHolder.restore(model);
     }
     
-    private List<Long> getMasterHistory(Long masterId) {
-        return orderService.getOrdersByMasterId(masterId).stream()
-                .map(order -> order.getUserId())
-                .collect(Collectors.toList());
+    @Override
+    public RecommendMetrics evaluateModel() {
+        return evaluationEngine.evaluate("collaborative-filtering", this).getMetrics();
     }
     
-    private List<Long> getGameHistory(Long gameId) {
-        return orderService.getOrdersByGameId(gameId).stream()
-                .map(order -> order.getUserId())
-                .collect(Collectors.toList());
+    // 辅助方法
+    
+    /**
+     * 创建单次请求的打分上下文，用户历史只查询一次
+     */
+    private ScoringContext createScoringContext(Long userId) {
+        return ScoringContext.of(userId, userBehaviorService.getUserBehaviorsByUserId(userId),
+                userProfileService::getUserProfile);
     }
     
     private List<Long> getAllUsers() {
@@ -302,16 +527,99 @@ public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
                 .collect(Collectors.toList());
     }
     
-    private List<Long> getAllMasters() {
-        return gameMasterService.getGameMasterList().stream()
-                .map(master -> master.getId())
-                .collect(Collectors.toList());
+    /**
+     * 打分候选：用户评分行中的目标、历史目标本身及其邻居行中的Top-K邻居
+     */
+    private long[] collectCandidates(ScoringContext context, SparseRow ratingRow,
+                                     Function<Long, SparseRow> neighbors) {
+        LongHashSet candidates = new LongHashSet(64);
+        if (ratingRow != null) {
+            for (int i = 0; i < ratingRow.size(); i++) {
+                candidates.add(ratingRow.colAt(i));
+            }
+        }
+        LongHashSet expanded = new LongHashSet(context.getHistory().length);
+        for (long historyId : context.getHistory()) {
+            if (!expanded.add(historyId)) {
+                continue;
+            }
+            candidates.add(historyId);
+            SparseRow row = neighbors.apply(historyId);
+            if (row != null) {
+                for (int i = 0; i < row.size(); i++) {
+                    candidates.add(row.colAt(i));
+                }
+            }
+        }
+        return candidates.toArray();
     }
     
-    private List<Long> getAllGames() {
-        return gameService.getGameList().stream()
-                .map(game -> game.getId())
-                .collect(Collectors.toList());
+    /**
+     * 写入单个用户的陪玩师评分行和游戏评分行
+     */
+    private void writeUserRatings(long userId, SparseMatrix.Builder masterOut, SparseMatrix.Builder gameOut) {
+        ScoringContext context = createScoringContext(userId);
+        long[] ids = new long[context.getHistory().length];
+        float[] ratings = new float[ids.length];
+        
+        int count = fillUserRatings(context, ids, ratings, true);
+        masterOut.touchRow(userId);
+        for (int i = 0; i < count; i++) {
+            masterOut.put(userId, ids[i], ratings[i]);
+        }
+        
+        count = fillUserRatings(context, ids, ratings, false);
+        gameOut.touchRow(userId);
+        for (int i = 0; i < count; i++) {
+            gameOut.put(userId, ids[i], ratings[i]);
+        }
+    }
+    
+    private long[] toIdArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    /**
+     * 计算用户对历史目标的评分，写入ids/ratings并返回有效个数
+     */
+    private int fillUserRatings(ScoringContext context, long[] ids, float[] ratings, boolean master) {
+        Set<Long> seen = new HashSet<>();
+        int count = 0;
+        for (long targetId : context.getHistory()) {
+            if (!seen.add(targetId)) {
+                continue;
+            }
+            ids[count] = targetId;
+            ratings[count] = (float) (master
+                    ? calculateUserMasterRating(context.getUserId(), context.getProfile(), targetId)
+                    : calculateUserGameRating(context.getUserId(), context.getProfile(), targetId));
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * 用特征表计算某一行与其余各行的相似度，达到阈值的写入邻居候选
+     */
+    private void offerNeighbors(SparseMatrix.Builder builder, FeatureTable table, long id) {
+        int row = table.indexOf(id);
+        if (row < 0) {
+            return;
+        }
+        for (int other = 0; other < table.rowCount(); other++) {
+            if (other != row) {
+                offerNeighbor(builder, id, table.idAt(other), table.cosine(row, other));
+            }
+        }
+    }
+    
+    /**
+     * 相似度达到阈值时写入邻居候选
+     */
+    private void offerNeighbor(SparseMatrix.Builder builder, long id, long neighborId, double similarity) {
+        if (similarity >= similarityThreshold) {
+            builder.put(id, neighborId, (float) similarity);
+        }
     }
     
     /**
@@ -319,8 +627,8 @@ public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
      */
     private boolean isMasterGameMatch(Long masterId, Long gameId) {
         try {
-            GameMaster master = gameMasterService.getGameMasterById(masterId);
-            Game game = gameService.getGameById(gameId);
+            GameMaster master = entityHydrationService.getGameMaster(masterId);
+            Game game = entityHydrationService.getGame(gameId);
             
             if (master == null || game == null) {
                 return false;
@@ -339,131 +647,10 @@ public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
         }
     }
     
-    private List<Double> getMasterFeatures(Long masterId) {
-        try {
-            GameMaster master = gameMasterService.getGameMasterById(masterId);
-            if (master == null) {
-                return new ArrayList<>();
-            }
-            
-            List<Double> features = new ArrayList<>();
-            
-            // 1. 评分特征
-            features.add(master.getScore() != null ? master.getScore().doubleValue() : 0.0);
-            
-            // 2. 订单数特征（归一化）
-            features.add(master.getOrderCount() != null ? Math.min(1.0, master.getOrderCount() / 100.0) : 0.0);
-            
-            // 3. 价格特征（归一化）
-            features.add(master.getPrice() != null ? Math.min(1.0, master.getPrice().doubleValue() / 500.0) : 0.0);
-            
-            // 4. 在线状态特征
-            features.add(master.getStatus() != null && master.getStatus() == 1 ? 1.0 : 0.0);
-            
-            // 5. 游戏类型数量特征
-            int gameTypeCount = master.getGameTypes() != null ? master.getGameTypes().split(",").length : 0;
-            features.add(Math.min(1.0, gameTypeCount / 10.0));
-            
-            // 6. 标签数量特征
-            int tagCount = master.getTags() != null ? master.getTags().split(",").length : 0;
-            features.add(Math.min(1.0, tagCount / 20.0));
-            
-            // 7. 注册时长特征
-            if (master.getCreateTime() != null) {
-                long daysSinceCreation = (System.currentTimeMillis() - master.getCreateTime().getTime()) / (1000 * 60 * 60 * 24);
-                features.add(Math.min(1.0, daysSinceCreation / 365.0)); // 按年归一化
-            } else {
-                features.add(0.0);
-            }
-            
-            // 8. 活跃度特征
-            if (master.getUpdateTime() != null) {
-                long daysSinceUpdate = (System.currentTimeMillis() - master.getUpdateTime().getTime()) / (1000 * 60 * 60 * 24);
-                features.add(Math.max(0.0, 1.0 - daysSinceUpdate / 30.0)); // 30天内活跃度较高
-            } else {
-                features.add(0.0);
-            }
-            
-            return features;
-        } catch (Exception e) {
-            log.error("提取陪玩师特征失败，陪玩师ID: {}", masterId, e);
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Double> getGameFeatures(Long gameId) {
+    private double calculateUserMasterRating(Long userId, UserProfile userProfile, Long masterId) {
         try {
-            Game game = gameService.getGameById(gameId);
-            if (game == null) {
-                return new ArrayList<>();
-            }
-            
-            List<Double> features = new ArrayList<>();
-            
-            // 1. 游戏热度特征（基于ID，实际应该有专门的热度字段）
-            features.add(Math.min(1.0, game.getId() / 1000.0));
-            
-            // 2. 游戏状态特征
-            features.add(game.getStatus() != null && game.getStatus() == 1 ? 1.0 : 0.0);
-            
-            // 3. 游戏类型编码（简化处理）
-            if (game.getType() != null) {
-                // 将游戏类型转换为数值特征
-                features.add(game.getType().hashCode() % 100 / 100.0);
-            } else {
-                features.add(0.0);
-            }
-            
-            // 4. 标签数量特征
-            int tagCount = game.getTags() != null ? game.getTags().split(",").length : 0;
-            features.add(Math.min(1.0, tagCount / 10.0));
-            
-            // 5. 创建时长特征
-            if (game.getCreateTime() != null) {
-                long daysSinceCreation = (System.currentTimeMillis() - game.getCreateTime().getTime()) / (1000 * 60 * 60 * 24);
-                features.add(Math.min(1.0, daysSinceCreation / 365.0));
-            } else {
-                features.add(0.0);
-            }
-            
-            // 6. 更新活跃度特征
-            if (game.getUpdateTime() != null) {
-                long daysSinceUpdate = (System.currentTimeMillis() - game.getUpdateTime().getTime()) / (1000 * 60 * 60 * 24);
-                features.add(Math.max(0.0, 1.0 - daysSinceUpdate / 90.0)); // 90天内更新活跃度较高
-            } else {
-                features.add(0.0);
-            }
-            
-            return features;
-        } catch (Exception e) {
-            log.error("提取游戏特征失败，游戏ID: {}", gameId, e);
-            return new ArrayList<>();
-        }
-    }
-    
-    private double calculateCosineSimilarity(List<Double> features1, List<Double> features2) {
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-        
-        for (int i = 0; i < features1.size(); i++) {
-            dotProduct += features1.get(i) * features2.get(i);
-            norm1 += features1.get(i) * features1.get(i);
-            norm2 += features2.get(i) * features2.get(i);
-        }
-        
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
-        }
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
-    }
-    
-    private double calculateUserMasterRating(Long userId, Long masterId) {
-        try {
-            // 基于用户历史行为计算对陪玩师的隐式评分
-            UserProfile userProfile = userProfileService.getUserProfile(userId);
-            GameMaster master = gameMasterService.getGameMasterById(masterId);
+            // 基于用户画像计算对陪玩师的隐式评分
+            GameMaster master = entityHydrationService.getGameMaster(masterId);
             
             if (userProfile == null || master == null) {
                 return 0.0;
@@ -506,11 +693,10 @@ public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
         }
     }
     
-    private double calculateUserGameRating(Long userId, Long gameId) {
+    private double calculateUserGameRating(Long userId, UserProfile userProfile, Long gameId) {
         try {
-            // 基于用户历史行为计算对游戏的隐式评分
-            UserProfile userProfile = userProfileService.getUserProfile(userId);
-            Game game = gameService.getGameById(gameId);
+            // 基于用户画像计算对游戏的隐式评分
+            Game game = entityHydrationService.getGame(gameId);
             
             if (userProfile == null || game == null) {
                 return 0.0;
@@ -545,428 +731,4 @@ public class CollaborativeFilteringAlgorithm implements RecommendAlgorithm {
             return 0.0;
         }
     }
-    
-    private List<Long> getTestUsers() {
-        try {
-            // 获取有足够历史行为数据的用户作为测试用户
-            List<Long> allUsers = getAllUsers();
-            return allUsers.stream()
-                .filter(userId -> {
-                    // 至少有5个历史行为的用户才能作为测试用户
-                    List<Long> userHistory = getUserHistory(userId);
-                    return userHistory.size() >= 5;
-                })
-                .limit(100) // 限制测试用户数量，避免计算过慢
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("获取测试用户失败", e);
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Long> getTestMasters() {
-        try {
-            // 获取有足够订单数据的陪玩师作为测试对象
-            List<Long> allMasters = getAllMasters();
-            return allMasters.stream()
-                .filter(masterId -> {
-                    GameMaster master = gameMasterService.getGameMasterById(masterId);
-                    // 至少有10个订单的陪玩师才能作为测试对象
-                    return master != null && master.getOrderCount() != null && master.getOrderCount() >= 10;
-                })
-                .limit(200) // 限制测试陪玩师数量
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("获取测试陪玩师失败", e);
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Long> getTestGames() {
-        try {
-            // 获取活跃的游戏作为测试对象
-            List<Long> allGames = getAllGames();
-            return allGames.stream()
-                .filter(gameId -> {
-                    Game game = gameService.getGameById(gameId);
-                    // 只选择启用状态的游戏
-                    return game != null && game.getStatus() != null && game.getStatus() == 1;
-                })
-                .limit(50) // 限制测试游戏数量
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("获取测试游戏失败", e);
-            return new ArrayList<>();
-        }
-    }
-    
-    private double calculatePrecision(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalPrecision = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                // 获取推荐结果
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 获取用户真实喜欢的陪玩师（基于历史高评分订单）
-                Set<Long> actualLikes = getUserActualLikes(userId);
-                if (actualLikes.isEmpty()) continue;
-                
-                // 计算推荐结果中的命中数
-                long hits = recommendations.stream()
-                    .mapToLong(master -> master.getId())
-                    .filter(actualLikes::contains)
-                    .count();
-                
-                double precision = (double) hits / recommendations.size();
-                totalPrecision += precision;
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalPrecision / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算准确率失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateRecall(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalRecall = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                // 获取推荐结果
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 获取用户真实喜欢的陪玩师
-                Set<Long> actualLikes = getUserActualLikes(userId);
-                if (actualLikes.isEmpty()) continue;
-                
-                // 计算推荐结果中的命中数
-                long hits = recommendations.stream()
-                    .mapToLong(master -> master.getId())
-                    .filter(actualLikes::contains)
-                    .count();
-                
-                double recall = (double) hits / actualLikes.size();
-                totalRecall += recall;
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalRecall / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算召回率失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateMRR(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalMRR = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                // 获取推荐结果
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 获取用户真实喜欢的陪玩师
-                Set<Long> actualLikes = getUserActualLikes(userId);
-                if (actualLikes.isEmpty()) continue;
-                
-                // 找到第一个命中的位置
-                int firstHitRank = -1;
-                for (int i = 0; i < recommendations.size(); i++) {
-                    if (actualLikes.contains(recommendations.get(i).getId())) {
-                        firstHitRank = i + 1; // 排名从1开始
-                        break;
-                    }
-                }
-                
-                if (firstHitRank > 0) {
-                    totalMRR += 1.0 / firstHitRank;
-                }
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalMRR / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算MRR失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateNDCG(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalNDCG = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                // 获取推荐结果
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 获取用户对陪玩师的真实评分
-                Map<Long, Double> actualRatings = getUserActualRatings(userId);
-                if (actualRatings.isEmpty()) continue;
-                
-                // 计算DCG
-                double dcg = 0.0;
-                for (int i = 0; i < recommendations.size(); i++) {
-                    Long masterId = recommendations.get(i).getId();
-                    double rating = actualRatings.getOrDefault(masterId, 0.0);
-                    dcg += (Math.pow(2, rating) - 1) / (Math.log(i + 2) / Math.log(2));
-                }
-                
-                // 计算IDCG（理想DCG）
-                List<Double> sortedRatings = actualRatings.values().stream()
-                    .sorted(Collections.reverseOrder())
-                    .limit(recommendations.size())
-                    .collect(Collectors.toList());
-                
-                double idcg = 0.0;
-                for (int i = 0; i < sortedRatings.size(); i++) {
-                    double rating = sortedRatings.get(i);
-                    idcg += (Math.pow(2, rating) - 1) / (Math.log(i + 2) / Math.log(2));
-                }
-                
-                if (idcg > 0) {
-                    totalNDCG += dcg / idcg;
-                }
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalNDCG / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算NDCG失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateCoverage(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            // 计算推荐覆盖率：被推荐的陪玩师数量 / 总陪玩师数量
-            Set<Long> recommendedMasters = new HashSet<>();
-            
-            for (Long userId : testUsers) {
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                recommendations.stream()
-                    .map(GameMaster::getId)
-                    .forEach(recommendedMasters::add);
-            }
-            
-            int totalMasters = getAllMasters().size();
-            return totalMasters > 0 ? (double) recommendedMasters.size() / totalMasters : 0.0;
-        } catch (Exception e) {
-            log.error("计算覆盖率失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateDiversity(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalDiversity = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.size() < 2) continue;
-                
-                // 计算推荐列表内的多样性（基于游戏类型）
-                Set<String> gameTypes = new HashSet<>();
-                for (GameMaster master : recommendations) {
-                    if (master.getGameTypes() != null) {
-                        String[] types = master.getGameTypes().split(",");
-                        gameTypes.addAll(Arrays.asList(types));
-                    }
-                }
-                
-                // 多样性 = 不同游戏类型数量 / 推荐数量
-                double diversity = (double) gameTypes.size() / recommendations.size();
-                totalDiversity += diversity;
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalDiversity / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算多样性失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateNovelty(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalNovelty = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 计算新颖性：新陪玩师（注册时间较短）的比例
-                long novelMasters = recommendations.stream()
-                    .filter(master -> isNovelMaster(master.getId()))
-                    .count();
-                
-                double novelty = (double) novelMasters / recommendations.size();
-                totalNovelty += novelty;
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalNovelty / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算新颖性失败", e);
-            return 0.0;
-        }
-    }
-    
-    private double calculateTimeliness(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            double totalTimeliness = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : testUsers) {
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 计算时效性：最近活跃的陪玩师比例
-                long activeRecentlyCount = recommendations.stream()
-                    .filter(master -> isRecentlyActive(master))
-                    .count();
-                
-                double timeliness = (double) activeRecentlyCount / recommendations.size();
-                totalTimeliness += timeliness;
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalTimeliness / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算时效性失败", e);
-            return 0.0;
-        }
-    }
-    
-    /**
-     * 判断是否为新颖的陪玩师（注册时间较短）
-     */
-    private boolean isNovelMaster(Long masterId) {
-        try {
-            GameMaster master = gameMasterService.getGameMasterById(masterId);
-            if (master == null || master.getCreateTime() == null) {
-                return false;
-            }
-            
-            // 注册60天内的陪玩师认为是新颖的
-            long daysSinceRegistration = (System.currentTimeMillis() - master.getCreateTime().getTime()) / (1000 * 60 * 60 * 24);
-            return daysSinceRegistration <= 60;
-        } catch (Exception e) {
-            log.error("判断新颖陪玩师失败，陪玩师ID: {}", masterId, e);
-            return false;
-        }
-    }
-    
-    /**
-     * 判断陪玩师是否最近活跃
-     */
-    private boolean isRecentlyActive(GameMaster master) {
-        if (master.getUpdateTime() == null) {
-            return false;
-        }
-        
-        // 7天内有更新认为是最近活跃
-        long daysSinceUpdate = (System.currentTimeMillis() - master.getUpdateTime().getTime()) / (1000 * 60 * 60 * 24);
-        return daysSinceUpdate <= 7;
-    }
-    
-    private double calculateColdStartPerformance(List<Long> testUsers, List<Long> testMasters) {
-        try {
-            // 获取新用户（注册时间较短的用户）
-            List<Long> newUsers = testUsers.stream()
-                .filter(this::isNewUser)
-                .collect(Collectors.toList());
-            
-            if (newUsers.isEmpty()) {
-                return 0.0;
-            }
-            
-            double totalPerformance = 0.0;
-            int validUsers = 0;
-            
-            for (Long userId : newUsers) {
-                // 为新用户生成推荐
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                if (recommendations.isEmpty()) continue;
-                
-                // 计算推荐质量（基于陪玩师的平均评分）
-                double avgScore = recommendations.stream()
-                    .filter(master -> master.getScore() != null)
-                    .mapToDouble(master -> master.getScore().doubleValue())
-                    .average()
-                    .orElse(0.0);
-                
-                totalPerformance += avgScore / 5.0; // 归一化到0-1
-                validUsers++;
-            }
-            
-            return validUsers > 0 ? totalPerformance / validUsers : 0.0;
-        } catch (Exception e) {
-            log.error("计算冷启动性能失败", e);
-            return 0.0;
-        }
-    }
-    
-    /**
-     * 获取用户真实喜欢的陪玩师列表
-     */
-    private Set<Long> getUserActualLikes(Long userId) {
-        try {
-            // 基于用户的历史高评分订单来判断喜好
-            return orderService.getOrdersByUserId(userId).stream()
-                .filter(order -> order.getRating() != null && order.getRating() >= 4.0)
-                .map(order -> order.getMasterId())
-                .collect(Collectors.toSet());
-        } catch (Exception e) {
-            log.error("获取用户真实喜好失败，用户ID: {}", userId, e);
-            return new HashSet<>();
-        }
-    }
-    
-    /**
-     * 获取用户对陪玩师的真实评分
-     */
-    private Map<Long, Double> getUserActualRatings(Long userId) {
-        try {
-            Map<Long, Double> ratings = new HashMap<>();
-            orderService.getOrdersByUserId(userId).stream()
-                .filter(order -> order.getRating() != null)
-                .forEach(order -> ratings.put(order.getMasterId(), order.getRating()));
-            return ratings;
-        } catch (Exception e) {
-            log.error("获取用户真实评分失败，用户ID: {}", userId, e);
-            return new HashMap<>();
-        }
-    }
-    
-    /**
-     * 判断是否为新用户
-     */
-    private boolean isNewUser(Long userId) {
-        try {
-            UserProfile userProfile = userProfileService.getUserProfile(userId);
-            if (userProfile == null || userProfile.getCreateTime() == null) {
-                return false;
-            }
-            
-            // 注册30天内的用户认为是新用户
-            long daysSinceRegistration = (System.currentTimeMillis() - userProfile.getCreateTime().getTime()) / (1000 * 60 * 60 * 24);
-            return daysSinceRegistration <= 30;
-        } catch (Exception e) {
-            log.error("判断新用户失败，用户ID: {}", userId, e);
-            return false;
-        }
-    }
-} 
\ No newline at end of file
+}
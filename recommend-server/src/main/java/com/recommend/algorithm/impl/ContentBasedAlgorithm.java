@@ -2,20 +2,41 @@ package com.recommend.algorithm.impl;
 
 import com.recommend.algorithm.RecommendAlgorithm;
 import com.recommend.algorithm.RecommendMetrics;
+import com.recommend.algorithm.evaluation.EvaluationEngine;
+import com.recommend.algorithm.evaluation.HoldoutRecommender;
+import com.recommend.algorithm.evaluation.HoldoutTrainable;
+import com.recommend.algorithm.model.ContentBasedModel;
+import com.recommend.algorithm.model.ModelSnapshot;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.algorithm.model.UpdateJournal;
+import com.recommend.algorithm.train.ParallelTrainer;
 import com.recommend.common.entity.*;
 import com.recommend.common.utils.MathUtils;
+import com.recommend.common.utils.TopKSelector;
 import com.recommend.service.*;
+import com.recommend.service.feature.PopularityCounters;
+import com.recommend.service.feature.PopularityStore;
+import com.recommend.service.feature.TagStatisticsStore;
+import com.recommend.service.feature.UserTagAffinityStore;
+import com.recommend.service.hydration.EntityHydrationService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.*;
 
 @Component
 @Slf4j
-public class ContentBasedAlgorithm implements RecommendAlgorithm {
+public class ContentBasedAlgorithm implements RecommendAlgorithm, HoldoutTrainable {
     
     @Autowired
     private UserService userService;
@@ -32,45 +53,104 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
     @Autowired
     private GameMasterTagService gameMasterTagService;
     
+    @Autowired
+    private GameMasterGameService gameMasterGameService;
+    
     @Autowired
     private TagService tagService;
 
+    @Autowired
+    private OrderService orderService;
+    
     @Autowired
     private UserBehaviorService userBehaviorService;
-
+    
     @Autowired
-    private OrderService orderService;
+    private ParallelTrainer parallelTrainer;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private EntityHydrationService entityHydrationService;
+    
+    @Autowired
+    private EvaluationEngine evaluationEngine;
+    
+    @Autowired
+    private TagStatisticsStore tagStatisticsStore;
+    
+    @Autowired
+    private UserTagAffinityStore userTagAffinityStore;
+    
+    @Autowired
+    private PopularityStore popularityStore;
+    
+    // 补充表中按需缓存的未训练实体上限，超过后只实时计算不再缓存（单独刷新的实体不受限制）
+    @Value("${recommend.algorithm.content-based.supplement-capacity:50000}")
+    private int supplementCapacity;
     
-    // 用户-标签权重矩阵
-    private Map<Long, Map<Long, Double>> userTagWeights;
+    // 当前发布的模型快照（用户/陪玩师/游戏-标签权重矩阵），训练完成后整体替换
+    private final ModelSnapshotHolder<ContentBasedModel> modelHolder =
+            new ModelSnapshotHolder<>("content-based", ContentBasedModel.empty());
     
-    // 游戏陪玩-标签权重矩阵
-    private Map<Long, Map<Long, Double>> masterTagWeights;
+    // 训练期间单独刷新过的用户/陪玩师/游戏，新快照发布后重放
+    private final UpdateJournal userJournal = new UpdateJournal();
+    private final UpdateJournal masterJournal = new UpdateJournal();
+    private final UpdateJournal gameJournal = new UpdateJournal();
     
-    // 游戏-标签权重矩阵
-    private Map<Long, Map<Long, Double>> gameTagWeights;
+    @PostConstruct
+    public void registerMetrics() {
+        modelHolder.bindTo(meterRegistry);
+    }
     
+    /**
+     * 模型训练后只遍历用户标签的倒排表（WAND提前终止），只返回至少有一个共同标签的陪玩师；
+     * 模型尚未训练时逐个陪玩师计算
+     */
     @Override
     public List<GameMaster> recommendGameMasters(Long userId, Long gameId, Integer limit) {
-        // 1. 获取用户的标签权重
+        // 1. 获取用户的标签权重和按游戏过滤的陪玩师集合
         Map<Long, Double> userTags = getUserTagWeights(userId);
+        Set<Long> gameMasterIds = gameId != null ? getGameMasterIds(gameId) : null;
         
-        // 2. 计算用户与游戏陪玩的相似度
-        Map<Long, Double> masterScores = new HashMap<>();
-        for (Long masterId : getAllMasters()) {
-            if (gameId != null && !isMasterGameMatch(masterId, gameId)) {
-                continue;
+        // 2. 计算用户与游戏陪玩的相似度，取得分最高的limit个并返回推荐结果
+        return entityHydrationService.getGameMasters(topMasters(userTags, gameMasterIds, limit));
+    }
+    
+    /**
+     * 评估用模型：陪玩师标签权重来自陪玩师资料，沿用当前快照；
+     * 用户标签权重中的行为亲和度只用until之前的行为现场计算，其余因子沿用用户标签本身
+     */
+    @Override
+    public HoldoutRecommender trainHoldout(Date until) {
+        return (userId, limit) -> {
+            Map<Long, Double> affinities = userTagAffinityStore.affinitiesBefore(
+                    userBehaviorService.getUserBehaviorsByUserId(userId), until.getTime());
+            Map<Long, Double> userTags = computeUserTagWeights(userId, tagId -> affinities.getOrDefault(tagId, 0.0));
+            return entityHydrationService.getGameMasters(topMasters(userTags, null, limit));
+        };
+    }
+    
+    /**
+     * 与用户标签权重最相似的limit个陪玩师ID，gameMasterIds不为null时只在其中选
+     */
+    private long[] topMasters(Map<Long, Double> userTags, Set<Long> gameMasterIds, int limit) {
+        TopKSelector selector = new TopKSelector(limit);
+        if (modelHolder.current().getVersion() == 0) {
+            for (Long masterId : getAllMasters()) {
+                if (gameMasterIds == null || gameMasterIds.contains(masterId)) {
+                    selector.offer(masterId, calculateTagWeightSimilarity(userTags, getMasterTagWeights(masterId)));
+                }
             }
-            double score = calculateUserMasterSimilarity(userId, masterId);
-            masterScores.put(masterId, score);
+        } else {
+            ContentBasedModel model = modelHolder.model();
+            model.getMasterIndex().topK(userTags, selector, masterId -> !model.isMasterSupplemented(masterId)
+                    && (gameMasterIds == null || gameMasterIds.contains(masterId)));
+            offerSupplement(userTags, model.supplementMastersWithAnyTag(userTags.keySet()), model::getMasterTagWeights,
+                    gameMasterIds, selector);
         }
-        
-        // 3. 排序并返回推荐结果
-        return masterScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameMasterService.getGameMasterById(entry.getKey()))
-                .collect(Collectors.toList());
+        return selector.toSortedIds();
     }
     
     @Override
@@ -79,18 +159,67 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
         Map<Long, Double> userTags = getUserTagWeights(userId);
         
         // 2. 计算用户与游戏的相似度
-        Map<Long, Double> gameScores = new HashMap<>();
-        for (Long gameId : getAllGames()) {
-            double score = calculateUserGameSimilarity(userId, gameId);
-            gameScores.put(gameId, score);
+        TopKSelector selector = new TopKSelector(limit);
+        if (modelHolder.current().getVersion() == 0) {
+            for (Long gameId : getAllGames()) {
+                selector.offer(gameId, calculateUserGameSimilarity(userId, gameId));
+            }
+        } else {
+            ContentBasedModel model = modelHolder.model();
+            model.getGameIndex().topK(userTags, selector, gameId -> !model.isGameSupplemented(gameId));
+            offerSupplement(userTags, model.supplementGamesWithAnyTag(userTags.keySet()), model::getGameTagWeights,
+                    null, selector);
         }
         
-        // 3. 排序并返回推荐结果
-        return gameScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameService.getGameById(entry.getKey()))
-                .collect(Collectors.toList());
+        // 3. 取得分最高的limit个并返回推荐结果
+        return entityHydrationService.getGames(selector.toSortedIds());
+    }
+    
+    /**
+     * 对给定候选陪玩师批量打分（masterIds须按ID升序），结果与masterIds下标一一对应。
+     * 只遍历用户标签的倒排表，补充表中的陪玩师按最新权重重算；不在模型中的陪玩师得0分，不查库。
+     * 模型尚未训练时返回null，由调用方按分支缺失处理
+     */
+    public double[] scoreGameMasters(Long userId, long[] masterIds) {
+        ModelSnapshot<ContentBasedModel> snapshot = modelHolder.current();
+        if (snapshot.getVersion() == 0) {
+            return null;
+        }
+        ContentBasedModel model = snapshot.getModel();
+        Map<Long, Double> userTags = getUserTagWeights(userId);
+        double[] scores = new double[masterIds.length];
+        model.getMasterIndex().accumulate(userTags, masterIds, scores);
+        rescoreSupplement(userTags, model.supplementedMasterIds(), model::getMasterTagWeights, masterIds, scores);
+        return scores;
+    }
+
+    /**
+     * 对给定候选游戏批量打分（gameIds须按ID升序），结果与gameIds下标一一对应；规则同{@link #scoreGameMasters}
+     */
+    public double[] scoreGames(Long userId, long[] gameIds) {
+        ModelSnapshot<ContentBasedModel> snapshot = modelHolder.current();
+        if (snapshot.getVersion() == 0) {
+            return null;
+        }
+        ContentBasedModel model = snapshot.getModel();
+        Map<Long, Double> userTags = getUserTagWeights(userId);
+        double[] scores = new double[gameIds.length];
+        model.getGameIndex().accumulate(userTags, gameIds, scores);
+        rescoreSupplement(userTags, model.supplementedGameIds(), model::getGameTagWeights, gameIds, scores);
+        return scores;
+    }
+
+    /**
+     * 补充表中的实体在倒排索引里是旧权重，在候选中的按补充表权重覆盖得分
+     */
+    private void rescoreSupplement(Map<Long, Double> userTags, Set<Long> supplemented,
+                                   Function<Long, Map<Long, Double>> weights, long[] ids, double[] scores) {
+        for (Long id : supplemented) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                scores[pos] = calculateTagWeightSimilarity(userTags, weights.apply(id));
+            }
+        }
     }
     
     @Override
@@ -135,6 +264,30 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
     
     @Override
     public void updateUserFeatures(Long userId) {
+        userJournal.record(userId);
+        modelHolder.model().putUserTagWeights(userId, computeUserTagWeights(userId));
+    }
+    
+    @Override
+    public void updateMasterFeatures(Long masterId) {
+        masterJournal.record(masterId);
+        modelHolder.model().putMasterTagWeights(masterId, computeMasterTagWeights(masterId));
+    }
+    
+    @Override
+    public void updateGameFeatures(Long gameId) {
+        gameJournal.record(gameId);
+        modelHolder.model().putGameTagWeights(gameId, computeGameTagWeights(gameId));
+    }
+    
+    private Map<Long, Double> computeUserTagWeights(Long userId) {
+        return computeUserTagWeights(userId, tagId -> calculateUserBehaviorWeight(userId, tagId));
+    }
+    
+    /**
+     * @param behaviorWeight 标签ID → 用户行为权重
+     */
+    private Map<Long, Double> computeUserTagWeights(Long userId, ToDoubleFunction<Long> behaviorWeight) {
         // 1. 获取用户的标签数据
         List<Long> userTags = userTagService.getUserTagsByUserId(userId).stream()
                 .map(userTag -> userTag.getTagId())
@@ -143,16 +296,17 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
         // 2. 计算标签权重
         Map<Long, Double> tagWeights = new HashMap<>();
         for (Long tagId : userTags) {
-            double weight = calculateTagWeight(userId, tagId);
+            Tag tag = entityHydrationService.getTag(tagId);
+            double weight = tag != null
+                    ? calculateUserTagWeight(userId, tagId, baseWeight(tag), behaviorWeight.applyAsDouble(tagId))
+                    : 0.0;
             tagWeights.put(tagId, weight);
         }
         
-        // 3. 更新用户-标签权重矩阵
-        userTagWeights.put(userId, tagWeights);
+        return tagWeights;
     }
     
-    @Override
-    public void updateMasterFeatures(Long masterId) {
+    private Map<Long, Double> computeMasterTagWeights(Long masterId) {
         // 1. 获取游戏陪玩的标签数据
         List<Long> masterTags = gameMasterTagService.getGameMasterTagsByMasterId(masterId).stream()
                 .map(GameMasterTag::getTagId)
@@ -165,12 +319,10 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
             tagWeights.put(tagId, weight);
         }
         
-        // 3. 更新游戏陪玩-标签权重矩阵
-        masterTagWeights.put(masterId, tagWeights);
+        return tagWeights;
     }
     
-    @Override
-    public void updateGameFeatures(Long gameId) {
+    private Map<Long, Double> computeGameTagWeights(Long gameId) {
         // 1. 获取游戏的标签数据
         List<Long> gameTags = tagService.getGameTags(gameId);
         
@@ -181,94 +333,116 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
             tagWeights.put(tagId, weight);
         }
         
-        // 3. 更新游戏-标签权重矩阵
-        gameTagWeights.put(gameId, tagWeights);
+        return tagWeights;
     }
     
     @Override
     public void trainModel() {
-        // 1. 初始化数据结构
-        userTagWeights = new HashMap<>();
-        masterTagWeights = new HashMap<>();
-        gameTagWeights = new HashMap<>();
-        
-        // 2. 更新所有用户的特征向量
-        for (Long userId : getAllUsers()) {
-            updateUserFeatures(userId);
-        }
-        
-        // 3. 更新所有游戏陪玩的特征向量
-        for (Long masterId : getAllMasters()) {
-            updateMasterFeatures(masterId);
-        }
-        
-        // 4. 更新所有游戏的特征向量
-        for (Long gameId : getAllGames()) {
-            updateGameFeatures(gameId);
+        // 1. 在旁路初始化数据结构，训练期间服务线程继续读取旧快照，单独刷新的实体记入日志
+        Map<Long, Map<Long, Double>> userTagWeights = new ConcurrentHashMap<>();
+        Map<Long, Map<Long, Double>> masterTagWeights = new ConcurrentHashMap<>();
+        Map<Long, Map<Long, Double>> gameTagWeights = new ConcurrentHashMap<>();
+        userJournal.open();
+        masterJournal.open();
+        gameJournal.open();
+        ModelSnapshot<ContentBasedModel> snapshot;
+        try {
+            // 2. 并行计算所有用户的特征向量
+            parallelTrainer.forEach("内容特征-用户标签权重", toIdArray(getAllUsers()),
+                    userId -> userTagWeights.put(userId, computeUserTagWeights(userId)));
+            
+            // 3. 并行计算所有游戏陪玩的特征向量
+            parallelTrainer.forEach("内容特征-陪玩师标签权重", toIdArray(getAllMasters()),
+                    masterId -> masterTagWeights.put(masterId, computeMasterTagWeights(masterId)));
+            
+            // 4. 并行计算所有游戏的特征向量
+            parallelTrainer.forEach("内容特征-游戏标签权重", toIdArray(getAllGames()),
+                    gameId -> gameTagWeights.put(gameId, computeGameTagWeights(gameId)));
+            
+            // 5. 整体发布
+            snapshot = modelHolder.publish(new ContentBasedModel(userTagWeights, masterTagWeights, gameTagWeights));
+        } catch (RuntimeException e) {
+            // 训练失败时旧快照继续使用，日志直接丢弃
+            userJournal.close();
+            masterJournal.close();
+            gameJournal.close();
+            throw e;
+        }
+        
+        // 6. 在新快照上重放训练期间单独刷新过的实体
+        int replayed = replay(userJournal.close(), this::updateUserFeatures)
+                + replay(masterJournal.close(), this::updateMasterFeatures)
+                + replay(gameJournal.close(), this::updateGameFeatures);
+        ContentBasedModel model = snapshot.getModel();
+        log.info("内容模型训练完成，版本: {}，用户: {}，陪玩师: {}，游戏: {}，重放增量: {}，倒排索引: {}个标签/{}条，内存约{}KB",
+                snapshot.getVersion(), userTagWeights.size(), masterTagWeights.size(), gameTagWeights.size(), replayed,
+                model.getMasterIndex().tagCount() + model.getGameIndex().tagCount(),
+                model.getMasterIndex().postingCount() + model.getGameIndex().postingCount(),
+                (model.getMasterIndex().memoryFootprintBytes() + model.getGameIndex().memoryFootprintBytes()) / 1024);
+    }
+    
+    /**
+     * 按ID重新计算并写入当前快照，单个失败不影响其余
+     */
+    private int replay(Set<Long> ids, Consumer<Long> update) {
+        for (Long id : ids) {
+            try {
+                update.accept(id);
+            } catch (Exception e) {
+                log.error("重放训练期间的增量更新失败，ID: {}", id, e);
+            }
         }
+        return ids.size();
+    }
+    
+    /**
+     * 获取当前发布的模型快照
+     */
+    public ModelSnapshot<ContentBasedModel> getModelSnapshot() {
+        return modelHolder.current();
     }
     
     @Override
     public RecommendMetrics evaluateModel() {
-        // 1. 准备评估数据
-        List<Long> testUsers = getTestUsers();
-        List<Long> testMasters = getTestMasters();
-        List<Long> testGames = getTestGames();
-        
-        // 2. 计算评估指标
-        double precision = calculatePrecision(testUsers, testMasters);
-        double recall = calculateRecall(testUsers, testMasters);
-        double mrr = calculateMRR(testUsers, testMasters);
-        double ndcg = calculateNDCG(testUsers, testMasters);
-        double coverage = calculateCoverage(testUsers, testMasters);
-        double diversity = calculateDiversity(testUsers, testMasters);
-        double novelty = calculateNovelty(testUsers, testMasters);
-        double timeliness = calculateTimeliness(testUsers, testMasters);
-        double coldStartPerformance = calculateColdStartPerformance(testUsers, testMasters);
-        
-        // 3. 构建评估结果
-        RecommendMetrics metrics = RecommendMetrics.builder()
-                .precision(precision)
-                .recall(recall)
-                .mrr(mrr)
-                .ndcg(ndcg)
-                .coverage(coverage)
-                .diversity(diversity)
-                .novelty(novelty)
-                .timeliness(timeliness)
-                .coldStartPerformance(coldStartPerformance)
-                .build();
-        
-        // 4. 计算F1分数
-        metrics.calculateF1Score();
-        
-        return metrics;
+        return evaluationEngine.evaluate("content-based", this).getMetrics();
     }
     
     // 辅助方法
     
     private Map<Long, Double> getUserTagWeights(Long userId) {
-        if (userTagWeights.containsKey(userId)) {
-            return userTagWeights.get(userId);
+        ContentBasedModel model = modelHolder.model();
+        Map<Long, Double> weights = model.getUserTagWeights(userId);
+        if (weights == null) {
+            weights = computeUserTagWeights(userId);
+            if (model.supplementSize() < supplementCapacity) {
+                model.putUserTagWeights(userId, weights);
+            }
         }
-        updateUserFeatures(userId);
-        return userTagWeights.get(userId);
+        return weights;
     }
     
     private Map<Long, Double> getMasterTagWeights(Long masterId) {
-        if (masterTagWeights.containsKey(masterId)) {
-            return masterTagWeights.get(masterId);
+        ContentBasedModel model = modelHolder.model();
+        Map<Long, Double> weights = model.getMasterTagWeights(masterId);
+        if (weights == null) {
+            weights = computeMasterTagWeights(masterId);
+            if (model.supplementSize() < supplementCapacity) {
+                model.putMasterTagWeights(masterId, weights);
+            }
         }
-        updateMasterFeatures(masterId);
-        return masterTagWeights.get(masterId);
+        return weights;
     }
     
     private Map<Long, Double> getGameTagWeights(Long gameId) {
-        if (gameTagWeights.containsKey(gameId)) {
-            return gameTagWeights.get(gameId);
+        ContentBasedModel model = modelHolder.model();
+        Map<Long, Double> weights = model.getGameTagWeights(gameId);
+        if (weights == null) {
+            weights = computeGameTagWeights(gameId);
+            if (model.supplementSize() < supplementCapacity) {
+                model.putGameTagWeights(gameId, weights);
+            }
         }
-        updateGameFeatures(gameId);
-        return gameTagWeights.get(gameId);
+        return weights;
     }
     
     private List<Long> getAllUsers() {
@@ -289,8 +463,33 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
                 .collect(Collectors.toList());
     }
     
-    private boolean isMasterGameMatch(Long masterId, Long gameId) {
-        return gameMasterService.getGameMasterGames(masterId).contains(gameId);
+    private long[] toIdArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    /**
+     * 支持指定游戏的陪玩师ID集合（一次查询）
+     */
+    private Set<Long> getGameMasterIds(Long gameId) {
+        return gameMasterGameService.getGameMasterGamesByGameId(gameId).stream()
+                .map(GameMasterGame::getMasterId)
+                .collect(Collectors.toSet());
+    }
+    
+    /**
+     * 训练后刷新过的实体不走倒排索引（索引中是旧权重），只对与用户有共同标签的逐个精确打分
+     */
+    private void offerSupplement(Map<Long, Double> userTags, Set<Long> candidates,
+                                 Function<Long, Map<Long, Double>> weights, Set<Long> allowed, TopKSelector selector) {
+        for (Long id : candidates) {
+            if (allowed != null && !allowed.contains(id)) {
+                continue;
+            }
+            double similarity = calculateTagWeightSimilarity(userTags, weights.apply(id));
+            if (similarity > 0) {
+                selector.offer(id, similarity);
+            }
+        }
     }
     
     /**
@@ -302,22 +501,22 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
      */
     private double calculateTagWeight(Long id, Long tagId) {
         // 获取标签基础信息
-        Tag tag = tagService.getTagById(tagId);
+        Tag tag = entityHydrationService.getTag(tagId);
         if (tag == null) {
             return 0.0;
         }
         
         // 基础权重（标签自身权重）
-        double baseWeight = tag.getWeight() != null ? tag.getWeight().doubleValue() : 1.0;
+        double baseWeight = baseWeight(tag);
         
         // 根据实体类型计算权重
-        if (userService.getUserById(id) != null) {
+        if (entityHydrationService.getUser(id) != null) {
             // 用户标签权重计算
-            return calculateUserTagWeight(id, tagId, baseWeight);
-        } else if (gameMasterService.getGameMasterById(id) != null) {
+            return calculateUserTagWeight(id, tagId, baseWeight, calculateUserBehaviorWeight(id, tagId));
+        } else if (entityHydrationService.getGameMaster(id) != null) {
             // 陪玩师标签权重计算
             return calculateMasterTagWeight(id, tagId, baseWeight);
-        } else if (gameService.getGameById(id) != null) {
+        } else if (entityHydrationService.getGame(id) != null) {
             // 游戏标签权重计算
             return calculateGameTagWeight(id, tagId, baseWeight);
         }
@@ -325,10 +524,16 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
         return baseWeight;
     }
     
+    private static double baseWeight(Tag tag) {
+        return tag.getWeight() != null ? tag.getWeight().doubleValue() : 1.0;
+    }
+    
     /**
      * 计算用户标签权重
+     *
+     * @param behaviorWeight 用户对带有该标签的陪玩师/游戏的行为权重
      */
-    private double calculateUserTagWeight(Long userId, Long tagId, double baseWeight) {
+    private double calculateUserTagWeight(Long userId, Long tagId, double baseWeight, double behaviorWeight) {
         // 1. 获取用户标签关联信息
         UserTag userTag = userTagService.getUserTagByUserIdAndTagId(userId, tagId);
         if (userTag == null) {
@@ -341,16 +546,13 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
         // 3. 时间衰减因子
         double timeDecay = calculateTimeDecay(userTag.getUpdateTime());
         
-        // 4. 用户行为权重
-        double behaviorWeight = calculateUserBehaviorWeight(userId, tagId);
-        
-        // 5. TF-IDF因子（标签稀有度）
+        // 4. TF-IDF因子（标签稀有度）
         double tfIdfFactor = calculateTagTfIdf(tagId);
         
-        // 6. 用户标签权重（如果有）
+        // 5. 用户标签权重（如果有）
         double userDefinedWeight = userTag.getWeight() != null ? userTag.getWeight().doubleValue() : 1.0;
         
-        // 7. 综合计算最终权重
+        // 6. 综合计算最终权重（行为权重由调用方给出）
         return baseWeight * sourceWeight * timeDecay * (1 + behaviorWeight) * tfIdfFactor * userDefinedWeight;
     }
     
@@ -439,50 +641,10 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
     
     /**
      * 计算用户行为权重
-     * 根据用户的行为类型（浏览、收藏、下单等）计算权重
+     * 根据用户对带有该标签的陪玩师/游戏的行为（浏览、收藏、下单等）加权并按时间衰减，读预先聚合的亲和度表
      */
     private double calculateUserBehaviorWeight(Long userId, Long tagId) {
-        // 获取用户行为数据
-        List<UserBehavior> behaviors = userBehaviorService.getUserBehaviorsByUserId(userId);
-        
-        double totalWeight = 0.0;
-        
-        for (UserBehavior behavior : behaviors) {
-            // 获取行为目标（陪玩师或游戏）的标签
-            List<Long> targetTags = new ArrayList<>();
-            
-            if ("1".equals(behavior.getTargetType())) { // 陪玩师
-                targetTags = gameMasterTagService.getGameMasterTagsByMasterId(behavior.getTargetId())
-                        .stream()
-                        .map(GameMasterTag::getTagId)
-                        .collect(Collectors.toList());
-            } else if ("2".equals(behavior.getTargetType())) { // 游戏
-                targetTags = tagService.getGameTags(behavior.getTargetId());
-            }
-            
-            // 如果目标包含当前标签
-            if (targetTags.contains(tagId)) {
-                // 根据行为类型赋予不同权重
-                switch (behavior.getType()) {
-                    case "1": // 浏览
-                        totalWeight += 0.2;
-                        break;
-                    case "2": // 收藏
-                        totalWeight += 0.5;
-                        break;
-                    case "3": // 下单
-                        totalWeight += 1.0;
-                        break;
-                    default:
-                        totalWeight += 0.1;
-                }
-                
-                // 考虑时间衰减
-                totalWeight *= calculateTimeDecay(behavior.getCreateTime());
-            }
-        }
-        
-        return totalWeight;
+        return userTagAffinityStore.affinity(userId, tagId);
     }
     
     /**
@@ -511,19 +673,17 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
     
     /**
      * 计算游戏热度因子
+     * 游戏订单数与所有游戏平均订单数之比，读内存中的热度计数
      */
     private double calculateGamePopularity(Long gameId) {
-        // 获取游戏的订单数量
-        List<Order> gameOrders = orderService.getOrdersByGameId(gameId);
-        
-        // 获取所有游戏的平均订单数量
-        double avgOrderCount = getAllGames().stream()
-                .mapToLong(id -> orderService.getOrdersByGameId(id).size())
-                .average()
-                .orElse(1.0);
+        PopularityCounters games = popularityStore.games();
+        double avgOrderCount = games.meanOrders();
+        if (gameId == null || avgOrderCount <= 0) {
+            return 0.5;
+        }
         
         // 计算热度因子（游戏订单数 / 平均订单数）
-        double popularityFactor = gameOrders.size() / avgOrderCount;
+        double popularityFactor = games.orders(gameId) / avgOrderCount;
         
         // 使用对数函数平滑热度差异
         return 0.5 + 0.5 * Math.log(1 + popularityFactor);
@@ -531,24 +691,10 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
     
     /**
      * 计算标签的TF-IDF因子
-     * TF-IDF用于衡量标签在系统中的重要性，稀有标签具有更高的权重
+     * TF-IDF用于衡量标签在系统中的重要性，稀有标签具有更高的权重；使用频率和标签总数读内存中的标签统计表
      */
     private double calculateTagTfIdf(Long tagId) {
-        // 获取标签在系统中的使用频率
-        int tagFrequency = tagService.getTagUsageCount(tagId);
-        
-        // 获取系统中的总标签数
-        int totalTags = tagService.getAllTags().size();
-        
-        if (tagFrequency == 0 || totalTags == 0) {
-            return 1.0;
-        }
-        
-        // 计算逆文档频率（IDF）
-        double idf = Math.log((double) totalTags / tagFrequency);
-        
-        // 归一化到合理范围
-        return 0.5 + 0.5 * idf / Math.log(totalTags);
+        return tagStatisticsStore.idfFactor(tagId);
     }
     
     private double calculateTagWeightSimilarity(Map<Long, Double> weights1, Map<Long, Double> weights2) {
@@ -574,321 +720,4 @@ public class ContentBasedAlgorithm implements RecommendAlgorithm {
         
         return dotProduct / (sqrt(norm1) * sqrt(norm2));
     }
-    
-    private List<Long> getTestUsers() {
-        // 1. 获取所有用户
-        List<Long> allUsers = getAllUsers();
-        
-        // 2. 随机选择20%的用户作为测试集
-        int testSize = (int) (allUsers.size() * 0.2);
-        Collections.shuffle(allUsers);
-        
-        return allUsers.subList(0, min(testSize, allUsers.size()));
-    }
-    
-    private List<Long> getTestMasters() {
-        // 1. 获取所有游戏陪玩
-        List<Long> allMasters = getAllMasters();
-        
-        // 2. 随机选择20%的游戏陪玩作为测试集
-        int testSize = (int) (allMasters.size() * 0.2);
-        Collections.shuffle(allMasters);
-        
-        return allMasters.subList(0, min(testSize, allMasters.size()));
-    }
-    
-    private List<Long> getTestGames() {
-        // 1. 获取所有游戏
-        List<Long> allGames = getAllGames();
-        
-        // 2. 随机选择20%的游戏作为测试集
-        int testSize = (int) (allGames.size() * 0.2);
-        Collections.shuffle(allGames);
-        
-        return allGames.subList(0, min(testSize, allGames.size()));
-    }
-    
-    private double calculatePrecision(List<Long> testUsers, List<Long> testMasters) {
-        double totalPrecision = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            if (recommendations.isEmpty()) {
-                continue;
-            }
-            
-            // 2. 获取用户实际交互的游戏陪玩
-            List<Long> actualMasters = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                    .filter(behavior -> "3".equals(behavior.getType())) // 下单行为
-                    .map(UserBehavior::getTargetId)
-                    .collect(Collectors.toList());
-            
-            // 3. 计算准确率
-            long correctPredictions = recommendations.stream()
-                    .map(GameMaster::getId)
-                    .filter(actualMasters::contains)
-                    .count();
-            
-            totalPrecision += (double) correctPredictions / recommendations.size();
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalPrecision / userCount : 0.0;
-    }
-    
-    private double calculateRecall(List<Long> testUsers, List<Long> testMasters) {
-        double totalRecall = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            
-            // 2. 获取用户实际交互的游戏陪玩
-            List<Long> actualMasters = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                    .filter(behavior -> Objects.equals(behavior.getType(), "3")) // 下单行为
-                    .map(UserBehavior::getTargetId)
-                    .collect(Collectors.toList());
-            
-            if (actualMasters.isEmpty()) {
-                continue;
-            }
-            
-            // 3. 计算召回率
-            long correctPredictions = recommendations.stream()
-                    .map(GameMaster::getId)
-                    .filter(actualMasters::contains)
-                    .count();
-            
-            totalRecall += (double) correctPredictions / actualMasters.size();
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalRecall / userCount : 0.0;
-    }
-    
-    private double calculateMRR(List<Long> testUsers, List<Long> testMasters) {
-        double totalMRR = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            
-            // 2. 获取用户实际交互的游戏陪玩
-            List<Long> actualMasters = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                    .filter(behavior -> behavior.getType() == "3") // 下单行为
-                    .map(UserBehavior::getTargetId)
-                    .collect(Collectors.toList());
-            
-            if (actualMasters.isEmpty()) {
-                continue;
-            }
-            
-            // 3. 计算第一个正确推荐的位置
-            for (int i = 0; i < recommendations.size(); i++) {
-                if (actualMasters.contains(recommendations.get(i).getId())) {
-                    totalMRR += 1.0 / (i + 1);
-                    break;
-                }
-            }
-            
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalMRR / userCount : 0.0;
-    }
-    
-    private double calculateNDCG(List<Long> testUsers, List<Long> testMasters) {
-        double totalNDCG = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            
-            // 2. 获取用户实际交互的游戏陪玩及其评分
-            Map<Long, Double> actualRatings = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                    .filter(behavior -> Objects.equals(behavior.getType(), "3")) // 下单行为
-                    .collect(Collectors.toMap(
-                            UserBehavior::getTargetId,
-                            behavior -> 1.0 // 简化处理，实际应该使用真实评分
-                    ));
-            
-            if (actualRatings.isEmpty()) {
-                continue;
-            }
-            
-            // 3. 计算DCG
-            double dcg = 0.0;
-            for (int i = 0; i < recommendations.size(); i++) {
-                Long masterId = recommendations.get(i).getId();
-                if (actualRatings.containsKey(masterId)) {
-                    dcg += actualRatings.get(masterId) / MathUtils.log2(i + 2);
-                }
-            }
-            
-            // 4. 计算IDCG（理想情况下的DCG）
-            double idcg = 0.0;
-            List<Double> idealRatings = new ArrayList<>(actualRatings.values());
-            Collections.sort(idealRatings, Collections.reverseOrder());
-            for (int i = 0; i < min(idealRatings.size(), recommendations.size()); i++) {
-                idcg += idealRatings.get(i) / MathUtils.log2(i + 2);
-            }
-            
-            // 5. 计算NDCG
-            totalNDCG += idcg > 0 ? dcg / idcg : 0.0;
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalNDCG / userCount : 0.0;
-    }
-    
-    private double calculateCoverage(List<Long> testUsers, List<Long> testMasters) {
-        // 1. 获取所有可能的游戏陪玩
-        Set<Long> allMasters = new HashSet<>(getAllMasters());
-        
-        // 2. 获取所有被推荐的游戏陪玩
-        Set<Long> recommendedMasters = new HashSet<>();
-        for (Long userId : testUsers) {
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            recommendations.forEach(master -> recommendedMasters.add(master.getId()));
-        }
-        
-        // 3. 计算覆盖率
-        return allMasters.isEmpty() ? 0.0 : (double) recommendedMasters.size() / allMasters.size();
-    }
-    
-    private double calculateDiversity(List<Long> testUsers, List<Long> testMasters) {
-        double totalDiversity = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            if (recommendations.size() < 2) {
-                continue;
-            }
-            
-            // 2. 计算推荐结果之间的平均相似度
-            double totalSimilarity = 0.0;
-            int pairCount = 0;
-            
-            for (int i = 0; i < recommendations.size(); i++) {
-                for (int j = i + 1; j < recommendations.size(); j++) {
-                    double similarity = calculateMasterSimilarity(
-                            recommendations.get(i).getId(),
-                            recommendations.get(j).getId()
-                    );
-                    totalSimilarity += similarity;
-                    pairCount++;
-                }
-            }
-            
-            // 3. 计算多样性（1 - 平均相似度）
-            totalDiversity += pairCount > 0 ? 1.0 - (totalSimilarity / pairCount) : 0.0;
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalDiversity / userCount : 0.0;
-    }
-    
-    private double calculateNovelty(List<Long> testUsers, List<Long> testMasters) {
-        double totalNovelty = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            
-            // 2. 获取用户历史交互的游戏陪玩
-            Set<Long> historicalMasters = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                    .filter(behavior -> Objects.equals(behavior.getType(), "3")) // 下单行为
-                    .map(UserBehavior::getTargetId)
-                    .collect(Collectors.toSet());
-            
-            // 3. 计算新颖性（推荐结果中未交互过的比例）
-            long newMasters = recommendations.stream()
-                    .map(GameMaster::getId)
-                    .filter(masterId -> !historicalMasters.contains(masterId))
-                    .count();
-            
-            totalNovelty += (double) newMasters / recommendations.size();
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalNovelty / userCount : 0.0;
-    }
-    
-    private double calculateTimeliness(List<Long> testUsers, List<Long> testMasters) {
-        double totalTimeliness = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取推荐结果
-            List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-            
-            // 2. 计算每个推荐结果的时效性得分
-            double userTimeliness = 0.0;
-            for (GameMaster master : recommendations) {
-                // 获取游戏陪玩最近的活动时间
-                Date lastActiveTime = getLastActiveTime(master.getId());
-                if (lastActiveTime != null) {
-                    long timeDiff = System.currentTimeMillis() - lastActiveTime.getTime();
-                    double daysDiff = timeDiff / (24.0 * 60 * 60 * 1000);
-                    userTimeliness += exp(-daysDiff / 7.0); // 7天为半衰期
-                }
-            }
-            
-            totalTimeliness += recommendations.isEmpty() ? 0.0 : userTimeliness / recommendations.size();
-            userCount++;
-        }
-        
-        return userCount > 0 ? totalTimeliness / userCount : 0.0;
-    }
-    
-    private double calculateColdStartPerformance(List<Long> testUsers, List<Long> testMasters) {
-        double totalPerformance = 0.0;
-        int userCount = 0;
-        
-        for (Long userId : testUsers) {
-            // 1. 获取用户的行为数量
-            int behaviorCount = userBehaviorService.getUserBehaviorsByUserId(userId).size();
-            
-            // 2. 如果是冷启动用户（行为数量少于阈值）
-            if (behaviorCount < 5) {
-                // 获取推荐结果
-                List<GameMaster> recommendations = recommendGameMasters(userId, null, 10);
-                
-                // 获取用户实际交互的游戏陪玩
-                List<Long> actualMasters = userBehaviorService.getUserBehaviorsByUserId(userId).stream()
-                        .filter(behavior -> behavior.getType() == "3") // 下单行为
-                        .map(UserBehavior::getTargetId)
-                        .collect(Collectors.toList());
-                
-                if (!actualMasters.isEmpty()) {
-                    // 计算准确率
-                    long correctPredictions = recommendations.stream()
-                            .map(GameMaster::getId)
-                            .filter(actualMasters::contains)
-                            .count();
-                    
-                    totalPerformance += (double) correctPredictions / recommendations.size();
-                    userCount++;
-                }
-            }
-        }
-        
-        return userCount > 0 ? totalPerformance / userCount : 0.0;
-    }
-    
-    private Date getLastActiveTime(Long masterId) {
-        // 获取游戏陪玩最近的活动时间（可以是最近一次接单时间）
-        return orderService.getOrdersByMasterId(masterId).stream()
-                .map(Order::getCreateTime)
-                .max(Date::compareTo)
-                .orElse(null);
-    }
 } 
\ No newline at end of file
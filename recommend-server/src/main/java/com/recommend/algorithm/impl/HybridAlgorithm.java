@@ -2,18 +2,44 @@ package com.recommend.algorithm.impl;
 
 import com.recommend.algorithm.RecommendAlgorithm;
 import com.recommend.algorithm.RecommendMetrics;
+import com.recommend.algorithm.evaluation.EvaluationEngine;
+import com.recommend.algorithm.evaluation.EvaluationReport;
+import com.recommend.algorithm.evaluation.HoldoutRecommender;
+import com.recommend.algorithm.evaluation.HoldoutTrainable;
+import com.recommend.algorithm.model.FusedScore;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.Game;
+import com.recommend.common.entity.GameMasterGame;
+import com.recommend.common.utils.TopKSelector;
 import com.recommend.service.*;
+import com.recommend.service.feature.ItemFeatureStore;
+import com.recommend.service.hydration.EntityHydrationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
-public class HybridAlgorithm implements RecommendAlgorithm {
+public class HybridAlgorithm implements RecommendAlgorithm, HoldoutTrainable {
     
     @Autowired
     private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
@@ -25,81 +51,341 @@ public class HybridAlgorithm implements RecommendAlgorithm {
     private UserService userService;
     
     @Autowired
-    private GameMasterService gameMasterService;
+    private EntityHydrationService entityHydrationService;
     
     @Autowired
-    private GameService gameService;
+    private EvaluationEngine evaluationEngine;
     
-    // 协同过滤算法的权重
-    private double collaborativeWeight = 0.6;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private GameMasterGameService gameMasterGameService;
+    
+    @Autowired
+    private ItemFeatureStore itemFeatureStore;
+    
+    // 融合方式：rank为两路各自召回后按倒数排名融合，score为共享候选集上按归一化得分融合
+    @Value("${recommend.algorithm.hybrid.fusion:rank}")
+    private String fusion;
+    
+    // 两路召回线程池大小和排队上限，队列满时拒绝提交，该分支按缺失处理（不占用请求线程）
+    @Value("${recommend.algorithm.hybrid.executor.pool-size:16}")
+    private int poolSize;
+    
+    @Value("${recommend.algorithm.hybrid.executor.queue-capacity:200}")
+    private int queueCapacity;
+    
+    // 各分支的截止时间（毫秒，从请求开始计），超时的分支不参与融合
+    @Value("${recommend.algorithm.hybrid.collaborative-timeout-ms:300}")
+    private long collaborativeTimeoutMs;
+    
+    @Value("${recommend.algorithm.hybrid.content-based-timeout-ms:300}")
+    private long contentBasedTimeoutMs;
+    
+    private static final String BRANCH_COLLABORATIVE = "collaborative-filtering";
+    
+    private static final String BRANCH_CONTENT_BASED = "content-based";
+    
+    private static final String FUSION_SCORE = "score";
+    
+    private ThreadPoolExecutor branchExecutor;
+    
+    // 协同过滤算法的权重（评估完成后异步调整）
+    private volatile double collaborativeWeight = 0.6;
     
     // 基于内容的算法的权重
-    private double contentBasedWeight = 0.4;
+    private volatile double contentBasedWeight = 0.4;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        branchExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recommend-hybrid-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        branchExecutor.allowCoreThreadTimeOut(true);
+        log.info("融合推荐线程池初始化完成，线程数: {}，队列容量: {}", poolSize, queueCapacity);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        branchExecutor.shutdownNow();
+    }
     
     @Override
     public List<GameMaster> recommendGameMasters(Long userId, Long gameId, Integer limit) {
-        // 1. 获取协同过滤算法的推荐结果
-        List<GameMaster> collaborativeResults = collaborativeFilteringAlgorithm.recommendGameMasters(userId, gameId, limit);
-        
-        // 2. 获取基于内容的算法的推荐结果
-        List<GameMaster> contentBasedResults = contentBasedAlgorithm.recommendGameMasters(userId, gameId, limit);
+        if (FUSION_SCORE.equals(fusion)) {
+            return entityHydrationService.getGameMasters(toIds(explainGameMasters(userId, gameId, limit)));
+        }
+        // 两路并发召回，按截止时间收集后融合
+        long[] ids = fuseBranches("master",
+                () -> collaborativeFilteringAlgorithm.recommendGameMasters(userId, gameId, limit),
+                () -> contentBasedAlgorithm.recommendGameMasters(userId, gameId, limit),
+                GameMaster::getId, limit);
+        return entityHydrationService.getGameMasters(ids);
+    }
+    
+    @Override
+    public List<Game> recommendGames(Long userId, Integer limit) {
+        if (FUSION_SCORE.equals(fusion)) {
+            return entityHydrationService.getGames(toIds(explainGames(userId, limit)));
+        }
+        // 两路并发召回，按截止时间收集后融合
+        long[] ids = fuseBranches("game",
+                () -> collaborativeFilteringAlgorithm.recommendGames(userId, limit),
+                () -> contentBasedAlgorithm.recommendGames(userId, limit),
+                Game::getId, limit);
+        return entityHydrationService.getGames(ids);
+    }
+    
+    /**
+     * 共享候选集上的得分融合结果（按最终得分降序），包含每个候选两个分支的得分归因，用于排查
+     */
+    public List<FusedScore> explainGameMasters(Long userId, Long gameId, Integer limit) {
+        long[] candidates = masterCandidates(gameId);
+        return fuseScores("master", candidates,
+                () -> collaborativeFilteringAlgorithm.scoreGameMasters(userId, candidates),
+                () -> contentBasedAlgorithm.scoreGameMasters(userId, candidates),
+                limit);
+    }
+    
+    /**
+     * 共享候选集上的游戏得分融合结果（按最终得分降序），包含每个候选两个分支的得分归因
+     */
+    public List<FusedScore> explainGames(Long userId, Integer limit) {
+        long[] candidates = gameCandidates();
+        return fuseScores("game", candidates,
+                () -> collaborativeFilteringAlgorithm.scoreGames(userId, candidates),
+                () -> contentBasedAlgorithm.scoreGames(userId, candidates),
+                limit);
+    }
+    
+    /**
+     * 两个分支在同一个按ID升序的候选数组上打分（并发执行，沿用各自的截止时间），各自填充与候选下标对齐的得分数组，
+     * 候选循环只读内存；得分在本次候选集上原地按最小-最大归一化到[0,1]后加权相加，
+     * 超时、失败或模型未就绪的分支不参与，权重归到另一分支。
+     */
+    private List<FusedScore> fuseScores(String target, long[] candidates, Supplier<double[]> collaborative,
+                                        Supplier<double[]> contentBased, int limit) {
+        if (candidates.length == 0) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        Future<double[]> collaborativeFuture = submitBranch(target, BRANCH_COLLABORATIVE, collaborative);
+        Future<double[]> contentBasedFuture = submitBranch(target, BRANCH_CONTENT_BASED, contentBased);
         
-        // 3. 合并推荐结果
-        Map<Long, Double> masterScores = new HashMap<>();
+        // 1. 按各自截止时间收集两个分支的得分
+        double[] cfScores = awaitBranch(target, BRANCH_COLLABORATIVE, collaborativeFuture,
+                start + TimeUnit.MILLISECONDS.toNanos(collaborativeTimeoutMs));
+        double[] cbScores = awaitBranch(target, BRANCH_CONTENT_BASED, contentBasedFuture,
+                start + TimeUnit.MILLISECONDS.toNanos(contentBasedTimeoutMs));
         
-        // 3.1 处理协同过滤的结果
-        for (int i = 0; i < collaborativeResults.size(); i++) {
-            GameMaster master = collaborativeResults.get(i);
-            double score = collaborativeWeight * (1.0 / (i + 1));
-            masterScores.merge(master.getId(), score, Double::sum);
+        // 2. 原地归一化，缺失的分支权重为0
+        double[] cfScale = normalizeInPlace(cfScores);
+        double[] cbScale = normalizeInPlace(cbScores);
+        double cfWeight = cfScale != null ? collaborativeWeight : 0.0;
+        double cbWeight = cbScale != null ? contentBasedWeight : 0.0;
+        double totalWeight = cfWeight + cbWeight;
+        if (totalWeight == 0.0) {
+            return Collections.emptyList();
         }
         
-        // 3.2 处理基于内容的结果
-        for (int i = 0; i < contentBasedResults.size(); i++) {
-            GameMaster master = contentBasedResults.get(i);
-            double score = contentBasedWeight * (1.0 / (i + 1));
-            masterScores.merge(master.getId(), score, Double::sum);
+        // 3. 一次遍历加权得分，取最高的limit个
+        TopKSelector selector = new TopKSelector(limit);
+        for (int i = 0; i < candidates.length; i++) {
+            double score = (cfWeight * valueAt(cfScores, i) + cbWeight * valueAt(cbScores, i)) / totalWeight;
+            selector.offer(i, score);
         }
-        
-        // 4. 排序并返回最终结果
-        return masterScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameMasterService.getGameMasterById(entry.getKey()))
-                .collect(Collectors.toList());
+        selector.sortDescending();
+        List<FusedScore> results = new ArrayList<>(selector.size());
+        for (int k = 0; k < selector.size(); k++) {
+            int i = (int) selector.idAt(k);
+            results.add(new FusedScore(candidates[i],
+                    rawValueAt(cfScores, cfScale, i), rawValueAt(cbScores, cbScale, i),
+                    cfScores != null ? cfScores[i] : Double.NaN,
+                    cbScores != null ? cbScores[i] : Double.NaN,
+                    selector.scoreAt(k)));
+        }
+        return results;
     }
     
-    @Override
-    public List<Game> recommendGames(Long userId, Integer limit) {
-        // 1. 获取协同过滤算法的推荐结果
-        List<Game> collaborativeResults = collaborativeFilteringAlgorithm.recommendGames(userId, limit);
+    /**
+     * 候选陪玩师（按ID升序）：指定游戏时为支持该游戏的陪玩师，否则为特征表中的全部陪玩师，特征表未构建时为空
+     */
+    private long[] masterCandidates(Long gameId) {
+        if (gameId != null) {
+            return gameMasterGameService.getGameMasterGamesByGameId(gameId).stream()
+                    .map(GameMasterGame::getMasterId)
+                    .filter(Objects::nonNull)
+                    .mapToLong(Long::longValue)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+        }
+        return itemFeatureStore.masterTable().getIds();
+    }
+    
+    /**
+     * 候选游戏（按ID升序）：特征表中的全部游戏，特征表未构建时为空
+     */
+    private long[] gameCandidates() {
+        return itemFeatureStore.gameTable().getIds();
+    }
+    
+    /**
+     * 原地最小-最大归一化到[0,1]，NaN按0处理；所有得分相同时全为0。
+     *
+     * @return {最小值, 极差}，用于还原原始得分；输入为null（分支缺失）时返回null
+     */
+    private static double[] normalizeInPlace(double[] scores) {
+        if (scores == null) {
+            return null;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < scores.length; i++) {
+            if (Double.isNaN(scores[i])) {
+                scores[i] = 0.0;
+            }
+            min = Math.min(min, scores[i]);
+            max = Math.max(max, scores[i]);
+        }
+        double range = max - min;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = range > 0 ? (scores[i] - min) / range : 0.0;
+        }
+        return new double[]{min, range};
+    }
+    
+    private static double valueAt(double[] values, int index) {
+        return values != null ? values[index] : 0.0;
+    }
+    
+    /**
+     * 由归一化后的得分还原原始得分，分支缺失时为NaN
+     */
+    private static double rawValueAt(double[] normalized, double[] scale, int index) {
+        return normalized != null ? scale[0] + normalized[index] * scale[1] : Double.NaN;
+    }
+    
+    private static long[] toIds(List<FusedScore> scores) {
+        long[] ids = new long[scores.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = scores.get(i).getId();
+        }
+        return ids;
+    }
+    
+    /**
+     * 在专用线程池上同时执行协同过滤和基于内容两个分支，各自等到自己的截止时间；
+     * 按到达的结果做加权倒数排名融合，线程池拒绝、超时或失败的分支记录指标后跳过。
+     *
+     * @return 融合得分最高的limit个ID
+     */
+    private <T> long[] fuseBranches(String target, Supplier<List<T>> collaborative, Supplier<List<T>> contentBased,
+                                    Function<T, Long> idOf, int limit) {
+        long start = System.nanoTime();
+        Future<List<T>> collaborativeFuture = submitBranch(target, BRANCH_COLLABORATIVE, collaborative);
+        Future<List<T>> contentBasedFuture = submitBranch(target, BRANCH_CONTENT_BASED, contentBased);
         
-        // 2. 获取基于内容的算法的推荐结果
-        List<Game> contentBasedResults = contentBasedAlgorithm.recommendGames(userId, limit);
+        // 1. 按各自截止时间收集两个分支的结果
+        List<T> collaborativeResults = orEmpty(awaitBranch(target, BRANCH_COLLABORATIVE, collaborativeFuture,
+                start + TimeUnit.MILLISECONDS.toNanos(collaborativeTimeoutMs)));
+        List<T> contentBasedResults = orEmpty(awaitBranch(target, BRANCH_CONTENT_BASED, contentBasedFuture,
+                start + TimeUnit.MILLISECONDS.toNanos(contentBasedTimeoutMs)));
         
-        // 3. 合并推荐结果
-        Map<Long, Double> gameScores = new HashMap<>();
+        // 2. 合并推荐结果
+        return fuseRanks(collaborativeResults, contentBasedResults, idOf, limit);
+    }
+    
+    /**
+     * 加权倒数排名融合，取融合得分最高的limit个ID
+     */
+    private <T> long[] fuseRanks(List<T> collaborativeResults, List<T> contentBasedResults,
+                                 Function<T, Long> idOf, int limit) {
+        Map<Long, Double> scores = new HashMap<>();
         
-        // 3.1 处理协同过滤的结果
+        // 1. 处理协同过滤的结果
+        double cfWeight = collaborativeWeight;
         for (int i = 0; i < collaborativeResults.size(); i++) {
-            Game game = collaborativeResults.get(i);
-            double score = collaborativeWeight * (1.0 / (i + 1));
-            gameScores.merge(game.getId(), score, Double::sum);
+            scores.merge(idOf.apply(collaborativeResults.get(i)), cfWeight * (1.0 / (i + 1)), Double::sum);
         }
         
-        // 3.2 处理基于内容的结果
+        // 2. 处理基于内容的结果
+        double cbWeight = contentBasedWeight;
         for (int i = 0; i < contentBasedResults.size(); i++) {
-            Game game = contentBasedResults.get(i);
-            double score = contentBasedWeight * (1.0 / (i + 1));
-            gameScores.merge(game.getId(), score, Double::sum);
+            scores.merge(idOf.apply(contentBasedResults.get(i)), cbWeight * (1.0 / (i + 1)), Double::sum);
         }
         
-        // 4. 排序并返回最终结果
-        return gameScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> gameService.getGameById(entry.getKey()))
-                .collect(Collectors.toList());
+        // 3. 取融合得分最高的limit个
+        TopKSelector selector = new TopKSelector(limit);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            selector.offer(entry.getKey(), entry.getValue());
+        }
+        return selector.toSortedIds();
+    }
+    
+    private static <T> List<T> orEmpty(List<T> results) {
+        return results != null ? results : Collections.emptyList();
+    }
+    
+    /**
+     * 提交分支，线程池已满时返回null（记为rejected），不在请求线程中执行
+     */
+    private <R> Future<R> submitBranch(String target, String branch, Supplier<R> supplier) {
+        Timer timer = Timer.builder("recommend.hybrid.branch.latency")
+                .tag("target", target)
+                .tag("branch", branch)
+                .register(meterRegistry);
+        try {
+            return branchExecutor.submit(() -> timer.record(supplier));
+        } catch (RejectedExecutionException e) {
+            countBranch(target, branch, "rejected");
+            log.warn("融合推荐线程池已满，跳过分支，目标: {}，分支: {}", target, branch);
+            return null;
+        }
+    }
+    
+    /**
+     * 等待分支结果直到deadline（System.nanoTime时刻），被拒绝、超时或失败时返回null；
+     * 超时的分支被中断（仍在排队的直接取消），不再占用线程
+     */
+    private <R> R awaitBranch(String target, String branch, Future<R> future, long deadline) {
+        if (future == null) {
+            return null;
+        }
+        String outcome = "success";
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            future.cancel(true);
+            log.warn("融合推荐分支超时，按已到达的结果融合，目标: {}，分支: {}", target, branch);
+        } catch (ExecutionException e) {
+            outcome = "error";
+            log.error("融合推荐分支执行失败，按已到达的结果融合，目标: {}，分支: {}", target, branch, e.getCause());
+        } catch (InterruptedException e) {
+            outcome = "interrupted";
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } finally {
+            countBranch(target, branch, outcome);
+        }
+        return null;
+    }
+    
+    private void countBranch(String target, String branch, String outcome) {
+        Counter.builder("recommend.hybrid.branch")
+                .tag("target", target)
+                .tag("branch", branch)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
     }
     
     @Override
@@ -169,53 +455,60 @@ public class HybridAlgorithm implements RecommendAlgorithm {
         collaborativeFilteringAlgorithm.trainModel();
         contentBasedAlgorithm.trainModel();
         
-        // 根据评估结果动态调整权重
-        adjustWeights();
+        // 根据评估结果动态调整权重（异步评估，不阻塞训练）
+        adjustWeightsAsync();
     }
     
     @Override
     public RecommendMetrics evaluateModel() {
-        // 1. 评估两个算法
-        RecommendMetrics collaborativeMetrics = collaborativeFilteringAlgorithm.evaluateModel();
-        RecommendMetrics contentBasedMetrics = contentBasedAlgorithm.evaluateModel();
-        
-        // 2. 加权合并评估指标
-        return RecommendMetrics.builder()
-                .precision(collaborativeWeight * collaborativeMetrics.getPrecision() + 
-                          contentBasedWeight * contentBasedMetrics.getPrecision())
-                .recall(collaborativeWeight * collaborativeMetrics.getRecall() + 
-                       contentBasedWeight * contentBasedMetrics.getRecall())
-                .mrr(collaborativeWeight * collaborativeMetrics.getMrr() + 
-                     contentBasedWeight * contentBasedMetrics.getMrr())
-                .ndcg(collaborativeWeight * collaborativeMetrics.getNdcg() + 
-                      contentBasedWeight * contentBasedMetrics.getNdcg())
-                .coverage(collaborativeWeight * collaborativeMetrics.getCoverage() + 
-                         contentBasedWeight * contentBasedMetrics.getCoverage())
-                .diversity(collaborativeWeight * collaborativeMetrics.getDiversity() + 
-                          contentBasedWeight * contentBasedMetrics.getDiversity())
-                .novelty(collaborativeWeight * collaborativeMetrics.getNovelty() + 
-                        contentBasedWeight * contentBasedMetrics.getNovelty())
-                .timeliness(collaborativeWeight * collaborativeMetrics.getTimeliness() + 
-                           contentBasedWeight * contentBasedMetrics.getTimeliness())
-                .coldStartPerformance(collaborativeWeight * collaborativeMetrics.getColdStartPerformance() + 
-                                    contentBasedWeight * contentBasedMetrics.getColdStartPerformance())
-                .build();
-    }
-    
-    private void adjustWeights() {
-        // 1. 获取两个算法的评估结果
-        RecommendMetrics collaborativeMetrics = collaborativeFilteringAlgorithm.evaluateModel();
-        RecommendMetrics contentBasedMetrics = contentBasedAlgorithm.evaluateModel();
-        
-        // 2. 计算两个算法的综合得分
+        // 直接评估融合后的推荐结果
+        return evaluationEngine.evaluate("hybrid", this).getMetrics();
+    }
+    
+    /**
+     * 两个分支各自构建评估用模型，推荐时同步取两路结果按当前权重做倒数排名融合
+     */
+    @Override
+    public HoldoutRecommender trainHoldout(Date until) {
+        HoldoutRecommender collaborative = collaborativeFilteringAlgorithm.trainHoldout(until);
+        HoldoutRecommender contentBased = contentBasedAlgorithm.trainHoldout(until);
+        return (userId, limit) -> entityHydrationService.getGameMasters(fuseRanks(
+                collaborative.recommendGameMasters(userId, limit), contentBased.recommendGameMasters(userId, limit),
+                GameMaster::getId, limit));
+    }
+    
+    /**
+     * 异步评估两个算法，两份报告都完成后再调整权重
+     */
+    public CompletableFuture<Void> adjustWeightsAsync() {
+        CompletableFuture<EvaluationReport> collaborative =
+                evaluationEngine.evaluateAsync("collaborative-filtering", collaborativeFilteringAlgorithm);
+        CompletableFuture<EvaluationReport> contentBased =
+                evaluationEngine.evaluateAsync("content-based", contentBasedAlgorithm);
+        return collaborative.thenAcceptBoth(contentBased, (cfReport, cbReport) -> {
+                    if (Boolean.TRUE.equals(cfReport.getSkipped()) || Boolean.TRUE.equals(cbReport.getSkipped())) {
+                        log.warn("离线评估被跳过，沿用当前融合权重");
+                        return;
+                    }
+                    adjustWeights(cfReport.getMetrics(), cbReport.getMetrics());
+                })
+                .exceptionally(e -> {
+                    log.error("评估后调整融合权重失败，沿用当前权重", e);
+                    return null;
+                });
+    }
+    
+    private void adjustWeights(RecommendMetrics collaborativeMetrics, RecommendMetrics contentBasedMetrics) {
+        // 1. 计算两个算法的综合得分
         double collaborativeScore = calculateOverallScore(collaborativeMetrics);
         double contentBasedScore = calculateOverallScore(contentBasedMetrics);
         
-        // 3. 根据得分调整权重
+        // 2. 根据得分调整权重
         double totalScore = collaborativeScore + contentBasedScore;
         if (totalScore > 0) {
             collaborativeWeight = collaborativeScore / totalScore;
             contentBasedWeight = contentBasedScore / totalScore;
+            log.info("融合权重已调整，协同过滤: {}，基于内容: {}", collaborativeWeight, contentBasedWeight);
         }
     }
     
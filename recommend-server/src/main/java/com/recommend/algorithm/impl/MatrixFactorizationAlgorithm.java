@@ -0,0 +1,562 @@
+package com.recommend.algorithm.impl;
+
+import com.recommend.algorithm.RecommendAlgorithm;
+import com.recommend.algorithm.RecommendMetrics;
+import com.recommend.algorithm.ann.AnnBenchmark;
+import com.recommend.algorithm.ann.MaxInnerProductIndex;
+import com.recommend.algorithm.evaluation.EvaluationEngine;
+import com.recommend.algorithm.evaluation.HoldoutRecommender;
+import com.recommend.algorithm.evaluation.HoldoutTrainable;
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.algorithm.model.ModelSnapshot;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.algorithm.model.UpdateJournal;
+import com.recommend.algorithm.train.AlsSolver;
+import com.recommend.algorithm.train.InteractionMatrix;
+import com.recommend.algorithm.train.ParallelTrainer;
+import com.recommend.common.entity.Game;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.entity.Order;
+import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.event.ModelTrainedEvent;
+import com.recommend.common.utils.TopKSelector;
+import com.recommend.service.GameMasterService;
+import com.recommend.service.OrderService;
+import com.recommend.service.UserBehaviorService;
+import com.recommend.service.feature.MasterBitmapIndex;
+import com.recommend.service.feature.MasterBitmaps;
+import com.recommend.service.hydration.EntityHydrationService;
+import com.recommend.service.mapper.OrderMapper;
+import com.recommend.service.mapper.UserBehaviorMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * 矩阵分解推荐算法（隐式反馈ALS）
+ * 基于user_behavior和order构建用户-陪玩师、用户-游戏交互矩阵，分别训练用户/物品隐因子；
+ * 推荐时用户向量与全部物品因子分块做内积，再用Top-K堆选出结果；
+ * 陪玩师数量达到阈值后改为在HNSW近似最近邻索引上检索，索引只包含在线陪玩师，随上下线增量插入/删除；
+ * 全量内积时按陪玩师位图跳过下线陪玩师，两条路径返回的陪玩师口径一致。
+ */
+@Component
+@Slf4j
+public class MatrixFactorizationAlgorithm implements RecommendAlgorithm, HoldoutTrainable {
+
+    // 行为目标类型：陪玩师
+    private static final String TARGET_TYPE_MASTER = "1";
+
+    // 行为目标类型：游戏
+    private static final String TARGET_TYPE_GAME = "2";
+
+    // 陪玩师状态：在线
+    private static final int MASTER_STATUS_ONLINE = 1;
+
+    @Autowired
+    private UserBehaviorService userBehaviorService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityHydrationService entityHydrationService;
+
+    @Autowired
+    private GameMasterService gameMasterService;
+
+    @Autowired
+    private UserBehaviorMapper userBehaviorMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private MasterBitmapIndex masterBitmapIndex;
+
+    @Autowired
+    private ParallelTrainer parallelTrainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EvaluationEngine evaluationEngine;
+
+    // 隐因子维度
+    @Value("${recommend.algorithm.matrix-factorization.factors:32}")
+    private int factors;
+
+    // 交替迭代轮数
+    @Value("${recommend.algorithm.matrix-factorization.iterations:10}")
+    private int iterations;
+
+    // L2正则系数
+    @Value("${recommend.algorithm.matrix-factorization.regularization:0.05}")
+    private double regularization;
+
+    // 置信度系数 c = 1 + alpha * r
+    @Value("${recommend.algorithm.matrix-factorization.alpha:20}")
+    private double alpha;
+
+    // 训练使用的交互时间窗口（天）
+    @Value("${recommend.algorithm.matrix-factorization.history-days:180}")
+    private int historyDays;
+
+    // 单次行为的交互强度
+    @Value("${recommend.algorithm.matrix-factorization.behavior-weight:1.0}")
+    private float behaviorWeight;
+
+    // 单个订单的交互强度（评分另按 rating/5 追加）
+    @Value("${recommend.algorithm.matrix-factorization.order-weight:3.0}")
+    private float orderWeight;
+
+    // 按游戏过滤时的候选放大倍数
+    @Value("${recommend.algorithm.matrix-factorization.filter-oversampling:5}")
+    private int filterOversampling;
+
+    // 每个模型覆盖层最多保存的在线折叠用户数，满了之后新用户等待下一次训练
+    @Value("${recommend.algorithm.matrix-factorization.fold-in-capacity:100000}")
+    private int foldInCapacity;
+
+    // 陪玩师因子的HNSW索引开关
+    @Value("${recommend.algorithm.matrix-factorization.ann.enabled:true}")
+    private boolean annEnabled;
+
+    // 陪玩师数量少于该值时直接全量内积，不建索引
+    @Value("${recommend.algorithm.matrix-factorization.ann.min-items:2000}")
+    private int annMinItems;
+
+    // 每个节点的最大邻居数M
+    @Value("${recommend.algorithm.matrix-factorization.ann.max-neighbors:16}")
+    private int annMaxNeighbors;
+
+    // 构建时的候选队列宽度
+    @Value("${recommend.algorithm.matrix-factorization.ann.ef-construction:100}")
+    private int annEfConstruction;
+
+    // 查询时的候选队列宽度，越大召回越高、延迟越大
+    @Value("${recommend.algorithm.matrix-factorization.ann.ef-search:64}")
+    private int annEfSearch;
+
+    // 建索引后与精确检索对比召回/延迟的查询用户数，0表示不对比
+    @Value("${recommend.algorithm.matrix-factorization.ann.benchmark-queries:100}")
+    private int annBenchmarkQueries;
+
+    private AlsSolver solver;
+
+    // 绑定当前陪玩师模型的近似检索索引，为null时走全量内积
+    private volatile MaxInnerProductIndex masterIndex;
+
+    private final ModelSnapshotHolder<FactorModel> masterModelHolder =
+            new ModelSnapshotHolder<>("als-master", FactorModel.empty());
+
+    private final ModelSnapshotHolder<FactorModel> gameModelHolder =
+            new ModelSnapshotHolder<>("als-game", FactorModel.empty());
+
+    // 训练期间在线折叠过的用户，新模型发布后在新模型上重新折叠
+    private final UpdateJournal userJournal = new UpdateJournal();
+
+    @PostConstruct
+    public void init() {
+        solver = new AlsSolver(factors, regularization, alpha);
+        masterModelHolder.bindTo(meterRegistry);
+        gameModelHolder.bindTo(meterRegistry);
+    }
+
+    @Override
+    public List<GameMaster> recommendGameMasters(Long userId, Long gameId, Integer limit) {
+        // 1. 按游戏过滤时多取一些候选，过滤后再截断
+        int candidateCount = gameId == null ? limit : limit * filterOversampling;
+        long[] masterIds = topMasters(userId, candidateCount);
+
+        // 2. 只加载入选的陪玩师
+        List<GameMaster> masters = entityHydrationService.getGameMasters(masterIds);
+        if (gameId == null) {
+            return masters;
+        }
+        Game game = entityHydrationService.getGame(gameId);
+        return masters.stream()
+                .filter(master -> isMasterGameMatch(master, game))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Game> recommendGames(Long userId, Integer limit) {
+        return entityHydrationService.getGames(topItems(gameModelHolder.model(), userId, limit, id -> true));
+    }
+
+    @Override
+    public double calculateUserMasterSimilarity(Long userId, Long masterId) {
+        return userItemScore(masterModelHolder.model(), userId, masterId);
+    }
+
+    @Override
+    public double calculateUserGameSimilarity(Long userId, Long gameId) {
+        return userItemScore(gameModelHolder.model(), userId, gameId);
+    }
+
+    @Override
+    public double calculateMasterSimilarity(Long masterId1, Long masterId2) {
+        return itemSimilarity(masterModelHolder.model(), masterId1, masterId2);
+    }
+
+    @Override
+    public double calculateGameSimilarity(Long gameId1, Long gameId2) {
+        return itemSimilarity(gameModelHolder.model(), gameId1, gameId2);
+    }
+
+    /**
+     * 固定物品因子，用该用户当前的全部交互重新求解用户向量（在线折叠），代价 O(交互数·k² + k³)
+     */
+    @Override
+    public void updateUserFeatures(Long userId) {
+        userJournal.record(userId);
+        InteractionMatrix.Builder masterRow = new InteractionMatrix.Builder();
+        InteractionMatrix.Builder gameRow = new InteractionMatrix.Builder();
+        addBehaviors(userBehaviorService.getUserBehaviorsByUserId(userId), masterRow, gameRow);
+        addOrders(orderService.getOrdersByUserId(userId), masterRow, gameRow);
+
+        foldInUser(masterModelHolder.model(), userId, masterRow.build());
+        foldInUser(gameModelHolder.model(), userId, gameRow.build());
+    }
+
+    /**
+     * 物品因子由全体用户的交互决定，单个陪玩师的属性变化不影响，等待下一次训练；
+     * 这里只按上下线状态同步近似检索索引
+     */
+    @Override
+    public void updateMasterFeatures(Long masterId) {
+        MaxInnerProductIndex index = masterIndex;
+        if (index == null) {
+            return;
+        }
+        entityHydrationService.evictGameMaster(masterId);
+        if (isOnline(entityHydrationService.getGameMaster(masterId))) {
+            // 训练后新增的陪玩师没有因子，插入失败时等待下一次训练
+            index.insert(masterId);
+        } else {
+            index.delete(masterId);
+        }
+    }
+
+    @Override
+    public void updateGameFeatures(Long gameId) {
+        // 同上，等待下一次训练
+        log.debug("矩阵分解模型不做游戏增量更新，游戏ID: {}", gameId);
+    }
+
+    @Override
+    public void trainModel() {
+        // 训练读取数据之后到发布之前的在线折叠只写进旧模型的覆盖层，先记入日志，发布后重放
+        userJournal.open();
+        FactorModel masterModel;
+        FactorModel gameModel;
+        ModelSnapshot<FactorModel> masterSnapshot;
+        ModelSnapshot<FactorModel> gameSnapshot;
+        try {
+            // 1. 流式遍历时间窗口内的交互数据，逐行累加，不在内存中组装实体列表
+            Date end = new Date();
+            Date start = new Date(end.getTime() - TimeUnit.DAYS.toMillis(historyDays));
+            InteractionMatrix.Builder masterInteractions = new InteractionMatrix.Builder();
+            InteractionMatrix.Builder gameInteractions = new InteractionMatrix.Builder();
+            userBehaviorMapper.scanByTimeRange(start, end,
+                    context -> addBehavior(context.getResultObject(), masterInteractions, gameInteractions));
+            orderMapper.scanByTimeRange(start, end,
+                    context -> addOrder(context.getResultObject(), masterInteractions, gameInteractions));
+
+            // 2. 分别训练并发布
+            masterModel = train("陪玩师", masterInteractions.build());
+            masterSnapshot = masterModelHolder.publish(masterModel);
+            rebuildMasterIndex(masterModel);
+            gameModel = train("游戏", gameInteractions.build());
+            gameSnapshot = gameModelHolder.publish(gameModel);
+        } catch (RuntimeException e) {
+            // 训练失败时旧模型继续使用，日志直接丢弃
+            userJournal.close();
+            throw e;
+        }
+
+        // 3. 在新模型上重新折叠训练期间更新过的用户（旧模型的覆盖层随旧模型丢弃）
+        Set<Long> folded = userJournal.close();
+        for (Long userId : folded) {
+            try {
+                updateUserFeatures(userId);
+            } catch (Exception e) {
+                log.error("重放训练期间的在线折叠失败，用户ID: {}", userId, e);
+            }
+        }
+
+        log.info("矩阵分解模型训练完成，陪玩师模型版本: {}（{}用户/{}陪玩师），游戏模型版本: {}（{}用户/{}游戏），重放折叠: {}，内存占用约{}KB",
+                masterSnapshot.getVersion(), masterModel.userCount(), masterModel.itemCount(),
+                gameSnapshot.getVersion(), gameModel.userCount(), gameModel.itemCount(), folded.size(),
+                (masterModel.memoryFootprintBytes() + gameModel.memoryFootprintBytes()) / 1024);
+        eventPublisher.publishEvent(new ModelTrainedEvent("matrix-factorization"));
+    }
+
+    @Override
+    public RecommendMetrics evaluateModel() {
+        return evaluationEngine.evaluate("matrix-factorization", this).getMetrics();
+    }
+
+    /**
+     * 用until之前时间窗口内的交互单独训练一份陪玩师因子模型，不发布、不建索引，推荐时走全量内积
+     */
+    @Override
+    public HoldoutRecommender trainHoldout(Date until) {
+        // 扫描条件是BETWEEN（含两端），终点取until前1毫秒
+        Date end = new Date(until.getTime() - 1);
+        Date start = new Date(until.getTime() - TimeUnit.DAYS.toMillis(historyDays));
+        InteractionMatrix.Builder masterInteractions = new InteractionMatrix.Builder();
+        InteractionMatrix.Builder ignoredGames = new InteractionMatrix.Builder();
+        userBehaviorMapper.scanByTimeRange(start, end,
+                context -> addBehavior(context.getResultObject(), masterInteractions, ignoredGames));
+        orderMapper.scanByTimeRange(start, end,
+                context -> addOrder(context.getResultObject(), masterInteractions, ignoredGames));
+        FactorModel model = train("陪玩师-评估", masterInteractions.build());
+        return (userId, limit) -> entityHydrationService.getGameMasters(topItems(model, userId, limit, onlineMasters()));
+    }
+
+    /**
+     * 获取当前发布的陪玩师因子模型快照
+     */
+    public ModelSnapshot<FactorModel> getMasterModelSnapshot() {
+        return masterModelHolder.current();
+    }
+
+    /**
+     * 获取当前发布的游戏因子模型快照
+     */
+    public ModelSnapshot<FactorModel> getGameModelSnapshot() {
+        return gameModelHolder.current();
+    }
+
+    /**
+     * 启动时用持久化快照恢复模型，已训练出新模型时不覆盖；维度与当前配置不一致的快照丢弃
+     */
+    public void restoreModels(FactorModel masterModel, FactorModel gameModel) {
+        if (masterModel.itemCount() > 0 && masterModel.getFactors() == factors
+                && masterModelHolder.restore(masterModel)) {
+            rebuildMasterIndex(masterModel);
+        }
+        if (gameModel.itemCount() > 0 && gameModel.getFactors() == factors) {
+            gameModelHolder.restore(gameModel);
+        }
+    }
+
+    /**
+     * 与用户向量内积最大的n个在线陪玩师ID，按得分降序
+     */
+    public long[] nearestMasters(Long userId, int n) {
+        return topMasters(userId, n);
+    }
+
+    // 辅助方法
+
+    private long[] topMasters(Long userId, int limit) {
+        FactorModel model = masterModelHolder.model();
+        MaxInnerProductIndex index = masterIndex;
+        float[] user = model.userVector(userId);
+        // 索引与模型不是同一版本（发布和建索引之间的窗口）时退回全量内积
+        if (index != null && index.getModel() == model && user != null) {
+            return index.search(user, limit, Math.max(annEfSearch, limit));
+        }
+        return topItems(model, userId, limit, onlineMasters());
+    }
+
+    /**
+     * 位图中已下线的陪玩师跳过，不在位图中的（重建后新增）保留
+     */
+    private LongPredicate onlineMasters() {
+        MasterBitmaps bitmaps = masterBitmapIndex.current();
+        return masterId -> {
+            int ordinal = bitmaps.ordinalOf(masterId);
+            return ordinal < 0 || bitmaps.isOnline(ordinal);
+        };
+    }
+
+    /**
+     * 为新发布的陪玩师模型构建近似检索索引，剔除已下线的陪玩师，并与精确检索对比召回/延迟
+     */
+    private void rebuildMasterIndex(FactorModel model) {
+        if (!annEnabled || model.itemCount() < annMinItems) {
+            masterIndex = null;
+            return;
+        }
+        long start = System.currentTimeMillis();
+        MaxInnerProductIndex index = MaxInnerProductIndex.build(model, annMaxNeighbors, annEfConstruction);
+        Set<Long> online = gameMasterService.getGameMastersByStatus(MASTER_STATUS_ONLINE).stream()
+                .map(GameMaster::getId)
+                .collect(Collectors.toSet());
+        int offline = 0;
+        for (long masterId : model.getItemIds()) {
+            if (!online.contains(masterId) && index.delete(masterId)) {
+                offline++;
+            }
+        }
+        log.info("陪玩师HNSW索引构建完成，在线: {}，剔除下线: {}，内存约{}KB，耗时: {}ms",
+                index.size(), offline, index.memoryFootprintBytes() / 1024, System.currentTimeMillis() - start);
+
+        if (annBenchmarkQueries > 0) {
+            AnnBenchmark.Result result = AnnBenchmark.run(index, annBenchmarkQueries, 10, annEfSearch);
+            log.info("陪玩师HNSW索引对比精确检索，查询: {}，recall@{}: {}，近似: {}us/次，精确: {}us/次",
+                    result.getQueries(), result.getK(), String.format("%.3f", result.getRecall()),
+                    String.format("%.1f", result.getAnnMicros()), String.format("%.1f", result.getExactMicros()));
+        }
+        masterIndex = index;
+    }
+
+    private boolean isOnline(GameMaster master) {
+        return master != null && Integer.valueOf(MASTER_STATUS_ONLINE).equals(master.getStatus());
+    }
+
+
+    /**
+     * 为用户选出得分最高的物品ID，只保留accept通过的物品；没有因子的用户按物品热度排序（冷启动）
+     */
+    private long[] topItems(FactorModel model, Long userId, int limit, LongPredicate accept) {
+        int itemCount = model.itemCount();
+        float[] scores;
+        float[] user = model.userVector(userId);
+        if (user != null) {
+            scores = new float[itemCount];
+            model.scoreAll(user, scores);
+        } else {
+            scores = model.getItemPopularity();
+        }
+
+        TopKSelector selector = new TopKSelector(Math.min(limit, itemCount));
+        for (int i = 0; i < itemCount; i++) {
+            long itemId = model.itemIdAt(i);
+            if (accept.test(itemId)) {
+                selector.offer(itemId, scores[i]);
+            }
+        }
+        return selector.toSortedIds();
+    }
+
+    private double userItemScore(FactorModel model, Long userId, Long itemId) {
+        float[] user = model.userVector(userId);
+        int itemIdx = model.itemIndex(itemId);
+        return user != null && itemIdx >= 0 ? model.score(user, itemIdx) : 0.0;
+    }
+
+    private double itemSimilarity(FactorModel model, Long itemId1, Long itemId2) {
+        if (itemId1.equals(itemId2)) {
+            return 1.0;
+        }
+        int idx1 = model.itemIndex(itemId1);
+        int idx2 = model.itemIndex(itemId2);
+        return idx1 >= 0 && idx2 >= 0 ? model.itemCosine(idx1, idx2) : 0.0;
+    }
+
+    /**
+     * 训练单个交互矩阵的用户/物品因子
+     */
+    private FactorModel train(String name, InteractionMatrix byUser) {
+        if (byUser.rowCount() == 0 || byUser.colCount() == 0) {
+            log.warn("矩阵分解[{}]没有交互数据，跳过训练", name);
+            return FactorModel.empty();
+        }
+        InteractionMatrix byItem = byUser.transpose();
+        float[] userFactors = solver.initFactors(byUser.rowCount(), 17L);
+        float[] itemFactors = solver.initFactors(byItem.rowCount(), 31L);
+
+        for (int iter = 1; iter <= iterations; iter++) {
+            solver.solveAll("ALS-" + name + "-用户因子-第" + iter + "轮", byUser, userFactors, itemFactors, parallelTrainer);
+            solver.solveAll("ALS-" + name + "-物品因子-第" + iter + "轮", byItem, itemFactors, userFactors, parallelTrainer);
+        }
+
+        log.info("矩阵分解[{}]训练完成，用户: {}，物品: {}，交互: {}，维度: {}，迭代: {}",
+                name, byUser.rowCount(), byItem.rowCount(), byUser.nonZeroCount(), factors, iterations);
+        return new FactorModel(factors, byUser.getRowIds(), userFactors, byItem.getRowIds(), itemFactors,
+                solver.gram(itemFactors, byItem.rowCount()), byItem.rowSums());
+    }
+
+    /**
+     * 用单个用户的交互行折叠出用户向量并写入模型
+     */
+    private void foldInUser(FactorModel model, Long userId, InteractionMatrix userRow) {
+        if (model.itemCount() == 0 || model.getFactors() != factors || userRow.rowCount() == 0) {
+            return;
+        }
+        int[] cols = new int[userRow.nonZeroCount()];
+        float[] values = new float[cols.length];
+        int count = 0;
+        for (int pos = userRow.rowStart(0); pos < userRow.rowEnd(0); pos++) {
+            int itemIdx = model.itemIndex(userRow.getColIds()[userRow.colAt(pos)]);
+            if (itemIdx >= 0) {
+                cols[count] = itemIdx;
+                values[count] = userRow.valueAt(pos);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        model.putUserVector(userId, solver.foldIn(cols, values, count, model.getItemFactors(), model.getItemGram()),
+                foldInCapacity);
+    }
+
+    private void addBehaviors(List<UserBehavior> behaviors, InteractionMatrix.Builder masters,
+                              InteractionMatrix.Builder games) {
+        for (UserBehavior behavior : behaviors) {
+            addBehavior(behavior, masters, games);
+        }
+    }
+
+    private void addBehavior(UserBehavior behavior, InteractionMatrix.Builder masters, InteractionMatrix.Builder games) {
+        if (behavior.getUserId() == null || behavior.getTargetId() == null) {
+            return;
+        }
+        if (TARGET_TYPE_MASTER.equals(behavior.getTargetType())) {
+            masters.add(behavior.getUserId(), behavior.getTargetId(), behaviorWeight);
+        } else if (TARGET_TYPE_GAME.equals(behavior.getTargetType())) {
+            games.add(behavior.getUserId(), behavior.getTargetId(), behaviorWeight);
+        }
+    }
+
+    private void addOrders(List<Order> orders, InteractionMatrix.Builder masters, InteractionMatrix.Builder games) {
+        for (Order order : orders) {
+            addOrder(order, masters, games);
+        }
+    }
+
+    private void addOrder(Order order, InteractionMatrix.Builder masters, InteractionMatrix.Builder games) {
+        if (order.getUserId() == null) {
+            return;
+        }
+        float strength = orderWeight + (order.getRating() != null ? order.getRating().floatValue() / 5f : 0f);
+        if (order.getMasterId() != null) {
+            masters.add(order.getUserId(), order.getMasterId(), strength);
+        }
+        if (order.getGameId() != null) {
+            games.add(order.getUserId(), order.getGameId(), orderWeight);
+        }
+    }
+
+    /**
+     * 判断陪玩师是否支持指定游戏（陪玩师游戏类型包含该游戏的类型）
+     */
+    private boolean isMasterGameMatch(GameMaster master, Game game) {
+        if (master == null || game == null || master.getGameTypes() == null || game.getType() == null) {
+            return false;
+        }
+        return Arrays.asList(master.getGameTypes().split(",")).contains(game.getType());
+    }
+}
@@ -0,0 +1,234 @@
+package com.recommend.algorithm.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * 协同过滤模型
+ * 训练产出的CSR矩阵不可变；在线增量更新按行写入覆盖层（overlay），查询时覆盖层优先，
+ * 单次更新只复制被修改的行。下一次全量训练发布新快照时覆盖层随旧快照一起丢弃，
+ * 训练期间更新过的行由训练方在新快照上重放。
+ */
+public final class CollaborativeFilteringModel {
+
+    // 用户-游戏陪玩评分矩阵
+    private final Layer userMasterRatings;
+
+    // 用户-游戏评分矩阵
+    private final Layer userGameRatings;
+
+    // 游戏陪玩相似度矩阵（每行只保留Top-K邻居）
+    private final Layer masterSimilarity;
+
+    // 游戏相似度矩阵（每行只保留Top-K邻居）
+    private final Layer gameSimilarity;
+
+    public CollaborativeFilteringModel(SparseMatrix userMasterRatings, SparseMatrix userGameRatings,
+                                       SparseMatrix masterSimilarity, SparseMatrix gameSimilarity) {
+        this.userMasterRatings = new Layer(userMasterRatings);
+        this.userGameRatings = new Layer(userGameRatings);
+        this.masterSimilarity = new Layer(masterSimilarity);
+        this.gameSimilarity = new Layer(gameSimilarity);
+    }
+
+    /**
+     * 空模型；覆盖层可写，每个持有者各建一个，不能共享
+     */
+    public static CollaborativeFilteringModel empty() {
+        return new CollaborativeFilteringModel(SparseMatrix.EMPTY, SparseMatrix.EMPTY, SparseMatrix.EMPTY, SparseMatrix.EMPTY);
+    }
+
+    public SparseMatrix getUserMasterRatings() {
+        return userMasterRatings.base;
+    }
+
+    public SparseMatrix getUserGameRatings() {
+        return userGameRatings.base;
+    }
+
+    public SparseMatrix getMasterSimilarity() {
+        return masterSimilarity.base;
+    }
+
+    public SparseMatrix getGameSimilarity() {
+        return gameSimilarity.base;
+    }
+
+    /**
+     * 陪玩师相似度，该陪玩师没有邻居行（未参与训练）时返回NaN
+     */
+    public float getMasterSimilarity(long masterId1, long masterId2) {
+        return masterSimilarity.get(masterId1, masterId2);
+    }
+
+    /**
+     * 游戏相似度，该游戏没有邻居行（未参与训练）时返回NaN
+     */
+    public float getGameSimilarity(long gameId1, long gameId2) {
+        return gameSimilarity.get(gameId1, gameId2);
+    }
+
+    /**
+     * 获取陪玩师的邻居行，不存在返回null
+     */
+    public SparseRow getMasterNeighbors(Long masterId) {
+        return masterSimilarity.row(masterId);
+    }
+
+    /**
+     * 获取游戏的邻居行，不存在返回null
+     */
+    public SparseRow getGameNeighbors(Long gameId) {
+        return gameSimilarity.row(gameId);
+    }
+
+    /**
+     * 获取用户的陪玩师评分行，不存在返回null
+     */
+    public SparseRow getUserMasterRow(Long userId) {
+        return userMasterRatings.row(userId);
+    }
+
+    /**
+     * 获取用户的游戏评分行，不存在返回null
+     */
+    public SparseRow getUserGameRow(Long userId) {
+        return userGameRatings.row(userId);
+    }
+
+    /**
+     * 整行替换用户评分
+     */
+    public void putUserRatings(Long userId, SparseRow masterRow, SparseRow gameRow) {
+        userMasterRatings.overlay.put(userId, masterRow);
+        userGameRatings.overlay.put(userId, gameRow);
+    }
+
+    /**
+     * 写入用户对单个目标的评分，复杂度O(该用户评分行长度)
+     */
+    public void putUserRating(Long userId, long targetId, float masterRating, float gameRating) {
+        userMasterRatings.upsert(userId, targetId, masterRating);
+        userGameRatings.upsert(userId, targetId, gameRating);
+    }
+
+    /**
+     * 替换陪玩师的邻居行，并修正受影响邻居的反向行
+     */
+    public void replaceMasterNeighbors(Long masterId, SparseRow neighbors, int maxPerRow) {
+        masterSimilarity.replaceNeighbors(masterId, neighbors, maxPerRow);
+    }
+
+    /**
+     * 替换游戏的邻居行，并修正受影响邻居的反向行
+     */
+    public void replaceGameNeighbors(Long gameId, SparseRow neighbors, int maxPerRow) {
+        gameSimilarity.replaceNeighbors(gameId, neighbors, maxPerRow);
+    }
+
+    /**
+     * 覆盖层中的行数
+     */
+    public int overlayRowCount() {
+        return userMasterRatings.overlay.size() + userGameRatings.overlay.size()
+                + masterSimilarity.overlay.size() + gameSimilarity.overlay.size();
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long memoryFootprintBytes() {
+        return userMasterRatings.memoryFootprintBytes()
+                + userGameRatings.memoryFootprintBytes()
+                + masterSimilarity.memoryFootprintBytes()
+                + gameSimilarity.memoryFootprintBytes();
+    }
+
+    /**
+     * 训练矩阵 + 按行覆盖层
+     */
+    private static final class Layer {
+
+        // 覆盖层单行的固定开销估算：Map节点、Long键、SparseRow及两个数组头
+        private static final long OVERLAY_ROW_BYTES = 112;
+
+        final SparseMatrix base;
+        final Map<Long, SparseRow> overlay = new ConcurrentHashMap<>();
+
+        Layer(SparseMatrix base) {
+            this.base = base;
+        }
+
+        /**
+         * 覆盖层为空时（常态）不装箱
+         */
+        float get(long row, long col) {
+            if (!overlay.isEmpty()) {
+                SparseRow updated = overlay.get(row);
+                if (updated != null) {
+                    return updated.get(col, 0f);
+                }
+            }
+            int rowIdx = base.rowIndex(row);
+            return rowIdx >= 0 ? base.getInRow(rowIdx, col, 0f) : Float.NaN;
+        }
+
+        SparseRow row(Long row) {
+            SparseRow updated = overlay.get(row);
+            return updated != null ? updated : baseRow(row);
+        }
+
+        SparseRow baseRow(long row) {
+            int rowIdx = base.rowIndex(row);
+            return rowIdx >= 0 ? SparseRow.fromMatrix(base, rowIdx) : null;
+        }
+
+        void upsert(Long row, long col, float value) {
+            overlay.compute(row, (key, current) -> {
+                SparseRow existing = current != null ? current : baseRow(key);
+                return (existing != null ? existing : SparseRow.EMPTY).with(col, value);
+            });
+        }
+
+        /**
+         * 只修改已存在的行，未参与训练的行保持缺失（查询时走实时计算）
+         */
+        void patch(Long row, UnaryOperator<SparseRow> change) {
+            overlay.compute(row, (key, current) -> {
+                SparseRow existing = current != null ? current : baseRow(key);
+                return existing != null ? change.apply(existing) : null;
+            });
+        }
+
+        /**
+         * 相似度对称：新邻居行中的物品把该物品写入自己的Top-K，
+         * 不再是邻居的物品从自己的行中移除该物品，只触及新旧邻居共O(K)行。
+         */
+        void replaceNeighbors(Long id, SparseRow neighbors, int maxPerRow) {
+            SparseRow previous = row(id);
+            overlay.put(id, neighbors);
+            long key = id;
+            if (previous != null) {
+                for (int i = 0; i < previous.size(); i++) {
+                    long old = previous.colAt(i);
+                    if (!neighbors.contains(old)) {
+                        patch(old, r -> r.without(key));
+                    }
+                }
+            }
+            for (int i = 0; i < neighbors.size(); i++) {
+                float similarity = neighbors.valueAt(i);
+                patch(neighbors.colAt(i), r -> r.withTopK(key, similarity, maxPerRow));
+            }
+        }
+
+        long memoryFootprintBytes() {
+            long bytes = base.memoryFootprintBytes();
+            for (SparseRow row : overlay.values()) {
+                bytes += OVERLAY_ROW_BYTES + 12L * row.size();
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.recommend.algorithm.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于内容的模型
+ * 训练结果在发布后只读；训练后新出现或单独刷新的实体直接写入本快照自带的并发补充表（不复制快照），
+ * 训练期间单独刷新的实体由训练方在新快照发布后重放，其余补充项随旧快照一起丢弃。
+ * 训练得到的陪玩师/游戏标签权重同时建成标签倒排索引；补充表中的实体在索引里是旧权重，检索时需跳过，
+ * 再通过补充表自己的 标签→实体 增量倒排只取出与查询有共同标签的实体单独打分，不遍历整个补充表。
+ */
+public final class ContentBasedModel {
+
+    // 训练得到的用户/陪玩师/游戏-标签权重
+    private final Map<Long, Map<Long, Double>> userTagWeights;
+    private final Map<Long, Map<Long, Double>> masterTagWeights;
+    private final Map<Long, Map<Long, Double>> gameTagWeights;
+
+    // 标签倒排索引
+    private final TagPostingIndex masterIndex;
+    private final TagPostingIndex gameIndex;
+
+    // 补充表：优先于训练结果读取
+    private final Map<Long, Map<Long, Double>> userSupplement = new ConcurrentHashMap<>();
+    private final Supplement masterSupplement = new Supplement();
+    private final Supplement gameSupplement = new Supplement();
+
+    public ContentBasedModel(Map<Long, Map<Long, Double>> userTagWeights,
+                             Map<Long, Map<Long, Double>> masterTagWeights,
+                             Map<Long, Map<Long, Double>> gameTagWeights) {
+        this.userTagWeights = Collections.unmodifiableMap(userTagWeights);
+        this.masterTagWeights = Collections.unmodifiableMap(masterTagWeights);
+        this.gameTagWeights = Collections.unmodifiableMap(gameTagWeights);
+        this.masterIndex = TagPostingIndex.build(masterTagWeights);
+        this.gameIndex = TagPostingIndex.build(gameTagWeights);
+    }
+
+    /**
+     * 空模型；补充表可写，每个持有者各建一个，不能共享
+     */
+    public static ContentBasedModel empty() {
+        return new ContentBasedModel(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    public Map<Long, Double> getUserTagWeights(Long userId) {
+        return lookup(userSupplement, userTagWeights, userId);
+    }
+
+    public Map<Long, Double> getMasterTagWeights(Long masterId) {
+        return lookup(masterSupplement.weights, masterTagWeights, masterId);
+    }
+
+    public Map<Long, Double> getGameTagWeights(Long gameId) {
+        return lookup(gameSupplement.weights, gameTagWeights, gameId);
+    }
+
+    public void putUserTagWeights(Long userId, Map<Long, Double> weights) {
+        userSupplement.put(userId, Collections.unmodifiableMap(weights));
+    }
+
+    public void putMasterTagWeights(Long masterId, Map<Long, Double> weights) {
+        masterSupplement.put(masterId, weights);
+    }
+
+    public void putGameTagWeights(Long gameId, Map<Long, Double> weights) {
+        gameSupplement.put(gameId, weights);
+    }
+
+    public TagPostingIndex getMasterIndex() {
+        return masterIndex;
+    }
+
+    public TagPostingIndex getGameIndex() {
+        return gameIndex;
+    }
+
+    /**
+     * 陪玩师是否在补充表中（倒排索引里是旧权重）
+     */
+    public boolean isMasterSupplemented(long masterId) {
+        return masterSupplement.weights.containsKey(masterId);
+    }
+
+    /**
+     * 游戏是否在补充表中（倒排索引里是旧权重）
+     */
+    public boolean isGameSupplemented(long gameId) {
+        return gameSupplement.weights.containsKey(gameId);
+    }
+
+    /**
+     * 补充表中至少带有tagIds之一的陪玩师
+     */
+    public Set<Long> supplementMastersWithAnyTag(Collection<Long> tagIds) {
+        return masterSupplement.withAnyTag(tagIds);
+    }
+
+    /**
+     * 补充表中至少带有tagIds之一的游戏
+     */
+    public Set<Long> supplementGamesWithAnyTag(Collection<Long> tagIds) {
+        return gameSupplement.withAnyTag(tagIds);
+    }
+
+    /**
+     * 补充表中的全部陪玩师ID（只读视图）
+     */
+    public Set<Long> supplementedMasterIds() {
+        return Collections.unmodifiableSet(masterSupplement.weights.keySet());
+    }
+
+    /**
+     * 补充表中的全部游戏ID（只读视图）
+     */
+    public Set<Long> supplementedGameIds() {
+        return Collections.unmodifiableSet(gameSupplement.weights.keySet());
+    }
+
+    /**
+     * 三张补充表的总条目数
+     */
+    public int supplementSize() {
+        return userSupplement.size() + masterSupplement.weights.size() + gameSupplement.weights.size();
+    }
+
+    public int getUserCount() {
+        return userTagWeights.size();
+    }
+
+    public int getMasterCount() {
+        return masterTagWeights.size();
+    }
+
+    public int getGameCount() {
+        return gameTagWeights.size();
+    }
+
+    /**
+     * 补充表：实体→标签权重，外加 标签→实体 增量倒排
+     */
+    private static final class Supplement {
+
+        final Map<Long, Map<Long, Double>> weights = new ConcurrentHashMap<>();
+        final Map<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+
+        // 同一实体的并发写入需要串行，保证倒排与权重一致；写入频率远低于读取
+        synchronized void put(Long id, Map<Long, Double> tagWeights) {
+            Map<Long, Double> previous = weights.put(id, Collections.unmodifiableMap(tagWeights));
+            for (Long tagId : tagWeights.keySet()) {
+                postings.computeIfAbsent(tagId, t -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            if (previous != null) {
+                for (Long tagId : previous.keySet()) {
+                    if (!tagWeights.containsKey(tagId)) {
+                        Set<Long> ids = postings.get(tagId);
+                        if (ids != null) {
+                            ids.remove(id);
+                        }
+                    }
+                }
+            }
+        }
+
+        Set<Long> withAnyTag(Collection<Long> tagIds) {
+            if (weights.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<Long> result = new HashSet<>();
+            for (Long tagId : tagIds) {
+                Set<Long> ids = postings.get(tagId);
+                if (ids != null) {
+                    result.addAll(ids);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static Map<Long, Double> lookup(Map<Long, Map<Long, Double>> supplement,
+                                            Map<Long, Map<Long, Double>> trained, Long id) {
+        Map<Long, Double> weights = supplement.get(id);
+        return weights != null ? weights : trained.get(id);
+    }
+}
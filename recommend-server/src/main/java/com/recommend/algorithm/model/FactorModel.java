@@ -0,0 +1,211 @@
+package com.recommend.algorithm.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 矩阵分解因子模型
+ * 用户/物品因子按行主序存放在连续的float数组中，ID升序存放、下标即序号；
+ * 训练结果不可变，在线折叠的用户向量写入覆盖层（有容量上限），下一次训练发布新模型时随旧模型丢弃。
+ */
+public final class FactorModel {
+
+    // 打分时一次处理的物品数（共享一次用户向量读取）
+    private static final int SCORE_BLOCK = 4;
+
+    private final int factors;
+    private final long[] userIds;
+    private final float[] userFactors;
+    private final long[] itemIds;
+    private final float[] itemFactors;
+
+    // 物品侧 YᵀY，用于在线折叠用户向量
+    private final double[] itemGram;
+
+    // 物品热度（交互强度之和），用于无因子用户的冷启动
+    private final float[] itemPopularity;
+
+    private final Map<Long, float[]> userOverlay = new ConcurrentHashMap<>();
+
+    public FactorModel(int factors, long[] userIds, float[] userFactors, long[] itemIds, float[] itemFactors,
+                       double[] itemGram, float[] itemPopularity) {
+        this.factors = factors;
+        this.userIds = userIds;
+        this.userFactors = userFactors;
+        this.itemIds = itemIds;
+        this.itemFactors = itemFactors;
+        this.itemGram = itemGram;
+        this.itemPopularity = itemPopularity;
+    }
+
+    /**
+     * 空模型；覆盖层可写，每个持有者各建一个，不能共享
+     */
+    public static FactorModel empty() {
+        return new FactorModel(1, new long[0], new float[0], new long[0], new float[0], new double[1], new float[0]);
+    }
+
+    public int getFactors() {
+        return factors;
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public int itemCount() {
+        return itemIds.length;
+    }
+
+    public long itemIdAt(int itemIdx) {
+        return itemIds[itemIdx];
+    }
+
+    public long[] getUserIds() {
+        return userIds;
+    }
+
+    public float[] getUserFactors() {
+        return userFactors;
+    }
+
+    public long[] getItemIds() {
+        return itemIds;
+    }
+
+    public float[] getItemFactors() {
+        return itemFactors;
+    }
+
+    public double[] getItemGram() {
+        return itemGram;
+    }
+
+    public float[] getItemPopularity() {
+        return itemPopularity;
+    }
+
+    /**
+     * 物品序号，不存在返回-1
+     */
+    public int itemIndex(long itemId) {
+        int idx = Arrays.binarySearch(itemIds, itemId);
+        return idx >= 0 ? idx : -1;
+    }
+
+    /**
+     * 用户向量（覆盖层优先），没有因子返回null；返回的数组不得修改
+     */
+    public float[] userVector(Long userId) {
+        if (!userOverlay.isEmpty()) {
+            float[] folded = userOverlay.get(userId);
+            if (folded != null) {
+                return folded;
+            }
+        }
+        int idx = Arrays.binarySearch(userIds, userId);
+        if (idx < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(userFactors, idx * factors, (idx + 1) * factors);
+    }
+
+    /**
+     * 写入在线折叠的用户向量；覆盖层已达capacity时只更新已有的用户
+     *
+     * @return 是否写入
+     */
+    public boolean putUserVector(Long userId, float[] vector, int capacity) {
+        if (userOverlay.size() >= capacity && !userOverlay.containsKey(userId)) {
+            return false;
+        }
+        userOverlay.put(userId, vector);
+        return true;
+    }
+
+    /**
+     * 覆盖层中的用户数
+     */
+    public int overlaySize() {
+        return userOverlay.size();
+    }
+
+    /**
+     * 用户向量与单个物品的内积
+     */
+    public float score(float[] user, int itemIdx) {
+        int base = itemIdx * factors;
+        float sum = 0f;
+        for (int f = 0; f < factors; f++) {
+            sum += user[f] * itemFactors[base + f];
+        }
+        return sum;
+    }
+
+    /**
+     * 用户向量与全部物品的内积，写入out（长度不小于物品数）。
+     * 每次处理SCORE_BLOCK个物品，用户向量的每个分量只读一次，物品因子顺序扫描。
+     */
+    public void scoreAll(float[] user, float[] out) {
+        int n = itemIds.length;
+        int k = factors;
+        int i = 0;
+        for (; i + SCORE_BLOCK <= n; i += SCORE_BLOCK) {
+            int b0 = i * k;
+            int b1 = b0 + k;
+            int b2 = b1 + k;
+            int b3 = b2 + k;
+            float s0 = 0f;
+            float s1 = 0f;
+            float s2 = 0f;
+            float s3 = 0f;
+            for (int f = 0; f < k; f++) {
+                float u = user[f];
+                s0 += u * itemFactors[b0 + f];
+                s1 += u * itemFactors[b1 + f];
+                s2 += u * itemFactors[b2 + f];
+                s3 += u * itemFactors[b3 + f];
+            }
+            out[i] = s0;
+            out[i + 1] = s1;
+            out[i + 2] = s2;
+            out[i + 3] = s3;
+        }
+        for (; i < n; i++) {
+            out[i] = score(user, i);
+        }
+    }
+
+    /**
+     * 两个物品因子的余弦相似度
+     */
+    public float itemCosine(int itemIdx1, int itemIdx2) {
+        int b1 = itemIdx1 * factors;
+        int b2 = itemIdx2 * factors;
+        float dot = 0f;
+        float norm1 = 0f;
+        float norm2 = 0f;
+        for (int f = 0; f < factors; f++) {
+            float x = itemFactors[b1 + f];
+            float y = itemFactors[b2 + f];
+            dot += x * y;
+            norm1 += x * x;
+            norm2 += y * y;
+        }
+        if (norm1 == 0f || norm2 == 0f) {
+            return 0f;
+        }
+        return (float) (dot / Math.sqrt((double) norm1 * norm2));
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long memoryFootprintBytes() {
+        return 8L * userIds.length + 4L * userFactors.length
+                + 8L * itemIds.length + 4L * itemFactors.length
+                + 8L * itemGram.length + 4L * itemPopularity.length
+                + (long) userOverlay.size() * (96 + 4L * factors);
+    }
+}
@@ -0,0 +1,251 @@
+package com.recommend.algorithm.model;
+
+import java.util.Arrays;
+
+/**
+ * 列式特征表
+ * 每个特征一列float数组，按物品的稠密序号（ID升序下标）索引，每行的L2范数预先算好；
+ * 余弦相似度直接在原始数组上计算，不装箱、不查库。实例不可变，单行变更通过{@link #withRow}复制生成新表。
+ */
+public final class FeatureTable {
+
+    public static final FeatureTable EMPTY = new FeatureTable(new long[0], new float[0][0], new float[0]);
+
+    private final long[] ids;
+    private final float[][] columns;
+    private final float[] norms;
+
+    private FeatureTable(long[] ids, float[][] columns, float[] norms) {
+        this.ids = ids;
+        this.columns = columns;
+        this.norms = norms;
+    }
+
+    /**
+     * 由按行给出的特征向量构建（ID无需有序，重复ID以后者为准）
+     *
+     * @param ids 物品ID
+     * @param rows 每个物品的特征向量，长度均为dimension
+     * @param dimension 特征维度
+     */
+    public static FeatureTable of(long[] ids, float[][] rows, int dimension) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+
+        int count = 0;
+        long[] sortedIds = new long[ids.length];
+        int[] source = new int[ids.length];
+        for (Integer idx : order) {
+            if (count > 0 && sortedIds[count - 1] == ids[idx]) {
+                source[count - 1] = idx;
+            } else {
+                sortedIds[count] = ids[idx];
+                source[count] = idx;
+                count++;
+            }
+        }
+
+        float[][] columns = new float[dimension][count];
+        float[] norms = new float[count];
+        for (int row = 0; row < count; row++) {
+            float[] features = rows[source[row]];
+            for (int f = 0; f < dimension; f++) {
+                columns[f][row] = features[f];
+            }
+            norms[row] = norm(features);
+        }
+        return new FeatureTable(Arrays.copyOf(sortedIds, count), columns, norms);
+    }
+
+    /**
+     * 由ID升序的列数组构建（用于从持久化快照加载），范数重新计算
+     *
+     * @throws IllegalArgumentException 列长度与ID数不一致
+     */
+    public static FeatureTable fromColumns(long[] ids, float[][] columns) {
+        double[] sums = new double[ids.length];
+        for (float[] column : columns) {
+            if (column.length != ids.length) {
+                throw new IllegalArgumentException("特征列长度与ID数不一致");
+            }
+            for (int row = 0; row < ids.length; row++) {
+                sums[row] += (double) column[row] * column[row];
+            }
+        }
+        float[] norms = new float[ids.length];
+        for (int row = 0; row < ids.length; row++) {
+            norms[row] = (float) Math.sqrt(sums[row]);
+        }
+        return new FeatureTable(ids, columns, norms);
+    }
+
+    public int rowCount() {
+        return ids.length;
+    }
+
+    public int dimension() {
+        return columns.length;
+    }
+
+    public long[] getIds() {
+        return ids;
+    }
+
+    public long idAt(int row) {
+        return ids[row];
+    }
+
+    /**
+     * 物品序号，不存在返回-1
+     */
+    public int indexOf(long id) {
+        int idx = Arrays.binarySearch(ids, id);
+        return idx >= 0 ? idx : -1;
+    }
+
+    /**
+     * 单个特征列，返回的数组不得修改
+     */
+    public float[] column(int feature) {
+        return columns[feature];
+    }
+
+    public float normAt(int row) {
+        return norms[row];
+    }
+
+    /**
+     * 复制出一行特征向量
+     */
+    public float[] rowAt(int row) {
+        float[] features = new float[columns.length];
+        for (int f = 0; f < columns.length; f++) {
+            features[f] = columns[f][row];
+        }
+        return features;
+    }
+
+    /**
+     * 两行的余弦相似度，任一行范数为0时返回0
+     */
+    public double cosine(int row1, int row2) {
+        float norm1 = norms[row1];
+        float norm2 = norms[row2];
+        if (norm1 == 0f || norm2 == 0f) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        for (float[] column : columns) {
+            dot += (double) column[row1] * column[row2];
+        }
+        return dot / ((double) norm1 * norm2);
+    }
+
+    /**
+     * 某一行与外部特征向量的余弦相似度
+     *
+     * @param row 行序号
+     * @param features 外部特征向量
+     * @param featuresNorm 外部特征向量的范数（见{@link #norm}）
+     */
+    public double cosine(int row, float[] features, float featuresNorm) {
+        float rowNorm = norms[row];
+        if (rowNorm == 0f || featuresNorm == 0f) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        for (int f = 0; f < columns.length; f++) {
+            dot += (double) columns[f][row] * features[f];
+        }
+        return dot / ((double) rowNorm * featuresNorm);
+    }
+
+    /**
+     * 返回写入（新增或替换）一行后的新表，原表不变
+     */
+    public FeatureTable withRow(long id, float[] features) {
+        int idx = Arrays.binarySearch(ids, id);
+        if (idx >= 0) {
+            float[][] newColumns = new float[columns.length][];
+            for (int f = 0; f < columns.length; f++) {
+                newColumns[f] = columns[f].clone();
+                newColumns[f][idx] = features[f];
+            }
+            float[] newNorms = norms.clone();
+            newNorms[idx] = norm(features);
+            return new FeatureTable(ids, newColumns, newNorms);
+        }
+
+        int insertAt = -idx - 1;
+        int dimension = columns.length > 0 ? columns.length : features.length;
+        long[] newIds = insert(ids, insertAt, id);
+        float[][] newColumns = new float[dimension][];
+        for (int f = 0; f < dimension; f++) {
+            float[] column = columns.length > 0 ? columns[f] : new float[0];
+            newColumns[f] = insert(column, insertAt, features[f]);
+        }
+        return new FeatureTable(newIds, newColumns, insert(norms, insertAt, norm(features)));
+    }
+
+    /**
+     * 返回删除一行后的新表，行不存在时返回自身
+     */
+    public FeatureTable withoutRow(long id) {
+        int idx = Arrays.binarySearch(ids, id);
+        if (idx < 0) {
+            return this;
+        }
+        long[] newIds = new long[ids.length - 1];
+        System.arraycopy(ids, 0, newIds, 0, idx);
+        System.arraycopy(ids, idx + 1, newIds, idx, ids.length - idx - 1);
+        float[][] newColumns = new float[columns.length][];
+        for (int f = 0; f < columns.length; f++) {
+            newColumns[f] = remove(columns[f], idx);
+        }
+        return new FeatureTable(newIds, newColumns, remove(norms, idx));
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long memoryFootprintBytes() {
+        return 8L * ids.length + 4L * ids.length * (columns.length + 1) + 16L * columns.length;
+    }
+
+    /**
+     * 特征向量的L2范数
+     */
+    public static float norm(float[] features) {
+        double sum = 0.0;
+        for (float value : features) {
+            sum += (double) value * value;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private static long[] insert(long[] array, int at, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        return result;
+    }
+
+    private static float[] insert(float[] array, int at, float value) {
+        float[] result = new float[array.length + 1];
+        System.arraycopy(array, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        return result;
+    }
+
+    private static float[] remove(float[] array, int at) {
+        float[] result = new float[array.length - 1];
+        System.arraycopy(array, 0, result, 0, at);
+        System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+        return result;
+    }
+}
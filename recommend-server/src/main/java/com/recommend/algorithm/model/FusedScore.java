@@ -0,0 +1,56 @@
+package com.recommend.algorithm.model;
+
+/**
+ * 融合推荐中单个候选的得分归因
+ * 记录两个分支的原始得分、在本次候选集上归一化后的得分以及加权后的最终得分，用于排查融合结果。
+ * 分支超时或失败时其得分记为NaN。
+ */
+public final class FusedScore {
+
+    private final long id;
+    private final double collaborativeScore;
+    private final double contentBasedScore;
+    private final double collaborativeNormalized;
+    private final double contentBasedNormalized;
+    private final double score;
+
+    public FusedScore(long id, double collaborativeScore, double contentBasedScore,
+                      double collaborativeNormalized, double contentBasedNormalized, double score) {
+        this.id = id;
+        this.collaborativeScore = collaborativeScore;
+        this.contentBasedScore = contentBasedScore;
+        this.collaborativeNormalized = collaborativeNormalized;
+        this.contentBasedNormalized = contentBasedNormalized;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getCollaborativeScore() {
+        return collaborativeScore;
+    }
+
+    public double getContentBasedScore() {
+        return contentBasedScore;
+    }
+
+    public double getCollaborativeNormalized() {
+        return collaborativeNormalized;
+    }
+
+    public double getContentBasedNormalized() {
+        return contentBasedNormalized;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "FusedScore{id=" + id + ", cf=" + collaborativeScore + "(" + collaborativeNormalized + ")"
+                + ", cb=" + contentBasedScore + "(" + contentBasedNormalized + "), score=" + score + "}";
+    }
+}
@@ -0,0 +1,33 @@
+package com.recommend.algorithm.model;
+
+/**
+ * 模型快照
+ * 发布后不可变，携带版本号和构建时间
+ */
+public final class ModelSnapshot<T> {
+
+    private final long version;
+    private final long buildTime;
+    private final T model;
+
+    public ModelSnapshot(long version, long buildTime, T model) {
+        this.version = version;
+        this.buildTime = buildTime;
+        this.model = model;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 构建时间戳（毫秒）
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public T getModel() {
+        return model;
+    }
+}
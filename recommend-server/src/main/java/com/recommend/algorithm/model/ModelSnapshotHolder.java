@@ -0,0 +1,96 @@
+package com.recommend.algorithm.model;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * 模型快照持有者
+ * 训练在旁路构建完整模型，通过一次原子引用替换发布；读取无锁，始终看到完整的某一版本。
+ */
+@Slf4j
+public class ModelSnapshotHolder<T> {
+
+    private final String name;
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicReference<ModelSnapshot<T>> current;
+
+    /**
+     * @param name 模型名称，用作指标标签
+     * @param initial 初始（空）模型，版本号为0
+     */
+    public ModelSnapshotHolder(String name, T initial) {
+        this.name = name;
+        this.current = new AtomicReference<>(new ModelSnapshot<>(0, System.currentTimeMillis(), initial));
+    }
+
+    public ModelSnapshot<T> current() {
+        return current.get();
+    }
+
+    public T model() {
+        return current.get().getModel();
+    }
+
+    /**
+     * 发布新模型
+     */
+    public ModelSnapshot<T> publish(T model) {
+        ModelSnapshot<T> snapshot = new ModelSnapshot<>(versionSequence.incrementAndGet(), System.currentTimeMillis(), model);
+        current.set(snapshot);
+        log.info("模型[{}]发布新版本: {}", name, snapshot.getVersion());
+        return snapshot;
+    }
+
+    /**
+     * 用持久化的模型替换初始模型；已经发布过任何版本时不覆盖，返回false
+     */
+    public boolean restore(T model) {
+        ModelSnapshot<T> base = current.get();
+        if (base.getVersion() != 0) {
+            return false;
+        }
+        ModelSnapshot<T> snapshot = new ModelSnapshot<>(versionSequence.incrementAndGet(), System.currentTimeMillis(), model);
+        if (!current.compareAndSet(base, snapshot)) {
+            return false;
+        }
+        log.info("模型[{}]从持久化快照恢复，版本: {}", name, snapshot.getVersion());
+        return true;
+    }
+
+    /**
+     * 基于当前模型做局部修改并发布，并发修改时自动重试；修改函数需无副作用
+     */
+    public ModelSnapshot<T> update(UnaryOperator<T> modifier) {
+        while (true) {
+            ModelSnapshot<T> base = current.get();
+            T model = modifier.apply(base.getModel());
+            ModelSnapshot<T> snapshot = new ModelSnapshot<>(versionSequence.incrementAndGet(), System.currentTimeMillis(), model);
+            if (current.compareAndSet(base, snapshot)) {
+                return snapshot;
+            }
+        }
+    }
+
+    /**
+     * 注册模型版本号与构建时间指标
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("recommend.model.version", this, holder -> holder.current().getVersion())
+                .tag("model", name)
+                .description("当前发布的模型版本号")
+                .register(registry);
+        Gauge.builder("recommend.model.build.timestamp", this, holder -> holder.current().getBuildTime())
+                .tag("model", name)
+                .description("当前发布的模型构建时间（毫秒）")
+                .register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
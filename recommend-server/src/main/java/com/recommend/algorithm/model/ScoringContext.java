@@ -0,0 +1,71 @@
+package com.recommend.algorithm.model;
+
+import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.entity.UserProfile;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 单次请求的用户打分上下文
+ * 用户历史在创建时查询一次并转为long数组，画像在首次使用时查询一次，
+ * 之后对所有候选打分都复用，不再逐个候选查库。仅在单个请求线程内使用，非线程安全。
+ */
+public final class ScoringContext {
+
+    private final Long userId;
+
+    // 历史行为目标ID，按行为顺序，保留重复（重复交互相当于加权）
+    private final long[] history;
+
+    private final Function<Long, UserProfile> profileLoader;
+    private UserProfile profile;
+    private boolean profileLoaded;
+
+    private ScoringContext(Long userId, long[] history, Function<Long, UserProfile> profileLoader) {
+        this.userId = userId;
+        this.history = history;
+        this.profileLoader = profileLoader;
+    }
+
+    /**
+     * @param userId 用户ID
+     * @param behaviors 用户行为，目标ID为空的忽略
+     * @param profileLoader 画像加载方法，最多调用一次
+     */
+    public static ScoringContext of(Long userId, List<UserBehavior> behaviors,
+                                    Function<Long, UserProfile> profileLoader) {
+        long[] history = new long[behaviors.size()];
+        int count = 0;
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getTargetId() != null) {
+                history[count++] = behavior.getTargetId();
+            }
+        }
+        if (count < history.length) {
+            long[] trimmed = new long[count];
+            System.arraycopy(history, 0, trimmed, 0, count);
+            history = trimmed;
+        }
+        return new ScoringContext(userId, history, profileLoader);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * 历史行为目标ID，调用方不得修改
+     */
+    public long[] getHistory() {
+        return history;
+    }
+
+    public UserProfile getProfile() {
+        if (!profileLoaded) {
+            profile = profileLoader.apply(userId);
+            profileLoaded = true;
+        }
+        return profile;
+    }
+}
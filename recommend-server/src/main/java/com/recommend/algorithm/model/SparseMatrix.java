@@ -0,0 +1,336 @@
+package com.recommend.algorithm.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 稀疏矩阵（CSR存储）
+ * 行键、列键均为long，取值为float；行键升序存放，每行内列键升序存放，
+ * 查找为两次二分，读取过程不装箱、不分配对象。
+ * 实例不可变，构建请使用{@link Builder}。
+ */
+public final class SparseMatrix {
+
+    public static final SparseMatrix EMPTY = new SparseMatrix(new long[0], new int[]{0}, new long[0], new float[0]);
+
+    // 数组对象头 + 长度字段的估算值
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private final long[] rowKeys;
+    private final int[] rowOffsets;
+    private final long[] colKeys;
+    private final float[] values;
+
+    private SparseMatrix(long[] rowKeys, int[] rowOffsets, long[] colKeys, float[] values) {
+        this.rowKeys = rowKeys;
+        this.rowOffsets = rowOffsets;
+        this.colKeys = colKeys;
+        this.values = values;
+    }
+
+    /**
+     * 由CSR原始数组构建（用于从持久化快照加载），数组直接引用不复制
+     *
+     * @throws IllegalArgumentException 数组长度不一致
+     */
+    public static SparseMatrix fromArrays(long[] rowKeys, int[] rowOffsets, long[] colKeys, float[] values) {
+        if (rowOffsets.length != rowKeys.length + 1 || colKeys.length != values.length
+                || rowOffsets[rowKeys.length] != colKeys.length) {
+            throw new IllegalArgumentException("CSR数组长度不一致");
+        }
+        return new SparseMatrix(rowKeys, rowOffsets, colKeys, values);
+    }
+
+    /**
+     * 获取行下标，不存在返回-1
+     */
+    public int rowIndex(long row) {
+        int idx = Arrays.binarySearch(rowKeys, row);
+        return idx >= 0 ? idx : -1;
+    }
+
+    public boolean containsRow(long row) {
+        return rowIndex(row) >= 0;
+    }
+
+    /**
+     * 获取指定单元格的值，不存在时返回默认值
+     */
+    public float get(long row, long col, float defaultValue) {
+        int rowIdx = rowIndex(row);
+        return rowIdx >= 0 ? getInRow(rowIdx, col, defaultValue) : defaultValue;
+    }
+
+    /**
+     * 在已定位的行内查找列值，不存在时返回默认值
+     */
+    public float getInRow(int rowIdx, long col, float defaultValue) {
+        int idx = Arrays.binarySearch(colKeys, rowOffsets[rowIdx], rowOffsets[rowIdx + 1], col);
+        return idx >= 0 ? values[idx] : defaultValue;
+    }
+
+    /**
+     * 行起始位置（含），配合{@link #colAt(int)}/{@link #valueAt(int)}遍历
+     */
+    public int rowStart(int rowIdx) {
+        return rowOffsets[rowIdx];
+    }
+
+    /**
+     * 行结束位置（不含）
+     */
+    public int rowEnd(int rowIdx) {
+        return rowOffsets[rowIdx + 1];
+    }
+
+    public long rowKeyAt(int rowIdx) {
+        return rowKeys[rowIdx];
+    }
+
+    public long colAt(int pos) {
+        return colKeys[pos];
+    }
+
+    public float valueAt(int pos) {
+        return values[pos];
+    }
+
+    public int rowCount() {
+        return rowKeys.length;
+    }
+
+    public int nonZeroCount() {
+        return colKeys.length;
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long memoryFootprintBytes() {
+        return 4 * ARRAY_HEADER_BYTES
+                + 8L * rowKeys.length
+                + 4L * rowOffsets.length
+                + 8L * colKeys.length
+                + 4L * values.length;
+    }
+
+    /**
+     * 替换（或新增）一行并返回新矩阵，原矩阵不变。
+     * 需要整体复制，复杂度O(nnz)，仅用于零星更新，批量构建请使用{@link Builder}。
+     */
+    public SparseMatrix withRow(long row, long[] cols, float[] vals, int length) {
+        long[] sortedCols = Arrays.copyOf(cols, length);
+        float[] sortedVals = Arrays.copyOf(vals, length);
+        sortRow(sortedCols, sortedVals, 0, length);
+
+        int existing = Arrays.binarySearch(rowKeys, row);
+        int oldLength = existing >= 0 ? rowOffsets[existing + 1] - rowOffsets[existing] : 0;
+        int insertAt = existing >= 0 ? existing : -existing - 1;
+        int newRowCount = existing >= 0 ? rowKeys.length : rowKeys.length + 1;
+
+        long[] newRowKeys = new long[newRowCount];
+        int[] newOffsets = new int[newRowCount + 1];
+        long[] newCols = new long[colKeys.length - oldLength + length];
+        float[] newVals = new float[newCols.length];
+
+        // 前半部分原样复制
+        System.arraycopy(rowKeys, 0, newRowKeys, 0, insertAt);
+        System.arraycopy(rowOffsets, 0, newOffsets, 0, insertAt + 1);
+        int head = rowOffsets[insertAt];
+        System.arraycopy(colKeys, 0, newCols, 0, head);
+        System.arraycopy(values, 0, newVals, 0, head);
+
+        // 新行
+        newRowKeys[insertAt] = row;
+        System.arraycopy(sortedCols, 0, newCols, head, length);
+        System.arraycopy(sortedVals, 0, newVals, head, length);
+        newOffsets[insertAt + 1] = head + length;
+
+        // 后半部分整体平移
+        int tailRowFrom = existing >= 0 ? insertAt + 1 : insertAt;
+        int tailRows = rowKeys.length - tailRowFrom;
+        System.arraycopy(rowKeys, tailRowFrom, newRowKeys, insertAt + 1, tailRows);
+        int tailFrom = rowOffsets[tailRowFrom];
+        int shift = head + length - tailFrom;
+        System.arraycopy(colKeys, tailFrom, newCols, head + length, colKeys.length - tailFrom);
+        System.arraycopy(values, tailFrom, newVals, head + length, values.length - tailFrom);
+        for (int i = 1; i <= tailRows; i++) {
+            newOffsets[insertAt + 1 + i] = rowOffsets[tailRowFrom + i] + shift;
+        }
+
+        return new SparseMatrix(newRowKeys, newOffsets, newCols, newVals);
+    }
+
+    /**
+     * 按列键对行内数据做插入排序（行长度通常只有几十）
+     */
+    private static void sortRow(long[] cols, float[] vals, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long col = cols[i];
+            float val = vals[i];
+            int j = i - 1;
+            while (j >= from && cols[j] > col) {
+                cols[j + 1] = cols[j];
+                vals[j + 1] = vals[j];
+                j--;
+            }
+            cols[j + 1] = col;
+            vals[j + 1] = val;
+        }
+    }
+
+    /**
+     * 稀疏矩阵构建器
+     * 可限制每行最多保留的元素个数（按值保留最大的K个，用于相似度的Top-K邻居），非线程安全。
+     */
+    public static final class Builder {
+
+        private final int maxPerRow;
+        private final Map<Long, RowBuffer> rows = new HashMap<>();
+
+        /**
+         * @param maxPerRow 每行最多保留的元素个数，不限制传{@link Integer#MAX_VALUE}
+         */
+        public Builder(int maxPerRow) {
+            if (maxPerRow <= 0) {
+                throw new IllegalArgumentException("maxPerRow must be positive: " + maxPerRow);
+            }
+            this.maxPerRow = maxPerRow;
+        }
+
+        /**
+         * 写入一个元素，同一行内列键不应重复
+         */
+        public Builder put(long row, long col, float value) {
+            RowBuffer buffer = rows.get(row);
+            if (buffer == null) {
+                buffer = new RowBuffer(Math.min(maxPerRow, 8));
+                rows.put(row, buffer);
+            }
+            buffer.offer(col, value, maxPerRow);
+            return this;
+        }
+
+        /**
+         * 登记一个空行，使{@link SparseMatrix#containsRow(long)}为true
+         */
+        public Builder touchRow(long row) {
+            if (!rows.containsKey(row)) {
+                rows.put(row, new RowBuffer(0));
+            }
+            return this;
+        }
+
+        /**
+         * 合并另一个构建器的内容（用于分区并行构建后的汇总），本构建器没有的行直接移交，
+         * 合并后other不应再使用
+         */
+        public Builder merge(Builder other) {
+            for (Map.Entry<Long, RowBuffer> entry : other.rows.entrySet()) {
+                long row = entry.getKey();
+                RowBuffer buffer = entry.getValue();
+                if (!rows.containsKey(row)) {
+                    rows.put(row, buffer);
+                    continue;
+                }
+                for (int i = 0; i < buffer.size; i++) {
+                    put(row, buffer.cols[i], buffer.vals[i]);
+                }
+            }
+            return this;
+        }
+
+        public SparseMatrix build() {
+            long[] rowKeys = new long[rows.size()];
+            int r = 0;
+            int nnz = 0;
+            for (Map.Entry<Long, RowBuffer> entry : rows.entrySet()) {
+                rowKeys[r++] = entry.getKey();
+                nnz += entry.getValue().size;
+            }
+            Arrays.sort(rowKeys);
+
+            int[] rowOffsets = new int[rowKeys.length + 1];
+            long[] colKeys = new long[nnz];
+            float[] values = new float[nnz];
+            int pos = 0;
+            for (int i = 0; i < rowKeys.length; i++) {
+                RowBuffer buffer = rows.get(rowKeys[i]);
+                System.arraycopy(buffer.cols, 0, colKeys, pos, buffer.size);
+                System.arraycopy(buffer.vals, 0, values, pos, buffer.size);
+                sortRow(colKeys, values, pos, pos + buffer.size);
+                pos += buffer.size;
+                rowOffsets[i + 1] = pos;
+            }
+            return new SparseMatrix(rowKeys, rowOffsets, colKeys, values);
+        }
+    }
+
+    /**
+     * 单行缓冲区，行满后以值为键维护小顶堆，只保留最大的K个元素
+     */
+    private static final class RowBuffer {
+        long[] cols;
+        float[] vals;
+        int size;
+
+        RowBuffer(int capacity) {
+            cols = new long[capacity];
+            vals = new float[capacity];
+        }
+
+        void offer(long col, float val, int maxSize) {
+            if (size < maxSize) {
+                if (size == cols.length) {
+                    int newCapacity = (int) Math.min((long) maxSize, Math.max(8L, size * 2L));
+                    cols = Arrays.copyOf(cols, newCapacity);
+                    vals = Arrays.copyOf(vals, newCapacity);
+                }
+                cols[size] = col;
+                vals[size] = val;
+                size++;
+                if (size == maxSize) {
+                    heapify();
+                }
+                return;
+            }
+            if (val <= vals[0]) {
+                return;
+            }
+            cols[0] = col;
+            vals[0] = val;
+            siftDown(0);
+        }
+
+        private void heapify() {
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int smallest = left;
+                int right = left + 1;
+                if (right < size && vals[right] < vals[left]) {
+                    smallest = right;
+                }
+                if (vals[i] <= vals[smallest]) {
+                    return;
+                }
+                long c = cols[i];
+                float v = vals[i];
+                cols[i] = cols[smallest];
+                vals[i] = vals[smallest];
+                cols[smallest] = c;
+                vals[smallest] = v;
+                i = smallest;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.recommend.algorithm.model;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏行
+ * 列键升序存放，不可变；修改操作返回新实例，复杂度O(行长度)，用于增量更新单行。
+ */
+public final class SparseRow {
+
+    public static final SparseRow EMPTY = new SparseRow(new long[0], new float[0]);
+
+    private final long[] cols;
+    private final float[] vals;
+
+    private SparseRow(long[] cols, float[] vals) {
+        this.cols = cols;
+        this.vals = vals;
+    }
+
+    /**
+     * 由无序数据构建，列键不应重复
+     */
+    public static SparseRow of(long[] cols, float[] vals, int length) {
+        long[] sortedCols = Arrays.copyOf(cols, length);
+        float[] sortedVals = Arrays.copyOf(vals, length);
+        for (int i = 1; i < length; i++) {
+            long col = sortedCols[i];
+            float val = sortedVals[i];
+            int j = i - 1;
+            while (j >= 0 && sortedCols[j] > col) {
+                sortedCols[j + 1] = sortedCols[j];
+                sortedVals[j + 1] = sortedVals[j];
+                j--;
+            }
+            sortedCols[j + 1] = col;
+            sortedVals[j + 1] = val;
+        }
+        return new SparseRow(sortedCols, sortedVals);
+    }
+
+    /**
+     * 复制矩阵中的一行
+     */
+    public static SparseRow fromMatrix(SparseMatrix matrix, int rowIdx) {
+        int start = matrix.rowStart(rowIdx);
+        int length = matrix.rowEnd(rowIdx) - start;
+        long[] cols = new long[length];
+        float[] vals = new float[length];
+        for (int i = 0; i < length; i++) {
+            cols[i] = matrix.colAt(start + i);
+            vals[i] = matrix.valueAt(start + i);
+        }
+        return new SparseRow(cols, vals);
+    }
+
+    public float get(long col, float defaultValue) {
+        int idx = Arrays.binarySearch(cols, col);
+        return idx >= 0 ? vals[idx] : defaultValue;
+    }
+
+    public boolean contains(long col) {
+        return Arrays.binarySearch(cols, col) >= 0;
+    }
+
+    public int size() {
+        return cols.length;
+    }
+
+    public long colAt(int i) {
+        return cols[i];
+    }
+
+    public float valueAt(int i) {
+        return vals[i];
+    }
+
+    /**
+     * 写入（或覆盖）一个元素
+     */
+    public SparseRow with(long col, float val) {
+        int idx = Arrays.binarySearch(cols, col);
+        if (idx >= 0) {
+            float[] newVals = vals.clone();
+            newVals[idx] = val;
+            return new SparseRow(cols, newVals);
+        }
+        int insertAt = -idx - 1;
+        long[] newCols = new long[cols.length + 1];
+        float[] newVals = new float[vals.length + 1];
+        System.arraycopy(cols, 0, newCols, 0, insertAt);
+        System.arraycopy(vals, 0, newVals, 0, insertAt);
+        newCols[insertAt] = col;
+        newVals[insertAt] = val;
+        System.arraycopy(cols, insertAt, newCols, insertAt + 1, cols.length - insertAt);
+        System.arraycopy(vals, insertAt, newVals, insertAt + 1, vals.length - insertAt);
+        return new SparseRow(newCols, newVals);
+    }
+
+    /**
+     * 删除一个元素，不存在时返回自身
+     */
+    public SparseRow without(long col) {
+        int idx = Arrays.binarySearch(cols, col);
+        if (idx < 0) {
+            return this;
+        }
+        long[] newCols = new long[cols.length - 1];
+        float[] newVals = new float[vals.length - 1];
+        System.arraycopy(cols, 0, newCols, 0, idx);
+        System.arraycopy(vals, 0, newVals, 0, idx);
+        System.arraycopy(cols, idx + 1, newCols, idx, cols.length - idx - 1);
+        System.arraycopy(vals, idx + 1, newVals, idx, vals.length - idx - 1);
+        return new SparseRow(newCols, newVals);
+    }
+
+    /**
+     * 写入一个元素并保持最多maxSize个（淘汰值最小的），用于维护Top-K邻居
+     */
+    public SparseRow withTopK(long col, float val, int maxSize) {
+        SparseRow row = with(col, val);
+        if (row.size() <= maxSize) {
+            return row;
+        }
+        int minIdx = 0;
+        for (int i = 1; i < row.vals.length; i++) {
+            if (row.vals[i] < row.vals[minIdx]) {
+                minIdx = i;
+            }
+        }
+        return row.without(row.cols[minIdx]);
+    }
+}
@@ -0,0 +1,281 @@
+package com.recommend.algorithm.model;
+
+import com.recommend.common.utils.TopKSelector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 标签倒排索引
+ * 标签ID → 倒排表（物品ID升序，物品标签权重按L2范数归一化），每个倒排表记录最大权重作为得分上界。
+ * 查询时只遍历查询标签的倒排表，用WAND（Broder et al. 2003）按上界跳过不可能进入Top-K的物品，
+ * 得分即查询向量与物品标签权重向量的余弦相似度。构建后只读。
+ */
+public final class TagPostingIndex {
+
+    public static final TagPostingIndex EMPTY = build(Collections.emptyMap());
+
+    private final Map<Long, Postings> postings;
+    private final int itemCount;
+    private final long postingCount;
+
+    private TagPostingIndex(Map<Long, Postings> postings, int itemCount, long postingCount) {
+        this.postings = postings;
+        this.itemCount = itemCount;
+        this.postingCount = postingCount;
+    }
+
+    /**
+     * 由 物品ID → (标签ID → 权重) 构建索引，权重全为0的物品不入索引
+     */
+    public static TagPostingIndex build(Map<Long, Map<Long, Double>> itemTagWeights) {
+        long[] itemIds = new long[itemTagWeights.size()];
+        int n = 0;
+        for (Long itemId : itemTagWeights.keySet()) {
+            itemIds[n++] = itemId;
+        }
+        // 按物品ID升序追加，倒排表天然有序
+        Arrays.sort(itemIds);
+
+        Map<Long, PostingsBuilder> builders = new HashMap<>();
+        int indexed = 0;
+        long total = 0;
+        for (long itemId : itemIds) {
+            Map<Long, Double> weights = itemTagWeights.get(itemId);
+            double norm = 0.0;
+            for (Double weight : weights.values()) {
+                norm += weight * weight;
+            }
+            if (norm == 0.0) {
+                continue;
+            }
+            norm = Math.sqrt(norm);
+            for (Map.Entry<Long, Double> entry : weights.entrySet()) {
+                if (entry.getValue() != 0.0) {
+                    builders.computeIfAbsent(entry.getKey(), tagId -> new PostingsBuilder())
+                            .add(itemId, (float) (entry.getValue() / norm));
+                    total++;
+                }
+            }
+            indexed++;
+        }
+
+        Map<Long, Postings> postings = new HashMap<>(builders.size() * 2);
+        for (Map.Entry<Long, PostingsBuilder> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().build());
+        }
+        return new TagPostingIndex(postings, indexed, total);
+    }
+
+    public int itemCount() {
+        return itemCount;
+    }
+
+    public int tagCount() {
+        return postings.size();
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    /**
+     * 把与查询标签权重余弦相似度大于0、且被accept接受的物品提交给selector
+     *
+     * @param query 查询（用户）的标签权重
+     * @param accept 物品过滤条件，不接受的物品仍参与遍历但不提交
+     */
+    public void topK(Map<Long, Double> query, TopKSelector selector, LongPredicate accept) {
+        double queryNorm = 0.0;
+        for (Double weight : query.values()) {
+            queryNorm += weight * weight;
+        }
+        if (queryNorm == 0.0) {
+            return;
+        }
+        queryNorm = Math.sqrt(queryNorm);
+
+        // 1. 为查询中出现在索引里的正权重标签建立游标
+        List<Cursor> cursorList = new ArrayList<>(query.size());
+        for (Map.Entry<Long, Double> entry : query.entrySet()) {
+            Postings list = postings.get(entry.getKey());
+            if (list != null && entry.getValue() > 0) {
+                cursorList.add(new Cursor(list, entry.getValue() / queryNorm));
+            }
+        }
+        Cursor[] cursors = cursorList.toArray(new Cursor[0]);
+
+        // 2. WAND：游标按当前物品ID排序，累加上界找到第一个可能超过阈值的枢轴物品
+        while (true) {
+            sortByDoc(cursors);
+            double threshold = selector.threshold();
+            double bound = 0.0;
+            int pivot = -1;
+            for (int i = 0; i < cursors.length && !cursors[i].exhausted(); i++) {
+                bound += cursors[i].upperBound;
+                if (bound >= threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                return;
+            }
+
+            long pivotDoc = cursors[pivot].doc();
+            if (cursors[0].doc() == pivotDoc) {
+                // 枢轴之前的游标都已对齐到该物品，精确打分
+                double score = 0.0;
+                for (int i = 0; i < cursors.length && !cursors[i].exhausted() && cursors[i].doc() == pivotDoc; i++) {
+                    score += cursors[i].weight();
+                    cursors[i].next();
+                }
+                if (accept.test(pivotDoc)) {
+                    selector.offer(pivotDoc, score);
+                }
+            } else {
+                // 枢轴之前的物品上界之和不足阈值，直接跳到枢轴物品
+                for (int i = 0; i < pivot; i++) {
+                    cursors[i].advanceTo(pivotDoc);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把查询与给定物品的余弦相似度累加到scores中，只遍历查询标签的倒排表，不在索引中的物品不变
+     *
+     * @param query 查询（用户）的标签权重
+     * @param ids 物品ID，须按升序排列
+     * @param scores 与ids下标一一对应的得分
+     */
+    public void accumulate(Map<Long, Double> query, long[] ids, double[] scores) {
+        double queryNorm = 0.0;
+        for (Double weight : query.values()) {
+            queryNorm += weight * weight;
+        }
+        if (queryNorm == 0.0 || ids.length == 0) {
+            return;
+        }
+        queryNorm = Math.sqrt(queryNorm);
+
+        for (Map.Entry<Long, Double> entry : query.entrySet()) {
+            Postings list = postings.get(entry.getKey());
+            if (list == null || entry.getValue() <= 0) {
+                continue;
+            }
+            double queryWeight = entry.getValue() / queryNorm;
+            // 倒排表与ids都按ID升序，每次二分从上一次的位置继续
+            int from = 0;
+            for (int i = 0; i < list.ids.length && from < ids.length; i++) {
+                int pos = Arrays.binarySearch(ids, from, ids.length, list.ids[i]);
+                if (pos >= 0) {
+                    scores[pos] += queryWeight * list.weights[i];
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+        }
+    }
+
+    public long memoryFootprintBytes() {
+        return postingCount * (Long.BYTES + Float.BYTES) + postings.size() * 64L;
+    }
+
+    private static void sortByDoc(Cursor[] cursors) {
+        // 查询标签一般只有几个到几十个，插入排序即可
+        for (int i = 1; i < cursors.length; i++) {
+            Cursor cursor = cursors[i];
+            long doc = cursor.doc();
+            int j = i - 1;
+            while (j >= 0 && cursors[j].doc() > doc) {
+                cursors[j + 1] = cursors[j];
+                j--;
+            }
+            cursors[j + 1] = cursor;
+        }
+    }
+
+    /**
+     * 单个标签的倒排表
+     */
+    private static final class Postings {
+        private final long[] ids;
+        private final float[] weights;
+        private final float maxWeight;
+
+        private Postings(long[] ids, float[] weights, float maxWeight) {
+            this.ids = ids;
+            this.weights = weights;
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    private static final class PostingsBuilder {
+        private long[] ids = new long[4];
+        private float[] weights = new float[4];
+        private int size;
+        private float maxWeight;
+
+        private void add(long id, float weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size] = weight;
+            size++;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        private Postings build() {
+            return new Postings(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size), maxWeight);
+        }
+    }
+
+    /**
+     * 倒排表游标，已遍历完时doc为Long.MAX_VALUE
+     */
+    private static final class Cursor {
+        private final Postings postings;
+        private final double queryWeight;
+        private final double upperBound;
+        private int position;
+
+        private Cursor(Postings postings, double queryWeight) {
+            this.postings = postings;
+            this.queryWeight = queryWeight;
+            this.upperBound = queryWeight * postings.maxWeight;
+        }
+
+        private boolean exhausted() {
+            return position >= postings.ids.length;
+        }
+
+        private long doc() {
+            return exhausted() ? Long.MAX_VALUE : postings.ids[position];
+        }
+
+        private double weight() {
+            return queryWeight * postings.weights[position];
+        }
+
+        private void next() {
+            position++;
+        }
+
+        /**
+         * 前进到第一个ID不小于target的位置
+         */
+        private void advanceTo(long target) {
+            int found = Arrays.binarySearch(postings.ids, position, postings.ids.length, target);
+            position = found >= 0 ? found : -found - 1;
+        }
+    }
+}
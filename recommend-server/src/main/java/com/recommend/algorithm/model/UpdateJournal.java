@@ -0,0 +1,42 @@
+package com.recommend.algorithm.model;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 训练期间的增量更新日志
+ * 全量训练在旁路读取数据，读取之后、发布之前到达的增量更新只写进了旧快照。
+ * 训练开始时打开日志，增量更新先记录ID再读取当前快照写入；发布新快照后关闭日志，按记录的ID在新快照上重放。
+ * 关闭之后才记录的更新一定读到新快照，因此不会丢失。
+ */
+public final class UpdateJournal {
+
+    private volatile Set<Long> pending;
+
+    /**
+     * 开始记录（训练读取数据之前调用）
+     */
+    public void open() {
+        pending = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * 记录一个被更新的ID，日志未打开时忽略；须在读取当前快照之前调用
+     */
+    public void record(Long id) {
+        Set<Long> current = pending;
+        if (current != null && id != null) {
+            current.add(id);
+        }
+    }
+
+    /**
+     * 停止记录并返回期间被更新的ID（新快照发布之后调用）
+     */
+    public Set<Long> close() {
+        Set<Long> current = pending;
+        pending = null;
+        return current != null ? current : Collections.emptySet();
+    }
+}
@@ -0,0 +1,110 @@
+package com.recommend.algorithm.online;
+
+import com.recommend.algorithm.impl.CollaborativeFilteringAlgorithm;
+import com.recommend.algorithm.impl.MatrixFactorizationAlgorithm;
+import com.recommend.common.entity.Order;
+import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.OrderEvent;
+import com.recommend.common.event.UserBehaviorEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在线模型更新
+ * 用户行为、订单、反馈写入后增量更新协同过滤模型，无需等待下一次全量训练：
+ * 只更新该用户评分行中的一项；订单会改变陪玩师的订单数/评分特征，因此同时重算该陪玩师的邻居行，
+ * 并只修正其新旧邻居的反向行。订单还会在固定物品因子的前提下重新折叠该用户的矩阵分解向量。
+ * 陪玩师上下线时同步矩阵分解的近似检索索引。
+ */
+@Component
+@Slf4j
+public class OnlineModelUpdater {
+
+    @Autowired
+    private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
+
+    @Autowired
+    private MatrixFactorizationAlgorithm matrixFactorizationAlgorithm;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserBehavior(UserBehaviorEvent event) {
+        UserBehavior behavior = event.getBehavior();
+        long start = System.nanoTime();
+        try {
+            collaborativeFilteringAlgorithm.applyInteraction(behavior.getUserId(), behavior.getTargetId(), null);
+        } catch (Exception e) {
+            log.error("用户行为在线更新模型失败，用户ID: {}, 目标ID: {}", behavior.getUserId(), behavior.getTargetId(), e);
+        } finally {
+            record("behavior", start);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrder(OrderEvent event) {
+        Order order = event.getOrder();
+        long start = System.nanoTime();
+        try {
+            collaborativeFilteringAlgorithm.applyInteraction(order.getUserId(), order.getMasterId(), order.getRating());
+            if (order.getMasterId() != null) {
+                collaborativeFilteringAlgorithm.updateMasterFeatures(order.getMasterId());
+            }
+            if (order.getUserId() != null) {
+                matrixFactorizationAlgorithm.updateUserFeatures(order.getUserId());
+            }
+        } catch (Exception e) {
+            log.error("订单在线更新模型失败，订单ID: {}", order.getId(), e);
+        } finally {
+            record("order", start);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterStatus(MasterStatusEvent event) {
+        long start = System.nanoTime();
+        try {
+            matrixFactorizationAlgorithm.updateMasterFeatures(event.getMasterId());
+        } catch (Exception e) {
+            log.error("陪玩师状态变更在线更新模型失败，陪玩师ID: {}", event.getMasterId(), e);
+        } finally {
+            record("master-status", start);
+        }
+    }
+
+    /**
+     * 用户反馈（显式评分）
+     */
+    public void onFeedback(Long userId, Long masterId, Double rating) {
+        long start = System.nanoTime();
+        try {
+            collaborativeFilteringAlgorithm.applyInteraction(userId, masterId, rating);
+        } catch (Exception e) {
+            log.error("用户反馈在线更新模型失败，用户ID: {}, 陪玩师ID: {}", userId, masterId, e);
+        } finally {
+            record("feedback", start);
+        }
+    }
+
+    private void record(String source, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("recommend.model.online.update")
+                .description("在线模型增量更新耗时")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("在线更新模型完成，来源: {}，耗时 {}ms", source, elapsed / 1_000_000);
+    }
+}
@@ -0,0 +1,212 @@
+package com.recommend.algorithm.snapshot;
+
+import com.recommend.algorithm.impl.CollaborativeFilteringAlgorithm;
+import com.recommend.algorithm.impl.MatrixFactorizationAlgorithm;
+import com.recommend.algorithm.model.CollaborativeFilteringModel;
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.SparseMatrix;
+import com.recommend.common.event.ModelTrainedEvent;
+import com.recommend.service.feature.ItemFeatureStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 模型快照持久化
+ * 全量训练完成后把当前的协同过滤邻居表/评分矩阵、特征表和矩阵分解因子写入带版本的二进制文件；
+ * 启动后内存映射最新的快照恢复模型，文件损坏时依次回退到更早的快照，都不可用时等待训练。
+ * 只恢复仍是初始空模型的部分，不会覆盖启动后已经训练出的新模型；在线覆盖层不持久化。
+ */
+@Component
+@Slf4j
+public class ModelSnapshotPersistence {
+
+    private static final String FILE_PREFIX = "model-snapshot-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private static final String CF_USER_MASTER_RATINGS = "cf.user-master-ratings";
+    private static final String CF_USER_GAME_RATINGS = "cf.user-game-ratings";
+    private static final String CF_MASTER_NEIGHBORS = "cf.master-neighbors";
+    private static final String CF_GAME_NEIGHBORS = "cf.game-neighbors";
+    private static final String MASTER_FEATURES = "features.master";
+    private static final String GAME_FEATURES = "features.game";
+    private static final String ALS_MASTER = "als.master";
+    private static final String ALS_GAME = "als.game";
+
+    @Autowired
+    private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
+
+    @Autowired
+    private MatrixFactorizationAlgorithm matrixFactorizationAlgorithm;
+
+    @Autowired
+    private ItemFeatureStore itemFeatureStore;
+
+    @Value("${recommend.snapshot.enabled:true}")
+    private boolean enabled;
+
+    // 快照文件目录
+    @Value("${recommend.snapshot.dir:data/model-snapshots}")
+    private String directory;
+
+    // 保留的快照文件数，至少保留2份以便回退
+    @Value("${recommend.snapshot.retain:3}")
+    private int retain;
+
+    @Async
+    @EventListener
+    public void onModelTrained(ModelTrainedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            save();
+        } catch (Exception e) {
+            log.error("模型训练[{}]完成后写入快照失败", event.getModel(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            restore();
+        } catch (Exception e) {
+            log.error("从快照恢复模型失败，等待训练", e);
+        }
+    }
+
+    /**
+     * 写入当前模型的快照：先写临时文件，完成后原子改名，再清理多余的旧快照
+     *
+     * @return 快照文件路径
+     */
+    public synchronized Path save() throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        long start = System.currentTimeMillis();
+        Path target = dir.resolve(FILE_PREFIX + start + FILE_SUFFIX);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+
+        CollaborativeFilteringModel cfModel = collaborativeFilteringAlgorithm.getModelSnapshot().getModel();
+        try (ModelSnapshotWriter writer = new ModelSnapshotWriter(temp)) {
+            writer.writeSparseMatrix(CF_USER_MASTER_RATINGS, cfModel.getUserMasterRatings())
+                    .writeSparseMatrix(CF_USER_GAME_RATINGS, cfModel.getUserGameRatings())
+                    .writeSparseMatrix(CF_MASTER_NEIGHBORS, cfModel.getMasterSimilarity())
+                    .writeSparseMatrix(CF_GAME_NEIGHBORS, cfModel.getGameSimilarity())
+                    .writeFeatureTable(MASTER_FEATURES, itemFeatureStore.masterTable())
+                    .writeFeatureTable(GAME_FEATURES, itemFeatureStore.gameTable())
+                    .writeFactorModel(ALS_MASTER, matrixFactorizationAlgorithm.getMasterModelSnapshot().getModel())
+                    .writeFactorModel(ALS_GAME, matrixFactorizationAlgorithm.getGameModelSnapshot().getModel())
+                    .finish();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("模型快照写入完成: {}，大小: {}KB，耗时: {}ms",
+                target, Files.size(target) / 1024, System.currentTimeMillis() - start);
+        prune();
+        return target;
+    }
+
+    /**
+     * 从最新的可用快照恢复模型
+     *
+     * @return 是否恢复成功
+     */
+    public boolean restore() throws IOException {
+        for (Path file : listSnapshots()) {
+            long start = System.currentTimeMillis();
+            ModelSnapshotReader reader;
+            try {
+                reader = ModelSnapshotReader.open(file);
+            } catch (IOException e) {
+                log.warn("快照文件不可用，回退到更早的快照: {}，原因: {}", file, e.getMessage());
+                continue;
+            }
+            apply(reader);
+            log.info("模型从快照恢复完成: {}，耗时: {}ms", file, System.currentTimeMillis() - start);
+            return true;
+        }
+        log.info("没有可用的模型快照，等待训练");
+        return false;
+    }
+
+    private void apply(ModelSnapshotReader reader) {
+        SparseMatrix userMasterRatings = reader.getSparseMatrix(CF_USER_MASTER_RATINGS);
+        SparseMatrix userGameRatings = reader.getSparseMatrix(CF_USER_GAME_RATINGS);
+        SparseMatrix masterNeighbors = reader.getSparseMatrix(CF_MASTER_NEIGHBORS);
+        SparseMatrix gameNeighbors = reader.getSparseMatrix(CF_GAME_NEIGHBORS);
+        if (userMasterRatings != null && userGameRatings != null && masterNeighbors != null && gameNeighbors != null) {
+            collaborativeFilteringAlgorithm.restoreModel(new CollaborativeFilteringModel(
+                    userMasterRatings, userGameRatings, masterNeighbors, gameNeighbors));
+        }
+
+        FeatureTable masterFeatures = reader.getFeatureTable(MASTER_FEATURES);
+        FeatureTable gameFeatures = reader.getFeatureTable(GAME_FEATURES);
+        if (masterFeatures != null && gameFeatures != null) {
+            itemFeatureStore.restore(masterFeatures, gameFeatures);
+        }
+
+        FactorModel alsMaster = reader.getFactorModel(ALS_MASTER);
+        FactorModel alsGame = reader.getFactorModel(ALS_GAME);
+        if (alsMaster != null && alsGame != null) {
+            matrixFactorizationAlgorithm.restoreModels(alsMaster, alsGame);
+        }
+    }
+
+    /**
+     * 列出快照文件，最新的在前
+     */
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (parseTimestamp(file) > 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(ModelSnapshotPersistence::parseTimestamp).reversed());
+        return files;
+    }
+
+    private void prune() throws IOException {
+        List<Path> files = listSnapshots();
+        for (int i = Math.max(2, retain); i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private static long parseTimestamp(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
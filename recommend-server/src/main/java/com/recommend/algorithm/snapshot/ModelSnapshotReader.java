@@ -0,0 +1,181 @@
+package com.recommend.algorithm.snapshot;
+
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.SparseMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 模型快照文件读取器
+ * 通过FileChannel.map把整个文件映射进内存，先校验魔数、格式版本和CRC32，再按分段把数组整块拷贝到堆上，
+ * 不逐字段解析对象。格式见{@link ModelSnapshotWriter}。
+ */
+public final class ModelSnapshotReader {
+
+    // 头部：magic + 格式版本 + 写入时间
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+
+    // 尾部：CRC32
+    private static final int TRAILER_BYTES = 8;
+
+    private final long writeTime;
+    private final Map<String, Object> sections;
+
+    private ModelSnapshotReader(long writeTime, Map<String, Object> sections) {
+        this.writeTime = writeTime;
+        this.sections = sections;
+    }
+
+    /**
+     * 映射并校验快照文件
+     *
+     * @throws IOException 文件无法读取、格式版本不支持或校验失败
+     */
+    public static ModelSnapshotReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 1 + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("快照文件大小异常: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // 1. 校验魔数和格式版本
+            if (buffer.getInt(0) != ModelSnapshotWriter.MAGIC) {
+                throw new IOException("不是模型快照文件");
+            }
+            int formatVersion = buffer.getInt(4);
+            if (formatVersion != ModelSnapshotWriter.FORMAT_VERSION) {
+                throw new IOException("不支持的快照格式版本: " + formatVersion);
+            }
+
+            // 2. 校验CRC32
+            int bodyLength = (int) size - TRAILER_BYTES;
+            ByteBuffer body = buffer.duplicate();
+            body.limit(bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != buffer.getLong(bodyLength)) {
+                throw new IOException("快照文件校验失败");
+            }
+
+            // 3. 解析分段
+            buffer.position(8);
+            long writeTime = buffer.getLong();
+            buffer.limit(bodyLength);
+            return new ModelSnapshotReader(writeTime, readSections(buffer));
+        } catch (RuntimeException e) {
+            // 校验通过但内容越界等，同样视为损坏
+            throw new IOException("快照文件内容损坏", e);
+        }
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public boolean contains(String name) {
+        return sections.containsKey(name);
+    }
+
+    /**
+     * 读取稀疏矩阵分段，不存在返回null
+     */
+    public SparseMatrix getSparseMatrix(String name) {
+        return get(name, SparseMatrix.class);
+    }
+
+    /**
+     * 读取特征表分段，不存在返回null
+     */
+    public FeatureTable getFeatureTable(String name) {
+        return get(name, FeatureTable.class);
+    }
+
+    /**
+     * 读取因子模型分段，不存在返回null
+     */
+    public FactorModel getFactorModel(String name) {
+        return get(name, FactorModel.class);
+    }
+
+    private <T> T get(String name, Class<T> type) {
+        Object section = sections.get(name);
+        return type.isInstance(section) ? type.cast(section) : null;
+    }
+
+    private static Map<String, Object> readSections(ByteBuffer buffer) throws IOException {
+        Map<String, Object> sections = new HashMap<>();
+        while (true) {
+            byte type = buffer.get();
+            if (type == ModelSnapshotWriter.SECTION_END) {
+                return sections;
+            }
+            String name = readUtf(buffer);
+            switch (type) {
+                case ModelSnapshotWriter.SECTION_SPARSE_MATRIX:
+                    sections.put(name, SparseMatrix.fromArrays(readLongs(buffer), readInts(buffer),
+                            readLongs(buffer), readFloats(buffer)));
+                    break;
+                case ModelSnapshotWriter.SECTION_FEATURE_TABLE:
+                    long[] ids = readLongs(buffer);
+                    float[][] columns = new float[buffer.getInt()][];
+                    for (int f = 0; f < columns.length; f++) {
+                        columns[f] = readFloats(buffer);
+                    }
+                    sections.put(name, FeatureTable.fromColumns(ids, columns));
+                    break;
+                case ModelSnapshotWriter.SECTION_FACTOR_MODEL:
+                    int factors = buffer.getInt();
+                    sections.put(name, new FactorModel(factors, readLongs(buffer), readFloats(buffer),
+                            readLongs(buffer), readFloats(buffer), readDoubles(buffer), readFloats(buffer)));
+                    break;
+                default:
+                    throw new IOException("未知的快照分段类型: " + type);
+            }
+        }
+    }
+
+    private static String readUtf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] readLongs(ByteBuffer buffer) {
+        long[] values = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer) {
+        float[] values = new float[buffer.getInt()];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Float.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer) {
+        double[] values = new double[buffer.getInt()];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,143 @@
+package com.recommend.algorithm.snapshot;
+
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.SparseMatrix;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 模型快照文件写入器
+ * 文件格式（大端）：
+ * <pre>
+ * 头部   magic(int) 格式版本(int) 写入时间(long)
+ * 分段   类型(byte) 名称(UTF) 数据 …… 以类型0结束
+ * 尾部   CRC32(long)，覆盖尾部之前的全部字节
+ * </pre>
+ * 数组一律写成 长度(int) + 元素，读取端可以整段批量拷贝。
+ */
+public final class ModelSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x52435348;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final byte SECTION_END = 0;
+    static final byte SECTION_SPARSE_MATRIX = 1;
+    static final byte SECTION_FEATURE_TABLE = 2;
+    static final byte SECTION_FACTOR_MODEL = 3;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final OutputStream file;
+    private final CRC32 crc = new CRC32();
+    private final DataOutputStream out;
+    private boolean finished;
+
+    public ModelSnapshotWriter(Path path) throws IOException {
+        this.file = Files.newOutputStream(path);
+        this.out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+    }
+
+    public ModelSnapshotWriter writeSparseMatrix(String name, SparseMatrix matrix) throws IOException {
+        beginSection(SECTION_SPARSE_MATRIX, name);
+        int rows = matrix.rowCount();
+        out.writeInt(rows);
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(matrix.rowKeyAt(i));
+        }
+        int nnz = matrix.nonZeroCount();
+        out.writeInt(rows + 1);
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(matrix.rowStart(i));
+        }
+        out.writeInt(nnz);
+        out.writeInt(nnz);
+        for (int pos = 0; pos < nnz; pos++) {
+            out.writeLong(matrix.colAt(pos));
+        }
+        out.writeInt(nnz);
+        for (int pos = 0; pos < nnz; pos++) {
+            out.writeFloat(matrix.valueAt(pos));
+        }
+        return this;
+    }
+
+    public ModelSnapshotWriter writeFeatureTable(String name, FeatureTable table) throws IOException {
+        beginSection(SECTION_FEATURE_TABLE, name);
+        writeLongs(table.getIds());
+        out.writeInt(table.dimension());
+        for (int f = 0; f < table.dimension(); f++) {
+            writeFloats(table.column(f));
+        }
+        return this;
+    }
+
+    public ModelSnapshotWriter writeFactorModel(String name, FactorModel model) throws IOException {
+        beginSection(SECTION_FACTOR_MODEL, name);
+        out.writeInt(model.getFactors());
+        writeLongs(model.getUserIds());
+        writeFloats(model.getUserFactors());
+        writeLongs(model.getItemIds());
+        writeFloats(model.getItemFactors());
+        double[] gram = model.getItemGram();
+        out.writeInt(gram.length);
+        for (double value : gram) {
+            out.writeDouble(value);
+        }
+        writeFloats(model.getItemPopularity());
+        return this;
+    }
+
+    /**
+     * 写入结束标记和校验和；未调用finish直接close的文件视为不完整
+     */
+    public void finish() throws IOException {
+        out.writeByte(SECTION_END);
+        out.flush();
+        // 校验和本身不计入CRC，直接写底层流
+        DataOutputStream trailer = new DataOutputStream(file);
+        trailer.writeLong(crc.getValue());
+        trailer.flush();
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void beginSection(byte type, String name) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(name);
+    }
+
+    private void writeLongs(long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private void writeFloats(float[] values) throws IOException {
+        out.writeInt(values.length);
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+}
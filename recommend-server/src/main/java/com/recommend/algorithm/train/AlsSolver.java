@@ -0,0 +1,172 @@
+package com.recommend.algorithm.train;
+
+import java.util.Random;
+
+/**
+ * 隐式反馈ALS求解器（Hu, Koren, Volinsky 2008）
+ * 置信度 c = 1 + alpha * r，偏好 p = 1；固定一侧因子时另一侧每行是一个 k×k 正定方程组：
+ * (YᵀY + Yᵀ(Cu - I)Y + λI) x = YᵀCu p，YᵀY 每轮只算一次，单行代价 O(nnz(u)·k² + k³)。
+ * 因子按行主序存放在连续的float数组中（第i行为 [i*k, (i+1)*k)）。
+ */
+public final class AlsSolver {
+
+    private final int factors;
+    private final double regularization;
+    private final double alpha;
+
+    public AlsSolver(int factors, double regularization, double alpha) {
+        this.factors = factors;
+        this.regularization = regularization;
+        this.alpha = alpha;
+    }
+
+    public int getFactors() {
+        return factors;
+    }
+
+    /**
+     * 随机初始化因子，取值范围(0, 0.1)
+     */
+    public float[] initFactors(int rows, long seed) {
+        Random random = new Random(seed);
+        float[] result = new float[rows * factors];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = random.nextFloat() * 0.1f;
+        }
+        return result;
+    }
+
+    /**
+     * 计算 YᵀY（k×k，行主序）
+     */
+    public double[] gram(float[] fixed, int rows) {
+        double[] gram = new double[factors * factors];
+        for (int row = 0; row < rows; row++) {
+            int base = row * factors;
+            for (int a = 0; a < factors; a++) {
+                double ya = fixed[base + a];
+                for (int b = a; b < factors; b++) {
+                    gram[a * factors + b] += ya * fixed[base + b];
+                }
+            }
+        }
+        for (int a = 0; a < factors; a++) {
+            for (int b = 0; b < a; b++) {
+                gram[a * factors + b] = gram[b * factors + a];
+            }
+        }
+        return gram;
+    }
+
+    /**
+     * 固定fixed一侧，并行求解matrix每一行的因子并写入target
+     */
+    public void solveAll(String phase, InteractionMatrix matrix, float[] target, float[] fixed,
+                         ParallelTrainer trainer) {
+        double[] gram = gram(fixed, matrix.colCount());
+        long[] rows = new long[matrix.rowCount()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        trainer.forEach(phase, rows, row -> {
+            int start = matrix.rowStart((int) row);
+            int end = matrix.rowEnd((int) row);
+            double[] a = new double[factors * factors];
+            double[] b = new double[factors];
+            accumulate(gram, fixed, a, b, matrix, start, end);
+            choleskySolve(a, b, factors);
+            int base = (int) row * factors;
+            for (int f = 0; f < factors; f++) {
+                target[base + f] = (float) b[f];
+            }
+        });
+    }
+
+    /**
+     * 固定另一侧因子，为单行求解因子（用于新用户/新交互的在线折叠）
+     *
+     * @param cols 交互列序号
+     * @param values 交互强度
+     * @param count 有效个数
+     * @param fixed 另一侧因子
+     * @param gram 另一侧的 YᵀY
+     */
+    public float[] foldIn(int[] cols, float[] values, int count, float[] fixed, double[] gram) {
+        double[] a = gram.clone();
+        double[] b = new double[factors];
+        for (int i = 0; i < factors; i++) {
+            a[i * factors + i] += regularization;
+        }
+        for (int i = 0; i < count; i++) {
+            addObservation(a, b, fixed, cols[i], values[i]);
+        }
+        choleskySolve(a, b, factors);
+        float[] result = new float[factors];
+        for (int f = 0; f < factors; f++) {
+            result[f] = (float) b[f];
+        }
+        return result;
+    }
+
+    private void accumulate(double[] gram, float[] fixed, double[] a, double[] b,
+                            InteractionMatrix matrix, int start, int end) {
+        System.arraycopy(gram, 0, a, 0, gram.length);
+        for (int i = 0; i < factors; i++) {
+            a[i * factors + i] += regularization;
+        }
+        for (int pos = start; pos < end; pos++) {
+            addObservation(a, b, fixed, matrix.colAt(pos), matrix.valueAt(pos));
+        }
+    }
+
+    private void addObservation(double[] a, double[] b, float[] fixed, int col, float strength) {
+        double confidence = 1.0 + alpha * strength;
+        int base = col * factors;
+        for (int x = 0; x < factors; x++) {
+            double yx = fixed[base + x];
+            b[x] += confidence * yx;
+            double scaled = (confidence - 1.0) * yx;
+            for (int y = 0; y < factors; y++) {
+                a[x * factors + y] += scaled * fixed[base + y];
+            }
+        }
+    }
+
+    /**
+     * Cholesky分解求解 A x = b（A对称正定，就地分解），结果写回b
+     */
+    static void choleskySolve(double[] a, double[] b, int n) {
+        for (int j = 0; j < n; j++) {
+            double sum = a[j * n + j];
+            for (int p = 0; p < j; p++) {
+                sum -= a[j * n + p] * a[j * n + p];
+            }
+            // 数值误差导致非正时做微小修正
+            double diag = Math.sqrt(Math.max(sum, 1e-12));
+            a[j * n + j] = diag;
+            for (int i = j + 1; i < n; i++) {
+                double s = a[i * n + j];
+                for (int p = 0; p < j; p++) {
+                    s -= a[i * n + p] * a[j * n + p];
+                }
+                a[i * n + j] = s / diag;
+            }
+        }
+        // 前代 L y = b
+        for (int i = 0; i < n; i++) {
+            double s = b[i];
+            for (int p = 0; p < i; p++) {
+                s -= a[i * n + p] * b[p];
+            }
+            b[i] = s / a[i * n + i];
+        }
+        // 回代 Lᵀ x = y
+        for (int i = n - 1; i >= 0; i--) {
+            double s = b[i];
+            for (int p = i + 1; p < n; p++) {
+                s -= a[p * n + i] * b[p];
+            }
+            b[i] = s / a[i * n + i];
+        }
+    }
+}
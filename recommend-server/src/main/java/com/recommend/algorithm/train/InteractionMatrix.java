@@ -0,0 +1,170 @@
+package com.recommend.algorithm.train;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 交互矩阵（CSR存储，行列均为稠密序号）
+ * 行/列ID升序存放，序号即在ID数组中的下标；行内按列序号升序，值为累计的交互强度。
+ * 用于矩阵分解训练，构建请使用{@link Builder}，按列访问请使用{@link #transpose()}。
+ */
+public final class InteractionMatrix {
+
+    private final long[] rowIds;
+    private final long[] colIds;
+    private final int[] rowOffsets;
+    private final int[] cols;
+    private final float[] values;
+
+    private InteractionMatrix(long[] rowIds, long[] colIds, int[] rowOffsets, int[] cols, float[] values) {
+        this.rowIds = rowIds;
+        this.colIds = colIds;
+        this.rowOffsets = rowOffsets;
+        this.cols = cols;
+        this.values = values;
+    }
+
+    public int rowCount() {
+        return rowIds.length;
+    }
+
+    public int colCount() {
+        return colIds.length;
+    }
+
+    public int nonZeroCount() {
+        return cols.length;
+    }
+
+    public long[] getRowIds() {
+        return rowIds;
+    }
+
+    public long[] getColIds() {
+        return colIds;
+    }
+
+    /**
+     * 列ID对应的序号，不存在返回-1
+     */
+    public int colIndex(long colId) {
+        int idx = Arrays.binarySearch(colIds, colId);
+        return idx >= 0 ? idx : -1;
+    }
+
+    public int rowStart(int row) {
+        return rowOffsets[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowOffsets[row + 1];
+    }
+
+    public int colAt(int pos) {
+        return cols[pos];
+    }
+
+    public float valueAt(int pos) {
+        return values[pos];
+    }
+
+    /**
+     * 每行交互强度之和
+     */
+    public float[] rowSums() {
+        float[] sums = new float[rowIds.length];
+        for (int row = 0; row < rowIds.length; row++) {
+            for (int pos = rowOffsets[row]; pos < rowOffsets[row + 1]; pos++) {
+                sums[row] += values[pos];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * 转置（计数排序，O(nnz)），转置后行内仍按列序号升序
+     */
+    public InteractionMatrix transpose() {
+        int[] offsets = new int[colIds.length + 1];
+        for (int col : cols) {
+            offsets[col + 1]++;
+        }
+        for (int i = 0; i < colIds.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursor = Arrays.copyOf(offsets, colIds.length);
+        int[] newCols = new int[cols.length];
+        float[] newValues = new float[values.length];
+        for (int row = 0; row < rowIds.length; row++) {
+            for (int pos = rowOffsets[row]; pos < rowOffsets[row + 1]; pos++) {
+                int target = cursor[cols[pos]]++;
+                newCols[target] = row;
+                newValues[target] = values[pos];
+            }
+        }
+        return new InteractionMatrix(colIds, rowIds, offsets, newCols, newValues);
+    }
+
+    /**
+     * 交互矩阵构建器，同一(行, 列)多次写入时强度累加，非线程安全
+     */
+    public static final class Builder {
+
+        private final Map<Long, Map<Long, Float>> rows = new HashMap<>();
+
+        public Builder add(long rowId, long colId, float weight) {
+            rows.computeIfAbsent(rowId, k -> new HashMap<>()).merge(colId, weight, Float::sum);
+            return this;
+        }
+
+        public InteractionMatrix build() {
+            long[] rowIds = new long[rows.size()];
+            int r = 0;
+            int nnz = 0;
+            for (Map.Entry<Long, Map<Long, Float>> entry : rows.entrySet()) {
+                rowIds[r++] = entry.getKey();
+                nnz += entry.getValue().size();
+            }
+            Arrays.sort(rowIds);
+
+            long[] colIds = rows.values().stream()
+                    .flatMap(row -> row.keySet().stream())
+                    .mapToLong(Long::longValue)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+
+            int[] rowOffsets = new int[rowIds.length + 1];
+            int[] cols = new int[nnz];
+            float[] values = new float[nnz];
+            int pos = 0;
+            for (int i = 0; i < rowIds.length; i++) {
+                int start = pos;
+                for (Map.Entry<Long, Float> cell : rows.get(rowIds[i]).entrySet()) {
+                    cols[pos] = Arrays.binarySearch(colIds, cell.getKey());
+                    values[pos] = cell.getValue();
+                    pos++;
+                }
+                sortRow(cols, values, start, pos);
+                rowOffsets[i + 1] = pos;
+            }
+            return new InteractionMatrix(rowIds, colIds, rowOffsets, cols, values);
+        }
+
+        private static void sortRow(int[] cols, float[] values, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int col = cols[i];
+                float value = values[i];
+                int j = i - 1;
+                while (j >= from && cols[j] > col) {
+                    cols[j + 1] = cols[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                cols[j + 1] = col;
+                values[j + 1] = value;
+            }
+        }
+    }
+}
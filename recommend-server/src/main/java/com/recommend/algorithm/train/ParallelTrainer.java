@@ -0,0 +1,287 @@
+package com.recommend.algorithm.train;
+
+import com.recommend.algorithm.model.SparseMatrix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * 并行训练器
+ * 基于Fork/Join按ID分块拆分训练任务，每个叶子任务只写入自己负责的行，汇总时各分区的行互不重叠，直接移交；
+ * 并行度通过 recommend.algorithm.training.parallelism 配置（0表示使用CPU核数）。
+ * 单个ID处理失败只记日志，阶段结束时失败比例超过 recommend.algorithm.training.max-failure-ratio 则抛出异常，
+ * 调用方不会发布缺行的模型。
+ */
+@Component
+@Slf4j
+public class ParallelTrainer {
+
+    @Value("${recommend.algorithm.training.parallelism:0}")
+    private int parallelism;
+
+    // 叶子任务处理的ID个数
+    @Value("${recommend.algorithm.training.block-size:64}")
+    private int blockSize;
+
+    // 单个阶段允许的失败比例
+    @Value("${recommend.algorithm.training.max-failure-ratio:0.01}")
+    private double maxFailureRatio;
+
+    private ForkJoinPool pool;
+
+    // 最近一次各阶段耗时（毫秒）
+    private final Map<String, Long> lastPhaseElapsed = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * 行写入器：为一个ID写入若干矩阵的对应行
+     */
+    @FunctionalInterface
+    public interface RowWriter {
+        void write(long key, SparseMatrix.Builder[] out);
+    }
+
+    /**
+     * 两两打分器：参数为ID数组下标
+     */
+    @FunctionalInterface
+    public interface PairScorer {
+        double score(int i, int j);
+    }
+
+    @PostConstruct
+    public void init() {
+        int level = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(level, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("recommend-train-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("并行训练器初始化完成，并行度: {}，分块大小: {}", level, blockSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 按ID并行构建若干稀疏矩阵的行
+     *
+     * @param phase 阶段名称
+     * @param keys 行ID
+     * @param maxPerRow 每个输出矩阵的单行上限
+     * @param writer 行写入器
+     * @return 与maxPerRow一一对应的矩阵
+     */
+    public SparseMatrix[] buildRows(String phase, long[] keys, int[] maxPerRow, RowWriter writer) {
+        TrainingProgress progress = new TrainingProgress(phase, keys.length);
+        SparseMatrix.Builder[] builders = pool.invoke(new RowTask(keys, 0, keys.length, maxPerRow, writer, progress));
+        checkFailures(progress);
+        SparseMatrix[] result = new SparseMatrix[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            result[i] = builders[i].build();
+        }
+        lastPhaseElapsed.put(phase, progress.finish());
+        return result;
+    }
+
+    /**
+     * 并行计算两两相似度并保留每行Top-K
+     * 每个叶子任务计算自己负责的行与其余所有物品的相似度（每对在两端各算一次），换取分区之间不需要合并行
+     *
+     * @param phase 阶段名称
+     * @param ids 物品ID
+     * @param maxPerRow 每行保留的邻居数
+     * @param threshold 相似度阈值
+     * @param scorer 打分器
+     */
+    public SparseMatrix buildPairwise(String phase, long[] ids, int maxPerRow, double threshold, PairScorer scorer) {
+        TrainingProgress progress = new TrainingProgress(phase, ids.length);
+        SparseMatrix.Builder builder = pool.invoke(new PairTask(ids, 0, ids.length, maxPerRow, threshold, scorer, progress));
+        SparseMatrix result = builder.build();
+        lastPhaseElapsed.put(phase, progress.finish());
+        return result;
+    }
+
+    /**
+     * 并行遍历ID，动作需自行保证线程安全
+     */
+    public void forEach(String phase, long[] keys, LongConsumer action) {
+        TrainingProgress progress = new TrainingProgress(phase, keys.length);
+        pool.invoke(new ForEachTask(keys, 0, keys.length, action, progress));
+        checkFailures(progress);
+        lastPhaseElapsed.put(phase, progress.finish());
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * 获取最近一次各阶段耗时（毫秒）
+     */
+    public Map<String, Long> getLastPhaseElapsed() {
+        synchronized (lastPhaseElapsed) {
+            return new LinkedHashMap<>(lastPhaseElapsed);
+        }
+    }
+
+    /**
+     * 失败比例超过上限时中止训练
+     */
+    private void checkFailures(TrainingProgress progress) {
+        long failed = progress.getFailed();
+        if (failed > 0 && failed > progress.getTotal() * maxFailureRatio) {
+            progress.finish();
+            throw new IllegalStateException(String.format("训练阶段[%s]失败%d/%d，超过允许比例%.2f%%，放弃本次训练",
+                    progress.getPhase(), failed, progress.getTotal(), maxFailureRatio * 100));
+        }
+    }
+
+    private final class RowTask extends RecursiveTask<SparseMatrix.Builder[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final int[] maxPerRow;
+        private final RowWriter writer;
+        private final TrainingProgress progress;
+
+        RowTask(long[] keys, int from, int to, int[] maxPerRow, RowWriter writer, TrainingProgress progress) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.maxPerRow = maxPerRow;
+            this.writer = writer;
+            this.progress = progress;
+        }
+
+        @Override
+        protected SparseMatrix.Builder[] compute() {
+            if (to - from <= blockSize) {
+                SparseMatrix.Builder[] out = new SparseMatrix.Builder[maxPerRow.length];
+                for (int k = 0; k < out.length; k++) {
+                    out[k] = new SparseMatrix.Builder(maxPerRow[k]);
+                }
+                for (int i = from; i < to; i++) {
+                    try {
+                        writer.write(keys[i], out);
+                    } catch (Exception e) {
+                        progress.fail();
+                        log.error("训练阶段[{}]处理失败，ID: {}", progress.getPhase(), keys[i], e);
+                    }
+                }
+                progress.advance(to - from);
+                return out;
+            }
+            int mid = (from + to) >>> 1;
+            RowTask left = new RowTask(keys, from, mid, maxPerRow, writer, progress);
+            left.fork();
+            SparseMatrix.Builder[] right = new RowTask(keys, mid, to, maxPerRow, writer, progress).compute();
+            SparseMatrix.Builder[] leftResult = left.join();
+            for (int k = 0; k < right.length; k++) {
+                right[k].merge(leftResult[k]);
+            }
+            return right;
+        }
+    }
+
+    private final class PairTask extends RecursiveTask<SparseMatrix.Builder> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] ids;
+        private final int from;
+        private final int to;
+        private final int maxPerRow;
+        private final double threshold;
+        private final PairScorer scorer;
+        private final TrainingProgress progress;
+
+        PairTask(long[] ids, int from, int to, int maxPerRow, double threshold,
+                 PairScorer scorer, TrainingProgress progress) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.maxPerRow = maxPerRow;
+            this.threshold = threshold;
+            this.scorer = scorer;
+            this.progress = progress;
+        }
+
+        @Override
+        protected SparseMatrix.Builder compute() {
+            if (to - from <= blockSize) {
+                // 分区缓冲：只写入 i∈[from,to) 的行，各分区的行互不重叠
+                SparseMatrix.Builder out = new SparseMatrix.Builder(maxPerRow);
+                for (int i = from; i < to; i++) {
+                    out.touchRow(ids[i]);
+                    for (int j = 0; j < ids.length; j++) {
+                        if (j == i) {
+                            continue;
+                        }
+                        double similarity = scorer.score(i, j);
+                        if (similarity >= threshold) {
+                            out.put(ids[i], ids[j], (float) similarity);
+                        }
+                    }
+                }
+                progress.advance(to - from);
+                return out;
+            }
+            int mid = (from + to) >>> 1;
+            PairTask left = new PairTask(ids, from, mid, maxPerRow, threshold, scorer, progress);
+            left.fork();
+            SparseMatrix.Builder right = new PairTask(ids, mid, to, maxPerRow, threshold, scorer, progress).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    private final class ForEachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final LongConsumer action;
+        private final TrainingProgress progress;
+
+        ForEachTask(long[] keys, int from, int to, LongConsumer action, TrainingProgress progress) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= blockSize) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        action.accept(keys[i]);
+                    } catch (Exception e) {
+                        progress.fail();
+                        log.error("训练阶段[{}]处理失败，ID: {}", progress.getPhase(), keys[i], e);
+                    }
+                }
+                progress.advance(to - from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ForEachTask(keys, from, mid, action, progress),
+                    new ForEachTask(keys, mid, to, action, progress));
+        }
+    }
+}
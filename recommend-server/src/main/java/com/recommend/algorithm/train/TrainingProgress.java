@@ -0,0 +1,74 @@
+package com.recommend.algorithm.train;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 训练阶段进度
+ * 多线程累加完成量，每跨过10%输出一次进度日志
+ */
+@Slf4j
+public class TrainingProgress {
+
+    private final String phase;
+    private final long total;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger reportedDecile = new AtomicInteger();
+
+    public TrainingProgress(String phase, long total) {
+        this.phase = phase;
+        this.total = total;
+        log.info("训练阶段[{}]开始，任务量: {}", phase, total);
+    }
+
+    /**
+     * 累加完成量
+     */
+    public void advance(long delta) {
+        long done = completed.addAndGet(delta);
+        if (total <= 0) {
+            return;
+        }
+        int decile = (int) Math.min(10, done * 10 / total);
+        int reported = reportedDecile.get();
+        if (decile > reported && reportedDecile.compareAndSet(reported, decile)) {
+            log.info("训练阶段[{}]进度 {}%（{}/{}），已耗时 {}ms", phase, decile * 10, done, total, getElapsed());
+        }
+    }
+
+    /**
+     * 记录一个处理失败的ID
+     */
+    public void fail() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * 结束阶段并返回耗时（毫秒）
+     */
+    public long finish() {
+        long elapsed = getElapsed();
+        log.info("训练阶段[{}]完成，任务量: {}，失败: {}，耗时 {}ms", phase, completed.get(), failed.get(), elapsed);
+        return elapsed;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getElapsed() {
+        return System.currentTimeMillis() - startTime;
+    }
+}
@@ -0,0 +1,11 @@
+package com.recommend.common.event;
+
+import lombok.Data;
+
+/**
+ * 游戏新增/变更/删除事件，事务提交后用于修补游戏特征表
+ */
+@Data
+public class GameUpdateEvent {
+    private final Long gameId;
+}
@@ -0,0 +1,13 @@
+package com.recommend.common.event;
+
+import lombok.Data;
+
+/**
+ * 陪玩师上下线（状态变更/删除）事件，事务提交后用于同步在线陪玩师索引
+ */
+@Data
+public class MasterStatusEvent {
+    private final Long masterId;
+    // 变更后的状态，删除时为null
+    private final Integer status;
+}
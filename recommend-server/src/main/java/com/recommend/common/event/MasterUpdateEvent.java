@@ -0,0 +1,11 @@
+package com.recommend.common.event;
+
+import lombok.Data;
+
+/**
+ * 陪玩师资料（游戏类型、标签、评分等）新增/变更事件，事务提交后用于修补陪玩师标签倒排索引
+ */
+@Data
+public class MasterUpdateEvent {
+    private final Long masterId;
+}
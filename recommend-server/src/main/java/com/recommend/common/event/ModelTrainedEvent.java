@@ -0,0 +1,11 @@
+package com.recommend.common.event;
+
+import lombok.Data;
+
+/**
+ * 模型全量训练完成事件，用于持久化模型快照
+ */
+@Data
+public class ModelTrainedEvent {
+    private final String model;
+}
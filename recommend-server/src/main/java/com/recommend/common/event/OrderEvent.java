@@ -0,0 +1,17 @@
+package com.recommend.common.event;
+
+import com.recommend.common.entity.Order;
+import lombok.Data;
+
+/**
+ * 订单创建/更新事件，事务提交后用于在线更新模型
+ */
+@Data
+public class OrderEvent {
+    private final Order order;
+
+    /**
+     * true表示新建订单，false表示已有订单被更新
+     */
+    private final boolean created;
+}
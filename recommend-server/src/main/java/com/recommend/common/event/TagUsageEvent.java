@@ -0,0 +1,14 @@
+package com.recommend.common.event;
+
+import lombok.Data;
+
+import java.util.Collection;
+
+/**
+ * 标签或用户/陪玩师标签关联变更事件，用于增量维护标签统计
+ */
+@Data
+public class TagUsageEvent {
+    // 受影响的标签ID，为null时表示无法确定，全量重算
+    private final Collection<Long> tagIds;
+}
@@ -0,0 +1,12 @@
+package com.recommend.common.event;
+
+import com.recommend.common.entity.UserBehavior;
+import lombok.Data;
+
+/**
+ * 用户行为写入事件，事务提交后用于在线更新模型
+ */
+@Data
+public class UserBehaviorEvent {
+    private final UserBehavior behavior;
+}
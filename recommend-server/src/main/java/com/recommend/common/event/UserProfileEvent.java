@@ -0,0 +1,14 @@
+package com.recommend.common.event;
+
+import com.recommend.common.entity.UserProfile;
+import lombok.Data;
+
+/**
+ * 用户画像创建/更新/删除事件，用于增量维护相似用户索引
+ */
+@Data
+public class UserProfileEvent {
+    private final Long userId;
+    // 变更后的画像，删除时为null
+    private final UserProfile profile;
+}
@@ -0,0 +1,152 @@
+package com.recommend.common.utils;
+
+import java.util.Arrays;
+
+/**
+ * long哈希集合
+ * 开放寻址 + 线性探测，元素存放在原始long数组中，不装箱；每个元素按加入顺序分配从0开始的稠密序号，
+ * 调用方可以用序号索引自己的并行数组（如累加得分）。不支持删除，非线程安全。
+ */
+public final class LongHashSet {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    // 槽位 → 序号，EMPTY表示空槽
+    private int[] slots;
+    // 序号 → 元素
+    private long[] values;
+    private int size;
+    private int mask;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(4, expectedSize));
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        values = new long[Math.max(4, expectedSize)];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 加入元素
+     *
+     * @return 元素原先不存在时返回true
+     */
+    public boolean add(long value) {
+        int before = size;
+        addOrGet(value);
+        return size > before;
+    }
+
+    /**
+     * 加入元素（已存在时不变），返回元素的序号
+     */
+    public int addOrGet(long value) {
+        int slot = slotOf(value);
+        if (slots[slot] != EMPTY) {
+            return slots[slot];
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int ordinal = size++;
+        values[ordinal] = value;
+        keys[slot] = value;
+        slots[slot] = ordinal;
+        // 负载因子不超过1/2
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return ordinal;
+    }
+
+    public boolean contains(long value) {
+        return slots[slotOf(value)] != EMPTY;
+    }
+
+    /**
+     * 元素的序号，不存在时返回-1
+     */
+    public int indexOf(long value) {
+        return slots[slotOf(value)];
+    }
+
+    /**
+     * 序号对应的元素
+     */
+    public long get(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("ordinal: " + ordinal + ", size: " + size);
+        }
+        return values[ordinal];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 复制出一个独立的集合，元素的序号保持不变
+     */
+    public LongHashSet copy() {
+        LongHashSet copy = new LongHashSet(0);
+        copy.keys = keys.clone();
+        copy.slots = slots.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.mask = mask;
+        return copy;
+    }
+
+    /**
+     * 按加入顺序返回全部元素
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * 元素所在槽位，不存在时为探测到的第一个空槽
+     */
+    private int slotOf(long value) {
+        int slot = mix(value) & mask;
+        while (slots[slot] != EMPTY && keys[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = slotOf(values[ordinal]);
+            keys[slot] = values[ordinal];
+            slots[slot] = ordinal;
+        }
+    }
+
+    /**
+     * 打散相邻ID（自增主键）的高低位，避免线性探测聚集
+     */
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(expectedSize * 2 - 1) << 1;
+        return Math.max(8, capacity);
+    }
+}
@@ -0,0 +1,141 @@
+package com.recommend.common.utils;
+
+/**
+ * Top-K选择器
+ * 基于long/double并行数组的定长小顶堆，逐个offer候选，复杂度O(N log K)，过程中不装箱。
+ * 得分按{@link Double#compare(double, double)}比较（与原先按Double排序一致），相同时ID小的排在前面，
+ * 用候选下标作为ID时即保持原有顺序。
+ * 调用{@link #sortDescending()}后按得分降序通过{@link #idAt(int)}/{@link #scoreAt(int)}读取，非线程安全。
+ */
+public final class TopKSelector {
+
+    private final int capacity;
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.capacity = k;
+        this.ids = new long[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * 提交一个候选
+     */
+    public void offer(long id, double score) {
+        if (sorted) {
+            throw new IllegalStateException("selector already sorted");
+        }
+        if (capacity == 0) {
+            return;
+        }
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return;
+        }
+        if (!ranksBefore(score, id, scores[0], ids[0])) {
+            return;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0, size);
+    }
+
+    /**
+     * 当前保留的最低得分，未满K个时返回负无穷（用于调用方提前剪枝）
+     */
+    public double threshold() {
+        return size < capacity ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 原地堆排序为得分降序，之后不能再offer
+     */
+    public TopKSelector sortDescending() {
+        if (!sorted) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    public long idAt(int i) {
+        return ids[i];
+    }
+
+    public double scoreAt(int i) {
+        return scores[i];
+    }
+
+    /**
+     * 按得分降序返回ID
+     */
+    public long[] toSortedIds() {
+        sortDescending();
+        long[] result = new long[size];
+        System.arraycopy(ids, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * a是否排在b前面：得分高者在前，得分相同ID小者在前
+     */
+    private static boolean ranksBefore(double scoreA, long idA, double scoreB, long idB) {
+        int cmp = Double.compare(scoreA, scoreB);
+        return cmp > 0 || (cmp == 0 && idA < idB);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            // 堆顶是排名最靠后的元素
+            if (!ranksBefore(scores[parent], ids[parent], scores[i], ids[i])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= end) {
+                return;
+            }
+            int last = left;
+            int right = left + 1;
+            if (right < end && ranksBefore(scores[left], ids[left], scores[right], ids[right])) {
+                last = right;
+            }
+            if (!ranksBefore(scores[i], ids[i], scores[last], ids[last])) {
+                return;
+            }
+            swap(i, last);
+            i = last;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
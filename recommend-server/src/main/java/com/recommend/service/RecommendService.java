@@ -1,18 +1,24 @@
 package com.recommend.service;
 
+import com.recommend.algorithm.online.OnlineModelUpdater;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.entity.UserBehavior;
 import com.recommend.common.entity.UserGameMasterInteraction;
 import com.recommend.common.request.FeedbackRequest;
 import com.recommend.service.feature.FeatureExtractor;
 import com.recommend.service.recall.RecallService;
 import com.recommend.service.rank.RankService;
 import com.recommend.service.filter.FilterService;
+import com.recommend.service.route.AlgorithmRouter;
+import com.recommend.service.route.RouteResult;
 import com.alibaba.fastjson.JSON;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
+import javax.annotation.PostConstruct;
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
@@ -41,9 +47,30 @@ public class RecommendService {
     @Autowired
     private StringRedisTemplate redisTemplate;
     
+    @Autowired
+    private UserBehaviorService userBehaviorService;
+    
+    @Autowired
+    private OnlineModelUpdater onlineModelUpdater;
+    
+    @Autowired
+    private AlgorithmRouter algorithmRouter;
+    
     private static final String RECOMMEND_CACHE_KEY = "recommend:";
     private static final int CACHE_EXPIRE_MINUTES = 5;
     
+    /**
+     * 把 召回→排序→过滤 链路注册为一条推荐路由（链路自带缓存，按其全部结果分页）
+     */
+    @PostConstruct
+    public void registerPipeline() {
+        // 管道结果是整份缓存列表，与算法路由一样截断到请求的数量
+        algorithmRouter.register(AlgorithmRouter.PIPELINE, (request, limit) -> {
+            List<GameMaster> all = getRecommendations(request.getUserId());
+            return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+        });
+    }
+    
     public List<GameMaster> getRecommendations(Long userId) {
         // 1. 检查缓存
         String cacheKey = RECOMMEND_CACHE_KEY + userId;
@@ -92,7 +119,8 @@ public class RecommendService {
     }
     
     private void updateModelWithFeedback(UserGameMasterInteraction interaction) {
-        // 实现基于反馈更新模型的逻辑
+        // 增量更新该用户评分行中对应陪玩师的一项
+        onlineModelUpdater.onFeedback(interaction.getUserId(), interaction.getMasterId(), interaction.getRating());
     }
 
     /**
@@ -101,17 +129,28 @@ public class RecommendService {
     public RecommendResponse recommendGameMasters(RecommendRequest request) {
         log.info("推荐游戏主，用户ID: {}", request.getUserId());
         try {
-            List<GameMaster> recommendations = getRecommendations(request.getUserId());
-            
-            // 应用分页
             int page = request.getPage() != null ? request.getPage() : 1;
             int limit = request.getLimit() != null ? request.getLimit() : 10;
-            int start = (page - 1) * limit;
+            
+            // 按请求的算法/场景路由，取到当前页为止的结果，多取一条用于判断是否还有下一页
+            int fetch = page * limit;
+            RouteResult routed = algorithmRouter.routeGameMasters(request, fetch + 1);
+            List<GameMaster> recommendations = routed.getMasters();
+            boolean hasMore = recommendations.size() > fetch;
+            
+            // 应用分页
+            int start = Math.min((page - 1) * limit, recommendations.size());
             int end = Math.min(start + limit, recommendations.size());
             
             List<GameMaster> pagedResults = recommendations.subList(start, end);
             
-            return RecommendResponse.page(pagedResults, page, limit, (long) recommendations.size());
+            // 只有结果已取尽时总数才确定；否则总数未知，不把取数上限当作总数
+            Long total = hasMore ? null : (long) recommendations.size();
+            RecommendResponse response = RecommendResponse.page(pagedResults, page, limit, total);
+            response.setExtra(Collections.singletonMap("hasMore", hasMore));
+            response.setAlgorithm(routed.getAlgorithm());
+            response.setScene(request.getScene());
+            return response;
         } catch (Exception e) {
             log.error("推荐游戏主失败", e);
             return RecommendResponse.error("推荐失败: " + e.getMessage());
@@ -139,9 +178,13 @@ public class RecommendService {
     public RecommendResponse getPersonalRecommend(RecommendRequest request) {
         log.info("获取个性化推荐，用户ID: {}", request.getUserId());
         try {
-            // 实现个性化推荐逻辑
-            List<GameMaster> recommendations = getRecommendations(request.getUserId());
-            return RecommendResponse.success(recommendations);
+            // 按请求的算法/场景路由
+            int limit = request.getLimit() != null ? request.getLimit() : 10;
+            RouteResult routed = algorithmRouter.routeGameMasters(request, limit);
+            RecommendResponse response = RecommendResponse.success(routed.getMasters());
+            response.setAlgorithm(routed.getAlgorithm());
+            response.setScene(request.getScene());
+            return response;
         } catch (Exception e) {
             log.error("获取个性化推荐失败", e);
             return RecommendResponse.error("推荐失败: " + e.getMessage());
@@ -221,8 +264,14 @@ public class RecommendService {
     public void recordUserBehavior(Long userId, Integer type, Long targetId, Integer targetType, String content) {
         log.info("记录用户行为，用户ID: {}, 类型: {}, 目标ID: {}", userId, type, targetId);
         try {
-            // 实现用户行为记录逻辑
-            // 这里可以调用用户行为服务
+            UserBehavior behavior = new UserBehavior();
+            behavior.setUserId(userId);
+            behavior.setType(type != null ? String.valueOf(type) : null);
+            behavior.setTargetId(targetId);
+            behavior.setTargetType(targetType != null ? String.valueOf(targetType) : null);
+            behavior.setContent(content);
+            // 写入后由事务提交事件触发模型在线更新
+            userBehaviorService.addUserBehavior(behavior);
         } catch (Exception e) {
             log.error("记录用户行为失败", e);
         }
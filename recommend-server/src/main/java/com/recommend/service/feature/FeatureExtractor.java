@@ -3,6 +3,7 @@ package com.recommend.service.feature;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
@@ -14,6 +15,9 @@ import java.util.Map;
 @Slf4j
 public class FeatureExtractor {
 
+    @Autowired
+    private MasterBitmapIndex masterBitmapIndex;
+
     /**
      * 提取排序特征
      */
@@ -295,7 +299,8 @@ public class FeatureExtractor {
     }
 
     private Boolean isOnline(GameMaster master) {
-        return master.getStatus() != null && master.getStatus() == 1;
+        // 以位图索引为准（实时跟随上下线事件），实体可能来自缓存
+        return masterBitmapIndex.isOnline(master);
     }
 
     private Double calculateAvailabilityScore(GameMaster master) {
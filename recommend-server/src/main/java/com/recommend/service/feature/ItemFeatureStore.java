@@ -0,0 +1,328 @@
+package com.recommend.service.feature;
+
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.common.entity.Game;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.event.GameUpdateEvent;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.service.GameMasterService;
+import com.recommend.service.GameService;
+import com.recommend.service.hydration.EntityHydrationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * 陪玩师/游戏特征表
+ * 全量特征预先提取成列式{@link FeatureTable}并整体发布：定时全量重建，陪玩师/游戏变更时只替换对应的一行
+ * （资料变更、上下线和游戏变更事件在事务提交后异步修补）。
+ * 时间类特征（注册时长、活跃度）以重建时刻为基准，两次重建之间不随时间漂移。
+ */
+@Component
+@Slf4j
+public class ItemFeatureStore {
+
+    // 陪玩师特征维度
+    public static final int MASTER_DIMENSION = 8;
+
+    // 游戏特征维度
+    public static final int GAME_DIMENSION = 6;
+
+    private static final long MILLIS_PER_DAY = 1000L * 60 * 60 * 24;
+
+    @Autowired
+    private GameMasterService gameMasterService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private EntityHydrationService entityHydrationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ModelSnapshotHolder<FeatureTable> masterTableHolder =
+            new ModelSnapshotHolder<>("master-features", FeatureTable.EMPTY);
+
+    private final ModelSnapshotHolder<FeatureTable> gameTableHolder =
+            new ModelSnapshotHolder<>("game-features", FeatureTable.EMPTY);
+
+    @PostConstruct
+    public void registerMetrics() {
+        masterTableHolder.bindTo(meterRegistry);
+        gameTableHolder.bindTo(meterRegistry);
+    }
+
+    /**
+     * 定时全量重建特征表
+     */
+    @Scheduled(initialDelayString = "${recommend.algorithm.feature-table.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.algorithm.feature-table.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建特征表失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建并发布陪玩师、游戏特征表
+     */
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+
+        List<GameMaster> masters = gameMasterService.getGameMasterList();
+        long[] masterIds = new long[masters.size()];
+        float[][] masterRows = new float[masters.size()][];
+        for (int i = 0; i < masterIds.length; i++) {
+            masterIds[i] = masters.get(i).getId();
+            masterRows[i] = extractMasterFeatures(masters.get(i), now);
+        }
+        FeatureTable masterTable = FeatureTable.of(masterIds, masterRows, MASTER_DIMENSION);
+        masterTableHolder.publish(masterTable);
+
+        List<Game> games = gameService.getGameList();
+        long[] gameIds = new long[games.size()];
+        float[][] gameRows = new float[games.size()][];
+        for (int i = 0; i < gameIds.length; i++) {
+            gameIds[i] = games.get(i).getId();
+            gameRows[i] = extractGameFeatures(games.get(i), now);
+        }
+        FeatureTable gameTable = FeatureTable.of(gameIds, gameRows, GAME_DIMENSION);
+        gameTableHolder.publish(gameTable);
+
+        log.info("特征表重建完成，陪玩师: {}行，游戏: {}行，内存占用约{}KB",
+                masterTable.rowCount(), gameTable.rowCount(),
+                (masterTable.memoryFootprintBytes() + gameTable.memoryFootprintBytes()) / 1024);
+    }
+
+    /**
+     * 启动时用持久化快照恢复特征表，已重建过的不覆盖；维度与当前特征定义不一致的快照丢弃
+     */
+    public void restore(FeatureTable masterTable, FeatureTable gameTable) {
+        if (masterTable.rowCount() > 0 && masterTable.dimension() == MASTER_DIMENSION) {
+            masterTableHolder.restore(masterTable);
+        }
+        if (gameTable.rowCount() > 0 && gameTable.dimension() == GAME_DIMENSION) {
+            gameTableHolder.restore(gameTable);
+        }
+    }
+
+    /**
+     * 当前陪玩师特征表
+     */
+    public FeatureTable masterTable() {
+        return masterTableHolder.model();
+    }
+
+    /**
+     * 当前游戏特征表
+     */
+    public FeatureTable gameTable() {
+        return gameTableHolder.model();
+    }
+
+    /**
+     * 陪玩师变更后重新提取其特征行（跳过本地实体缓存），陪玩师已不存在时删除该行
+     *
+     * @return 更新后的特征表
+     */
+    public FeatureTable refreshMaster(Long masterId) {
+        entityHydrationService.evictGameMaster(masterId);
+        GameMaster master = entityHydrationService.getGameMaster(masterId);
+        float[] features = master != null ? extractMasterFeatures(master, System.currentTimeMillis()) : null;
+        return masterTableHolder.update(table -> features == null
+                ? table.withoutRow(masterId)
+                : table.withRow(masterId, features)).getModel();
+    }
+
+    /**
+     * 游戏变更后重新提取其特征行（跳过本地实体缓存），游戏已不存在时删除该行
+     *
+     * @return 更新后的特征表
+     */
+    public FeatureTable refreshGame(Long gameId) {
+        entityHydrationService.evictGame(gameId);
+        Game game = entityHydrationService.getGame(gameId);
+        float[] features = game != null ? extractGameFeatures(game, System.currentTimeMillis()) : null;
+        return gameTableHolder.update(table -> features == null
+                ? table.withoutRow(gameId)
+                : table.withRow(gameId, features)).getModel();
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterUpdate(MasterUpdateEvent event) {
+        refreshMasterQuietly(event.getMasterId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterStatus(MasterStatusEvent event) {
+        refreshMasterQuietly(event.getMasterId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGameUpdate(GameUpdateEvent event) {
+        if (event.getGameId() == null) {
+            return;
+        }
+        try {
+            refreshGame(event.getGameId());
+        } catch (Exception e) {
+            log.error("增量更新游戏特征行失败，游戏ID: {}", event.getGameId(), e);
+        }
+    }
+
+    private void refreshMasterQuietly(Long masterId) {
+        if (masterId == null) {
+            return;
+        }
+        try {
+            refreshMaster(masterId);
+        } catch (Exception e) {
+            log.error("增量更新陪玩师特征行失败，陪玩师ID: {}", masterId, e);
+        }
+    }
+
+    /**
+     * 两个陪玩师特征的余弦相似度；不在表中的陪玩师现场提取特征
+     */
+    public double masterSimilarity(long masterId1, long masterId2) {
+        FeatureTable table = masterTable();
+        int row1 = table.indexOf(masterId1);
+        int row2 = table.indexOf(masterId2);
+        if (row1 >= 0 && row2 >= 0) {
+            return table.cosine(row1, row2);
+        }
+        long now = System.currentTimeMillis();
+        float[] features1 = row1 >= 0 ? table.rowAt(row1)
+                : extractMasterFeatures(entityHydrationService.getGameMaster(masterId1), now);
+        float[] features2 = row2 >= 0 ? table.rowAt(row2)
+                : extractMasterFeatures(entityHydrationService.getGameMaster(masterId2), now);
+        return cosine(features1, features2);
+    }
+
+    /**
+     * 两个游戏特征的余弦相似度；不在表中的游戏现场提取特征
+     */
+    public double gameSimilarity(long gameId1, long gameId2) {
+        FeatureTable table = gameTable();
+        int row1 = table.indexOf(gameId1);
+        int row2 = table.indexOf(gameId2);
+        if (row1 >= 0 && row2 >= 0) {
+            return table.cosine(row1, row2);
+        }
+        long now = System.currentTimeMillis();
+        float[] features1 = row1 >= 0 ? table.rowAt(row1)
+                : extractGameFeatures(entityHydrationService.getGame(gameId1), now);
+        float[] features2 = row2 >= 0 ? table.rowAt(row2)
+                : extractGameFeatures(entityHydrationService.getGame(gameId2), now);
+        return cosine(features1, features2);
+    }
+
+    /**
+     * 提取陪玩师特征向量，陪玩师为空时返回全0向量
+     */
+    public float[] extractMasterFeatures(GameMaster master, long now) {
+        float[] features = new float[MASTER_DIMENSION];
+        if (master == null) {
+            return features;
+        }
+
+        // 1. 评分特征
+        features[0] = master.getScore() != null ? master.getScore().floatValue() : 0f;
+
+        // 2. 订单数特征（归一化）
+        features[1] = master.getOrderCount() != null ? Math.min(1f, master.getOrderCount() / 100f) : 0f;
+
+        // 3. 价格特征（归一化）
+        features[2] = master.getPrice() != null ? Math.min(1f, master.getPrice().floatValue() / 500f) : 0f;
+
+        // 4. 在线状态特征
+        features[3] = master.getStatus() != null && master.getStatus() == 1 ? 1f : 0f;
+
+        // 5. 游戏类型数量特征
+        features[4] = Math.min(1f, countItems(master.getGameTypes()) / 10f);
+
+        // 6. 标签数量特征
+        features[5] = Math.min(1f, countItems(master.getTags()) / 20f);
+
+        // 7. 注册时长特征（按年归一化）
+        if (master.getCreateTime() != null) {
+            long daysSinceCreation = (now - master.getCreateTime().getTime()) / MILLIS_PER_DAY;
+            features[6] = Math.min(1f, daysSinceCreation / 365f);
+        }
+
+        // 8. 活跃度特征（30天内活跃度较高）
+        if (master.getUpdateTime() != null) {
+            long daysSinceUpdate = (now - master.getUpdateTime().getTime()) / MILLIS_PER_DAY;
+            features[7] = Math.max(0f, 1f - daysSinceUpdate / 30f);
+        }
+        return features;
+    }
+
+    /**
+     * 提取游戏特征向量，游戏为空时返回全0向量
+     */
+    public float[] extractGameFeatures(Game game, long now) {
+        float[] features = new float[GAME_DIMENSION];
+        if (game == null) {
+            return features;
+        }
+
+        // 1. 游戏热度特征（基于ID，实际应该有专门的热度字段）
+        features[0] = Math.min(1f, game.getId() / 1000f);
+
+        // 2. 游戏状态特征
+        features[1] = game.getStatus() != null && game.getStatus() == 1 ? 1f : 0f;
+
+        // 3. 游戏类型编码（简化处理）
+        features[2] = game.getType() != null ? game.getType().hashCode() % 100 / 100f : 0f;
+
+        // 4. 标签数量特征
+        features[3] = Math.min(1f, countItems(game.getTags()) / 10f);
+
+        // 5. 创建时长特征
+        if (game.getCreateTime() != null) {
+            long daysSinceCreation = (now - game.getCreateTime().getTime()) / MILLIS_PER_DAY;
+            features[4] = Math.min(1f, daysSinceCreation / 365f);
+        }
+
+        // 6. 更新活跃度特征（90天内更新活跃度较高）
+        if (game.getUpdateTime() != null) {
+            long daysSinceUpdate = (now - game.getUpdateTime().getTime()) / MILLIS_PER_DAY;
+            features[5] = Math.max(0f, 1f - daysSinceUpdate / 90f);
+        }
+        return features;
+    }
+
+    private static double cosine(float[] features1, float[] features2) {
+        float norm1 = FeatureTable.norm(features1);
+        float norm2 = FeatureTable.norm(features2);
+        if (norm1 == 0f || norm2 == 0f) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        for (int f = 0; f < features1.length; f++) {
+            dot += (double) features1[f] * features2[f];
+        }
+        return dot / ((double) norm1 * norm2);
+    }
+
+    private static int countItems(String commaSeparated) {
+        return commaSeparated != null ? commaSeparated.split(",").length : 0;
+    }
+}
@@ -0,0 +1,161 @@
+package com.recommend.service.feature;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.service.mapper.GameMasterMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * 陪玩师位图索引
+ * 定时全量重建{@link MasterBitmaps}；上下线事件直接改在线位（不查库，不在位图中的陪玩师才加载资料整体写入），
+ * 资料变更事件重新加载该陪玩师后重写其全部位。
+ * 每个事件的修改按陪玩师保留最新一份，重建发布前把重建开始之后的修改重新应用到新位图上，重建期间的事件不会被覆盖。
+ * 召回、过滤和特征提取统一从这里判断在线状态和业务规则，不再各自检查实体字段；
+ * 不在位图中的陪玩师（重建之后新建、尚未收到事件）由调用方退回实体字段判断。
+ */
+@Component
+@Slf4j
+public class MasterBitmapIndex {
+
+    @Autowired
+    private GameMasterMapper gameMasterMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ModelSnapshotHolder<MasterBitmaps> holder =
+            new ModelSnapshotHolder<>("master-bitmaps", MasterBitmaps.EMPTY);
+
+    // 按到达顺序记录的事件修改，同一陪玩师的状态修改和资料修改都要保留；早于最近一次重建开始的在重建后清除。由this保护
+    private final List<Patch> patches = new ArrayList<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        holder.bindTo(meterRegistry);
+        Gauge.builder("recommend.master.bitmap.memory.bytes", holder, h -> h.model().memoryFootprintBytes())
+                .description("陪玩师位图索引估算内存占用")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.algorithm.master-bitmap.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.algorithm.master-bitmap.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建陪玩师位图索引失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建并发布，重建开始之后的事件修改在发布前重新应用
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        MasterBitmaps bitmaps = MasterBitmaps.build(gameMasterMapper.selectList(new LambdaQueryWrapper<GameMaster>()
+                .select(GameMaster::getId, GameMaster::getStatus, GameMaster::getScore,
+                        GameMaster::getOrderCount, GameMaster::getRegion, GameMaster::getGameTypes)));
+        int replayed = 0;
+        // 与事件互斥：重新应用和发布之间不能有事件只改到旧位图
+        synchronized (this) {
+            for (Patch patch : patches) {
+                if (patch.time >= start) {
+                    bitmaps = patch.modifier.apply(bitmaps);
+                    replayed++;
+                }
+            }
+            holder.publish(bitmaps);
+            patches.removeIf(patch -> patch.time < start);
+        }
+        log.info("陪玩师位图索引重建完成，陪玩师: {}，重放增量: {}，耗时: {}ms",
+                bitmaps.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterStatus(MasterStatusEvent event) {
+        if (event.getMasterId() == null) {
+            return;
+        }
+        try {
+            Long masterId = event.getMasterId();
+            long time = System.currentTimeMillis();
+            GameMaster master = event.getStatus() != null && holder.model().ordinalOf(masterId) < 0
+                    ? gameMasterMapper.selectById(masterId) : null;
+            apply(time, master != null
+                    ? bitmaps -> bitmaps.withMaster(master)
+                    : bitmaps -> bitmaps.withStatus(masterId, event.getStatus()));
+        } catch (Exception e) {
+            log.error("增量更新陪玩师位图索引失败，陪玩师ID: {}", event.getMasterId(), e);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterUpdate(MasterUpdateEvent event) {
+        if (event.getMasterId() == null) {
+            return;
+        }
+        try {
+            // 先查出陪玩师，更新函数里只做复制；时间取查询之前，早于重建开始的查询结果不比重建新
+            long time = System.currentTimeMillis();
+            GameMaster master = gameMasterMapper.selectById(event.getMasterId());
+            apply(time,
+                    bitmaps -> master != null ? bitmaps.withMaster(master) : bitmaps.without(event.getMasterId()));
+        } catch (Exception e) {
+            log.error("增量更新陪玩师位图索引失败，陪玩师ID: {}", event.getMasterId(), e);
+        }
+    }
+
+    /**
+     * 当前位图
+     */
+    public MasterBitmaps current() {
+        return holder.model();
+    }
+
+    /**
+     * 陪玩师是否在线：在位图中时取在线位，否则看实体的状态字段
+     */
+    public boolean isOnline(GameMaster master) {
+        MasterBitmaps bitmaps = holder.model();
+        int ordinal = master.getId() != null ? bitmaps.ordinalOf(master.getId()) : -1;
+        if (ordinal >= 0) {
+            return bitmaps.isOnline(ordinal);
+        }
+        return master.getStatus() != null && master.getStatus() == MasterBitmaps.STATUS_ONLINE;
+    }
+
+    private synchronized void apply(long time, UnaryOperator<MasterBitmaps> modifier) {
+        patches.add(new Patch(time, modifier));
+        holder.update(modifier);
+    }
+
+    private static final class Patch {
+        private final long time;
+        private final UnaryOperator<MasterBitmaps> modifier;
+
+        private Patch(long time, UnaryOperator<MasterBitmaps> modifier) {
+            this.time = time;
+            this.modifier = modifier;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.recommend.service.feature;
+
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.utils.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 陪玩师属性位图
+ * 每个陪玩师按加入顺序分配稠密序号，在线、评分≥4.0、订单数≥10、各地区、各游戏类型各是一个以序号为下标的位图；
+ * 过滤条件的组合是位图之间的按位与/或，单个陪玩师的判断是一次取位。
+ * 不可变，增量更新复制出新实例（只复制变化的位图；新陪玩师才复制序号表），陪玩师删除后保留序号、清空各位。
+ */
+public final class MasterBitmaps {
+
+    public static final MasterBitmaps EMPTY = build(Collections.emptyList());
+
+    /**
+     * 在线状态值
+     */
+    public static final int STATUS_ONLINE = 1;
+
+    /**
+     * 评分下限（含）
+     */
+    public static final double MIN_SCORE = 4.0;
+
+    /**
+     * 订单数下限（含）
+     */
+    public static final int MIN_ORDER_COUNT = 10;
+
+    private final LongHashSet ordinals;
+    private final BitSet online;
+    private final BitSet rated;
+    private final BitSet experienced;
+    // 在线 且 评分达标 且 订单数达标
+    private final BitSet eligible;
+    private final Map<String, BitSet> regions;
+    private final Map<String, BitSet> gameTypes;
+
+    private MasterBitmaps(LongHashSet ordinals, BitSet online, BitSet rated, BitSet experienced,
+                          Map<String, BitSet> regions, Map<String, BitSet> gameTypes) {
+        this.ordinals = ordinals;
+        this.online = online;
+        this.rated = rated;
+        this.experienced = experienced;
+        this.eligible = (BitSet) online.clone();
+        this.eligible.and(rated);
+        this.eligible.and(experienced);
+        this.regions = regions;
+        this.gameTypes = gameTypes;
+    }
+
+    public static MasterBitmaps build(List<GameMaster> masters) {
+        LongHashSet ordinals = new LongHashSet(masters.size());
+        BitSet online = new BitSet(masters.size());
+        BitSet rated = new BitSet(masters.size());
+        BitSet experienced = new BitSet(masters.size());
+        Map<String, BitSet> regions = new HashMap<>();
+        Map<String, BitSet> gameTypes = new HashMap<>();
+        for (GameMaster master : masters) {
+            if (master.getId() == null) {
+                continue;
+            }
+            int ordinal = ordinals.addOrGet(master.getId());
+            online.set(ordinal, isOnline(master.getStatus()));
+            rated.set(ordinal, isRated(master));
+            experienced.set(ordinal, isExperienced(master));
+            String region = normalize(master.getRegion());
+            if (region != null) {
+                regions.computeIfAbsent(region, r -> new BitSet()).set(ordinal);
+            }
+            for (String gameType : split(master.getGameTypes())) {
+                gameTypes.computeIfAbsent(gameType, t -> new BitSet()).set(ordinal);
+            }
+        }
+        return new MasterBitmaps(ordinals, online, rated, experienced, regions, gameTypes);
+    }
+
+    /**
+     * 陪玩师的序号，不在位图中时返回-1
+     */
+    public int ordinalOf(long masterId) {
+        return ordinals.indexOf(masterId);
+    }
+
+    public long idAt(int ordinal) {
+        return ordinals.get(ordinal);
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    public boolean isOnline(int ordinal) {
+        return online.get(ordinal);
+    }
+
+    /**
+     * 是否满足业务规则：在线、评分≥4.0、订单数≥10
+     */
+    public boolean isEligible(int ordinal) {
+        return eligible.get(ordinal);
+    }
+
+    /**
+     * 满足业务规则的陪玩师（副本，调用方可以继续按位运算）
+     */
+    public BitSet eligible() {
+        return (BitSet) eligible.clone();
+    }
+
+    /**
+     * 在线陪玩师（副本）
+     */
+    public BitSet online() {
+        return (BitSet) online.clone();
+    }
+
+    /**
+     * 所在地区为region的陪玩师（副本），没有时为空位图
+     */
+    public BitSet region(String region) {
+        String key = normalize(region);
+        BitSet bitmap = key != null ? regions.get(key) : null;
+        return bitmap != null ? (BitSet) bitmap.clone() : new BitSet();
+    }
+
+    /**
+     * 擅长任一游戏类型的陪玩师（各游戏类型位图的按位或）
+     */
+    public BitSet anyGameType(Collection<String> types) {
+        BitSet result = new BitSet();
+        for (String type : types) {
+            BitSet bitmap = gameTypes.get(normalize(type));
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 陪玩师ID数组中序号在mask中置位的，保持原顺序；keepUnknown决定不在位图中的陪玩师是否保留
+     */
+    public long[] filter(long[] masterIds, BitSet mask, boolean keepUnknown) {
+        long[] result = new long[masterIds.length];
+        int count = 0;
+        for (long masterId : masterIds) {
+            int ordinal = ordinals.indexOf(masterId);
+            if (ordinal >= 0 ? mask.get(ordinal) : keepUnknown) {
+                result[count++] = masterId;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 更新陪玩师的在线状态，status为null（已删除）时清空该陪玩师的全部位；
+     * 不在位图中的陪玩师不处理（只置在线位会使其他条件都不满足），由调用方用{@link #withMaster}整体写入
+     */
+    public MasterBitmaps withStatus(long masterId, Integer status) {
+        if (status == null) {
+            return without(masterId);
+        }
+        int ordinal = ordinals.indexOf(masterId);
+        if (ordinal < 0 || online.get(ordinal) == isOnline(status)) {
+            return this;
+        }
+        return new MasterBitmaps(ordinals, with(online, ordinal, isOnline(status)), rated, experienced, regions, gameTypes);
+    }
+
+    /**
+     * 用陪玩师的最新资料重写其全部位
+     */
+    public MasterBitmaps withMaster(GameMaster master) {
+        int ordinal = ordinals.indexOf(master.getId());
+        LongHashSet newOrdinals = ordinal >= 0 ? ordinals : ordinals.copy();
+        int target = ordinal >= 0 ? ordinal : newOrdinals.addOrGet(master.getId());
+        String region = normalize(master.getRegion());
+        List<String> types = split(master.getGameTypes());
+        return new MasterBitmaps(newOrdinals,
+                with(online, target, isOnline(master.getStatus())),
+                with(rated, target, isRated(master)),
+                with(experienced, target, isExperienced(master)),
+                withMembership(regions, target, region != null ? Collections.singletonList(region) : Collections.emptyList()),
+                withMembership(gameTypes, target, types));
+    }
+
+    /**
+     * 清空陪玩师的全部位（序号保留）
+     */
+    public MasterBitmaps without(long masterId) {
+        int ordinal = ordinals.indexOf(masterId);
+        if (ordinal < 0) {
+            return this;
+        }
+        return new MasterBitmaps(ordinals, with(online, ordinal, false), with(rated, ordinal, false),
+                with(experienced, ordinal, false), withMembership(regions, ordinal, Collections.emptyList()),
+                withMembership(gameTypes, ordinal, Collections.emptyList()));
+    }
+
+    public long memoryFootprintBytes() {
+        long bytes = (long) ordinals.size() * (Long.BYTES * 3 + Integer.BYTES * 2);
+        bytes += (online.size() + rated.size() + experienced.size() + eligible.size()) / 8;
+        for (BitSet bitmap : regions.values()) {
+            bytes += bitmap.size() / 8;
+        }
+        for (BitSet bitmap : gameTypes.values()) {
+            bytes += bitmap.size() / 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * 位值不变时返回原位图，否则返回修改后的副本
+     */
+    private static BitSet with(BitSet bitmap, int ordinal, boolean value) {
+        if (bitmap.get(ordinal) == value) {
+            return bitmap;
+        }
+        BitSet copy = (BitSet) bitmap.clone();
+        copy.set(ordinal, value);
+        return copy;
+    }
+
+    /**
+     * 使序号只出现在keys对应的位图中；只复制发生变化的位图
+     */
+    private static Map<String, BitSet> withMembership(Map<String, BitSet> bitmaps, int ordinal, Collection<String> keys) {
+        Map<String, BitSet> result = null;
+        for (Map.Entry<String, BitSet> entry : bitmaps.entrySet()) {
+            boolean member = keys.contains(entry.getKey());
+            if (entry.getValue().get(ordinal) != member) {
+                if (result == null) {
+                    result = new HashMap<>(bitmaps);
+                }
+                result.put(entry.getKey(), with(entry.getValue(), ordinal, member));
+            }
+        }
+        for (String key : keys) {
+            if (!bitmaps.containsKey(key)) {
+                if (result == null) {
+                    result = new HashMap<>(bitmaps);
+                }
+                BitSet bitmap = new BitSet();
+                bitmap.set(ordinal);
+                result.put(key, bitmap);
+            }
+        }
+        return result != null ? result : bitmaps;
+    }
+
+    private static boolean isOnline(Integer status) {
+        return status != null && status == STATUS_ONLINE;
+    }
+
+    private static boolean isRated(GameMaster master) {
+        return master.getScore() != null && master.getScore().doubleValue() >= MIN_SCORE;
+    }
+
+    private static boolean isExperienced(GameMaster master) {
+        return master.getOrderCount() != null && master.getOrderCount() >= MIN_ORDER_COUNT;
+    }
+
+    private static List<String> split(String commaSeparated) {
+        if (commaSeparated == null || commaSeparated.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (String value : commaSeparated.split(",")) {
+            String normalized = normalize(value);
+            if (normalized != null && !values.contains(normalized)) {
+                values.add(normalized);
+            }
+        }
+        return values;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase();
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
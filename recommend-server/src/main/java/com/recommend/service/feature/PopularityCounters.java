@@ -0,0 +1,149 @@
+package com.recommend.service.feature;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一类物品（游戏或陪玩师）的热度计数表
+ * 每个物品保存订单数、互动数和热度分（订单 + 互动×权重，可按半衰期时间衰减），同时维护订单总数、最大订单数和最大热度分，
+ * 读取都是O(1)。热度分以referenceTime为衰减基准存储，读取时再乘以基准时刻到当前的衰减，最大值因此随之等比例衰减。
+ * 读无锁；写入加锁，单个物品的计数是不可变对象，整体替换。
+ */
+public final class PopularityCounters {
+
+    private static final Counter ZERO = new Counter(0, 0, 0.0);
+
+    private final long referenceTime;
+    // 半衰期（天），不大于0时不衰减
+    private final double halfLifeDays;
+    private final double interactionWeight;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // 物品总数（含没有任何计数的物品），用于求平均
+    private volatile int population;
+    private volatile long totalOrders;
+    private volatile long maxOrders;
+    private volatile double maxScore;
+
+    public PopularityCounters(long referenceTime, double halfLifeDays, double interactionWeight) {
+        this.referenceTime = referenceTime;
+        this.halfLifeDays = halfLifeDays;
+        this.interactionWeight = interactionWeight;
+    }
+
+    public boolean decayEnabled() {
+        return halfLifeDays > 0;
+    }
+
+    public long orders(long id) {
+        return counters.getOrDefault(id, ZERO).orders;
+    }
+
+    public long interactions(long id) {
+        return counters.getOrDefault(id, ZERO).interactions;
+    }
+
+    /**
+     * 热度分（已衰减到当前时刻）
+     */
+    public double score(long id) {
+        return counters.getOrDefault(id, ZERO).score * decayToNow();
+    }
+
+    public long maxOrders() {
+        return maxOrders;
+    }
+
+    /**
+     * 最大热度分（已衰减到当前时刻），可直接用于归一化
+     */
+    public double maxScore() {
+        return maxScore * decayToNow();
+    }
+
+    /**
+     * 平均订单数，分母是物品总数；没有物品时为0
+     */
+    public double meanOrders() {
+        int n = Math.max(population, counters.size());
+        return n == 0 ? 0.0 : (double) totalOrders / n;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * 重建时累加单个物品的计数（重建期间先到达的增量已在表中），score已衰减到referenceTime
+     */
+    synchronized void merge(long id, long orders, long interactions, double score) {
+        Counter counter = counters.getOrDefault(id, ZERO).plus(orders, interactions, score);
+        counters.put(id, counter);
+        totalOrders += orders;
+        maxOrders = Math.max(maxOrders, counter.orders);
+        maxScore = Math.max(maxScore, counter.score);
+    }
+
+    synchronized void setPopulation(int population) {
+        this.population = population;
+    }
+
+    /**
+     * 新订单：订单数加1，热度分加上该订单的贡献
+     */
+    synchronized void addOrder(long id, long eventTime) {
+        Counter counter = counters.getOrDefault(id, ZERO).plus(1, 0, decayTo(eventTime));
+        counters.put(id, counter);
+        totalOrders++;
+        maxOrders = Math.max(maxOrders, counter.orders);
+        maxScore = Math.max(maxScore, counter.score);
+    }
+
+    /**
+     * 新互动：互动数加1，热度分加上interactionWeight的贡献
+     */
+    synchronized void addInteraction(long id, long eventTime) {
+        Counter counter = counters.getOrDefault(id, ZERO).plus(0, 1, interactionWeight * decayTo(eventTime));
+        counters.put(id, counter);
+        maxScore = Math.max(maxScore, counter.score);
+    }
+
+    /**
+     * 发生在eventTime的一次计数衰减到referenceTime后的值
+     */
+    double decayTo(long eventTime) {
+        return decay(referenceTime - eventTime);
+    }
+
+    double interactionWeight() {
+        return interactionWeight;
+    }
+
+    private double decayToNow() {
+        return decay(System.currentTimeMillis() - referenceTime);
+    }
+
+    private double decay(long elapsedMillis) {
+        if (halfLifeDays <= 0) {
+            return 1.0;
+        }
+        double elapsedDays = elapsedMillis / (24.0 * 60 * 60 * 1000);
+        return Math.exp(-Math.log(2) * elapsedDays / halfLifeDays);
+    }
+
+    private static final class Counter {
+        private final long orders;
+        private final long interactions;
+        private final double score;
+
+        private Counter(long orders, long interactions, double score) {
+            this.orders = orders;
+            this.interactions = interactions;
+            this.score = score;
+        }
+
+        private Counter plus(long orders, long interactions, double score) {
+            return new Counter(this.orders + orders, this.interactions + interactions, this.score + score);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.recommend.service.feature;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommend.common.entity.Order;
+import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.event.OrderEvent;
+import com.recommend.common.event.UserBehaviorEvent;
+import com.recommend.service.mapper.GameMapper;
+import com.recommend.service.mapper.GameMasterMapper;
+import com.recommend.service.mapper.OrderMapper;
+import com.recommend.service.mapper.UserBehaviorMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 游戏/陪玩师热度计数
+ * 新订单、新行为到达时累加计数；定时用GROUP BY统计与数据库对账，全量重建计数表。
+ * 对账以开始时刻为水位，只统计水位之前创建的订单和行为；对账期间到达的增量记入日志，
+ * 发布前把其中水位之后创建的重放到新计数表上，既不丢失也不重复计数。
+ * 打分时直接读内存中的计数、平均值和最大值，不再为热度逐个游戏查订单。
+ */
+@Component
+@Slf4j
+public class PopularityStore {
+
+    // 行为目标类型：陪玩师
+    private static final String TARGET_TYPE_MASTER = "1";
+
+    // 行为目标类型：游戏
+    private static final String TARGET_TYPE_GAME = "2";
+
+    private static final long HALF_DAY_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private UserBehaviorMapper userBehaviorMapper;
+
+    @Autowired
+    private GameMapper gameMapper;
+
+    @Autowired
+    private GameMasterMapper gameMasterMapper;
+
+    // 热度分的半衰期（天），0表示不衰减，热度分为全部订单 + 全部互动×权重
+    @Value("${recommend.algorithm.popularity.half-life-days:0}")
+    private double halfLifeDays;
+
+    // 开启衰减时，对账统计热度分的时间窗口（天）
+    @Value("${recommend.algorithm.popularity.history-days:90}")
+    private int historyDays;
+
+    // 一次互动（浏览、收藏等行为）相对一个订单的热度权重
+    @Value("${recommend.algorithm.popularity.interaction-weight:0.1}")
+    private double interactionWeight;
+
+    private volatile State state = new State(new PopularityCounters(System.currentTimeMillis(), 0, 0),
+            new PopularityCounters(System.currentTimeMillis(), 0, 0));
+
+    // 对账期间新到达的订单、行为（不在对账时为null），由journalLock保护
+    private List<Order> orderJournal;
+    private List<UserBehavior> behaviorJournal;
+    private final Object journalLock = new Object();
+
+    /**
+     * 定时与数据库对账
+     */
+    @Scheduled(initialDelayString = "${recommend.algorithm.popularity.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.algorithm.popularity.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建热度计数失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建：订单、行为各一次GROUP BY统计（开启衰减时再各一次按日统计），统计范围截止到水位
+     */
+    public synchronized void rebuild() {
+        // 先打开日志再取水位：日志打开前到达的增量创建时间都早于水位，已包含在统计中
+        synchronized (journalLock) {
+            orderJournal = new ArrayList<>();
+            behaviorJournal = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        Date watermark = new Date(start);
+        State rebuilt = new State(new PopularityCounters(start, halfLifeDays, interactionWeight),
+                new PopularityCounters(start, halfLifeDays, interactionWeight));
+        try {
+            // 1. 订单数、互动数
+            Map<Long, Long> gameOrders = sumByTarget(orderMapper.countGroupByGame(watermark));
+            Map<Long, Long> masterOrders = sumByTarget(orderMapper.countGroupByMaster(watermark));
+            Map<Long, Long> gameInteractions = new HashMap<>();
+            Map<Long, Long> masterInteractions = new HashMap<>();
+            List<Map<String, Object>> behaviorRows = userBehaviorMapper.selectMaps(new QueryWrapper<UserBehavior>()
+                    .select("target_type", "target_id", "COUNT(*) AS interaction_count")
+                    .lt("create_time", watermark)
+                    .groupBy("target_type", "target_id"));
+            for (Map<String, Object> row : behaviorRows) {
+                Map<Long, Long> target = interactionsOf(row, gameInteractions, masterInteractions);
+                if (target != null && row.get("target_id") != null) {
+                    target.merge(toLong(row.get("target_id")), toLong(row.get("interaction_count")), Long::sum);
+                }
+            }
+
+            // 2. 热度分：不衰减时由计数直接得出，衰减时按日统计窗口内的订单和行为
+            Map<Long, Double> gameScores = new HashMap<>();
+            Map<Long, Double> masterScores = new HashMap<>();
+            if (rebuilt.games.decayEnabled()) {
+                Date from = new Date(start - TimeUnit.DAYS.toMillis(historyDays));
+                addDailyScores(rebuilt.games, orderMapper.countDailyByGame(from, watermark), "order_count", 1.0,
+                        gameScores);
+                addDailyScores(rebuilt.masters, orderMapper.countDailyByMaster(from, watermark), "order_count", 1.0,
+                        masterScores);
+                List<Map<String, Object>> dailyBehaviors = userBehaviorMapper.selectMaps(new QueryWrapper<UserBehavior>()
+                        .select("target_type", "target_id", "DATE(create_time) AS count_day", "COUNT(*) AS interaction_count")
+                        .ge("create_time", from)
+                        .lt("create_time", watermark)
+                        .groupBy("target_type", "target_id", "DATE(create_time)"));
+                for (Map<String, Object> row : dailyBehaviors) {
+                    if (TARGET_TYPE_GAME.equals(String.valueOf(row.get("target_type")))) {
+                        addDailyScore(rebuilt.games, row, "interaction_count", interactionWeight, gameScores);
+                    } else if (TARGET_TYPE_MASTER.equals(String.valueOf(row.get("target_type")))) {
+                        addDailyScore(rebuilt.masters, row, "interaction_count", interactionWeight, masterScores);
+                    }
+                }
+            }
+
+            // 3. 写入新计数表，物品总数用于求平均
+            fill(rebuilt.games, gameOrders, gameInteractions, gameScores);
+            fill(rebuilt.masters, masterOrders, masterInteractions, masterScores);
+            rebuilt.games.setPopulation(Math.toIntExact(gameMapper.selectCount(null)));
+            rebuilt.masters.setPopulation(Math.toIntExact(gameMasterMapper.selectCount(null)));
+
+            // 4. 重放对账期间到达、水位之后创建的增量并发布；持锁期间新到达的增量等发布后写入新版本
+            int replayed = 0;
+            synchronized (journalLock) {
+                for (Order order : orderJournal) {
+                    if (!before(order.getCreateTime(), start)) {
+                        applyOrder(rebuilt, order);
+                        replayed++;
+                    }
+                }
+                for (UserBehavior behavior : behaviorJournal) {
+                    if (!before(behavior.getCreateTime(), start)) {
+                        applyBehavior(rebuilt, behavior);
+                        replayed++;
+                    }
+                }
+                state = rebuilt;
+            }
+            log.info("热度计数重建完成，游戏: {}，陪玩师: {}，最大游戏订单数: {}，最大陪玩师订单数: {}，重放增量: {}，耗时: {}ms",
+                    rebuilt.games.size(), rebuilt.masters.size(), rebuilt.games.maxOrders(),
+                    rebuilt.masters.maxOrders(), replayed, System.currentTimeMillis() - start);
+        } finally {
+            synchronized (journalLock) {
+                orderJournal = null;
+                behaviorJournal = null;
+            }
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrder(OrderEvent event) {
+        // 订单更新（支付、完成、评价等）不改变订单数
+        if (!event.isCreated()) {
+            return;
+        }
+        Order order = event.getOrder();
+        try {
+            synchronized (journalLock) {
+                applyOrder(state, order);
+                if (orderJournal != null) {
+                    orderJournal.add(order);
+                }
+            }
+        } catch (Exception e) {
+            log.error("增量更新热度计数失败，订单ID: {}", order.getId(), e);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserBehavior(UserBehaviorEvent event) {
+        UserBehavior behavior = event.getBehavior();
+        try {
+            synchronized (journalLock) {
+                applyBehavior(state, behavior);
+                if (behaviorJournal != null) {
+                    behaviorJournal.add(behavior);
+                }
+            }
+        } catch (Exception e) {
+            log.error("增量更新热度计数失败，用户ID: {}, 目标ID: {}", behavior.getUserId(), behavior.getTargetId(), e);
+        }
+    }
+
+    /**
+     * 游戏热度计数
+     */
+    public PopularityCounters games() {
+        return state.games;
+    }
+
+    /**
+     * 陪玩师热度计数
+     */
+    public PopularityCounters masters() {
+        return state.masters;
+    }
+
+    private static void applyOrder(State target, Order order) {
+        long time = order.getCreateTime() != null ? order.getCreateTime().getTime() : System.currentTimeMillis();
+        if (order.getGameId() != null) {
+            target.games.addOrder(order.getGameId(), time);
+        }
+        if (order.getMasterId() != null) {
+            target.masters.addOrder(order.getMasterId(), time);
+        }
+    }
+
+    private static void applyBehavior(State target, UserBehavior behavior) {
+        if (behavior.getTargetId() == null) {
+            return;
+        }
+        long time = behavior.getCreateTime() != null ? behavior.getCreateTime().getTime() : System.currentTimeMillis();
+        if (TARGET_TYPE_GAME.equals(behavior.getTargetType())) {
+            target.games.addInteraction(behavior.getTargetId(), time);
+        } else if (TARGET_TYPE_MASTER.equals(behavior.getTargetType())) {
+            target.masters.addInteraction(behavior.getTargetId(), time);
+        }
+    }
+
+    /**
+     * 创建时间早于水位（已包含在对账统计中）；没有创建时间的记录不在统计中，按水位之后处理
+     */
+    private static boolean before(Date createTime, long watermark) {
+        return createTime != null && createTime.getTime() < watermark;
+    }
+
+    private static void fill(PopularityCounters counters, Map<Long, Long> orders, Map<Long, Long> interactions,
+                             Map<Long, Double> scores) {
+        Set<Long> ids = new HashSet<>(orders.keySet());
+        ids.addAll(interactions.keySet());
+        ids.addAll(scores.keySet());
+        for (Long id : ids) {
+            long orderCount = orders.getOrDefault(id, 0L);
+            long interactionCount = interactions.getOrDefault(id, 0L);
+            double score = counters.decayEnabled()
+                    ? scores.getOrDefault(id, 0.0)
+                    : orderCount + counters.interactionWeight() * interactionCount;
+            counters.merge(id, orderCount, interactionCount, score);
+        }
+    }
+
+    private static void addDailyScores(PopularityCounters counters, List<Map<String, Object>> rows, String countColumn,
+                                       double weight, Map<Long, Double> scores) {
+        for (Map<String, Object> row : rows) {
+            addDailyScore(counters, row, countColumn, weight, scores);
+        }
+    }
+
+    /**
+     * 同一天的计数按当天正午衰减
+     */
+    private static void addDailyScore(PopularityCounters counters, Map<String, Object> row, String countColumn,
+                                      double weight, Map<Long, Double> scores) {
+        Object id = row.get("target_id");
+        Object day = row.get("count_day");
+        if (id == null || day == null) {
+            return;
+        }
+        double contribution = weight * toLong(row.get(countColumn)) * counters.decayTo(dayMillis(day) + HALF_DAY_MILLIS);
+        scores.merge(toLong(id), contribution, Double::sum);
+    }
+
+    private static Map<Long, Long> interactionsOf(Map<String, Object> row, Map<Long, Long> games,
+                                                  Map<Long, Long> masters) {
+        String targetType = String.valueOf(row.get("target_type"));
+        if (TARGET_TYPE_GAME.equals(targetType)) {
+            return games;
+        } else if (TARGET_TYPE_MASTER.equals(targetType)) {
+            return masters;
+        }
+        return null;
+    }
+
+    private static Map<Long, Long> sumByTarget(List<Map<String, Object>> rows) {
+        Map<Long, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Map<String, Object> row : rows) {
+            Object id = row.get("target_id");
+            if (id != null) {
+                counts.merge(toLong(id), toLong(row.get("order_count")), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static long dayMillis(Object day) {
+        if (day instanceof Date) {
+            return ((Date) day).getTime();
+        }
+        if (day instanceof LocalDate) {
+            return ((LocalDate) day).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return LocalDate.parse(day.toString()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 一个版本的游戏、陪玩师计数表
+     */
+    private static final class State {
+        private final PopularityCounters games;
+        private final PopularityCounters masters;
+
+        private State(PopularityCounters games, PopularityCounters masters) {
+            this.games = games;
+            this.masters = masters;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.recommend.service.feature;
+
+import java.util.Arrays;
+
+/**
+ * 标签统计表
+ * 按标签ID升序保存用户标签数、陪玩师标签数（文档频率）和预先算好的IDF因子，构建后只读；
+ * 单个标签变化时复制出新表（标签表只有几百到几千行）。
+ */
+public final class TagStatistics {
+
+    public static final TagStatistics EMPTY = new TagStatistics(new long[0], new int[0], new int[0], 0);
+
+    private final long[] tagIds;
+    private final int[] userCounts;
+    private final int[] masterCounts;
+    private final float[] idfFactors;
+    // 系统中的标签总数
+    private final int totalTags;
+
+    /**
+     * @param tagIds 升序排列的标签ID
+     */
+    public TagStatistics(long[] tagIds, int[] userCounts, int[] masterCounts, int totalTags) {
+        this.tagIds = tagIds;
+        this.userCounts = userCounts;
+        this.masterCounts = masterCounts;
+        this.totalTags = totalTags;
+        this.idfFactors = new float[tagIds.length];
+        for (int i = 0; i < tagIds.length; i++) {
+            idfFactors[i] = (float) idfFactor(userCounts[i] + masterCounts[i], totalTags);
+        }
+    }
+
+    public int tagCount() {
+        return tagIds.length;
+    }
+
+    public int totalTags() {
+        return totalTags;
+    }
+
+    /**
+     * 标签使用次数（用户标签数 + 陪玩师标签数），未知标签返回0
+     */
+    public int usageCount(long tagId) {
+        int idx = Arrays.binarySearch(tagIds, tagId);
+        return idx >= 0 ? userCounts[idx] + masterCounts[idx] : 0;
+    }
+
+    /**
+     * 标签的TF-IDF因子，稀有标签更高，范围约[0.5, 1.0]；未使用或未知的标签返回1.0
+     */
+    public double idfFactor(long tagId) {
+        int idx = Arrays.binarySearch(tagIds, tagId);
+        return idx >= 0 ? idfFactors[idx] : 1.0;
+    }
+
+    /**
+     * 替换单个标签的计数（标签不存在时插入），同时更新标签总数，返回新表
+     */
+    public TagStatistics withCounts(long tagId, int userCount, int masterCount, int newTotalTags) {
+        int idx = Arrays.binarySearch(tagIds, tagId);
+        if (idx >= 0) {
+            int[] users = userCounts.clone();
+            int[] masters = masterCounts.clone();
+            users[idx] = userCount;
+            masters[idx] = masterCount;
+            return new TagStatistics(tagIds, users, masters, newTotalTags);
+        }
+        int insertAt = -idx - 1;
+        return new TagStatistics(insert(tagIds, insertAt, tagId), insert(userCounts, insertAt, userCount),
+                insert(masterCounts, insertAt, masterCount), newTotalTags);
+    }
+
+    /**
+     * 与原先按标签逐次查询时的公式一致：0.5 + 0.5 * log(总标签数/使用次数) / log(总标签数)
+     */
+    static double idfFactor(int usage, int totalTags) {
+        if (usage == 0 || totalTags <= 1) {
+            return 1.0;
+        }
+        double idf = Math.log((double) totalTags / usage);
+        return 0.5 + 0.5 * idf / Math.log(totalTags);
+    }
+
+    private static long[] insert(long[] values, int at, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+
+    private static int[] insert(int[] values, int at, int value) {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+package com.recommend.service.feature;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommend.algorithm.model.ModelSnapshotHolder;
+import com.recommend.algorithm.model.UpdateJournal;
+import com.recommend.common.entity.GameMasterTag;
+import com.recommend.common.entity.UserTag;
+import com.recommend.common.event.TagUsageEvent;
+import com.recommend.service.mapper.GameMasterTagMapper;
+import com.recommend.service.mapper.TagMapper;
+import com.recommend.service.mapper.UserTagMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 标签统计表
+ * 定时用两条GROUP BY统计全量重建{@link TagStatistics}，user_tag/game_master_tag变更后只重算受影响标签的计数，
+ * 重建期间重算过的标签记入日志，新表发布后再重算一次，不会被重建的结果覆盖；
+ * 训练和打分时直接读内存中的表，不再为标签频率和标签总数查库。
+ */
+@Component
+@Slf4j
+public class TagStatisticsStore {
+
+    private static final String COUNT_COLUMN = "usage_count";
+
+    @Autowired
+    private TagMapper tagMapper;
+
+    @Autowired
+    private UserTagMapper userTagMapper;
+
+    @Autowired
+    private GameMasterTagMapper gameMasterTagMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ModelSnapshotHolder<TagStatistics> holder =
+            new ModelSnapshotHolder<>("tag-statistics", TagStatistics.EMPTY);
+
+    // 重建期间增量重算过的标签，新表发布后重放
+    private final UpdateJournal journal = new UpdateJournal();
+
+    @PostConstruct
+    public void registerMetrics() {
+        holder.bindTo(meterRegistry);
+    }
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.algorithm.tag-statistics.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.algorithm.tag-statistics.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建标签统计表失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建并发布
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        journal.open();
+        try {
+            publishRebuilt();
+        } catch (RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        Set<Long> replayed = journal.close();
+        if (!replayed.isEmpty()) {
+            int totalTags = Math.toIntExact(tagMapper.selectCount(null));
+            for (Long tagId : replayed) {
+                refreshTag(tagId, totalTags);
+            }
+        }
+        TagStatistics statistics = holder.model();
+        log.info("标签统计表重建完成，标签总数: {}，已使用标签: {}，重放标签: {}，耗时: {}ms",
+                statistics.totalTags(), statistics.tagCount(), replayed.size(), System.currentTimeMillis() - start);
+    }
+
+    private void publishRebuilt() {
+        Map<Long, Integer> userCounts = countByTag(userTagMapper.selectMaps(
+                new QueryWrapper<UserTag>().select("tag_id", "COUNT(*) AS " + COUNT_COLUMN).groupBy("tag_id")));
+        Map<Long, Integer> masterCounts = countByTag(gameMasterTagMapper.selectMaps(
+                new QueryWrapper<GameMasterTag>().select("tag_id", "COUNT(*) AS " + COUNT_COLUMN).groupBy("tag_id")));
+        int totalTags = Math.toIntExact(tagMapper.selectCount(null));
+
+        TreeSet<Long> tagIds = new TreeSet<>(userCounts.keySet());
+        tagIds.addAll(masterCounts.keySet());
+        long[] ids = new long[tagIds.size()];
+        int[] users = new int[ids.length];
+        int[] masters = new int[ids.length];
+        int i = 0;
+        for (Long tagId : tagIds) {
+            ids[i] = tagId;
+            users[i] = userCounts.getOrDefault(tagId, 0);
+            masters[i] = masterCounts.getOrDefault(tagId, 0);
+            i++;
+        }
+        holder.publish(new TagStatistics(ids, users, masters, totalTags));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTagUsage(TagUsageEvent event) {
+        try {
+            if (event.getTagIds() == null) {
+                rebuild();
+                return;
+            }
+            int totalTags = Math.toIntExact(tagMapper.selectCount(null));
+            for (Long tagId : event.getTagIds()) {
+                if (tagId == null) {
+                    continue;
+                }
+                journal.record(tagId);
+                refreshTag(tagId, totalTags);
+            }
+        } catch (Exception e) {
+            log.error("增量更新标签统计表失败，标签: {}", event.getTagIds(), e);
+        }
+    }
+
+    /**
+     * 重算单个标签的计数；先查出计数，更新函数里只做复制
+     */
+    private void refreshTag(Long tagId, int totalTags) {
+        int userCount = Math.toIntExact(userTagMapper.selectCount(
+                new LambdaQueryWrapper<UserTag>().eq(UserTag::getTagId, tagId)));
+        int masterCount = Math.toIntExact(gameMasterTagMapper.selectCount(
+                new LambdaQueryWrapper<GameMasterTag>().eq(GameMasterTag::getTagId, tagId)));
+        holder.update(statistics -> statistics.withCounts(tagId, userCount, masterCount, totalTags));
+    }
+
+    /**
+     * 当前标签统计表
+     */
+    public TagStatistics current() {
+        return holder.model();
+    }
+
+    /**
+     * 标签的TF-IDF因子
+     */
+    public double idfFactor(Long tagId) {
+        return tagId != null ? holder.model().idfFactor(tagId) : 1.0;
+    }
+
+    private static Map<Long, Integer> countByTag(List<Map<String, Object>> rows) {
+        Map<Long, Integer> counts = new HashMap<>(rows.size() * 2);
+        for (Map<String, Object> row : rows) {
+            Object tagId = row.get("tag_id");
+            Object count = row.get(COUNT_COLUMN);
+            if (tagId instanceof Number && count instanceof Number) {
+                counts.put(((Number) tagId).longValue(), ((Number) count).intValue());
+            }
+        }
+        return counts;
+    }
+}
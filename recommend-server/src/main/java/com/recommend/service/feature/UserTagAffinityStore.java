@@ -0,0 +1,369 @@
+package com.recommend.service.feature;
+
+import com.recommend.common.entity.GameMasterTag;
+import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.event.UserBehaviorEvent;
+import com.recommend.service.GameMasterTagService;
+import com.recommend.service.TagService;
+import com.recommend.service.mapper.GameMasterTagMapper;
+import com.recommend.service.mapper.UserBehaviorMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户-标签行为亲和度
+ * 亲和度 = Σ 行为类型权重 × 时间衰减（半衰期half-life-days），求和范围是用户对带有该标签的陪玩师/游戏的全部行为。
+ * 全量重建时流式遍历一次user_behavior，与内存中的 目标→标签 表关联；新行为到达时只累加该行为的贡献。
+ * 重建以开始时刻为水位，只遍历水位之前创建的行为；重建期间到达的行为记入日志，发布前重放其中水位之后创建的。
+ * 存储值以重建时刻为基准衰减，读取时再乘以基准时刻到当前的衰减，因此增量累加与全量结果一致。
+ */
+@Component
+@Slf4j
+public class UserTagAffinityStore {
+
+    // 行为目标类型：陪玩师
+    private static final String TARGET_TYPE_MASTER = "1";
+
+    // 行为目标类型：游戏
+    private static final String TARGET_TYPE_GAME = "2";
+
+    private static final long[] NO_TAGS = new long[0];
+
+    @Autowired
+    private UserBehaviorMapper userBehaviorMapper;
+
+    @Autowired
+    private GameMasterTagMapper gameMasterTagMapper;
+
+    @Autowired
+    private GameMasterTagService gameMasterTagService;
+
+    @Autowired
+    private TagService tagService;
+
+    // 参与计算的行为时间窗口（天）
+    @Value("${recommend.algorithm.user-tag-affinity.history-days:180}")
+    private int historyDays;
+
+    // 行为权重的半衰期（天）
+    @Value("${recommend.algorithm.user-tag-affinity.half-life-days:30}")
+    private double halfLifeDays;
+
+    private volatile State state = new State(System.currentTimeMillis());
+
+    // 全量重建期间新到达的行为（不在重建时为null），由journalLock保护
+    private List<UserBehavior> journal;
+    private final Object journalLock = new Object();
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.algorithm.user-tag-affinity.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.algorithm.user-tag-affinity.refresh-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建用户标签亲和度失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建：一次流式遍历时间窗口内、水位之前的行为
+     */
+    public synchronized void rebuild() {
+        // 先打开日志再取水位：日志打开前到达的行为创建时间都早于水位，已包含在遍历中
+        synchronized (journalLock) {
+            journal = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        State rebuilt = new State(start);
+        try {
+            // 1. 目标→标签表
+            Map<Long, long[]> masterTags = loadMasterTags();
+            rebuilt.masterTags.putAll(masterTags);
+
+            // 2. 流式遍历行为，按用户累加
+            Map<Long, Map<Long, Double>> sums = new HashMap<>();
+            long[] rows = new long[1];
+            Date from = new Date(start - TimeUnit.DAYS.toMillis(historyDays));
+            userBehaviorMapper.scanByTimeRange(from, new Date(start - 1), context -> {
+                UserBehavior behavior = context.getResultObject();
+                rows[0]++;
+                if (behavior.getUserId() == null) {
+                    return;
+                }
+                // 陪玩师标签已整表加载，不在表中的陪玩师没有标签，不再逐个查询
+                long[] tags = TARGET_TYPE_MASTER.equals(behavior.getTargetType())
+                        ? masterTags.getOrDefault(behavior.getTargetId(), NO_TAGS)
+                        : targetTags(rebuilt, behavior);
+                if (tags.length == 0) {
+                    return;
+                }
+                double contribution = contribution(rebuilt, behavior);
+                Map<Long, Double> userSums = sums.computeIfAbsent(behavior.getUserId(), id -> new HashMap<>());
+                for (long tagId : tags) {
+                    userSums.merge(tagId, contribution, Double::sum);
+                }
+            });
+
+            // 3. 压缩成每个用户一组有序数组
+            for (Map.Entry<Long, Map<Long, Double>> entry : sums.entrySet()) {
+                rebuilt.users.put(entry.getKey(), TagAffinity.of(entry.getValue()));
+            }
+
+            // 4. 重放重建期间到达、水位之后创建的行为并发布；没有创建时间的行为不在遍历中，一并重放
+            int replayed = 0;
+            synchronized (journalLock) {
+                for (UserBehavior behavior : journal) {
+                    if (behavior.getCreateTime() == null || behavior.getCreateTime().getTime() >= start) {
+                        apply(rebuilt, behavior);
+                        replayed++;
+                    }
+                }
+                state = rebuilt;
+            }
+            log.info("用户标签亲和度重建完成，行为: {}，用户: {}，陪玩师标签表: {}，重放行为: {}，耗时: {}ms",
+                    rows[0], rebuilt.users.size(), masterTags.size(), replayed, System.currentTimeMillis() - start);
+        } finally {
+            synchronized (journalLock) {
+                journal = null;
+            }
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserBehavior(UserBehaviorEvent event) {
+        UserBehavior behavior = event.getBehavior();
+        try {
+            synchronized (journalLock) {
+                apply(state, behavior);
+                if (journal != null) {
+                    journal.add(behavior);
+                }
+            }
+        } catch (Exception e) {
+            log.error("增量更新用户标签亲和度失败，用户ID: {}", behavior.getUserId(), e);
+        }
+    }
+
+    /**
+     * 用户对标签的行为亲和度（已衰减到当前时刻），没有相关行为时为0
+     */
+    public double affinity(Long userId, Long tagId) {
+        State current = state;
+        TagAffinity affinity = current.users.get(userId);
+        if (affinity == null || tagId == null) {
+            return 0.0;
+        }
+        return affinity.get(tagId) * decay(System.currentTimeMillis() - current.referenceTime);
+    }
+
+    /**
+     * 只用until之前时间窗口内的行为现场计算用户各标签的亲和度（衰减到until），不读写亲和度表；
+     * 供离线评估的评估用模型使用
+     *
+     * @param behaviors 该用户的行为
+     */
+    public Map<Long, Double> affinitiesBefore(List<UserBehavior> behaviors, long until) {
+        State current = state;
+        long from = until - TimeUnit.DAYS.toMillis(historyDays);
+        Map<Long, Double> sums = new HashMap<>();
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getCreateTime() == null) {
+                continue;
+            }
+            long time = behavior.getCreateTime().getTime();
+            if (time < from || time >= until) {
+                continue;
+            }
+            double contribution = behaviorWeight(behavior.getType()) * decay(until - time);
+            for (long tagId : targetTags(current, behavior)) {
+                sums.merge(tagId, contribution, Double::sum);
+            }
+        }
+        return sums;
+    }
+
+    private void apply(State target, UserBehavior behavior) {
+        if (behavior.getUserId() == null) {
+            return;
+        }
+        long[] tags = targetTags(target, behavior);
+        if (tags.length == 0) {
+            return;
+        }
+        TagAffinity delta = TagAffinity.single(tags, contribution(target, behavior));
+        target.users.merge(behavior.getUserId(), delta, TagAffinity::plus);
+    }
+
+    /**
+     * 行为贡献值，按类型加权并衰减到该版本的基准时刻
+     */
+    private double contribution(State target, UserBehavior behavior) {
+        double weight = behaviorWeight(behavior.getType());
+        if (behavior.getCreateTime() == null) {
+            // 与原先一致：缺少时间的记录按半衰减处理
+            return weight * 0.5;
+        }
+        return weight * decay(target.referenceTime - behavior.getCreateTime().getTime());
+    }
+
+    private long[] targetTags(State target, UserBehavior behavior) {
+        Long targetId = behavior.getTargetId();
+        if (targetId == null) {
+            return NO_TAGS;
+        }
+        if (TARGET_TYPE_MASTER.equals(behavior.getTargetType())) {
+            // 重建后新增的陪玩师单独查询一次
+            return target.masterTags.computeIfAbsent(targetId, id -> toArray(
+                    gameMasterTagService.getGameMasterTagsByMasterId(id).stream()
+                            .filter(masterTag -> masterTag.getTagId() != null)
+                            .mapToLong(GameMasterTag::getTagId).toArray()));
+        } else if (TARGET_TYPE_GAME.equals(behavior.getTargetType())) {
+            return target.gameTags.computeIfAbsent(targetId, id -> toArray(
+                    tagService.getGameTags(id).stream().filter(tagId -> tagId != null)
+                            .mapToLong(Long::longValue).toArray()));
+        }
+        return NO_TAGS;
+    }
+
+    private Map<Long, long[]> loadMasterTags() {
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (GameMasterTag masterTag : gameMasterTagMapper.selectList(null)) {
+            if (masterTag.getMasterId() != null && masterTag.getTagId() != null) {
+                grouped.computeIfAbsent(masterTag.getMasterId(), id -> new ArrayList<>()).add(masterTag.getTagId());
+            }
+        }
+        Map<Long, long[]> masterTags = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<Long, List<Long>> entry : grouped.entrySet()) {
+            masterTags.put(entry.getKey(), toArray(entry.getValue().stream().mapToLong(Long::longValue).toArray()));
+        }
+        return masterTags;
+    }
+
+    /**
+     * 去重排序后的标签数组
+     */
+    private static long[] toArray(long[] tags) {
+        return tags.length == 0 ? NO_TAGS : Arrays.stream(tags).sorted().distinct().toArray();
+    }
+
+    /**
+     * 行为类型权重：浏览0.2，收藏0.5，下单1.0，其他0.1
+     */
+    private static double behaviorWeight(String type) {
+        if (type == null) {
+            return 0.1;
+        }
+        switch (type) {
+            case "1": // 浏览
+                return 0.2;
+            case "2": // 收藏
+                return 0.5;
+            case "3": // 下单
+                return 1.0;
+            default:
+                return 0.1;
+        }
+    }
+
+    private double decay(long elapsedMillis) {
+        double elapsedDays = elapsedMillis / (24.0 * 60 * 60 * 1000);
+        return Math.exp(-Math.log(2) * elapsedDays / halfLifeDays);
+    }
+
+    /**
+     * 一个版本的亲和度表，所有值以referenceTime为衰减基准
+     */
+    private static final class State {
+        private final long referenceTime;
+        private final Map<Long, TagAffinity> users = new ConcurrentHashMap<>();
+        private final Map<Long, long[]> masterTags = new ConcurrentHashMap<>();
+        private final Map<Long, long[]> gameTags = new ConcurrentHashMap<>();
+
+        private State(long referenceTime) {
+            this.referenceTime = referenceTime;
+        }
+    }
+
+    /**
+     * 单个用户的标签亲和度向量：标签ID升序 + 对应值，不可变，累加时生成新对象
+     */
+    private static final class TagAffinity {
+        private final long[] tagIds;
+        private final double[] values;
+
+        private TagAffinity(long[] tagIds, double[] values) {
+            this.tagIds = tagIds;
+            this.values = values;
+        }
+
+        private static TagAffinity of(Map<Long, Double> sums) {
+            long[] tagIds = new long[sums.size()];
+            int n = 0;
+            for (Long tagId : sums.keySet()) {
+                tagIds[n++] = tagId;
+            }
+            Arrays.sort(tagIds);
+            double[] values = new double[tagIds.length];
+            for (int i = 0; i < tagIds.length; i++) {
+                values[i] = sums.get(tagIds[i]);
+            }
+            return new TagAffinity(tagIds, values);
+        }
+
+        /**
+         * @param tagIds 升序且不重复
+         */
+        private static TagAffinity single(long[] tagIds, double value) {
+            double[] values = new double[tagIds.length];
+            Arrays.fill(values, value);
+            return new TagAffinity(tagIds, values);
+        }
+
+        private double get(long tagId) {
+            int idx = Arrays.binarySearch(tagIds, tagId);
+            return idx >= 0 ? values[idx] : 0.0;
+        }
+
+        /**
+         * 两个有序向量逐项相加
+         */
+        private static TagAffinity plus(TagAffinity a, TagAffinity b) {
+            long[] tagIds = new long[a.tagIds.length + b.tagIds.length];
+            double[] values = new double[tagIds.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.tagIds.length || j < b.tagIds.length) {
+                if (j >= b.tagIds.length || (i < a.tagIds.length && a.tagIds[i] < b.tagIds[j])) {
+                    tagIds[n] = a.tagIds[i];
+                    values[n++] = a.values[i++];
+                } else if (i >= a.tagIds.length || b.tagIds[j] < a.tagIds[i]) {
+                    tagIds[n] = b.tagIds[j];
+                    values[n++] = b.values[j++];
+                } else {
+                    tagIds[n] = a.tagIds[i];
+                    values[n++] = a.values[i++] + b.values[j++];
+                }
+            }
+            return new TagAffinity(Arrays.copyOf(tagIds, n), Arrays.copyOf(values, n));
+        }
+    }
+}
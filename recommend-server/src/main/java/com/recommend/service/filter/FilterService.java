@@ -3,6 +3,8 @@ package com.recommend.service.filter;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
 import com.recommend.service.UserProfileService;
+import com.recommend.service.feature.MasterBitmapIndex;
+import com.recommend.service.feature.MasterBitmaps;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,34 +20,49 @@ public class FilterService {
     @Autowired
     private UserProfileService userProfileService;
 
+    @Autowired
+    private MasterBitmapIndex masterBitmapIndex;
+
     public List<GameMaster> filterAndRerank(List<GameMaster> candidates, Long userId) {
         // 1. 获取用户画像
         UserProfile userProfile = userProfileService.getUserProfile(userId);
 
-        // 2. 应用过滤规则
+        // 2. 用位图一次求出满足业务规则和游戏类型偏好的陪玩师：业务规则位图 AND 偏好游戏类型位图的并集
+        MasterBitmaps bitmaps = masterBitmapIndex.current();
+        BitSet allowed = bitmaps.eligible();
+        if (userProfile.getGameTypes() != null && !userProfile.getGameTypes().isEmpty()) {
+            allowed.and(bitmaps.anyGameType(Arrays.asList(userProfile.getGameTypes().split(","))));
+        }
+
+        // 3. 应用过滤规则
         List<GameMaster> filtered = candidates.stream()
-                .filter(master -> applyFilterRules(master, userProfile))
+                .filter(master -> applyFilterRules(master, userProfile, bitmaps, allowed))
                 .collect(Collectors.toList());
 
-        // 3. 应用多样性规则
+        // 4. 应用多样性规则
         List<GameMaster> diversified = applyDiversityRules(filtered);
 
         return diversified;
     }
 
-    private boolean applyFilterRules(GameMaster master, UserProfile userProfile) {
+    private boolean applyFilterRules(GameMaster master, UserProfile userProfile, MasterBitmaps bitmaps, BitSet allowed) {
         // 1. 基础过滤规则
         if (!isValidMaster(master)) {
             return false;
         }
 
-        // 2. 用户偏好过滤
-        if (!matchesUserPreferences(master, userProfile)) {
+        // 2. 业务规则和游戏类型偏好：在位图中的陪玩师取一位，不在位图中的退回实体字段判断
+        int ordinal = bitmaps.ordinalOf(master.getId());
+        if (ordinal >= 0) {
+            if (!allowed.get(ordinal)) {
+                return false;
+            }
+        } else if (!matchesGameTypes(master, userProfile) || !satisfiesBusinessRules(master)) {
             return false;
         }
 
-        // 3. 业务规则过滤
-        if (!satisfiesBusinessRules(master)) {
+        // 3. 标签偏好过滤
+        if (!matchesTags(master, userProfile)) {
             return false;
         }
 
@@ -57,17 +74,27 @@ public class FilterService {
         return master != null && master.getId() != null;
     }
 
-    private boolean matchesUserPreferences(GameMaster master, UserProfile userProfile) {
-        // 1. 游戏类型匹配
+    private boolean matchesGameTypes(GameMaster master, UserProfile userProfile) {
+        // 游戏类型匹配（与位图一致，按陪玩师资料中的游戏类型，忽略大小写和首尾空白）
         if (userProfile.getGameTypes() != null && !userProfile.getGameTypes().isEmpty()) {
-            boolean gameTypeMatched = master.getGames().stream()
-                    .anyMatch(game -> userProfile.getGameTypes().contains(game.getGameType()));
+            if (master.getGameTypes() == null) {
+                return false;
+            }
+            Set<String> userGameTypes = Arrays.stream(userProfile.getGameTypes().split(","))
+                    .map(type -> type.trim().toLowerCase())
+                    .collect(Collectors.toSet());
+            boolean gameTypeMatched = Arrays.stream(master.getGameTypes().split(","))
+                    .anyMatch(type -> userGameTypes.contains(type.trim().toLowerCase()));
             if (!gameTypeMatched) {
                 return false;
             }
         }
 
-        // 2. 标签匹配
+        return true;
+    }
+
+    private boolean matchesTags(GameMaster master, UserProfile userProfile) {
+        // 标签匹配
         if (userProfile.getTags() != null && !userProfile.getTags().isEmpty()) {
             List<String> userTags = Arrays.asList(userProfile.getTags().split(","));
             boolean tagMatched = Arrays.stream(master.getTags().split(","))
@@ -82,17 +109,17 @@ public class FilterService {
 
     private boolean satisfiesBusinessRules(GameMaster master) {
         // 1. 评分检查（>=4.0）
-        if (master.getScore() == null || master.getScore().compareTo(new BigDecimal("4.0")) < 0) {
+        if (master.getScore() == null || master.getScore().compareTo(BigDecimal.valueOf(MasterBitmaps.MIN_SCORE)) < 0) {
             return false;
         }
 
         // 2. 订单量检查（>=10）
-        if (master.getOrderCount() == null || master.getOrderCount() < 10) {
+        if (master.getOrderCount() == null || master.getOrderCount() < MasterBitmaps.MIN_ORDER_COUNT) {
             return false;
         }
 
         // 3. 在线状态检查（status=1表示在线）
-        if (master.getStatus() == null || master.getStatus() != 1) {
+        if (master.getStatus() == null || master.getStatus() != MasterBitmaps.STATUS_ONLINE) {
             return false;
         }
 
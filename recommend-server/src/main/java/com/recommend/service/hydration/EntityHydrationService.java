@@ -0,0 +1,210 @@
+package com.recommend.service.hydration;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.recommend.common.entity.Game;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.entity.Tag;
+import com.recommend.common.entity.User;
+import com.recommend.service.mapper.GameMapper;
+import com.recommend.service.mapper.GameMasterMapper;
+import com.recommend.service.mapper.TagMapper;
+import com.recommend.service.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 实体批量加载服务
+ * 按ID批量解析陪玩师、游戏、用户、标签：先查本地LRU缓存，未命中的ID合并为一次selectBatchIds，
+ * 结果按调用方给出的ID顺序返回（不存在的ID跳过）。推荐链路应只对最终返回的一页做加载。
+ * 返回的实体是缓存中的共享实例，调用方不要修改。
+ */
+@Service
+@Slf4j
+public class EntityHydrationService {
+
+    @Autowired
+    private GameMasterMapper gameMasterMapper;
+
+    @Autowired
+    private GameMapper gameMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private TagMapper tagMapper;
+
+    // 每类实体的本地缓存容量
+    @Value("${recommend.hydration.cache-capacity:10000}")
+    private int cacheCapacity;
+
+    // 本地缓存过期时间（秒），实体变更后最多延迟这么久可见
+    @Value("${recommend.hydration.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    private EntityCache<GameMaster> gameMasterCache;
+    private EntityCache<Game> gameCache;
+    private EntityCache<User> userCache;
+    private EntityCache<Tag> tagCache;
+
+    @PostConstruct
+    public void init() {
+        gameMasterCache = new EntityCache<>("陪玩师", gameMasterMapper, GameMaster::getId);
+        gameCache = new EntityCache<>("游戏", gameMapper, Game::getId);
+        userCache = new EntityCache<>("用户", userMapper, User::getId);
+        tagCache = new EntityCache<>("标签", tagMapper, Tag::getId);
+    }
+
+    public List<GameMaster> getGameMasters(long[] ids) {
+        return gameMasterCache.getAll(toList(ids));
+    }
+
+    public List<GameMaster> getGameMasters(Collection<Long> ids) {
+        return gameMasterCache.getAll(ids);
+    }
+
+    public GameMaster getGameMaster(Long id) {
+        return gameMasterCache.get(id);
+    }
+
+    public List<Game> getGames(long[] ids) {
+        return gameCache.getAll(toList(ids));
+    }
+
+    public List<Game> getGames(Collection<Long> ids) {
+        return gameCache.getAll(ids);
+    }
+
+    public Game getGame(Long id) {
+        return gameCache.get(id);
+    }
+
+    public List<User> getUsers(Collection<Long> ids) {
+        return userCache.getAll(ids);
+    }
+
+    public User getUser(Long id) {
+        return userCache.get(id);
+    }
+
+    public List<Tag> getTags(Collection<Long> ids) {
+        return tagCache.getAll(ids);
+    }
+
+    public Tag getTag(Long id) {
+        return tagCache.get(id);
+    }
+
+    /**
+     * 陪玩师数据变更后失效本地缓存
+     */
+    public void evictGameMaster(Long id) {
+        gameMasterCache.evict(id);
+    }
+
+    /**
+     * 游戏数据变更后失效本地缓存
+     */
+    public void evictGame(Long id) {
+        gameCache.evict(id);
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    /**
+     * 单类实体的读穿透缓存
+     */
+    private final class EntityCache<T> {
+
+        private final String name;
+        private final BaseMapper<T> mapper;
+        private final Function<T, Long> idGetter;
+        private final LRUCache<Long, T> cache;
+
+        EntityCache(String name, BaseMapper<T> mapper, Function<T, Long> idGetter) {
+            this.name = name;
+            this.mapper = mapper;
+            this.idGetter = idGetter;
+            this.cache = CacheUtil.newLRUCache(cacheCapacity, cacheTtlSeconds * 1000);
+        }
+
+        T get(Long id) {
+            if (id == null) {
+                return null;
+            }
+            List<T> result = getAll(Collections.singletonList(id));
+            return result.isEmpty() ? null : result.get(0);
+        }
+
+        List<T> getAll(Collection<Long> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            // 1. 先查本地缓存，收集未命中的ID
+            Map<Long, T> found = new HashMap<>();
+            Set<Long> misses = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id == null || found.containsKey(id)) {
+                    continue;
+                }
+                T entity = cache.get(id);
+                if (entity != null) {
+                    found.put(id, entity);
+                } else {
+                    misses.add(id);
+                }
+            }
+
+            // 2. 未命中的ID一次批量查询并回填
+            if (!misses.isEmpty()) {
+                try {
+                    for (T entity : mapper.selectBatchIds(misses)) {
+                        Long id = idGetter.apply(entity);
+                        found.put(id, entity);
+                        cache.put(id, entity);
+                    }
+                } catch (Exception e) {
+                    log.error("批量加载{}失败，数量: {}", name, misses.size(), e);
+                }
+            }
+
+            // 3. 按调用方顺序组装
+            List<T> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                T entity = id != null ? found.get(id) : null;
+                if (entity != null) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }
+
+        void evict(Long id) {
+            if (id != null) {
+                cache.remove(id);
+            }
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.recommend.service.impl;
 import com.recommend.service.GameMasterService;
 import com.recommend.service.mapper.GameMasterMapper;
 import com.recommend.common.entity.GameMaster;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.MasterUpdateEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,9 @@ public class GameMasterServiceImpl implements GameMasterService {
     
     @Autowired
     private GameMasterMapper gameMasterMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
     public GameMaster getGameMasterById(Long masterId) {
@@ -59,12 +65,14 @@ public class GameMasterServiceImpl implements GameMasterService {
     @Transactional
     public void createGameMaster(GameMaster gameMaster) {
         gameMasterMapper.insert(gameMaster);
+        eventPublisher.publishEvent(new MasterUpdateEvent(gameMaster.getId()));
     }
     
     @Override
     @Transactional
     public void updateGameMaster(GameMaster gameMaster) {
         gameMasterMapper.updateById(gameMaster);
+        eventPublisher.publishEvent(new MasterUpdateEvent(gameMaster.getId()));
     }
     
     @Override
@@ -74,6 +82,7 @@ public class GameMasterServiceImpl implements GameMasterService {
         gameMaster.setId(masterId);
         gameMaster.setStatus(status);
         gameMasterMapper.updateById(gameMaster);
+        eventPublisher.publishEvent(new MasterStatusEvent(masterId, status));
     }
     
     @Override
@@ -83,12 +92,14 @@ public class GameMasterServiceImpl implements GameMasterService {
         gameMaster.setId(masterId);
         gameMaster.setScore(new BigDecimal(score));
         gameMasterMapper.updateById(gameMaster);
+        eventPublisher.publishEvent(new MasterUpdateEvent(masterId));
     }
     
     @Override
     @Transactional
     public void deleteGameMaster(Long masterId) {
         gameMasterMapper.deleteById(masterId);
+        eventPublisher.publishEvent(new MasterStatusEvent(masterId, null));
     }
     
     @Override
@@ -3,11 +3,16 @@ package com.recommend.service.impl;
 import com.recommend.service.GameMasterTagService;
 import com.recommend.service.mapper.GameMasterTagMapper;
 import com.recommend.common.entity.GameMasterTag;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.common.event.TagUsageEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author liujiandong
@@ -19,6 +24,9 @@ public class GameMasterTagServiceImpl implements GameMasterTagService {
     @Autowired
     private GameMasterTagMapper gameMasterTagMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public GameMasterTag getGameMasterTagById(Long id) {
         return null;
@@ -48,6 +56,8 @@ public class GameMasterTagServiceImpl implements GameMasterTagService {
     @Transactional
     public void addGameMasterTag(GameMasterTag gameMasterTag) {
         gameMasterTagMapper.insert(gameMasterTag);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(gameMasterTag.getTagId())));
+        eventPublisher.publishEvent(new MasterUpdateEvent(gameMasterTag.getMasterId()));
     }
 
     @Override
@@ -65,6 +75,8 @@ public class GameMasterTagServiceImpl implements GameMasterTagService {
     @Transactional
     public void deleteGameMasterTag(Long masterId, Long tagId) {
         gameMasterTagMapper.deleteByMasterIdAndTagId(masterId, tagId);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tagId)));
+        eventPublisher.publishEvent(new MasterUpdateEvent(masterId));
     }
 
     @Override
@@ -83,6 +95,10 @@ public class GameMasterTagServiceImpl implements GameMasterTagService {
         for (GameMasterTag gameMasterTag : gameMasterTags) {
             gameMasterTagMapper.insert(gameMasterTag);
         }
+        eventPublisher.publishEvent(new TagUsageEvent(
+                gameMasterTags.stream().map(GameMasterTag::getTagId).collect(Collectors.toSet())));
+        gameMasterTags.stream().map(GameMasterTag::getMasterId).distinct()
+                .forEach(masterId -> eventPublisher.publishEvent(new MasterUpdateEvent(masterId)));
     }
     
     @Override
@@ -91,6 +107,8 @@ public class GameMasterTagServiceImpl implements GameMasterTagService {
         for (Long tagId : tagIds) {
             gameMasterTagMapper.deleteByMasterIdAndTagId(masterId, tagId);
         }
+        eventPublisher.publishEvent(new TagUsageEvent(tagIds));
+        eventPublisher.publishEvent(new MasterUpdateEvent(masterId));
     }
 
     @Override
@@ -7,7 +7,9 @@ import com.recommend.service.mapper.GameMasterMapper;
 import com.recommend.common.entity.Game;
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.event.GameUpdateEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +29,9 @@ public class GameServiceImpl implements GameService {
     
     @Autowired
     private UserProfileService userProfileService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
     public Game getGameById(Long gameId) {
@@ -47,18 +52,21 @@ public class GameServiceImpl implements GameService {
     @Transactional
     public void createGame(Game game) {
         gameMapper.insert(game);
+        eventPublisher.publishEvent(new GameUpdateEvent(game.getId()));
     }
     
     @Override
     @Transactional
     public void updateGame(Game game) {
         gameMapper.updateById(game);
+        eventPublisher.publishEvent(new GameUpdateEvent(game.getId()));
     }
     
     @Override
     @Transactional
     public void deleteGame(Long gameId) {
         gameMapper.deleteById(gameId);
+        eventPublisher.publishEvent(new GameUpdateEvent(gameId));
     }
     
     @Override
@@ -1,10 +1,12 @@
 package com.recommend.service.impl;
 
 import com.recommend.common.entity.Order;
+import com.recommend.common.event.OrderEvent;
 import com.recommend.service.OrderService;
 import com.recommend.service.mapper.OrderMapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,9 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public Order getOrderById(Long orderId) {
         try {
@@ -125,6 +130,7 @@ public class OrderServiceImpl implements OrderService {
             order.setCreateTime(new Date());
             order.setUpdateTime(new Date());
             orderMapper.insert(order);
+            eventPublisher.publishEvent(new OrderEvent(order, true));
         } catch (Exception e) {
             log.error("创建订单失败，用户ID: {}, 陪玩师ID: {}", order.getUserId(), order.getMasterId(), e);
             throw new RuntimeException("创建订单失败", e);
@@ -137,6 +143,7 @@ public class OrderServiceImpl implements OrderService {
         try {
             order.setUpdateTime(new Date());
             orderMapper.updateById(order);
+            eventPublisher.publishEvent(new OrderEvent(order, false));
         } catch (Exception e) {
             log.error("更新订单失败，订单ID: {}", order.getId(), e);
             throw new RuntimeException("更新订单失败", e);
@@ -4,12 +4,15 @@ import com.alibaba.fastjson.JSON;
 import com.recommend.common.entity.GameMasterTag;
 import com.recommend.common.entity.Tag;
 import com.recommend.common.entity.UserTag;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.common.event.TagUsageEvent;
 import com.recommend.service.TagService;
 import com.recommend.service.mapper.GameMasterTagMapper;
 import com.recommend.service.mapper.TagMapper;
 import com.recommend.service.mapper.UserTagMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,6 +35,9 @@ public class TagServiceImpl implements TagService {
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private static final String TAG_CACHE_KEY = "tag:";
     private static final String USER_TAG_CACHE_KEY = "user:tag:";
     private static final String MASTER_TAG_CACHE_KEY = "master:tag:";
@@ -87,6 +93,7 @@ public class TagServiceImpl implements TagService {
         tag.setCreateTime(new Date());
         tag.setUpdateTime(new Date());
         tagMapper.insert(tag);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tag.getId())));
     }
 
     @Override
@@ -128,6 +135,7 @@ public class TagServiceImpl implements TagService {
         tagMapper.deleteById(tagId);
         // 清除缓存
         redisTemplate.delete(TAG_CACHE_KEY + tagId);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tagId)));
     }
 
     @Override
@@ -141,6 +149,7 @@ public class TagServiceImpl implements TagService {
         userTag.setCreateTime(new Date());
         userTag.setUpdateTime(new Date());
         userTagMapper.insert(userTag);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(userTag.getTagId())));
     }
 
     @Override
@@ -149,18 +158,23 @@ public class TagServiceImpl implements TagService {
         gameMasterTag.setCreateTime(new Date());
         gameMasterTag.setUpdateTime(new Date());
         gameMasterTagMapper.insert(gameMasterTag);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(gameMasterTag.getTagId())));
+        eventPublisher.publishEvent(new MasterUpdateEvent(gameMasterTag.getMasterId()));
     }
 
     @Override
     @Transactional
     public void removeUserTag(Long userId, Long tagId) {
         userTagMapper.deleteByUserIdAndTagId(userId, tagId);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tagId)));
     }
 
     @Override
     @Transactional
     public void removeGameMasterTag(Long masterId, Long tagId) {
         gameMasterTagMapper.deleteByMasterIdAndTagId(masterId, tagId);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tagId)));
+        eventPublisher.publishEvent(new MasterUpdateEvent(masterId));
     }
 
     @Override
@@ -419,6 +433,8 @@ public class TagServiceImpl implements TagService {
     public void batchUpdateUserTags(Long userId, List<UserTag> userTags) {
         try {
             // 先删除用户现有的标签
+            Set<Long> affectedTagIds = new HashSet<>();
+            userTagMapper.selectByUserId(userId).forEach(userTag -> affectedTagIds.add(userTag.getTagId()));
             userTagMapper.deleteByUserId(userId);
             
             // 批量插入新标签
@@ -427,10 +443,12 @@ public class TagServiceImpl implements TagService {
                 userTag.setCreateTime(new Date());
                 userTag.setUpdateTime(new Date());
                 userTagMapper.insert(userTag);
+                affectedTagIds.add(userTag.getTagId());
             }
             
             // 清除相关缓存
             redisTemplate.delete(USER_TAG_CACHE_KEY + userId);
+            eventPublisher.publishEvent(new TagUsageEvent(affectedTagIds));
             
         } catch (Exception e) {
             log.error("批量更新用户标签失败，用户ID: {}", userId, e);
@@ -443,6 +461,8 @@ public class TagServiceImpl implements TagService {
     public void batchUpdateGameMasterTags(Long masterId, List<GameMasterTag> gameMasterTags) {
         try {
             // 先删除陪玩师现有的标签
+            Set<Long> affectedTagIds = new HashSet<>();
+            gameMasterTagMapper.selectByMasterId(masterId).forEach(masterTag -> affectedTagIds.add(masterTag.getTagId()));
             gameMasterTagMapper.deleteByMasterId(masterId);
             
             // 批量插入新标签
@@ -451,10 +471,13 @@ public class TagServiceImpl implements TagService {
                 masterTag.setCreateTime(new Date());
                 masterTag.setUpdateTime(new Date());
                 gameMasterTagMapper.insert(masterTag);
+                affectedTagIds.add(masterTag.getTagId());
             }
             
             // 清除相关缓存
             redisTemplate.delete(MASTER_TAG_CACHE_KEY + masterId);
+            eventPublisher.publishEvent(new TagUsageEvent(affectedTagIds));
+            eventPublisher.publishEvent(new MasterUpdateEvent(masterId));
             
         } catch (Exception e) {
             log.error("批量更新陪玩师标签失败，陪玩师ID: {}", masterId, e);
@@ -1,10 +1,12 @@
 package com.recommend.service.impl;
 
 import com.recommend.common.entity.UserBehavior;
+import com.recommend.common.event.UserBehaviorEvent;
 import com.recommend.service.UserBehaviorService;
 import com.recommend.service.mapper.UserBehaviorMapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,9 @@ public class UserBehaviorServiceImpl implements UserBehaviorService {
     @Autowired
     private UserBehaviorMapper userBehaviorMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public List<UserBehavior> getUserBehaviorsByUserId(Long userId) {
         try {
@@ -87,6 +92,7 @@ public class UserBehaviorServiceImpl implements UserBehaviorService {
         try {
             userBehavior.setCreateTime(new Date());
             userBehaviorMapper.insert(userBehavior);
+            eventPublisher.publishEvent(new UserBehaviorEvent(userBehavior));
         } catch (Exception e) {
             log.error("添加用户行为失败，用户ID: {}", userBehavior.getUserId(), e);
             throw new RuntimeException("添加用户行为失败", e);
@@ -101,6 +107,7 @@ public class UserBehaviorServiceImpl implements UserBehaviorService {
             for (UserBehavior behavior : userBehaviors) {
                 behavior.setCreateTime(now);
                 userBehaviorMapper.insert(behavior);
+                eventPublisher.publishEvent(new UserBehaviorEvent(behavior));
             }
         } catch (Exception e) {
             log.error("批量添加用户行为失败", e);
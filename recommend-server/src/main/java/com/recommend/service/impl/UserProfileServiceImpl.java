@@ -3,8 +3,10 @@ package com.recommend.service.impl;
 import com.recommend.service.UserProfileService;
 import com.recommend.service.mapper.UserProfileMapper;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.event.UserProfileEvent;
 import com.alibaba.fastjson.JSON;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,9 @@ public class UserProfileServiceImpl implements UserProfileService {
     
     @Autowired
     private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     private static final String PROFILE_CACHE_KEY = "user:profile:";
     
@@ -59,6 +64,7 @@ public class UserProfileServiceImpl implements UserProfileService {
         // 更新缓存
         String cacheKey = PROFILE_CACHE_KEY + userProfile.getUserId();
         redisTemplate.opsForValue().set(cacheKey, JSON.toJSONString(userProfile), 1, TimeUnit.HOURS);
+        eventPublisher.publishEvent(new UserProfileEvent(userProfile.getUserId(), userProfile));
     }
     
     @Override
@@ -94,6 +100,7 @@ public class UserProfileServiceImpl implements UserProfileService {
             // 写入缓存
             String cacheKey = PROFILE_CACHE_KEY + userProfile.getUserId();
             redisTemplate.opsForValue().set(cacheKey, JSON.toJSONString(userProfile), 1, TimeUnit.HOURS);
+            eventPublisher.publishEvent(new UserProfileEvent(userProfile.getUserId(), userProfile));
         } catch (Exception e) {
             log.error("创建用户画像失败，用户ID: {}", userProfile.getUserId(), e);
             throw new RuntimeException("创建用户画像失败", e);
@@ -111,6 +118,7 @@ public class UserProfileServiceImpl implements UserProfileService {
             // 删除缓存
             String cacheKey = PROFILE_CACHE_KEY + userId;
             redisTemplate.delete(cacheKey);
+            eventPublisher.publishEvent(new UserProfileEvent(userId, null));
         } catch (Exception e) {
             log.error("删除用户画像失败，用户ID: {}", userId, e);
             throw new RuntimeException("删除用户画像失败", e);
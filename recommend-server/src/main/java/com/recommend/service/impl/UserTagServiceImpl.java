@@ -3,11 +3,15 @@ package com.recommend.service.impl;
 import com.recommend.service.UserTagService;
 import com.recommend.service.mapper.UserTagMapper;
 import com.recommend.common.entity.UserTag;
+import com.recommend.common.event.TagUsageEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -15,6 +19,9 @@ public class UserTagServiceImpl implements UserTagService {
     
     @Autowired
     private UserTagMapper userTagMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
     public List<UserTag> getUserTagsByUserId(Long userId) {
@@ -40,6 +47,7 @@ public class UserTagServiceImpl implements UserTagService {
     @Transactional
     public void addUserTag(UserTag userTag) {
         userTagMapper.insert(userTag);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(userTag.getTagId())));
     }
     
     @Override
@@ -52,6 +60,7 @@ public class UserTagServiceImpl implements UserTagService {
     @Transactional
     public void deleteUserTag(Long userId, Long tagId) {
         userTagMapper.deleteByUserIdAndTagId(userId, tagId);
+        eventPublisher.publishEvent(new TagUsageEvent(Collections.singletonList(tagId)));
     }
     
     @Override
@@ -60,6 +69,8 @@ public class UserTagServiceImpl implements UserTagService {
         for (UserTag userTag : userTags) {
             userTagMapper.insert(userTag);
         }
+        eventPublisher.publishEvent(new TagUsageEvent(
+                userTags.stream().map(UserTag::getTagId).collect(Collectors.toSet())));
     }
     
     @Override
@@ -68,5 +79,6 @@ public class UserTagServiceImpl implements UserTagService {
         for (Long tagId : tagIds) {
             userTagMapper.deleteByUserIdAndTagId(userId, tagId);
         }
+        eventPublisher.publishEvent(new TagUsageEvent(tagIds));
     }
 } 
\ No newline at end of file
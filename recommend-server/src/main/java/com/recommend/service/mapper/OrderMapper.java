@@ -4,8 +4,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.recommend.common.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import java.util.List;
 import java.util.Date;
+import java.util.Map;
 
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
@@ -35,6 +37,12 @@ public interface OrderMapper extends BaseMapper<Order> {
      */
     List<Order> selectByTimeRange(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
     
+    /**
+     * 按时间范围流式遍历订单（逐行回调，不在内存中组装整个列表）
+     */
+    void scanByTimeRange(@Param("startTime") Date startTime, @Param("endTime") Date endTime,
+                         ResultHandler<Order> handler);
+    
     /**
      * 根据金额范围查询订单列表
      */
@@ -55,6 +63,26 @@ public interface OrderMapper extends BaseMapper<Order> {
      */
     Integer countByGameId(@Param("gameId") Long gameId);
     
+    /**
+     * 按游戏分组统计endTime之前的订单数量，每行包含target_id、order_count
+     */
+    List<Map<String, Object>> countGroupByGame(@Param("endTime") Date endTime);
+    
+    /**
+     * 按陪玩分组统计endTime之前的订单数量，每行包含target_id、order_count
+     */
+    List<Map<String, Object>> countGroupByMaster(@Param("endTime") Date endTime);
+    
+    /**
+     * 按游戏和下单日期分组统计[startTime, endTime)内的订单数量，每行包含target_id、count_day、order_count
+     */
+    List<Map<String, Object>> countDailyByGame(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
+    
+    /**
+     * 按陪玩和下单日期分组统计[startTime, endTime)内的订单数量，每行包含target_id、count_day、order_count
+     */
+    List<Map<String, Object>> countDailyByMaster(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
+    
     /**
      * 更新订单状态
      */
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.recommend.common.entity.UserBehavior;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import java.util.List;
 import java.util.Date;
 
@@ -30,6 +31,12 @@ public interface UserBehaviorMapper extends BaseMapper<UserBehavior> {
      */
     List<UserBehavior> selectByTimeRange(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
     
+    /**
+     * 按时间范围流式遍历行为（逐行回调，不在内存中组装整个列表）
+     */
+    void scanByTimeRange(@Param("startTime") Date startTime, @Param("endTime") Date endTime,
+                         ResultHandler<UserBehavior> handler);
+    
     /**
      * 统计用户行为数量
      */
@@ -2,6 +2,7 @@ package com.recommend.service.rank;
 
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.utils.TopKSelector;
 import com.recommend.service.UserProfileService;
 import com.recommend.service.feature.FeatureExtractor;
 import com.recommend.service.feature.RankingFeatures;
@@ -9,7 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 import java.util.List;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,11 +35,17 @@ public class RankService {
         // 3. 计算得分
         List<RankedItem> rankedItems = calculateScores(features);
         
-        // 4. 排序
-        return rankedItems.stream()
-            .sorted(Comparator.comparing(RankedItem::getScore).reversed())
-            .map(RankedItem::getMaster)
-            .collect(Collectors.toList());
+        // 4. 排序（以候选下标作为ID，得分相同时保持原有顺序）
+        TopKSelector selector = new TopKSelector(rankedItems.size());
+        for (int i = 0; i < rankedItems.size(); i++) {
+            selector.offer(i, rankedItems.get(i).getScore());
+        }
+        selector.sortDescending();
+        List<GameMaster> result = new ArrayList<>(selector.size());
+        for (int i = 0; i < selector.size(); i++) {
+            result.add(rankedItems.get((int) selector.idAt(i)).getMaster());
+        }
+        return result;
     }
     
     private List<RankedItem> calculateScores(List<RankingFeatures> features) {
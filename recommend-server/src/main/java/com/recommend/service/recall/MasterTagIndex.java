@@ -0,0 +1,270 @@
+package com.recommend.service.recall;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.entity.GameMasterTag;
+import com.recommend.common.entity.Tag;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.service.mapper.GameMasterMapper;
+import com.recommend.service.mapper.GameMasterTagMapper;
+import com.recommend.service.mapper.TagMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * 陪玩师标签倒排索引
+ * 在线陪玩师的游戏类型、资料中的标签和game_master_tag关联的标签名都作为词，倒排表按质量分
+ * （评分×0.6 + min(1, 订单数/100)×0.4）降序，召回时在内存中对用户偏好的词做归并/求交，不再查库。
+ * 定时全量重建；两次重建之间，陪玩师资料或状态变更后重新加载该陪玩师写入补丁表，
+ * 查询时补丁表中的陪玩师屏蔽其在基础索引中的旧条目，改用补丁参与合并。
+ */
+@Component
+@Slf4j
+public class MasterTagIndex {
+
+    private static final int ONLINE = 1;
+
+    @Autowired
+    private GameMasterMapper gameMasterMapper;
+
+    @Autowired
+    private GameMasterTagMapper gameMasterTagMapper;
+
+    @Autowired
+    private TagMapper tagMapper;
+
+    private volatile TagPostings postings = TagPostings.EMPTY;
+
+    // 陪玩师ID → 基础索引构建之后的最新状态
+    private final Map<Long, Patch> patches = new ConcurrentHashMap<>();
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.tag-index.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.recall.tag-index.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建陪玩师标签索引失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建：新索引整体替换后，丢弃重建开始前写入的补丁（已包含在新索引中）
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, String> tagNames = tagNames(tagMapper.selectList(null));
+        Map<Long, List<String>> masterTagNames = new HashMap<>();
+        for (GameMasterTag relation : gameMasterTagMapper.selectList(new LambdaQueryWrapper<GameMasterTag>()
+                .select(GameMasterTag::getMasterId, GameMasterTag::getTagId))) {
+            String name = tagNames.get(relation.getTagId());
+            if (relation.getMasterId() != null && name != null) {
+                masterTagNames.computeIfAbsent(relation.getMasterId(), id -> new ArrayList<>()).add(name);
+            }
+        }
+
+        List<GameMaster> masters = gameMasterMapper.selectList(new LambdaQueryWrapper<GameMaster>()
+                .eq(GameMaster::getStatus, ONLINE));
+        List<TagPostings.Document> documents = new ArrayList<>(masters.size());
+        for (GameMaster master : masters) {
+            if (master.getId() == null) {
+                continue;
+            }
+            documents.add(new TagPostings.Document(master.getId(), quality(master),
+                    termsOf(master, masterTagNames.getOrDefault(master.getId(), Collections.emptyList()))));
+        }
+        TagPostings rebuilt = TagPostings.build(documents);
+        postings = rebuilt;
+        patches.values().removeIf(patch -> patch.time < start);
+        log.info("陪玩师标签索引重建完成，陪玩师: {}，词: {}，倒排条目: {}，耗时: {}ms",
+                rebuilt.size(), rebuilt.termCount(), rebuilt.postingCount(), System.currentTimeMillis() - start);
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterUpdate(MasterUpdateEvent event) {
+        refresh(event.getMasterId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterStatus(MasterStatusEvent event) {
+        refresh(event.getMasterId());
+    }
+
+    /**
+     * 命中任一词的在线陪玩师ID，按质量分降序，最多limit个
+     */
+    public long[] union(Collection<String> terms, int limit) {
+        return query(normalize(terms), limit, false);
+    }
+
+    /**
+     * 命中全部词的在线陪玩师ID，按质量分降序，最多limit个
+     */
+    public long[] intersect(Collection<String> terms, int limit) {
+        return query(normalize(terms), limit, true);
+    }
+
+    public int size() {
+        return postings.size();
+    }
+
+    /**
+     * 从库中重新加载陪玩师（及其标签）写入补丁表，陪玩师已删除或下线时写入下线补丁
+     */
+    private void refresh(Long masterId) {
+        if (masterId == null) {
+            return;
+        }
+        try {
+            long time = System.currentTimeMillis();
+            GameMaster master = gameMasterMapper.selectById(masterId);
+            if (master == null || master.getStatus() == null || master.getStatus() != ONLINE) {
+                patches.put(masterId, new Patch(time, 0, Collections.emptySet()));
+                return;
+            }
+            List<String> names = new ArrayList<>();
+            List<GameMasterTag> relations = gameMasterTagMapper.selectList(new LambdaQueryWrapper<GameMasterTag>()
+                    .select(GameMasterTag::getTagId)
+                    .eq(GameMasterTag::getMasterId, masterId));
+            Set<Long> tagIds = new HashSet<>();
+            for (GameMasterTag relation : relations) {
+                if (relation.getTagId() != null) {
+                    tagIds.add(relation.getTagId());
+                }
+            }
+            if (!tagIds.isEmpty()) {
+                names.addAll(tagNames(tagMapper.selectBatchIds(tagIds)).values());
+            }
+            patches.put(masterId, new Patch(time, quality(master), termsOf(master, names)));
+        } catch (Exception e) {
+            log.error("修补陪玩师标签索引失败，陪玩师ID: {}", masterId, e);
+        }
+    }
+
+    private long[] query(Set<String> terms, int limit, boolean all) {
+        if (terms.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        TagPostings current = postings;
+        LongPredicate accept = patches.isEmpty() ? id -> true : id -> !patches.containsKey(id);
+        int[] ordinals = all ? current.intersect(terms, limit, accept) : current.union(terms, limit, accept);
+        if (patches.isEmpty()) {
+            long[] ids = new long[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                ids[i] = current.idAt(ordinals[i]);
+            }
+            return ids;
+        }
+
+        // 补丁中命中的在线陪玩师与基础索引的结果按质量分归并
+        List<Map.Entry<Long, Patch>> patched = new ArrayList<>();
+        for (Map.Entry<Long, Patch> entry : patches.entrySet()) {
+            Patch patch = entry.getValue();
+            if (patch.online() && (all ? patch.terms.containsAll(terms) : !Collections.disjoint(patch.terms, terms))) {
+                patched.add(entry);
+            }
+        }
+        patched.sort((a, b) -> Double.compare(b.getValue().quality, a.getValue().quality));
+        long[] ids = new long[Math.min(limit, ordinals.length + patched.size())];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < ids.length; k++) {
+            boolean takeBase = j >= patched.size()
+                    || (i < ordinals.length && current.qualityAt(ordinals[i]) >= patched.get(j).getValue().quality);
+            ids[k] = takeBase ? current.idAt(ordinals[i++]) : patched.get(j++).getKey();
+        }
+        return ids;
+    }
+
+    /**
+     * 陪玩师的索引词：游戏类型、资料中的标签和关联的标签名
+     */
+    private static Set<String> termsOf(GameMaster master, Collection<String> tagNames) {
+        Set<String> terms = new HashSet<>();
+        addAll(terms, master.getGameTypes());
+        addAll(terms, master.getTags());
+        terms.addAll(normalize(tagNames));
+        return terms;
+    }
+
+    private static void addAll(Set<String> terms, String commaSeparated) {
+        if (commaSeparated != null) {
+            for (String term : commaSeparated.split(",")) {
+                String normalized = TagPostings.normalize(term);
+                if (normalized != null) {
+                    terms.add(normalized);
+                }
+            }
+        }
+    }
+
+    private static Set<String> normalize(Collection<String> terms) {
+        Set<String> normalized = new HashSet<>();
+        if (terms != null) {
+            for (String term : terms) {
+                String value = TagPostings.normalize(term);
+                if (value != null) {
+                    normalized.add(value);
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static Map<Long, String> tagNames(List<Tag> tags) {
+        Map<Long, String> names = new HashMap<>(tags.size() * 2);
+        for (Tag tag : tags) {
+            if (tag.getId() != null && tag.getName() != null) {
+                names.put(tag.getId(), tag.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 综合评分和订单数（与热门召回一致）
+     */
+    private static double quality(GameMaster master) {
+        double score = master.getScore() != null ? master.getScore().doubleValue() : 0.0;
+        int orderCount = master.getOrderCount() != null ? master.getOrderCount() : 0;
+        return score * 0.6 + Math.min(1.0, orderCount / 100.0) * 0.4;
+    }
+
+    private static final class Patch {
+        private final long time;
+        private final double quality;
+        // 下线/删除时为空集合
+        private final Set<String> terms;
+
+        private Patch(long time, double quality, Set<String> terms) {
+            this.time = time;
+            this.quality = quality;
+            this.terms = terms;
+        }
+
+        private boolean online() {
+            return !terms.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.recommend.service.recall;
+
+import java.util.Arrays;
+
+/**
+ * 热度榜的一个切片（全站、某地区或某游戏类型）
+ * 陪玩师ID和热度分存放在两个按热度降序排列的并行原始数组中，取前K名是O(K)的数组切片。
+ * 不可变，增量更新通过{@link #with}/{@link #without}复制出新切片。
+ */
+public final class PopularityBoard {
+
+    public static final PopularityBoard EMPTY = new PopularityBoard(new long[0], new double[0]);
+
+    private final long[] ids;
+    private final double[] scores;
+
+    /**
+     * @param ids 陪玩师ID，需已按scores降序排列
+     */
+    public PopularityBoard(long[] ids, double[] scores) {
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long idAt(int rank) {
+        return ids[rank];
+    }
+
+    public double scoreAt(int rank) {
+        return scores[rank];
+    }
+
+    /**
+     * 前k名的陪玩师ID
+     */
+    public long[] top(int k) {
+        return Arrays.copyOf(ids, Math.max(0, Math.min(k, ids.length)));
+    }
+
+    /**
+     * 写入（或更新）一个陪玩师的热度分，超出capacity时淘汰末位
+     */
+    public PopularityBoard with(long id, double score, int capacity) {
+        PopularityBoard base = without(id);
+        int rank = base.rankOf(score);
+        if (rank >= capacity) {
+            return base;
+        }
+        int size = Math.min(base.ids.length + 1, capacity);
+        long[] newIds = new long[size];
+        double[] newScores = new double[size];
+        System.arraycopy(base.ids, 0, newIds, 0, rank);
+        System.arraycopy(base.scores, 0, newScores, 0, rank);
+        newIds[rank] = id;
+        newScores[rank] = score;
+        System.arraycopy(base.ids, rank, newIds, rank + 1, size - rank - 1);
+        System.arraycopy(base.scores, rank, newScores, rank + 1, size - rank - 1);
+        return new PopularityBoard(newIds, newScores);
+    }
+
+    /**
+     * 移除一个陪玩师，不在榜上时返回自身
+     */
+    public PopularityBoard without(long id) {
+        int index = -1;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return this;
+        }
+        long[] newIds = new long[ids.length - 1];
+        double[] newScores = new double[ids.length - 1];
+        System.arraycopy(ids, 0, newIds, 0, index);
+        System.arraycopy(scores, 0, newScores, 0, index);
+        System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+        System.arraycopy(scores, index + 1, newScores, index, ids.length - index - 1);
+        return new PopularityBoard(newIds, newScores);
+    }
+
+    /**
+     * 热度分为score的陪玩师应插入的名次（同分的排在已有陪玩师之后）
+     */
+    private int rankOf(double score) {
+        int low = 0;
+        int high = scores.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (scores[mid] >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,465 @@
+package com.recommend.service.recall;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.recommend.algorithm.model.UpdateJournal;
+import com.recommend.common.entity.GameMaster;
+import com.recommend.common.entity.Order;
+import com.recommend.common.event.MasterStatusEvent;
+import com.recommend.common.event.MasterUpdateEvent;
+import com.recommend.common.event.OrderEvent;
+import com.recommend.service.feature.PopularityCounters;
+import com.recommend.service.feature.PopularityStore;
+import com.recommend.service.mapper.GameMasterMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 陪玩师热度榜
+ * 在线陪玩师按 评分×0.6 + min(1, 订单数/100)×0.4 降序，分为全站、各地区、各游戏类型几个切片，每个切片保留前capacity名。
+ * 定时全量重建；订单、陪玩师状态和资料变更时只重算该陪玩师并调整其所在切片。
+ * 订单数取热度计数器中的近期订单数（game_master.order_count不随下单更新），计数器尚未加载时退回陪玩师资料中的订单数。
+ * 各切片镜像为Redis ZSET：本节点的重建和增量更新写入Redis，定时从Redis拉回，使各节点看到一致的榜单。
+ * 重建期间到达的增量更新记入日志，新榜单发布后按陪玩师ID从库中重新加载一次。
+ */
+@Component
+@Slf4j
+public class PopularityLeaderboard {
+
+    public static final String GLOBAL = "global";
+
+    private static final String REGION_PREFIX = "region:";
+    private static final String GAME_TYPE_PREFIX = "game-type:";
+    private static final String KEY_PREFIX = "recommend:leaderboard:popularity:";
+    // 当前所有切片名称的集合
+    private static final String SLICES_KEY = KEY_PREFIX + "slices";
+    private static final int ONLINE = 1;
+
+    @Autowired
+    private GameMasterMapper gameMasterMapper;
+
+    @Autowired
+    private PopularityStore popularityStore;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    // 每个切片保留的名次
+    @Value("${recommend.recall.popularity-board.capacity:500}")
+    private int capacity;
+
+    // 是否按地区切片
+    @Value("${recommend.recall.popularity-board.region-slices:true}")
+    private boolean regionSlices;
+
+    // 是否按游戏类型切片
+    @Value("${recommend.recall.popularity-board.game-type-slices:false}")
+    private boolean gameTypeSlices;
+
+    // 是否镜像到Redis
+    @Value("${recommend.recall.popularity-board.redis-mirror:true}")
+    private boolean redisMirror;
+
+    // 全量写入Redis时的临时key后缀，各节点不同，避免多个节点同时重建时互相覆盖临时key
+    private final String stagingSuffix = ":staging:" + UUID.randomUUID();
+
+    private volatile State state = new State(new ConcurrentHashMap<>(), Collections.emptyMap());
+
+    // 重建期间被增量更新过的陪玩师
+    private final UpdateJournal journal = new UpdateJournal();
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.popularity-board.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.recall.popularity-board.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建热度榜失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 定时从Redis拉取其他节点写入的榜单
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.popularity-board.sync-interval-ms:30000}",
+            fixedDelayString = "${recommend.recall.popularity-board.sync-interval-ms:30000}")
+    public void scheduledSync() {
+        if (!redisMirror) {
+            return;
+        }
+        try {
+            syncFromRedis();
+        } catch (Exception e) {
+            log.error("从Redis同步热度榜失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建：新榜单整体替换，重建期间被增量更新过的陪玩师在发布后重新加载
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        journal.open();
+        List<GameMaster> masters;
+        try {
+            masters = gameMasterMapper.selectList(new LambdaQueryWrapper<GameMaster>()
+                    .eq(GameMaster::getStatus, ONLINE));
+        } catch (RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        PopularityCounters counters = popularityStore.masters();
+        Map<Long, Entry> entries = new ConcurrentHashMap<>(masters.size() * 2);
+        Map<String, List<Entry>> members = new HashMap<>();
+        for (GameMaster master : masters) {
+            if (master.getId() == null) {
+                continue;
+            }
+            Entry entry = toEntry(master, counters);
+            entries.put(entry.id, entry);
+            for (String slice : entry.slices) {
+                members.computeIfAbsent(slice, s -> new ArrayList<>()).add(entry);
+            }
+        }
+        Map<String, PopularityBoard> boards = new HashMap<>(members.size() * 2);
+        for (Map.Entry<String, List<Entry>> slice : members.entrySet()) {
+            boards.put(slice.getKey(), toBoard(slice.getValue()));
+        }
+        synchronized (this) {
+            state = new State(entries, boards);
+        }
+        if (redisMirror) {
+            try {
+                mirror(boards);
+            } catch (Exception e) {
+                log.error("热度榜写入Redis失败，本节点继续使用新榜单", e);
+            }
+        }
+        // 全量写入之后再重放，重放结果同样增量写入Redis，不会被全量覆盖
+        Set<Long> replayed = journal.close();
+        for (Long masterId : replayed) {
+            refresh(masterId);
+        }
+        log.info("热度榜重建完成，在线陪玩师: {}，切片: {}，重放增量: {}，耗时: {}ms",
+                entries.size(), boards.size(), replayed.size(), System.currentTimeMillis() - start);
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrder(OrderEvent event) {
+        Order order = event.getOrder();
+        if (!event.isCreated() || order.getMasterId() == null) {
+            return;
+        }
+        journal.record(order.getMasterId());
+        try {
+            // 只重算分数，地区和游戏类型沿用榜单中的值；计数器由热度计数表异步累加，可能晚一笔订单
+            Entry entry = state.entries.get(order.getMasterId());
+            if (entry != null) {
+                apply(entry.withScore(popularity(entry.rating, ordersOf(entry.id, entry.profileOrders, popularityStore.masters()))));
+            }
+        } catch (Exception e) {
+            log.error("增量更新热度榜失败，订单ID: {}", order.getId(), e);
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterStatus(MasterStatusEvent event) {
+        journal.record(event.getMasterId());
+        refresh(event.getMasterId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMasterUpdate(MasterUpdateEvent event) {
+        journal.record(event.getMasterId());
+        refresh(event.getMasterId());
+    }
+
+    /**
+     * 全站前k名
+     */
+    public long[] top(int k) {
+        return board(GLOBAL).top(k);
+    }
+
+    /**
+     * 指定切片，未建立的切片返回空榜
+     */
+    public PopularityBoard board(String slice) {
+        PopularityBoard board = state.boards.get(slice);
+        return board != null ? board : PopularityBoard.EMPTY;
+    }
+
+    /**
+     * 地区切片，未开启地区切片或地区为空时返回空榜
+     */
+    public PopularityBoard regionBoard(String region) {
+        String slice = regionSlices ? slice(REGION_PREFIX, region) : null;
+        return slice != null ? board(slice) : PopularityBoard.EMPTY;
+    }
+
+    /**
+     * 游戏类型切片，未开启游戏类型切片或类型为空时返回空榜
+     */
+    public PopularityBoard gameTypeBoard(String gameType) {
+        String slice = gameTypeSlices ? slice(GAME_TYPE_PREFIX, gameType) : null;
+        return slice != null ? board(slice) : PopularityBoard.EMPTY;
+    }
+
+    /**
+     * 从库中重新加载陪玩师：在线时写入（或调整）其所在切片，下线或删除时从各切片移除
+     */
+    private void refresh(Long masterId) {
+        if (masterId == null) {
+            return;
+        }
+        try {
+            GameMaster master = gameMasterMapper.selectById(masterId);
+            if (master == null || master.getStatus() == null || master.getStatus() != ONLINE) {
+                remove(masterId);
+            } else {
+                apply(toEntry(master, popularityStore.masters()));
+            }
+        } catch (Exception e) {
+            log.error("增量更新热度榜失败，陪玩师ID: {}", masterId, e);
+        }
+    }
+
+    private void apply(Entry entry) {
+        Set<String> changed;
+        synchronized (this) {
+            State current = state;
+            Entry previous = current.entries.get(entry.id);
+            Map<String, PopularityBoard> boards = new HashMap<>(current.boards);
+            changed = new HashSet<>(entry.slices);
+            if (previous != null) {
+                // 地区或游戏类型变了的，先从旧切片移除
+                for (String slice : previous.slices) {
+                    if (!entry.slices.contains(slice) && boards.containsKey(slice)) {
+                        boards.put(slice, boards.get(slice).without(entry.id));
+                        changed.add(slice);
+                    }
+                }
+            }
+            for (String slice : entry.slices) {
+                boards.put(slice, boards.getOrDefault(slice, PopularityBoard.EMPTY).with(entry.id, entry.score, capacity));
+            }
+            current.entries.put(entry.id, entry);
+            state = new State(current.entries, boards);
+        }
+        if (redisMirror) {
+            for (String slice : changed) {
+                String key = KEY_PREFIX + slice;
+                if (entry.slices.contains(slice)) {
+                    redisTemplate.opsForZSet().add(key, String.valueOf(entry.id), entry.score);
+                    // 只保留前capacity名
+                    redisTemplate.opsForZSet().removeRange(key, 0, -(capacity + 1));
+                    redisTemplate.opsForSet().add(SLICES_KEY, slice);
+                } else {
+                    redisTemplate.opsForZSet().remove(key, String.valueOf(entry.id));
+                }
+            }
+        }
+    }
+
+    private void remove(Long masterId) {
+        Entry previous;
+        synchronized (this) {
+            State current = state;
+            previous = current.entries.remove(masterId);
+            if (previous == null) {
+                return;
+            }
+            Map<String, PopularityBoard> boards = new HashMap<>(current.boards);
+            for (String slice : previous.slices) {
+                if (boards.containsKey(slice)) {
+                    boards.put(slice, boards.get(slice).without(masterId));
+                }
+            }
+            state = new State(current.entries, boards);
+        }
+        if (redisMirror) {
+            for (String slice : previous.slices) {
+                redisTemplate.opsForZSet().remove(KEY_PREFIX + slice, String.valueOf(masterId));
+            }
+        }
+    }
+
+    /**
+     * 全量写入Redis：每个切片先写本节点的临时key再RENAME替换，最后删除已不存在的切片
+     */
+    private void mirror(Map<String, PopularityBoard> boards) {
+        for (Map.Entry<String, PopularityBoard> slice : boards.entrySet()) {
+            PopularityBoard board = slice.getValue();
+            if (board.size() == 0) {
+                continue;
+            }
+            Set<ZSetOperations.TypedTuple<String>> tuples = new LinkedHashSet<>(board.size() * 2);
+            for (int rank = 0; rank < board.size(); rank++) {
+                tuples.add(ZSetOperations.TypedTuple.of(String.valueOf(board.idAt(rank)), board.scoreAt(rank)));
+            }
+            String key = KEY_PREFIX + slice.getKey();
+            String staging = key + stagingSuffix;
+            redisTemplate.delete(staging);
+            redisTemplate.opsForZSet().add(staging, tuples);
+            redisTemplate.rename(staging, key);
+            redisTemplate.opsForSet().add(SLICES_KEY, slice.getKey());
+        }
+        Set<String> published = redisTemplate.opsForSet().members(SLICES_KEY);
+        if (published != null) {
+            for (String slice : published) {
+                if (!boards.containsKey(slice)) {
+                    redisTemplate.delete(KEY_PREFIX + slice);
+                    redisTemplate.opsForSet().remove(SLICES_KEY, slice);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用Redis中的切片替换本地切片（陪玩师明细保持本地版本，下次重建时对齐）
+     */
+    private void syncFromRedis() {
+        Set<String> slices = redisTemplate.opsForSet().members(SLICES_KEY);
+        if (slices == null || slices.isEmpty()) {
+            return;
+        }
+        Map<String, PopularityBoard> boards = new HashMap<>(slices.size() * 2);
+        for (String slice : slices) {
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                    redisTemplate.opsForZSet().reverseRangeWithScores(KEY_PREFIX + slice, 0, capacity - 1);
+            if (tuples == null || tuples.isEmpty()) {
+                continue;
+            }
+            long[] ids = new long[tuples.size()];
+            double[] scores = new double[tuples.size()];
+            int rank = 0;
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() == null || tuple.getScore() == null) {
+                    continue;
+                }
+                ids[rank] = Long.parseLong(tuple.getValue());
+                scores[rank] = tuple.getScore();
+                rank++;
+            }
+            boards.put(slice, new PopularityBoard(Arrays.copyOf(ids, rank), Arrays.copyOf(scores, rank)));
+        }
+        synchronized (this) {
+            state = new State(state.entries, boards);
+        }
+    }
+
+    private Entry toEntry(GameMaster master, PopularityCounters counters) {
+        double rating = master.getScore() != null ? master.getScore().doubleValue() : 0.0;
+        long profileOrders = master.getOrderCount() != null ? master.getOrderCount() : 0;
+        Set<String> slices = new HashSet<>();
+        slices.add(GLOBAL);
+        if (regionSlices) {
+            String slice = slice(REGION_PREFIX, master.getRegion());
+            if (slice != null) {
+                slices.add(slice);
+            }
+        }
+        if (gameTypeSlices && master.getGameTypes() != null) {
+            for (String gameType : master.getGameTypes().split(",")) {
+                String slice = slice(GAME_TYPE_PREFIX, gameType);
+                if (slice != null) {
+                    slices.add(slice);
+                }
+            }
+        }
+        double score = popularity(rating, ordersOf(master.getId(), profileOrders, counters));
+        return new Entry(master.getId(), rating, profileOrders, score, slices);
+    }
+
+    private PopularityBoard toBoard(List<Entry> entries) {
+        entries.sort((a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(a.id, b.id);
+        });
+        int size = Math.min(capacity, entries.size());
+        long[] ids = new long[size];
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = entries.get(i).id;
+            scores[i] = entries.get(i).score;
+        }
+        return new PopularityBoard(ids, scores);
+    }
+
+    /**
+     * 热度计数器中的近期订单数，计数器尚未加载时用陪玩师资料中的订单数
+     */
+    private static long ordersOf(long masterId, long profileOrders, PopularityCounters counters) {
+        return counters.size() > 0 ? counters.orders(masterId) : profileOrders;
+    }
+
+    /**
+     * 综合评分和订单数
+     */
+    private static double popularity(double rating, long orders) {
+        return rating * 0.6 + Math.min(1.0, orders / 100.0) * 0.4;
+    }
+
+    private static String slice(String prefix, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return prefix + value.trim().toLowerCase();
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final double rating;
+        private final long profileOrders;
+        private final double score;
+        private final Set<String> slices;
+
+        private Entry(long id, double rating, long profileOrders, double score, Set<String> slices) {
+            this.id = id;
+            this.rating = rating;
+            this.profileOrders = profileOrders;
+            this.score = score;
+            this.slices = slices;
+        }
+
+        private Entry withScore(double newScore) {
+            return new Entry(id, rating, profileOrders, newScore, slices);
+        }
+    }
+
+    private static final class State {
+        // 陪玩师ID → 在线陪玩师的明细
+        private final Map<Long, Entry> entries;
+        // 切片名称 → 榜单
+        private final Map<String, PopularityBoard> boards;
+
+        private State(Map<Long, Entry> entries, Map<String, PopularityBoard> boards) {
+            this.entries = entries;
+            this.boards = boards;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.recommend.service.recall;
+
+import com.recommend.common.entity.UserProfile;
+import com.recommend.common.utils.LongHashSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热门召回：在线陪玩师按评分和订单数的综合得分排序
+ * 直接切取预计算的热度榜：开启了游戏类型/地区切片时先取用户偏好游戏类型（否则所在地区）的切片，
+ * 多个切片按热度分归并，不足配额时用全站榜补齐。
+ */
+@Component
+public class PopularityRecallChannel implements RecallChannel {
+
+    @Autowired
+    private PopularityLeaderboard popularityLeaderboard;
+
+    @Override
+    public String name() {
+        return "popularity";
+    }
+
+    @Override
+    public long[] recall(RecallContext context, int quota) {
+        // 用户偏好对应的切片
+        List<PopularityBoard> preferred = new ArrayList<>();
+        UserProfile profile = context.getProfile();
+        if (profile != null && profile.getGameTypes() != null) {
+            for (String gameType : profile.getGameTypes().split(",")) {
+                addIfPresent(preferred, popularityLeaderboard.gameTypeBoard(gameType));
+            }
+        }
+        if (preferred.isEmpty() && profile != null) {
+            addIfPresent(preferred, popularityLeaderboard.regionBoard(profile.getRegion()));
+        }
+        if (preferred.isEmpty()) {
+            return popularityLeaderboard.top(quota);
+        }
+
+        // 多个切片按热度分归并（同一陪玩师只取一次），再用全站榜补齐
+        LongHashSet ids = new LongHashSet(quota);
+        int[] positions = new int[preferred.size()];
+        while (ids.size() < quota) {
+            int best = -1;
+            for (int i = 0; i < preferred.size(); i++) {
+                PopularityBoard board = preferred.get(i);
+                if (positions[i] < board.size() && (best < 0
+                        || board.scoreAt(positions[i]) > preferred.get(best).scoreAt(positions[best]))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            ids.add(preferred.get(best).idAt(positions[best]++));
+        }
+        PopularityBoard global = popularityLeaderboard.board(PopularityLeaderboard.GLOBAL);
+        for (int rank = 0; rank < global.size() && ids.size() < quota; rank++) {
+            ids.add(global.idAt(rank));
+        }
+        return ids.toArray();
+    }
+
+    private static void addIfPresent(List<PopularityBoard> boards, PopularityBoard board) {
+        if (board.size() > 0 && !boards.contains(board)) {
+            boards.add(board);
+        }
+    }
+}
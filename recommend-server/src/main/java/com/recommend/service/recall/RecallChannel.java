@@ -0,0 +1,23 @@
+package com.recommend.service.recall;
+
+/**
+ * 召回通道
+ * 每个通道是一个Spring Bean，由{@link RecallService}在召回线程池上与其他通道并发执行；
+ * 超时、配额和权重在 recommend.recall.channels.&lt;name&gt; 下配置。
+ */
+public interface RecallChannel {
+
+    /**
+     * 通道名称，用于配置和指标标签
+     */
+    String name();
+
+    /**
+     * 召回陪玩师ID，按通道内的优先级从高到低排列
+     *
+     * @param context 本次召回的用户上下文
+     * @param quota 最多返回的个数，超出部分由框架截断
+     * @return 陪玩师ID，没有结果时返回空数组
+     */
+    long[] recall(RecallContext context, int quota);
+}
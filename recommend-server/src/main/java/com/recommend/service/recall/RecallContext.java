@@ -0,0 +1,28 @@
+package com.recommend.service.recall;
+
+import com.recommend.common.entity.UserProfile;
+
+/**
+ * 单次召回的用户上下文，画像在召回开始前查询一次，各通道共享（只读）
+ */
+public final class RecallContext {
+
+    private final Long userId;
+    private final UserProfile profile;
+
+    public RecallContext(Long userId, UserProfile profile) {
+        this.userId = userId;
+        this.profile = profile;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * 用户画像，用户没有画像时为null
+     */
+    public UserProfile getProfile() {
+        return profile;
+    }
+}
@@ -0,0 +1,66 @@
+package com.recommend.service.recall;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多路召回配置
+ * 每个通道的超时、配额和权重；未单独配置的通道使用defaults。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "recommend.recall")
+public class RecallProperties {
+
+    /**
+     * 召回线程池大小
+     */
+    private int poolSize = 16;
+
+    /**
+     * 召回线程池排队上限
+     */
+    private int queueCapacity = 500;
+
+    /**
+     * 未单独配置的通道的默认设置
+     */
+    private Channel defaults = new Channel();
+
+    /**
+     * 通道名称 → 通道设置
+     */
+    private Map<String, Channel> channels = new HashMap<>();
+
+    public Channel channelOf(String name) {
+        return channels.getOrDefault(name, defaults);
+    }
+
+    @Data
+    public static class Channel {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 超时（毫秒，从召回开始计），超时的通道不参与合并
+         */
+        private long timeoutMs = 100;
+
+        /**
+         * 最多召回的个数
+         */
+        private int quota = 50;
+
+        /**
+         * 合并排序时的通道权重
+         */
+        private double weight = 1.0;
+    }
+}
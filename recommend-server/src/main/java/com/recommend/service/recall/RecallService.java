@@ -2,189 +2,191 @@ package com.recommend.service.recall;
 
 import com.recommend.common.entity.GameMaster;
 import com.recommend.common.entity.UserProfile;
+import com.recommend.common.utils.LongHashSet;
+import com.recommend.common.utils.TopKSelector;
 import com.recommend.service.UserProfileService;
-import com.recommend.service.mapper.GameMasterMapper;
+import com.recommend.service.feature.MasterBitmapIndex;
+import com.recommend.service.feature.MasterBitmaps;
+import com.recommend.service.hydration.EntityHydrationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 多路召回
+ * 所有{@link RecallChannel} Bean在召回线程池上并发执行，各自有超时、配额和权重；
+ * 按到达的结果以 通道权重/(名次+1) 累加得分，用long哈希集合按陪玩师ID去重，按得分降序批量加载。
+ * 合并时按陪玩师位图去掉已知不满足业务规则（在线、评分、订单数）的陪玩师，不再加载它们的实体。
+ */
 @Service
 @Slf4j
 public class RecallService {
-    
+
     @Autowired
     private UserProfileService userProfileService;
-    
+
     @Autowired
-    private GameMasterMapper gameMasterMapper;
-    
-    public List<GameMaster> recallCandidates(Long userId) {
-        // 1. 获取用户画像
-        UserProfile userProfile = userProfileService.getUserProfile(userId);
-        
-        // 2. 多路召回
-
-        // 2.1 基于标签的召回
-        List<GameMaster> tagBasedCandidates = recallByTags(userProfile);
-        List<GameMaster> candidates = new ArrayList<>(tagBasedCandidates);
-        
-        // 2.2 基于相似用户的召回
-        List<GameMaster> similarUserCandidates = recallBySimilarUsers(userId);
-        candidates.addAll(similarUserCandidates);
-        
-        // 2.3 基于热门度的召回
-        List<GameMaster> popularCandidates = recallByPopularity();
-        candidates.addAll(popularCandidates);
-        
-        // 3. 去重
-        return candidates.stream()
-            .distinct()
-            .collect(Collectors.toList());
-    }
-    
-    private List<GameMaster> recallByTags(UserProfile userProfile) {
-        // 从用户画像中获取游戏类型偏好
-        String gameTypes = userProfile.getGameTypes();
-        if (gameTypes == null || gameTypes.isEmpty()) {
-            return new ArrayList<>();
+    private EntityHydrationService entityHydrationService;
+
+    @Autowired
+    private List<RecallChannel> channels;
+
+    @Autowired
+    private RecallProperties recallProperties;
+
+    @Autowired
+    private MasterBitmapIndex masterBitmapIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor recallExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        recallExecutor = new ThreadPoolExecutor(recallProperties.getPoolSize(), recallProperties.getPoolSize(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(recallProperties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recommend-recall-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        recallExecutor.allowCoreThreadTimeOut(true);
+        for (RecallChannel channel : channels) {
+            RecallProperties.Channel config = recallProperties.channelOf(channel.name());
+            log.info("注册召回通道: {}，启用: {}，超时: {}ms，配额: {}，权重: {}", channel.name(),
+                    config.isEnabled(), config.getTimeoutMs(), config.getQuota(), config.getWeight());
         }
-        
-        // 将游戏类型字符串转换为标签列表
-        List<String> tags = Arrays.asList(gameTypes.split(","));
-        return gameMasterMapper.findByTags(tags);
     }
-    
-    private List<GameMaster> recallBySimilarUsers(Long userId) {
-        try {
-            // 获取用户画像
-            UserProfile userProfile = userProfileService.getUserProfile(userId);
-            if (userProfile == null) {
-                return new ArrayList<>();
+
+    @PreDestroy
+    public void shutdown() {
+        recallExecutor.shutdownNow();
+    }
+
+    public List<GameMaster> recallCandidates(Long userId) {
+        // 1. 获取用户画像（各通道共享）
+        UserProfile userProfile = userProfileService.getUserProfile(userId);
+        RecallContext context = new RecallContext(userId, userProfile);
+
+        // 2. 多路并发召回
+        long start = System.nanoTime();
+        List<RecallChannel> submitted = new ArrayList<>(channels.size());
+        List<CompletableFuture<long[]>> futures = new ArrayList<>(channels.size());
+        for (RecallChannel channel : channels) {
+            RecallProperties.Channel config = recallProperties.channelOf(channel.name());
+            if (!config.isEnabled()) {
+                continue;
+            }
+            CompletableFuture<long[]> future = submit(channel, context, config.getQuota());
+            if (future != null) {
+                submitted.add(channel);
+                futures.add(future);
             }
-            
-            // 基于用户标签找相似用户
-            List<UserProfile> similarUsers = findSimilarUsers(userProfile);
-            
-            // 获取相似用户喜欢的陪玩师
-            Set<Long> masterIds = new HashSet<>();
-            for (UserProfile similarUser : similarUsers) {
-                // 这里应该查询用户的历史订单或行为数据
-                // 暂时基于用户偏好的游戏类型来推荐
-                if (similarUser.getGameTypes() != null) {
-                    List<GameMaster> masters = gameMasterMapper.selectByGameTypes(similarUser.getGameTypes());
-                    masters.stream()
-                        .filter(master -> master.getStatus() == 1) // 在线状态
-                        .limit(5) // 每个相似用户贡献最多5个陪玩师
-                        .forEach(master -> masterIds.add(master.getId()));
+        }
+
+        // 3. 按各通道截止时间收集结果，跳过位图中不满足业务规则的陪玩师，按陪玩师ID去重并累加得分
+        MasterBitmaps bitmaps = masterBitmapIndex.current();
+        LongHashSet masterIds = new LongHashSet(256);
+        double[] scores = new double[256];
+        for (int c = 0; c < submitted.size(); c++) {
+            RecallChannel channel = submitted.get(c);
+            RecallProperties.Channel config = recallProperties.channelOf(channel.name());
+            long[] ids = await(channel, futures.get(c), start + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs()));
+            int count = Math.min(ids.length, config.getQuota());
+            for (int rank = 0; rank < count; rank++) {
+                int bit = bitmaps.ordinalOf(ids[rank]);
+                if (bit >= 0 && !bitmaps.isEligible(bit)) {
+                    continue;
+                }
+                int ordinal = masterIds.addOrGet(ids[rank]);
+                if (ordinal == scores.length) {
+                    scores = Arrays.copyOf(scores, scores.length * 2);
                 }
+                scores[ordinal] += config.getWeight() / (rank + 1);
             }
-            
-            // 根据ID批量获取陪玩师信息
-            return masterIds.stream()
-                .map(gameMasterMapper::selectById)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-                
-        } catch (Exception e) {
-            log.error("基于相似用户召回失败，用户ID: {}", userId, e);
-            return new ArrayList<>();
         }
-    }
-    
-    private List<GameMaster> recallByPopularity() {
-        try {
-            // 获取热门陪玩师（基于评分和订单数）
-            return gameMasterMapper.selectByStatus(1).stream()
-                .filter(master -> master.getScore() != null && master.getOrderCount() != null)
-                .sorted((m1, m2) -> {
-                    // 综合评分和订单数排序
-                    double score1 = m1.getScore().doubleValue() * 0.6 + 
-                                   Math.min(1.0, m1.getOrderCount() / 100.0) * 0.4;
-                    double score2 = m2.getScore().doubleValue() * 0.6 + 
-                                   Math.min(1.0, m2.getOrderCount() / 100.0) * 0.4;
-                    return Double.compare(score2, score1);
-                })
-                .limit(50) // 取前50个热门陪玩师
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("基于热门度召回失败", e);
-            return new ArrayList<>();
+
+        // 4. 按累加得分降序批量加载（得分相同时先召回的在前）
+        TopKSelector selector = new TopKSelector(masterIds.size());
+        for (int ordinal = 0; ordinal < masterIds.size(); ordinal++) {
+            selector.offer(ordinal, scores[ordinal]);
         }
+        selector.sortDescending();
+        long[] ordered = new long[selector.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = masterIds.get((int) selector.idAt(i));
+        }
+        return entityHydrationService.getGameMasters(ordered);
     }
-    
+
     /**
-     * 找到与目标用户相似的用户
+     * 提交通道任务，线程池已满时跳过该通道并返回null
      */
-    private List<UserProfile> findSimilarUsers(UserProfile targetUser) {
+    private CompletableFuture<long[]> submit(RecallChannel channel, RecallContext context, int quota) {
+        Timer timer = Timer.builder("recommend.recall.channel.latency")
+                .tag("channel", channel.name())
+                .register(meterRegistry);
         try {
-            // 获取所有用户画像（实际应用中需要优化，比如只获取活跃用户）
-            List<UserProfile> allUsers = userProfileService.getAllUserProfiles();
-            
-            return allUsers.stream()
-                .filter(user -> !user.getUserId().equals(targetUser.getUserId())) // 排除自己
-                .filter(user -> calculateUserSimilarity(targetUser, user) > 0.3) // 相似度阈值
-                .sorted((u1, u2) -> {
-                    double sim1 = calculateUserSimilarity(targetUser, u1);
-                    double sim2 = calculateUserSimilarity(targetUser, u2);
-                    return Double.compare(sim2, sim1);
-                })
-                .limit(10) // 取前10个最相似的用户
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("查找相似用户失败", e);
-            return new ArrayList<>();
+            return CompletableFuture.supplyAsync(() -> timer.record(() -> channel.recall(context, quota)), recallExecutor);
+        } catch (RejectedExecutionException e) {
+            count(channel, "rejected");
+            log.warn("召回线程池已满，跳过通道: {}，用户ID: {}", channel.name(), context.getUserId());
+            return null;
         }
     }
-    
+
     /**
-     * 计算两个用户的相似度
+     * 等待通道结果直到deadline（System.nanoTime时刻），超时或失败时返回空数组
      */
-    private double calculateUserSimilarity(UserProfile user1, UserProfile user2) {
-        double similarity = 0.0;
-        
-        // 地区相似度
-        if (user1.getRegion() != null && user2.getRegion() != null) {
-            if (user1.getRegion().equals(user2.getRegion())) {
-                similarity += 0.2;
-            }
-        }
-        
-        // 年龄相似度
-        if (user1.getAge() != null && user2.getAge() != null) {
-            int ageDiff = Math.abs(user1.getAge() - user2.getAge());
-            similarity += Math.max(0, 0.2 - ageDiff / 20.0);
-        }
-        
-        // 游戏类型相似度
-        if (user1.getGameTypes() != null && user2.getGameTypes() != null) {
-            List<String> gameTypes1 = Arrays.asList(user1.getGameTypes().split(","));
-            List<String> gameTypes2 = Arrays.asList(user2.getGameTypes().split(","));
-            
-            long commonGames = gameTypes1.stream()
-                .filter(gameTypes2::contains)
-                .count();
-            
-            if (!gameTypes1.isEmpty() && !gameTypes2.isEmpty()) {
-                similarity += (double) commonGames / Math.max(gameTypes1.size(), gameTypes2.size()) * 0.4;
-            }
-        }
-        
-        // 标签相似度
-        if (user1.getTags() != null && user2.getTags() != null) {
-            List<String> tags1 = Arrays.asList(user1.getTags().split(","));
-            List<String> tags2 = Arrays.asList(user2.getTags().split(","));
-            
-            long commonTags = tags1.stream()
-                .filter(tags2::contains)
-                .count();
-            
-            if (!tags1.isEmpty() && !tags2.isEmpty()) {
-                similarity += (double) commonTags / Math.max(tags1.size(), tags2.size()) * 0.2;
-            }
+    private long[] await(RecallChannel channel, CompletableFuture<long[]> future, long deadline) {
+        try {
+            long[] ids = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            ids = ids != null ? ids : new long[0];
+            count(channel, "success");
+            DistributionSummary.builder("recommend.recall.channel.yield")
+                    .tag("channel", channel.name())
+                    .register(meterRegistry)
+                    .record(ids.length);
+            return ids;
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            count(channel, "timeout");
+            log.warn("召回通道超时，按已到达的结果合并，通道: {}", channel.name());
+        } catch (ExecutionException e) {
+            count(channel, "error");
+            log.error("召回通道执行失败，通道: {}", channel.name(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            count(channel, "interrupted");
+            Thread.currentThread().interrupt();
         }
-        
-        return Math.min(1.0, similarity);
+        return new long[0];
+    }
+
+    private void count(RecallChannel channel, String outcome) {
+        Counter.builder("recommend.recall.channel")
+                .tag("channel", channel.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
     }
-} 
\ No newline at end of file
+}
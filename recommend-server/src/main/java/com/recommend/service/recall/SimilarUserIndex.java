@@ -0,0 +1,400 @@
+package com.recommend.service.recall;
+
+import com.recommend.common.entity.UserProfile;
+import com.recommend.common.event.UserProfileEvent;
+import com.recommend.common.utils.TopKSelector;
+import com.recommend.service.UserProfileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 相似用户索引（MinHash + LSH）
+ * 用户的标签和游戏类型合并成一个词集合（另加地区和年龄段两个词，使分桶也反映打分中地区/年龄的权重），
+ * 计算 bands×rows 个MinHash值，每个band的rows个值哈希成一个桶；
+ * Jaccard相似度为s的两个用户至少在一个band上同桶的概率为 1-(1-s^rows)^bands。
+ * 查询时只探测目标用户所在的桶，按同桶的band数取少量候选，再用预先切分好的集合精确打分。
+ * 画像变更时增量更新，定时全量重建兜底（重建期间的变更记入日志，发布前重放到新索引上）；
+ * 标签和游戏类型都不重合的用户不会成为候选。
+ */
+@Component
+@Slf4j
+public class SimilarUserIndex {
+
+    private static final String GAME_TYPE_PREFIX = "g:";
+    private static final String TAG_PREFIX = "t:";
+    private static final String REGION_PREFIX = "r:";
+    private static final String AGE_PREFIX = "a:";
+
+    // 年龄分段宽度（岁），同段的用户共享一个年龄词
+    private static final int AGE_BUCKET_YEARS = 3;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    // band数，越多召回越高、候选越多
+    @Value("${recommend.recall.similar-user.bands:32}")
+    private int bands;
+
+    // 每个band的MinHash行数，越多同桶要求越严格
+    @Value("${recommend.recall.similar-user.rows:4}")
+    private int rows;
+
+    // 精确打分的候选上限
+    @Value("${recommend.recall.similar-user.max-candidates:1000}")
+    private int maxCandidates;
+
+    private volatile State state = new State(0);
+
+    // 重建期间变更的用户 → 最新画像（删除为null），不在重建时为null，由journalLock保护
+    private Map<Long, UserProfile> journal;
+    private final Object journalLock = new Object();
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.similar-user.initial-delay-ms:0}",
+            fixedDelayString = "${recommend.recall.similar-user.refresh-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建相似用户索引失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 全量重建：新建索引后整体替换；加载画像之前打开日志，重建期间的增量更新在发布前按到达顺序重放
+     */
+    public synchronized void rebuild() {
+        synchronized (journalLock) {
+            journal = new LinkedHashMap<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<UserProfile> profiles = userProfileService.getAllUserProfiles();
+            State rebuilt = new State(bands);
+            for (UserProfile profile : profiles) {
+                rebuilt.put(toEntry(profile));
+            }
+            int replayed;
+            synchronized (journalLock) {
+                for (Map.Entry<Long, UserProfile> change : journal.entrySet()) {
+                    apply(rebuilt, change.getKey(), change.getValue());
+                }
+                replayed = journal.size();
+                state = rebuilt;
+            }
+            log.info("相似用户索引重建完成，用户: {}，桶: {}，重放变更: {}，耗时: {}ms",
+                    rebuilt.entries.size(), rebuilt.bucketCount(), replayed, System.currentTimeMillis() - start);
+        } finally {
+            synchronized (journalLock) {
+                journal = null;
+            }
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserProfile(UserProfileEvent event) {
+        try {
+            synchronized (journalLock) {
+                apply(state, event.getUserId(), event.getProfile());
+                if (journal != null && event.getUserId() != null) {
+                    // 同一用户只保留最新画像，并按最后一次变更排序
+                    journal.remove(event.getUserId());
+                    journal.put(event.getUserId(), event.getProfile());
+                }
+            }
+        } catch (Exception e) {
+            log.error("增量更新相似用户索引失败，用户ID: {}", event.getUserId(), e);
+        }
+    }
+
+    private void apply(State target, Long userId, UserProfile profile) {
+        if (profile == null) {
+            target.remove(userId);
+        } else {
+            target.put(toEntry(profile));
+        }
+    }
+
+    /**
+     * 找到与目标用户最相似的用户，按相似度降序
+     *
+     * @param threshold 相似度阈值（不含）
+     */
+    public List<UserProfile> findSimilarUsers(UserProfile target, int limit, double threshold) {
+        State current = state;
+        TopKSelector selector = findNeighbors(current, target, limit, threshold);
+        List<UserProfile> result = new ArrayList<>(selector.size());
+        for (int i = 0; i < selector.size(); i++) {
+            Entry entry = current.entries.get(selector.idAt(i));
+            if (entry != null) {
+                result.add(entry.profile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 找到与目标用户最相似的用户ID及相似度，按相似度降序
+     *
+     * @param threshold 相似度阈值（不含）
+     */
+    public TopKSelector findNeighbors(UserProfile target, int limit, double threshold) {
+        return findNeighbors(state, target, limit, threshold);
+    }
+
+    private TopKSelector findNeighbors(State current, UserProfile target, int limit, double threshold) {
+        Entry query = toEntry(target);
+        if (query.bandKeys == null || current.bands != bands) {
+            return new TopKSelector(0);
+        }
+
+        // 1. 探测各band的桶，按同桶的band数（近似Jaccard）保留前maxCandidates个候选
+        Map<Long, Integer> collisions = new HashMap<>();
+        for (int b = 0; b < bands; b++) {
+            Set<Long> bucket = current.buckets.get(b).get(query.bandKeys[b]);
+            if (bucket != null) {
+                for (Long userId : bucket) {
+                    collisions.merge(userId, 1, Integer::sum);
+                }
+            }
+        }
+        collisions.remove(query.userId);
+        TopKSelector candidates = new TopKSelector(Math.min(maxCandidates, collisions.size()));
+        for (Map.Entry<Long, Integer> collision : collisions.entrySet()) {
+            candidates.offer(collision.getKey(), collision.getValue());
+        }
+
+        // 2. 对候选精确打分，保留最相似的limit个
+        TopKSelector selector = new TopKSelector(limit);
+        for (int i = 0; i < candidates.size(); i++) {
+            long userId = candidates.idAt(i);
+            Entry entry = current.entries.get(userId);
+            if (entry == null) {
+                continue;
+            }
+            double similarity = similarity(query, entry);
+            if (similarity > threshold) {
+                selector.offer(userId, similarity);
+            }
+        }
+        return selector.sortDescending();
+    }
+
+    public int size() {
+        return state.entries.size();
+    }
+
+    /**
+     * 两个用户的相似度：地区0.2 + 年龄0.2 + 游戏类型重合0.4 + 标签重合0.2
+     */
+    private static double similarity(Entry user1, Entry user2) {
+        double similarity = 0.0;
+
+        // 地区相似度
+        if (user1.region != null && user1.region.equals(user2.region)) {
+            similarity += 0.2;
+        }
+
+        // 年龄相似度
+        if (user1.age != null && user2.age != null) {
+            int ageDiff = Math.abs(user1.age - user2.age);
+            similarity += Math.max(0, 0.2 - ageDiff / 20.0);
+        }
+
+        // 游戏类型、标签相似度：重合数 / 较大集合的大小
+        similarity += overlap(user1.gameTypes, user2.gameTypes) * 0.4;
+        similarity += overlap(user1.tags, user2.tags) * 0.2;
+
+        return Math.min(1.0, similarity);
+    }
+
+    private static double overlap(Set<String> set1, Set<String> set2) {
+        if (set1.isEmpty() || set2.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = set1.size() <= set2.size() ? set1 : set2;
+        Set<String> larger = smaller == set1 ? set2 : set1;
+        int common = 0;
+        for (String value : smaller) {
+            if (larger.contains(value)) {
+                common++;
+            }
+        }
+        return (double) common / larger.size();
+    }
+
+    private Entry toEntry(UserProfile profile) {
+        Set<String> gameTypes = tokenize(profile.getGameTypes());
+        Set<String> tags = tokenize(profile.getTags());
+        return new Entry(profile, gameTypes, tags, bandKeys(profile, gameTypes, tags));
+    }
+
+    /**
+     * 切分逗号分隔的字段；兼容按JSON数组保存的标签
+     */
+    private static Set<String> tokenize(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String token : value.split(",")) {
+            String trimmed = token.replace("[", "").replace("]", "").replace("\"", "").trim();
+            if (!trimmed.isEmpty()) {
+                tokens.add(trimmed);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 计算MinHash签名并按band折叠成桶键，集合为空时返回null（不入索引）
+     */
+    private long[] bandKeys(UserProfile profile, Set<String> gameTypes, Set<String> tags) {
+        if (gameTypes.isEmpty() && tags.isEmpty()) {
+            return null;
+        }
+        long[] tokenHashes = new long[gameTypes.size() + tags.size() + 2];
+        int n = 0;
+        for (String gameType : gameTypes) {
+            tokenHashes[n++] = hash(GAME_TYPE_PREFIX + gameType);
+        }
+        for (String tag : tags) {
+            tokenHashes[n++] = hash(TAG_PREFIX + tag);
+        }
+        tokenHashes[n++] = hash(REGION_PREFIX + profile.getRegion());
+        tokenHashes[n] = hash(AGE_PREFIX + (profile.getAge() != null ? profile.getAge() / AGE_BUCKET_YEARS : -1));
+
+        long[] keys = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long key = b;
+            for (int r = 0; r < rows; r++) {
+                // 第 b*rows+r 个哈希函数：token哈希与固定种子异或后再混合
+                long seed = mix(b * rows + r + 1L);
+                long min = Long.MAX_VALUE;
+                for (long tokenHash : tokenHashes) {
+                    min = Math.min(min, mix(tokenHash ^ seed));
+                }
+                key = mix(key * 31 + min);
+            }
+            keys[b] = key;
+        }
+        return keys;
+    }
+
+    private static long hash(String token) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < token.length(); i++) {
+            h = 31 * h + token.charAt(i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * MurmurHash3 fmix64
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 索引中的用户：画像 + 切分好的集合 + 各band桶键
+     */
+    private static final class Entry {
+        private final Long userId;
+        private final UserProfile profile;
+        private final String region;
+        private final Integer age;
+        private final Set<String> gameTypes;
+        private final Set<String> tags;
+        private final long[] bandKeys;
+
+        private Entry(UserProfile profile, Set<String> gameTypes, Set<String> tags, long[] bandKeys) {
+            this.userId = profile.getUserId();
+            this.profile = profile;
+            this.region = profile.getRegion();
+            this.age = profile.getAge();
+            this.gameTypes = gameTypes;
+            this.tags = tags;
+            this.bandKeys = bandKeys;
+        }
+    }
+
+    /**
+     * 一个版本的索引：用户表 + 每个band一张 桶键→用户ID集合
+     */
+    private static final class State {
+        private final int bands;
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final List<Map<Long, Set<Long>>> buckets;
+
+        private State(int bands) {
+            this.bands = bands;
+            this.buckets = new ArrayList<>(bands);
+            for (int b = 0; b < bands; b++) {
+                buckets.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        private synchronized void put(Entry entry) {
+            if (entry.userId == null) {
+                return;
+            }
+            remove(entry.userId);
+            entries.put(entry.userId, entry);
+            if (entry.bandKeys == null) {
+                return;
+            }
+            for (int b = 0; b < bands; b++) {
+                buckets.get(b).computeIfAbsent(entry.bandKeys[b], key -> ConcurrentHashMap.newKeySet()).add(entry.userId);
+            }
+        }
+
+        private synchronized void remove(Long userId) {
+            Entry old = entries.remove(userId);
+            if (old == null || old.bandKeys == null) {
+                return;
+            }
+            for (int b = 0; b < bands; b++) {
+                Map<Long, Set<Long>> band = buckets.get(b);
+                Set<Long> bucket = band.get(old.bandKeys[b]);
+                if (bucket != null) {
+                    bucket.remove(userId);
+                    if (bucket.isEmpty()) {
+                        band.remove(old.bandKeys[b]);
+                    }
+                }
+            }
+        }
+
+        private int bucketCount() {
+            int count = 0;
+            for (Map<Long, Set<Long>> band : buckets) {
+                count += band.size();
+            }
+            return count;
+        }
+    }
+}
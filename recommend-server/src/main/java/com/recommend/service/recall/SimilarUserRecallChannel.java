@@ -0,0 +1,25 @@
+package com.recommend.service.recall;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相似用户召回：取相似用户偏好的陪玩师
+ * 查离线用户近邻表（近邻对陪玩师评分按相似度加权聚合），只有表计算之后新注册的用户才现场计算近邻。
+ */
+@Component
+public class SimilarUserRecallChannel implements RecallChannel {
+
+    @Autowired
+    private UserNeighborTable userNeighborTable;
+
+    @Override
+    public String name() {
+        return "similar-user";
+    }
+
+    @Override
+    public long[] recall(RecallContext context, int quota) {
+        return userNeighborTable.preferredMasters(context, quota);
+    }
+}
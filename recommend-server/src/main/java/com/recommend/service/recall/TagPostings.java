@@ -0,0 +1,237 @@
+package com.recommend.service.recall;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 标签/游戏类型 → 陪玩师 倒排索引
+ * 构建时按质量分降序给每个陪玩师分配稠密序号（序号0质量最高），倒排表是升序的序号数组，
+ * 因此倒排表天然按质量排序：多个词的并集是多路归并、交集是有序数组求交，都可以在取够K个后提前结束。
+ * 构建后只读。
+ */
+public final class TagPostings {
+
+    public static final TagPostings EMPTY = build(Collections.emptyList());
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    // 序号 → 陪玩师ID / 质量分
+    private final long[] ids;
+    private final float[] quality;
+    private final Map<String, int[]> postings;
+    private final long postingCount;
+
+    private TagPostings(long[] ids, float[] quality, Map<String, int[]> postings, long postingCount) {
+        this.ids = ids;
+        this.quality = quality;
+        this.postings = postings;
+        this.postingCount = postingCount;
+    }
+
+    /**
+     * 一个待索引的陪玩师
+     */
+    public static final class Document {
+        private final long id;
+        private final double quality;
+        private final Collection<String> terms;
+
+        /**
+         * @param terms 已规范化（{@link #normalize}）的词
+         */
+        public Document(long id, double quality, Collection<String> terms) {
+            this.id = id;
+            this.quality = quality;
+            this.terms = terms;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getQuality() {
+            return quality;
+        }
+
+        public Collection<String> getTerms() {
+            return terms;
+        }
+    }
+
+    public static TagPostings build(List<Document> documents) {
+        // 1. 按质量分降序（相同时ID小的在前）分配序号
+        List<Document> sorted = new ArrayList<>(documents);
+        sorted.sort((a, b) -> {
+            int byQuality = Double.compare(b.quality, a.quality);
+            return byQuality != 0 ? byQuality : Long.compare(a.id, b.id);
+        });
+        long[] ids = new long[sorted.size()];
+        float[] quality = new float[sorted.size()];
+
+        // 2. 按序号递增追加，倒排表天然有序
+        Map<String, IntList> builders = new HashMap<>();
+        long total = 0;
+        for (int ordinal = 0; ordinal < sorted.size(); ordinal++) {
+            Document document = sorted.get(ordinal);
+            ids[ordinal] = document.id;
+            quality[ordinal] = (float) document.quality;
+            for (String term : document.terms) {
+                IntList list = builders.computeIfAbsent(term, t -> new IntList());
+                // 同一陪玩师的重复词只记一次
+                if (list.size == 0 || list.values[list.size - 1] != ordinal) {
+                    list.add(ordinal);
+                    total++;
+                }
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(builders.size() * 2);
+        for (Map.Entry<String, IntList> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return new TagPostings(ids, quality, postings, total);
+    }
+
+    /**
+     * 词的规范化：去掉首尾空白并转小写，空串返回null
+     */
+    public static String normalize(String term) {
+        if (term == null) {
+            return null;
+        }
+        String normalized = term.trim().toLowerCase();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    public long idAt(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public float qualityAt(int ordinal) {
+        return quality[ordinal];
+    }
+
+    /**
+     * 命中任一词的陪玩师（多路归并），按质量分降序，最多limit个
+     *
+     * @param accept 陪玩师过滤条件，不接受的跳过且不计入limit
+     * @return 序号
+     */
+    public int[] union(Collection<String> terms, int limit, LongPredicate accept) {
+        int[][] lists = listsOf(terms);
+        int[] positions = new int[lists.length];
+        int[] result = new int[Math.min(limit, ids.length)];
+        int count = 0;
+        while (count < result.length) {
+            // 各倒排表当前位置的最小序号
+            int next = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < lists[i].length) {
+                    next = Math.min(next, lists[i][positions[i]]);
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                break;
+            }
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < lists[i].length && lists[i][positions[i]] == next) {
+                    positions[i]++;
+                }
+            }
+            if (accept.test(ids[next])) {
+                result[count++] = next;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 命中全部词的陪玩师（有序数组求交，从最短的倒排表出发向其余表二分前进），按质量分降序，最多limit个
+     *
+     * @return 序号
+     */
+    public int[] intersect(Collection<String> terms, int limit, LongPredicate accept) {
+        if (terms.isEmpty()) {
+            return NO_POSTINGS;
+        }
+        int[][] lists = listsOf(terms);
+        if (lists.length < terms.size()) {
+            // 有词不在索引中，交集为空
+            return NO_POSTINGS;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] positions = new int[lists.length];
+        int[] result = new int[Math.min(limit, lists[0].length)];
+        int count = 0;
+        for (int candidate : lists[0]) {
+            if (count == result.length) {
+                break;
+            }
+            boolean all = true;
+            for (int i = 1; i < lists.length && all; i++) {
+                int found = Arrays.binarySearch(lists[i], positions[i], lists[i].length, candidate);
+                positions[i] = found >= 0 ? found : -found - 1;
+                all = found >= 0;
+                if (positions[i] >= lists[i].length) {
+                    // 某个表已走完，后面不会再有交集
+                    return Arrays.copyOf(result, count);
+                }
+            }
+            if (all && accept.test(ids[candidate])) {
+                result[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public long memoryFootprintBytes() {
+        return (long) ids.length * (Long.BYTES + Float.BYTES) + postingCount * Integer.BYTES + postings.size() * 64L;
+    }
+
+    /**
+     * 查询词对应的倒排表（去重，不在索引中的词忽略）
+     */
+    private int[][] listsOf(Collection<String> terms) {
+        List<int[]> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            int[] list = postings.get(term);
+            if (list != null && !lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        return lists.toArray(new int[0][]);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
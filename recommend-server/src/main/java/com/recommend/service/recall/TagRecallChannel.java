@@ -0,0 +1,56 @@
+package com.recommend.service.recall;
+
+import com.recommend.common.entity.UserProfile;
+import com.recommend.common.utils.LongHashSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 标签召回：按用户画像中偏好的游戏类型匹配陪玩师
+ * 在内存倒排索引上查询：先取命中全部偏好的陪玩师，不足配额时再用命中任一偏好的陪玩师补齐，各自按质量分降序。
+ */
+@Component
+public class TagRecallChannel implements RecallChannel {
+
+    @Autowired
+    private MasterTagIndex masterTagIndex;
+
+    @Override
+    public String name() {
+        return "tag";
+    }
+
+    @Override
+    public long[] recall(RecallContext context, int quota) {
+        // 从用户画像中获取游戏类型偏好
+        UserProfile profile = context.getProfile();
+        String gameTypes = profile != null ? profile.getGameTypes() : null;
+        if (gameTypes == null || gameTypes.isEmpty()) {
+            return new long[0];
+        }
+
+        // 将游戏类型字符串转换为标签列表
+        List<String> tags = Arrays.asList(gameTypes.split(","));
+        if (tags.size() < 2) {
+            return masterTagIndex.union(tags, quota);
+        }
+        long[] matchAll = masterTagIndex.intersect(tags, quota);
+        if (matchAll.length >= quota) {
+            return matchAll;
+        }
+        LongHashSet ids = new LongHashSet(quota);
+        for (long id : matchAll) {
+            ids.add(id);
+        }
+        for (long id : masterTagIndex.union(tags, quota)) {
+            if (ids.size() == quota) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids.toArray();
+    }
+}
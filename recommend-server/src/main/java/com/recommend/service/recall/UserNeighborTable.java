@@ -0,0 +1,446 @@
+package com.recommend.service.recall;
+
+import com.recommend.algorithm.impl.CollaborativeFilteringAlgorithm;
+import com.recommend.algorithm.model.CollaborativeFilteringModel;
+import com.recommend.algorithm.model.SparseMatrix;
+import com.recommend.algorithm.model.SparseRow;
+import com.recommend.algorithm.snapshot.ModelSnapshotReader;
+import com.recommend.algorithm.snapshot.ModelSnapshotWriter;
+import com.recommend.common.entity.UserProfile;
+import com.recommend.common.utils.TopKSelector;
+import com.recommend.service.UserProfileService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线用户近邻表
+ * 定时批量为每个活跃用户找出最相似的N个用户（{@link SimilarUserIndex}），按 相似度×近邻对陪玩师的评分
+ * （协同过滤评分矩阵，含在线增量）聚合出偏好陪玩师，每个用户保留前M个，存为一个 用户→陪玩师 的稀疏矩阵。
+ * 表写入本地二进制文件（模型快照格式）并镜像到Redis哈希，启动时从文件恢复，其他节点按水位线从Redis同步。
+ * 开启镜像时定时计算只由抢到Redis锁的一个节点执行；整表替换和水位线在同一个Lua脚本里原子写入，且不会用旧表覆盖新表。
+ * 召回时只查一次表；只有水位线之后新建画像的用户（表中不可能有）才现场计算。
+ */
+@Component
+@Slf4j
+public class UserNeighborTable {
+
+    private static final String FILE_PREFIX = "user-neighbors-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String SECTION = "user-neighbors.masters";
+    private static final String REDIS_KEY = "recommend:recall:user-neighbors";
+    private static final String WATERMARK_KEY = REDIS_KEY + ":watermark";
+    private static final String LOCK_KEY = REDIS_KEY + ":lock";
+    private static final int REDIS_BATCH_SIZE = 1000;
+
+    // KEYS: 临时key、正式key、水位线key；ARGV: 水位线。比Redis中的水位线新时才替换整表并写水位线，否则丢弃临时key
+    private static final DefaultRedisScript<Long> PUBLISH_SCRIPT = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('GET', KEYS[3]) or '0') "
+                    + "if tonumber(ARGV[1]) <= current then redis.call('DEL', KEYS[1]) return 0 end "
+                    + "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('RENAME', KEYS[1], KEYS[2]) "
+                    + "else redis.call('DEL', KEYS[2]) end "
+                    + "redis.call('SET', KEYS[3], ARGV[1]) return 1", Long.class);
+
+    // 只释放本节点持有的锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    @Autowired
+    private SimilarUserIndex similarUserIndex;
+
+    @Autowired
+    private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 每个用户的近邻数
+    @Value("${recommend.recall.user-neighbors.neighbors:10}")
+    private int neighbors;
+
+    // 近邻相似度阈值（不含）
+    @Value("${recommend.recall.user-neighbors.threshold:0.3}")
+    private double threshold;
+
+    // 每个用户保留的偏好陪玩师数
+    @Value("${recommend.recall.user-neighbors.masters-per-user:50}")
+    private int mastersPerUser;
+
+    // 只为最近active-days天活跃过的用户计算，0表示全部用户
+    @Value("${recommend.recall.user-neighbors.active-days:30}")
+    private int activeDays;
+
+    @Value("${recommend.recall.user-neighbors.dir:data/user-neighbors}")
+    private String directory;
+
+    @Value("${recommend.recall.user-neighbors.redis-mirror:true}")
+    private boolean redisMirror;
+
+    // 批量计算锁的有效期，期间其他节点不再计算；计算失败时提前释放
+    @Value("${recommend.recall.user-neighbors.build-lock-ttl-ms:3600000}")
+    private long buildLockTtlMs;
+
+    // 本节点标识：区分锁的持有者和各节点的临时key
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile Table table = new Table(SparseMatrix.EMPTY, 0);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStartup() {
+        try {
+            restore();
+        } catch (Exception e) {
+            log.error("从文件恢复用户近邻表失败，等待批量计算", e);
+        }
+    }
+
+    /**
+     * 定时批量计算；开启镜像时只有抢到锁的节点计算，其他节点从Redis同步
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.user-neighbors.initial-delay-ms:600000}",
+            fixedDelayString = "${recommend.recall.user-neighbors.refresh-interval-ms:3600000}")
+    public void scheduledBuild() {
+        try {
+            if (redisMirror && !Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, nodeId, buildLockTtlMs, TimeUnit.MILLISECONDS))) {
+                log.debug("用户近邻表由其他节点计算，本节点跳过");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("获取用户近邻表计算锁失败，本次跳过", e);
+            return;
+        }
+        try {
+            build();
+        } catch (Exception e) {
+            log.error("批量计算用户近邻表失败，继续使用当前版本", e);
+            if (redisMirror) {
+                releaseLock();
+            }
+        }
+    }
+
+    /**
+     * 定时检查Redis中的水位线，比本地新时拉取整张表
+     */
+    @Scheduled(initialDelayString = "${recommend.recall.user-neighbors.sync-interval-ms:60000}",
+            fixedDelayString = "${recommend.recall.user-neighbors.sync-interval-ms:60000}")
+    public void scheduledSync() {
+        if (!redisMirror) {
+            return;
+        }
+        try {
+            syncFromRedis();
+        } catch (Exception e) {
+            log.error("从Redis同步用户近邻表失败，继续使用当前版本", e);
+        }
+    }
+
+    /**
+     * 批量计算并发布：水位线取计算开始时间，之后新建画像的用户走现场计算
+     */
+    public synchronized void build() throws IOException {
+        long watermark = System.currentTimeMillis();
+        CollaborativeFilteringModel ratings = collaborativeFilteringAlgorithm.getModelSnapshot().getModel();
+        long activeSince = activeDays > 0 ? watermark - TimeUnit.DAYS.toMillis(activeDays) : Long.MIN_VALUE;
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(mastersPerUser);
+        int users = 0;
+        for (UserProfile profile : userProfileService.getAllUserProfiles()) {
+            if (profile.getUserId() == null
+                    || (profile.getLastActiveTime() != null && profile.getLastActiveTime().getTime() < activeSince)) {
+                continue;
+            }
+            // 没有近邻或近邻没有评分的用户也登记为空行，表示已计算过
+            builder.touchRow(profile.getUserId());
+            aggregate(profile.getUserId(), profile, ratings, builder);
+            users++;
+        }
+        SparseMatrix masters = builder.build();
+        table = new Table(masters, watermark);
+        log.info("用户近邻表计算完成，用户: {}，偏好条目: {}，耗时: {}ms",
+                users, masters.nonZeroCount(), System.currentTimeMillis() - watermark);
+
+        save(masters, watermark);
+        if (redisMirror) {
+            try {
+                mirror(masters, watermark);
+            } catch (Exception e) {
+                log.error("用户近邻表写入Redis失败，本节点继续使用新表", e);
+            }
+        }
+    }
+
+    /**
+     * 用户的偏好陪玩师ID，按聚合得分降序，最多limit个
+     * 表中有该用户时直接查表；表中没有且画像创建于水位线之后（或尚无表）时现场计算；其余返回空。
+     */
+    public long[] preferredMasters(RecallContext context, int limit) {
+        Table current = table;
+        Long userId = context.getUserId();
+        int rowIdx = userId != null ? current.masters.rowIndex(userId) : -1;
+        if (rowIdx >= 0) {
+            count("table");
+            TopKSelector selector = new TopKSelector(Math.min(limit,
+                    current.masters.rowEnd(rowIdx) - current.masters.rowStart(rowIdx)));
+            for (int pos = current.masters.rowStart(rowIdx); pos < current.masters.rowEnd(rowIdx); pos++) {
+                selector.offer(current.masters.colAt(pos), current.masters.valueAt(pos));
+            }
+            return selector.toSortedIds();
+        }
+        UserProfile profile = context.getProfile();
+        if (userId == null || profile == null || !isNewerThan(profile, current.watermark)) {
+            count("miss");
+            return new long[0];
+        }
+        count("live");
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(mastersPerUser);
+        aggregate(userId, profile, collaborativeFilteringAlgorithm.getModelSnapshot().getModel(), builder);
+        SparseMatrix row = builder.build();
+        TopKSelector selector = new TopKSelector(Math.min(limit, row.nonZeroCount()));
+        for (int pos = 0; pos < row.nonZeroCount(); pos++) {
+            selector.offer(row.colAt(pos), row.valueAt(pos));
+        }
+        return selector.toSortedIds();
+    }
+
+    public long getWatermark() {
+        return table.watermark;
+    }
+
+    public int size() {
+        return table.masters.rowCount();
+    }
+
+    /**
+     * 找出用户的近邻，把 相似度×近邻评分 按陪玩师累加后写入构建器的该用户行
+     */
+    private void aggregate(long userId, UserProfile profile, CollaborativeFilteringModel ratings,
+                           SparseMatrix.Builder builder) {
+        Map<Long, Double> scores = new HashMap<>();
+        TopKSelector nearest = similarUserIndex.findNeighbors(profile, neighbors, threshold);
+        for (int i = 0; i < nearest.size(); i++) {
+            SparseRow row = ratings.getUserMasterRow(nearest.idAt(i));
+            if (row == null) {
+                continue;
+            }
+            double similarity = nearest.scoreAt(i);
+            for (int j = 0; j < row.size(); j++) {
+                scores.merge(row.colAt(j), similarity * row.valueAt(j), Double::sum);
+            }
+        }
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            builder.put(userId, score.getKey(), score.getValue().floatValue());
+        }
+    }
+
+    /**
+     * 画像是否创建于水位线之后；尚无表（水位线为0）时所有用户都视为新用户
+     */
+    private static boolean isNewerThan(UserProfile profile, long watermark) {
+        return watermark == 0 || profile.getCreateTime() == null || profile.getCreateTime().getTime() >= watermark;
+    }
+
+    /**
+     * 写入本地文件：先写临时文件再原子改名，只保留最近两份
+     */
+    private void save(SparseMatrix masters, long watermark) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(FILE_PREFIX + watermark + FILE_SUFFIX);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        try (ModelSnapshotWriter writer = new ModelSnapshotWriter(temp)) {
+            writer.writeSparseMatrix(SECTION, masters).finish();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        List<Path> files = listFiles();
+        for (int i = 2; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * 从最新的可用文件恢复，已经计算或同步过时不覆盖
+     */
+    private void restore() throws IOException {
+        for (Path file : listFiles()) {
+            ModelSnapshotReader reader;
+            try {
+                reader = ModelSnapshotReader.open(file);
+            } catch (IOException e) {
+                log.warn("用户近邻表文件不可用，回退到更早的文件: {}，原因: {}", file, e.getMessage());
+                continue;
+            }
+            SparseMatrix masters = reader.getSparseMatrix(SECTION);
+            if (masters == null) {
+                continue;
+            }
+            synchronized (this) {
+                if (table.watermark == 0) {
+                    table = new Table(masters, parseWatermark(file));
+                    log.info("用户近邻表从文件恢复: {}，用户: {}", file, masters.rowCount());
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * 整表写入Redis哈希（字段为用户ID，值为 陪玩师ID:得分 逗号分隔）：先写本节点的临时key，
+     * 再由脚本原子地RENAME并更新水位线
+     */
+    private void mirror(SparseMatrix masters, long watermark) {
+        String staging = REDIS_KEY + ":staging:" + nodeId;
+        redisTemplate.delete(staging);
+        Map<String, String> batch = new HashMap<>(REDIS_BATCH_SIZE * 2);
+        for (int rowIdx = 0; rowIdx < masters.rowCount(); rowIdx++) {
+            StringBuilder value = new StringBuilder();
+            for (int pos = masters.rowStart(rowIdx); pos < masters.rowEnd(rowIdx); pos++) {
+                if (value.length() > 0) {
+                    value.append(',');
+                }
+                value.append(masters.colAt(pos)).append(':').append(masters.valueAt(pos));
+            }
+            batch.put(String.valueOf(masters.rowKeyAt(rowIdx)), value.toString());
+            if (batch.size() == REDIS_BATCH_SIZE) {
+                redisTemplate.opsForHash().putAll(staging, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            redisTemplate.opsForHash().putAll(staging, batch);
+        }
+        Long published = redisTemplate.execute(PUBLISH_SCRIPT, Arrays.asList(staging, REDIS_KEY, WATERMARK_KEY),
+                String.valueOf(watermark));
+        if (published == null || published == 0) {
+            log.warn("Redis中已有更新的用户近邻表，本节点的表未写入，水位线: {}", watermark);
+        }
+    }
+
+    private void releaseLock() {
+        try {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_KEY), nodeId);
+        } catch (Exception e) {
+            log.warn("释放用户近邻表计算锁失败，等待自动过期: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Redis中的表比本地新时整表拉取（HSCAN），并写入本地文件以便重启后直接恢复
+     */
+    private void syncFromRedis() throws IOException {
+        String value = redisTemplate.opsForValue().get(WATERMARK_KEY);
+        long watermark = value != null ? Long.parseLong(value) : 0;
+        if (watermark <= table.watermark) {
+            return;
+        }
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(mastersPerUser);
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash()
+                .scan(REDIS_KEY, ScanOptions.scanOptions().count(REDIS_BATCH_SIZE).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                long userId = Long.parseLong(String.valueOf(entry.getKey()));
+                builder.touchRow(userId);
+                String row = String.valueOf(entry.getValue());
+                if (row.isEmpty()) {
+                    continue;
+                }
+                for (String item : row.split(",")) {
+                    int colon = item.indexOf(':');
+                    builder.put(userId, Long.parseLong(item.substring(0, colon)), Float.parseFloat(item.substring(colon + 1)));
+                }
+            }
+        }
+        SparseMatrix masters = builder.build();
+        synchronized (this) {
+            if (watermark <= table.watermark) {
+                return;
+            }
+            table = new Table(masters, watermark);
+        }
+        log.info("用户近邻表从Redis同步完成，水位线: {}，用户: {}", watermark, masters.rowCount());
+        save(masters, watermark);
+    }
+
+    /**
+     * 列出本地文件，最新的在前
+     */
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (parseWatermark(file) > 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(UserNeighborTable::parseWatermark).reversed());
+        return files;
+    }
+
+    private static long parseWatermark(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private void count(String source) {
+        Counter.builder("recommend.recall.user-neighbors.lookup")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static final class Table {
+        // 用户ID → (陪玩师ID → 聚合得分)
+        private final SparseMatrix masters;
+        // 计算开始时间（毫秒），0表示尚无表
+        private final long watermark;
+
+        private Table(SparseMatrix masters, long watermark) {
+            this.masters = masters;
+            this.watermark = watermark;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.recommend.service.route;
+
+import com.recommend.RecommendApplication.RecommendSystemConfig;
+import com.recommend.algorithm.RecommendAlgorithm;
+import com.recommend.algorithm.impl.CollaborativeFilteringAlgorithm;
+import com.recommend.algorithm.impl.ContentBasedAlgorithm;
+import com.recommend.algorithm.impl.HybridAlgorithm;
+import com.recommend.algorithm.impl.MatrixFactorizationAlgorithm;
+import com.recommend.common.dto.RecommendRequest;
+import com.recommend.common.entity.GameMaster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推荐算法路由
+ * 按 请求指定的算法 → 场景配置 → 系统默认算法 的顺序选出路由，每条路由有独立的耗时预算、并发上限和降级算法：
+ * 并发已满、超时或执行失败时改走降级算法（沿降级链直到成功或无可降级）。
+ * 昂贵的算法因此被限制在自己的并发额度内，不会拖慢默认路径。
+ */
+@Component
+@Slf4j
+public class AlgorithmRouter {
+
+    /**
+     * 召回→排序→过滤 链路，由RecommendService注册
+     */
+    public static final String PIPELINE = "pipeline";
+
+    @Autowired
+    private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
+
+    @Autowired
+    private ContentBasedAlgorithm contentBasedAlgorithm;
+
+    @Autowired
+    private MatrixFactorizationAlgorithm matrixFactorizationAlgorithm;
+
+    @Autowired
+    private HybridAlgorithm hybridAlgorithm;
+
+    @Autowired
+    private RouteProperties routeProperties;
+
+    @Autowired
+    private RecommendSystemConfig recommendSystemConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor routeExecutor;
+
+    /**
+     * 陪玩师推荐的执行方法
+     */
+    @FunctionalInterface
+    public interface MasterRecommender {
+        List<GameMaster> recommend(RecommendRequest request, int limit);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        routeExecutor = new ThreadPoolExecutor(routeProperties.getPoolSize(), routeProperties.getPoolSize(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(routeProperties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recommend-route-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        routeExecutor.allowCoreThreadTimeOut(true);
+
+        register("collaborative-filtering", algorithm(collaborativeFilteringAlgorithm));
+        register("content-based", algorithm(contentBasedAlgorithm));
+        register("matrix-factorization", algorithm(matrixFactorizationAlgorithm));
+        register("hybrid", algorithm(hybridAlgorithm));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        routeExecutor.shutdownNow();
+    }
+
+    /**
+     * 注册（或替换）一条路由，耗时预算、并发上限和降级算法读取路由配置
+     */
+    public void register(String name, MasterRecommender recommender) {
+        RouteProperties.Route config = routeProperties.routeOf(name);
+        routes.put(name, new Route(name, recommender, config));
+        log.info("注册推荐路由: {}，耗时预算: {}ms，并发上限: {}，降级: {}",
+                name, config.getTimeoutMs(), config.getMaxConcurrency(), config.getFallback());
+    }
+
+    /**
+     * 选出请求的首选路由：请求指定的算法 → 场景配置 → 系统默认算法，未注册的名称跳过
+     */
+    public String resolve(RecommendRequest request) {
+        if (isRegistered(request.getAlgorithm())) {
+            return request.getAlgorithm();
+        }
+        if (request.getScene() != null) {
+            String sceneAlgorithm = routeProperties.getScenes().get(request.getScene());
+            if (isRegistered(sceneAlgorithm)) {
+                return sceneAlgorithm;
+            }
+        }
+        String defaultAlgorithm = recommendSystemConfig.getDefaultAlgorithm();
+        return isRegistered(defaultAlgorithm) ? defaultAlgorithm : PIPELINE;
+    }
+
+    /**
+     * 按路由推荐陪玩师，首选路由失败时沿降级链执行
+     */
+    public RouteResult routeGameMasters(RecommendRequest request, int limit) {
+        String requested = resolve(request);
+        String name = requested;
+        String fallbackReason = null;
+        Set<String> visited = new HashSet<>();
+        while (name != null && visited.add(name)) {
+            Route route = routes.get(name);
+            if (route == null) {
+                fallbackReason = "unknown";
+                break;
+            }
+            Attempt attempt = execute(route, request, limit);
+            if (attempt.masters != null) {
+                return new RouteResult(requested, name, attempt.masters, fallbackReason);
+            }
+            fallbackReason = attempt.outcome;
+            String fallback = route.config.getFallback();
+            Counter.builder("recommend.router.fallback")
+                    .tag("route", name)
+                    .tag("reason", attempt.outcome)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("推荐路由[{}]未能返回结果（{}），降级到: {}，用户ID: {}",
+                    name, attempt.outcome, fallback, request.getUserId());
+            name = StringUtils.isNotEmpty(fallback) ? fallback : null;
+        }
+        return new RouteResult(requested, null, Collections.emptyList(), fallbackReason);
+    }
+
+    /**
+     * 在路由线程池上执行一次，占用该路由的一个并发额度直到执行结束（超时后仍在执行的也计入）
+     */
+    private Attempt execute(Route route, RecommendRequest request, int limit) {
+        long start = System.nanoTime();
+        String outcome;
+        List<GameMaster> masters = null;
+        if (!route.permits.tryAcquire()) {
+            outcome = "rejected";
+        } else {
+            CompletableFuture<List<GameMaster>> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return route.recommender.recommend(request, limit);
+                    } finally {
+                        route.permits.release();
+                    }
+                }, routeExecutor);
+            } catch (RejectedExecutionException e) {
+                route.permits.release();
+                future = null;
+            }
+            if (future == null) {
+                outcome = "rejected";
+            } else {
+                try {
+                    masters = future.get(route.config.getTimeoutMs(), TimeUnit.MILLISECONDS);
+                    if (masters == null) {
+                        masters = Collections.emptyList();
+                    }
+                    outcome = "success";
+                } catch (TimeoutException e) {
+                    future.cancel(false);
+                    outcome = "timeout";
+                } catch (ExecutionException e) {
+                    log.error("推荐路由[{}]执行失败，用户ID: {}", route.name, request.getUserId(), e.getCause());
+                    outcome = "error";
+                } catch (InterruptedException e) {
+                    future.cancel(false);
+                    Thread.currentThread().interrupt();
+                    outcome = "interrupted";
+                }
+            }
+        }
+        Timer.builder("recommend.router.latency")
+                .tag("route", route.name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Attempt(masters, outcome);
+    }
+
+    private boolean isRegistered(String name) {
+        return name != null && routes.containsKey(name);
+    }
+
+    private static MasterRecommender algorithm(RecommendAlgorithm algorithm) {
+        return (request, limit) -> algorithm.recommendGameMasters(request.getUserId(), request.getGameId(), limit);
+    }
+
+    private static final class Route {
+        private final String name;
+        private final MasterRecommender recommender;
+        private final RouteProperties.Route config;
+        private final Semaphore permits;
+
+        private Route(String name, MasterRecommender recommender, RouteProperties.Route config) {
+            this.name = name;
+            this.recommender = recommender;
+            this.config = config;
+            this.permits = new Semaphore(config.getMaxConcurrency());
+        }
+    }
+
+    private static final class Attempt {
+        // 未能返回结果时为null
+        private final List<GameMaster> masters;
+        private final String outcome;
+
+        private Attempt(List<GameMaster> masters, String outcome) {
+            this.masters = masters;
+            this.outcome = outcome;
+        }
+    }
+}
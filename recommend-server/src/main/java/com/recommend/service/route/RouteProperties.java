@@ -0,0 +1,66 @@
+package com.recommend.service.route;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 推荐路由配置
+ * 场景到算法的映射，以及每条路由的耗时预算、并发上限和降级算法；未单独配置的路由使用defaults。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "recommend.router")
+public class RouteProperties {
+
+    /**
+     * 路由线程池大小
+     */
+    private int poolSize = 32;
+
+    /**
+     * 路由线程池排队上限
+     */
+    private int queueCapacity = 500;
+
+    /**
+     * 场景 → 算法名称
+     */
+    private Map<String, String> scenes = new HashMap<>();
+
+    /**
+     * 未单独配置的路由的默认设置
+     */
+    private Route defaults = new Route();
+
+    /**
+     * 算法名称 → 路由设置
+     */
+    private Map<String, Route> routes = new HashMap<>();
+
+    public Route routeOf(String name) {
+        return routes.getOrDefault(name, defaults);
+    }
+
+    @Data
+    public static class Route {
+
+        /**
+         * 耗时预算（毫秒），超时后改走降级算法
+         */
+        private long timeoutMs = 500;
+
+        /**
+         * 同时执行的请求上限，超过时直接改走降级算法
+         */
+        private int maxConcurrency = 64;
+
+        /**
+         * 降级算法名称，为空时不降级
+         */
+        private String fallback;
+    }
+}
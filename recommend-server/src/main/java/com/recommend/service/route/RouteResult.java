@@ -0,0 +1,43 @@
+package com.recommend.service.route;
+
+import com.recommend.common.entity.GameMaster;
+
+import java.util.List;
+
+/**
+ * 一次路由的结果：实际出结果的算法、首选算法和降级原因（未降级时为null）
+ */
+public final class RouteResult {
+
+    private final String requested;
+    private final String algorithm;
+    private final List<GameMaster> masters;
+    private final String fallbackReason;
+
+    public RouteResult(String requested, String algorithm, List<GameMaster> masters, String fallbackReason) {
+        this.requested = requested;
+        this.algorithm = algorithm;
+        this.masters = masters;
+        this.fallbackReason = fallbackReason;
+    }
+
+    public String getRequested() {
+        return requested;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public List<GameMaster> getMasters() {
+        return masters;
+    }
+
+    public String getFallbackReason() {
+        return fallbackReason;
+    }
+
+    public boolean isFallback() {
+        return fallbackReason != null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.recommend.algorithm.ann;
+
+import com.recommend.common.utils.TopKSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(42);
+        int n = 3000;
+        float[][] vectors = randomVectors(random, n);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200, 42);
+        for (int i = 0; i < n; i++) {
+            index.insert(i, vectors[i]);
+        }
+        assertEquals(n, index.size());
+
+        int queries = 100;
+        int k = 10;
+        double recall = 0.0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            long[] exact = bruteForce(vectors, null, query, k);
+            long[] approximate = index.search(query, k, 100);
+            assertEquals(k, approximate.length);
+            recall += overlap(exact, approximate) / (double) k;
+        }
+        recall /= queries;
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void resultsAreSortedByDistance() {
+        Random random = new Random(1);
+        float[][] vectors = randomVectors(random, 500);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 100, 1);
+        for (int i = 0; i < vectors.length; i++) {
+            index.insert(i, vectors[i]);
+        }
+        float[] query = randomVector(random);
+        long[] result = index.search(query, 20, 200);
+        for (int i = 1; i < result.length; i++) {
+            assertTrue(squaredDistance(vectors[(int) result[i - 1]], query)
+                    <= squaredDistance(vectors[(int) result[i]], query));
+        }
+
+        // 查询自身向量时最近的是它自己
+        assertEquals(123L, index.search(vectors[123], 1, 50)[0]);
+    }
+
+    @Test
+    void deletedNodesAreExcludedAndCanBeRestored() {
+        Random random = new Random(3);
+        int n = 1000;
+        float[][] vectors = randomVectors(random, n);
+        HnswIndex index = new HnswIndex(DIMENSION, 12, 100, 3);
+        for (int i = 0; i < n; i++) {
+            index.insert(i, vectors[i]);
+        }
+        boolean[] deleted = new boolean[n];
+        for (int i = 0; i < n; i += 3) {
+            assertTrue(index.delete(i));
+            deleted[i] = true;
+        }
+        assertFalse(index.delete(-1L));
+        assertFalse(index.contains(0L));
+
+        float[] query = randomVector(random);
+        long[] result = index.search(query, 10, 100);
+        for (long id : result) {
+            assertFalse(deleted[(int) id]);
+        }
+        long[] exact = bruteForce(vectors, deleted, query, 10);
+        assertTrue(overlap(exact, result) >= 8);
+
+        index.insert(0L, vectors[0]);
+        assertTrue(index.contains(0L));
+        assertArrayEquals(new long[]{0L}, index.search(vectors[0], 1, 50));
+    }
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50, 0);
+        assertEquals(0, index.search(new float[DIMENSION], 5, 50).length);
+    }
+
+    private static long[] bruteForce(float[][] vectors, boolean[] deleted, float[] query, int k) {
+        TopKSelector selector = new TopKSelector(k);
+        for (int i = 0; i < vectors.length; i++) {
+            if (deleted == null || !deleted[i]) {
+                selector.offer(i, -squaredDistance(vectors[i], query));
+            }
+        }
+        return selector.toSortedIds();
+    }
+
+    private static int overlap(long[] exact, long[] approximate) {
+        Set<Long> truth = new HashSet<>();
+        for (long id : exact) {
+            truth.add(id);
+        }
+        int hits = 0;
+        for (long id : approximate) {
+            if (truth.contains(id)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static double squaredDistance(float[] a, float[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            double d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    private static float[][] randomVectors(Random random, int n) {
+        float[][] vectors = new float[n][];
+        for (int i = 0; i < n; i++) {
+            vectors[i] = randomVector(random);
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
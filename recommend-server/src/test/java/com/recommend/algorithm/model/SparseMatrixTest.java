@@ -0,0 +1,111 @@
+package com.recommend.algorithm.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparseMatrixTest {
+
+    @Test
+    void builderProducesSortedCsr() {
+        SparseMatrix matrix = new SparseMatrix.Builder(Integer.MAX_VALUE)
+                .put(30L, 5L, 1.5f)
+                .put(10L, 9L, 2.0f)
+                .put(10L, 3L, 1.0f)
+                .put(30L, 1L, 0.5f)
+                .touchRow(20L)
+                .build();
+
+        assertEquals(3, matrix.rowCount());
+        assertEquals(4, matrix.nonZeroCount());
+        assertEquals(10L, matrix.rowKeyAt(0));
+        assertEquals(20L, matrix.rowKeyAt(1));
+        assertEquals(30L, matrix.rowKeyAt(2));
+
+        // 行内列键升序
+        int row = matrix.rowIndex(10L);
+        assertEquals(3L, matrix.colAt(matrix.rowStart(row)));
+        assertEquals(9L, matrix.colAt(matrix.rowStart(row) + 1));
+        assertEquals(2, matrix.rowEnd(row) - matrix.rowStart(row));
+
+        // 空行存在但没有元素
+        assertTrue(matrix.containsRow(20L));
+        int empty = matrix.rowIndex(20L);
+        assertEquals(matrix.rowStart(empty), matrix.rowEnd(empty));
+    }
+
+    @Test
+    void getReturnsDefaultForMissingCells() {
+        SparseMatrix matrix = new SparseMatrix.Builder(Integer.MAX_VALUE)
+                .put(1L, 2L, 0.25f)
+                .build();
+
+        assertEquals(0.25f, matrix.get(1L, 2L, -1f));
+        assertEquals(-1f, matrix.get(1L, 3L, -1f));
+        assertEquals(-1f, matrix.get(7L, 2L, -1f));
+        assertEquals(-1, matrix.rowIndex(7L));
+        assertFalse(matrix.containsRow(7L));
+    }
+
+    @Test
+    void builderKeepsLargestValuesPerRow() {
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(2);
+        builder.put(1L, 1L, 0.1f).put(1L, 2L, 0.9f).put(1L, 3L, 0.5f).put(1L, 4L, 0.3f);
+        SparseMatrix matrix = builder.build();
+
+        assertEquals(2, matrix.nonZeroCount());
+        assertEquals(0.9f, matrix.get(1L, 2L, 0f));
+        assertEquals(0.5f, matrix.get(1L, 3L, 0f));
+        assertEquals(0f, matrix.get(1L, 1L, 0f));
+    }
+
+    @Test
+    void mergeCombinesRowsFromPartitions() {
+        SparseMatrix.Builder left = new SparseMatrix.Builder(Integer.MAX_VALUE).put(1L, 1L, 1f);
+        SparseMatrix.Builder right = new SparseMatrix.Builder(Integer.MAX_VALUE).put(1L, 2L, 2f).put(2L, 1L, 3f);
+        SparseMatrix matrix = left.merge(right).build();
+
+        assertEquals(2, matrix.rowCount());
+        assertEquals(1f, matrix.get(1L, 1L, 0f));
+        assertEquals(2f, matrix.get(1L, 2L, 0f));
+        assertEquals(3f, matrix.get(2L, 1L, 0f));
+    }
+
+    @Test
+    void withRowReplacesOrInsertsWithoutTouchingOriginal() {
+        SparseMatrix original = new SparseMatrix.Builder(Integer.MAX_VALUE)
+                .put(1L, 1L, 1f)
+                .put(3L, 1L, 3f)
+                .build();
+
+        SparseMatrix replaced = original.withRow(1L, new long[]{9L, 4L, 0L}, new float[]{9f, 4f, 0f}, 2);
+        assertEquals(0f, replaced.get(1L, 1L, 0f));
+        assertEquals(4f, replaced.get(1L, 4L, 0f));
+        assertEquals(9f, replaced.get(1L, 9L, 0f));
+        assertEquals(3, replaced.nonZeroCount());
+
+        SparseMatrix inserted = original.withRow(2L, new long[]{5L}, new float[]{5f}, 1);
+        assertEquals(3, inserted.rowCount());
+        assertEquals(2L, inserted.rowKeyAt(1));
+        assertEquals(5f, inserted.get(2L, 5L, 0f));
+        assertEquals(3f, inserted.get(3L, 1L, 0f));
+
+        assertEquals(1f, original.get(1L, 1L, 0f));
+        assertEquals(2, original.rowCount());
+    }
+
+    @Test
+    void fromArraysRoundTripsAndValidatesLengths() {
+        SparseMatrix matrix = SparseMatrix.fromArrays(new long[]{1L, 2L}, new int[]{0, 1, 3},
+                new long[]{7L, 1L, 8L}, new float[]{0.7f, 0.1f, 0.8f});
+        assertEquals(0.8f, matrix.get(2L, 8L, 0f));
+        assertArrayEquals(new long[]{1L, 2L}, new long[]{matrix.rowKeyAt(0), matrix.rowKeyAt(1)});
+
+        assertThrows(IllegalArgumentException.class, () -> SparseMatrix.fromArrays(new long[]{1L},
+                new int[]{0, 2}, new long[]{1L}, new float[]{1f}));
+    }
+}
@@ -0,0 +1,175 @@
+package com.recommend.algorithm.snapshot;
+
+import com.recommend.algorithm.impl.CollaborativeFilteringAlgorithm;
+import com.recommend.algorithm.impl.MatrixFactorizationAlgorithm;
+import com.recommend.algorithm.model.FactorModel;
+import com.recommend.algorithm.model.FeatureTable;
+import com.recommend.algorithm.model.SparseMatrix;
+import com.recommend.service.feature.ItemFeatureStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ModelSnapshotPersistenceTest {
+
+    @TempDir
+    Path dir;
+
+    private CollaborativeFilteringAlgorithm collaborativeFilteringAlgorithm;
+    private MatrixFactorizationAlgorithm matrixFactorizationAlgorithm;
+    private ItemFeatureStore itemFeatureStore;
+    private ModelSnapshotPersistence persistence;
+
+    @BeforeEach
+    void setUp() {
+        collaborativeFilteringAlgorithm = mock(CollaborativeFilteringAlgorithm.class);
+        matrixFactorizationAlgorithm = mock(MatrixFactorizationAlgorithm.class);
+        itemFeatureStore = mock(ItemFeatureStore.class);
+        persistence = new ModelSnapshotPersistence();
+        ReflectionTestUtils.setField(persistence, "collaborativeFilteringAlgorithm", collaborativeFilteringAlgorithm);
+        ReflectionTestUtils.setField(persistence, "matrixFactorizationAlgorithm", matrixFactorizationAlgorithm);
+        ReflectionTestUtils.setField(persistence, "itemFeatureStore", itemFeatureStore);
+        ReflectionTestUtils.setField(persistence, "directory", dir.toString());
+        ReflectionTestUtils.setField(persistence, "retain", 3);
+    }
+
+    @Test
+    void writerAndReaderRoundTrip() throws IOException {
+        SparseMatrix matrix = sampleMatrix();
+        FeatureTable table = sampleTable();
+        FactorModel model = sampleModel(1f);
+        Path file = dir.resolve("round-trip.bin");
+        try (ModelSnapshotWriter writer = new ModelSnapshotWriter(file)) {
+            writer.writeSparseMatrix("matrix", matrix)
+                    .writeFeatureTable("table", table)
+                    .writeFactorModel("model", model)
+                    .finish();
+        }
+
+        ModelSnapshotReader reader = ModelSnapshotReader.open(file);
+        assertTrue(reader.getWriteTime() > 0);
+
+        SparseMatrix readMatrix = reader.getSparseMatrix("matrix");
+        assertEquals(matrix.rowCount(), readMatrix.rowCount());
+        assertEquals(matrix.nonZeroCount(), readMatrix.nonZeroCount());
+        assertEquals(0.5f, readMatrix.get(1L, 2L, 0f));
+        assertEquals(0.25f, readMatrix.get(3L, 4L, 0f));
+        assertTrue(readMatrix.containsRow(5L));
+
+        FeatureTable readTable = reader.getFeatureTable("table");
+        assertArrayEquals(table.getIds(), readTable.getIds());
+        assertEquals(table.dimension(), readTable.dimension());
+        for (int f = 0; f < table.dimension(); f++) {
+            assertArrayEquals(table.column(f), readTable.column(f));
+        }
+        assertEquals(table.normAt(1), readTable.normAt(1), 1e-6);
+
+        FactorModel readModel = reader.getFactorModel("model");
+        assertEquals(model.getFactors(), readModel.getFactors());
+        assertArrayEquals(model.getUserIds(), readModel.getUserIds());
+        assertArrayEquals(model.getUserFactors(), readModel.getUserFactors());
+        assertArrayEquals(model.getItemIds(), readModel.getItemIds());
+        assertArrayEquals(model.getItemFactors(), readModel.getItemFactors());
+        assertArrayEquals(model.getItemGram(), readModel.getItemGram());
+        assertArrayEquals(model.getItemPopularity(), readModel.getItemPopularity());
+
+        // 名称不存在或类型不符时返回null
+        assertNull(reader.getSparseMatrix("missing"));
+        assertNull(reader.getFactorModel("matrix"));
+    }
+
+    @Test
+    void readerRejectsCorruptAndUnfinishedFiles() throws IOException {
+        Path corrupt = writeSnapshot(dir.resolve("corrupt.bin"), 1f);
+        flipByte(corrupt);
+        assertThrows(IOException.class, () -> ModelSnapshotReader.open(corrupt));
+
+        Path unfinished = dir.resolve("unfinished.bin");
+        try (ModelSnapshotWriter writer = new ModelSnapshotWriter(unfinished)) {
+            writer.writeSparseMatrix("matrix", sampleMatrix());
+        }
+        assertThrows(IOException.class, () -> ModelSnapshotReader.open(unfinished));
+    }
+
+    @Test
+    void restoreFallsBackToOlderSnapshotWhenNewestIsCorrupt() throws IOException {
+        writeSnapshot(dir.resolve("model-snapshot-1000.bin"), 1f);
+        flipByte(writeSnapshot(dir.resolve("model-snapshot-2000.bin"), 2f));
+
+        assertTrue(persistence.restore());
+
+        ArgumentCaptor<FactorModel> master = ArgumentCaptor.forClass(FactorModel.class);
+        verify(matrixFactorizationAlgorithm).restoreModels(master.capture(), any(FactorModel.class));
+        assertArrayEquals(sampleModel(1f).getUserFactors(), master.getValue().getUserFactors());
+        verify(collaborativeFilteringAlgorithm).restoreModel(any());
+        verify(itemFeatureStore).restore(any(FeatureTable.class), any(FeatureTable.class));
+    }
+
+    @Test
+    void restoreWaitsForTrainingWhenNoSnapshotIsUsable() throws IOException {
+        assertFalse(persistence.restore());
+
+        flipByte(writeSnapshot(dir.resolve("model-snapshot-1000.bin"), 1f));
+        assertFalse(persistence.restore());
+        verify(matrixFactorizationAlgorithm, never()).restoreModels(any(), any());
+        verify(collaborativeFilteringAlgorithm, never()).restoreModel(any());
+    }
+
+    private static Path writeSnapshot(Path file, float scale) throws IOException {
+        SparseMatrix matrix = sampleMatrix();
+        try (ModelSnapshotWriter writer = new ModelSnapshotWriter(file)) {
+            writer.writeSparseMatrix("cf.user-master-ratings", matrix)
+                    .writeSparseMatrix("cf.user-game-ratings", matrix)
+                    .writeSparseMatrix("cf.master-neighbors", matrix)
+                    .writeSparseMatrix("cf.game-neighbors", matrix)
+                    .writeFeatureTable("features.master", sampleTable())
+                    .writeFeatureTable("features.game", sampleTable())
+                    .writeFactorModel("als.master", sampleModel(scale))
+                    .writeFactorModel("als.game", sampleModel(scale))
+                    .finish();
+        }
+        return file;
+    }
+
+    private static void flipByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+
+    private static SparseMatrix sampleMatrix() {
+        return new SparseMatrix.Builder(Integer.MAX_VALUE)
+                .put(1L, 2L, 0.5f)
+                .put(1L, 7L, 1.5f)
+                .put(3L, 4L, 0.25f)
+                .touchRow(5L)
+                .build();
+    }
+
+    private static FeatureTable sampleTable() {
+        return FeatureTable.of(new long[]{20L, 10L},
+                new float[][]{{1f, 0f, 2f}, {0.5f, 3f, 0f}}, 3);
+    }
+
+    private static FactorModel sampleModel(float scale) {
+        return new FactorModel(2, new long[]{1L, 2L}, new float[]{0.1f * scale, 0.2f, 0.3f, 0.4f * scale},
+                new long[]{100L}, new float[]{0.5f, 0.6f}, new double[]{1.0, 0.1, 0.1, 1.0}, new float[]{0.9f});
+    }
+}
@@ -0,0 +1,94 @@
+package com.recommend.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKSelectorTest {
+
+    @Test
+    void keepsHighestScoresInDescendingOrder() {
+        TopKSelector selector = new TopKSelector(3);
+        selector.offer(1L, 0.2);
+        selector.offer(2L, 0.9);
+        selector.offer(3L, 0.5);
+        selector.offer(4L, 0.1);
+        selector.offer(5L, 0.7);
+
+        assertArrayEquals(new long[]{2L, 5L, 3L}, selector.toSortedIds());
+        assertEquals(0.9, selector.scoreAt(0));
+        assertEquals(0.5, selector.scoreAt(2));
+    }
+
+    @Test
+    void tiesPreferSmallerId() {
+        TopKSelector selector = new TopKSelector(2);
+        selector.offer(9L, 1.0);
+        selector.offer(4L, 1.0);
+        selector.offer(7L, 1.0);
+
+        assertArrayEquals(new long[]{4L, 7L}, selector.toSortedIds());
+    }
+
+    @Test
+    void thresholdIsNegativeInfinityUntilFull() {
+        TopKSelector selector = new TopKSelector(2);
+        selector.offer(1L, 0.3);
+        assertEquals(Double.NEGATIVE_INFINITY, selector.threshold());
+        selector.offer(2L, 0.6);
+        assertEquals(0.3, selector.threshold());
+        selector.offer(3L, 0.5);
+        assertEquals(0.5, selector.threshold());
+    }
+
+    @Test
+    void fewerCandidatesThanKAndZeroK() {
+        TopKSelector selector = new TopKSelector(5);
+        selector.offer(1L, 0.1);
+        selector.offer(2L, 0.2);
+        assertArrayEquals(new long[]{2L, 1L}, selector.toSortedIds());
+
+        TopKSelector none = new TopKSelector(0);
+        none.offer(1L, 1.0);
+        assertEquals(0, none.toSortedIds().length);
+
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector(-1));
+    }
+
+    @Test
+    void offerAfterSortIsRejected() {
+        TopKSelector selector = new TopKSelector(1);
+        selector.offer(1L, 1.0);
+        selector.sortDescending();
+        assertThrows(IllegalStateException.class, () -> selector.offer(2L, 2.0));
+    }
+
+    @Test
+    void matchesFullSortOnRandomInput() {
+        Random random = new Random(7);
+        int n = 1000;
+        int k = 25;
+        Long[] ids = new Long[n];
+        double[] scores = new double[n];
+        TopKSelector selector = new TopKSelector(k);
+        for (int i = 0; i < n; i++) {
+            ids[i] = (long) i;
+            // 取整制造并列得分
+            scores[i] = Math.floor(random.nextDouble() * 200);
+            selector.offer(i, scores[i]);
+        }
+
+        Arrays.sort(ids, Comparator.<Long>comparingDouble(id -> -scores[id.intValue()]).thenComparing(id -> id));
+        long[] expected = new long[k];
+        for (int i = 0; i < k; i++) {
+            expected[i] = ids[i];
+        }
+        assertArrayEquals(expected, selector.toSortedIds());
+    }
+}